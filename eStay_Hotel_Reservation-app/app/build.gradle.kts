@@ -18,6 +18,12 @@ android {
         versionName = "1.0"
 
         testInstrumentationRunner = "androidx.test.runner.AndroidJUnitRunner"
+
+        // 后端地址：./gradlew -Pestay.baseUrl=https://api.example.com/ 或环境变量 ESTAY_BASE_URL，默认模拟器访问宿主机
+        val baseUrl = (project.findProperty("estay.baseUrl") as String?)
+            ?: System.getenv("ESTAY_BASE_URL")
+            ?: "http://10.0.2.2:5000/"
+        buildConfigField("String", "BASE_URL", "\"$baseUrl\"")
     }
 
     buildTypes {
@@ -40,8 +46,20 @@ android {
     kotlinOptions {
         jvmTarget = "1.8" // 注意：这里是双引号 ""
     }
+    testOptions {
+        unitTests {
+            // Robolectric 测试需要合并后的资源；纯 JVM 测试中 android.util.Log 等桩方法返回默认值而不是抛异常
+            isIncludeAndroidResources = true
+            isReturnDefaultValues = true
+            // 基准测试（*Benchmark）默认跳过：./gradlew :app:testDebugUnitTest -Pestay.benchmark=true --tests '*Benchmark'
+            all {
+                it.systemProperty("estay.benchmark", project.findProperty("estay.benchmark") ?: "false")
+            }
+        }
+    }
     buildFeatures {
         compose = true
+        buildConfig = true
     }
 }
 
@@ -56,6 +74,10 @@ dependencies {
     implementation(libs.androidx.compose.material3)
     implementation(libs.androidx.appcompat)
     testImplementation(libs.junit)
+    testImplementation("org.robolectric:robolectric:4.14.1")
+    testImplementation("androidx.test:core:1.5.0")
+    testImplementation("androidx.lifecycle:lifecycle-runtime-testing:2.6.1")
+    testImplementation("com.squareup.okhttp3:mockwebserver:4.11.0")
     androidTestImplementation(libs.androidx.junit)
     androidTestImplementation(libs.androidx.espresso.core)
     androidTestImplementation(platform(libs.androidx.compose.bom))
@@ -66,6 +88,7 @@ dependencies {
     implementation("androidx.constraintlayout:constraintlayout:2.1.4")
     implementation("com.google.android.material:material:1.11.0")
     implementation("com.squareup.okhttp3:okhttp:4.11.0")
+    implementation("com.squareup.okhttp3:okhttp-brotli:4.11.0")
     implementation("com.google.code.gson:gson:2.10.1")
     implementation("de.hdodenhof:circleimageview:3.1.0")
     implementation("androidx.cardview:cardview:1.0.0")
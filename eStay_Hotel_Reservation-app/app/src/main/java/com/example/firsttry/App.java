@@ -3,6 +3,10 @@ package com.example.firsttry;
 
 import android.app.Application;
 import com.example.firsttry.authentication.AuthManager;
+import com.example.firsttry.remote.MessageSync;
+import com.example.firsttry.remote.OutboxFlusher;
+import com.example.firsttry.remote.Http.HttpClient;
+import com.example.firsttry.remote.socket.WebSocketManager;
 
 public class App extends Application {
 
@@ -11,5 +15,14 @@ public class App extends Application {
         super.onCreate();
         // 这里的 this 就是 Application，本身就是一个 Context
         AuthManager.init(this);
+        // 必须在第一次使用 HttpClient 之前初始化磁盘缓存
+        HttpClient.init(this);
+        // 发件箱：上次退出时没发出去的消息在启动时补发
+        OutboxFlusher.init(this);
+        OutboxFlusher.getInstance().flush();
+        // 增量同步：WebSocket 每次连上后补齐漏掉的消息
+        MessageSync.init(this);
+        // 后台或断网时暂停 WebSocket 重连
+        WebSocketManager.getInstance().bindAppState(this);
     }
 }
\ No newline at end of file
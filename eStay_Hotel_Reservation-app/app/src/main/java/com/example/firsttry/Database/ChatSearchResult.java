@@ -0,0 +1,53 @@
+package com.example.firsttry.Database;
+
+// 聊天记录搜索结果：一条命中的消息，附带围绕命中位置截取的摘要
+public class ChatSearchResult {
+    private final String messageId;
+    private final String conversationId;
+    private final String sender;
+    private final String content;
+    private final long timestampMillis;
+    private final String snippet;
+    // 命中片段在 snippet 中的位置，用于高亮；没有定位到时为 -1
+    private final int highlightStart;
+    private final int highlightEnd;
+    private final double score;
+
+    public ChatSearchResult(String messageId,
+                            String conversationId,
+                            String sender,
+                            String content,
+                            long timestampMillis,
+                            String snippet,
+                            int highlightStart,
+                            int highlightEnd,
+                            double score) {
+        this.messageId = messageId;
+        this.conversationId = conversationId;
+        this.sender = sender;
+        this.content = content;
+        this.timestampMillis = timestampMillis;
+        this.snippet = snippet;
+        this.highlightStart = highlightStart;
+        this.highlightEnd = highlightEnd;
+        this.score = score;
+    }
+
+    public String getMessageId() { return messageId; }
+
+    public String getConversationId() { return conversationId; }
+
+    public String getSender() { return sender; }
+
+    public String getContent() { return content; }
+
+    public long getTimestampMillis() { return timestampMillis; }
+
+    public String getSnippet() { return snippet; }
+
+    public int getHighlightStart() { return highlightStart; }
+
+    public int getHighlightEnd() { return highlightEnd; }
+
+    public double getScore() { return score; }
+}
@@ -0,0 +1,130 @@
+package com.example.firsttry.Database;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * 聊天记录全文检索的分词（Java 侧完成，FTS4 表只用 simple 分词器按空格切分）。
+ * Android 自带的 SQLite 不一定带 ICU 分词器，Java 层也无法注册自定义分词器，所以在写入前把正文转换成空格分隔的词：
+ * - 中日韩文字：连续的一段切成二元组（"预订酒店" -> "预订 订酒 酒店"），末尾再补一个单字（"店"），
+ *   这样每个字都是某个词的开头，单字查询可以用前缀匹配 "酒*"
+ * - 字母和数字：连续的一段作为一个词并转小写（订单号、日期 "20240501"、英文单词）
+ * - 其他字符（标点、空白、表情）作为分隔符
+ * 查询串用同样的规则切分，词之间是 AND 关系；最后一个字母数字词按前缀匹配，输入一半的订单号也能搜到。
+ */
+public final class ChatSearchTokenizer {
+
+    private ChatSearchTokenizer() {}
+
+    // 正文 -> 写入 FTS 表的文本
+    public static String tokenize(String text) {
+        StringBuilder out = new StringBuilder();
+        for (Segment segment : segments(text)) {
+            if (segment.cjk) {
+                appendCjkTokens(out, segment.text);
+            } else {
+                append(out, segment.text);
+            }
+        }
+        return out.toString();
+    }
+
+    /**
+     * 用户输入 -> FTS MATCH 表达式；没有可搜索的内容时返回 null。
+     * 生成的词只包含文字和数字，不会出现 FTS 的运算符和引号。
+     */
+    public static String buildMatchQuery(String query) {
+        List<Segment> segments = segments(query);
+        if (segments.isEmpty()) return null;
+        StringBuilder out = new StringBuilder();
+        for (int i = 0; i < segments.size(); i++) {
+            Segment segment = segments.get(i);
+            boolean last = i == segments.size() - 1;
+            if (segment.cjk) {
+                if (segment.text.length() == 1) {
+                    // 单字：匹配以它开头的二元组或末尾单字
+                    append(out, segment.text + "*");
+                } else {
+                    // 查询只需要二元组，不补末尾单字（否则 "酒店" 会要求正文里 "店" 恰好在一段末尾）
+                    for (int j = 0; j + 1 < segment.text.length(); j++) {
+                        append(out, segment.text.substring(j, j + 2));
+                    }
+                }
+            } else {
+                append(out, last ? segment.text + "*" : segment.text);
+            }
+        }
+        return out.toString();
+    }
+
+    // 查询串中的原始片段（小写），用于在正文里定位摘要位置
+    public static List<String> querySegments(String query) {
+        List<String> result = new ArrayList<>();
+        for (Segment segment : segments(query)) {
+            result.add(segment.text);
+        }
+        return result;
+    }
+
+    private static void appendCjkTokens(StringBuilder out, String run) {
+        for (int i = 0; i + 1 < run.length(); i++) {
+            append(out, run.substring(i, i + 2));
+        }
+        append(out, run.substring(run.length() - 1));
+    }
+
+    private static void append(StringBuilder out, String token) {
+        if (out.length() > 0) out.append(' ');
+        out.append(token);
+    }
+
+    // 按字符类别切成连续的中日韩片段和字母数字片段，分隔符丢弃
+    private static List<Segment> segments(String text) {
+        List<Segment> result = new ArrayList<>();
+        if (text == null || text.isEmpty()) return result;
+        StringBuilder current = new StringBuilder();
+        boolean currentCjk = false;
+        for (int i = 0; i < text.length(); ) {
+            int codePoint = text.codePointAt(i);
+            i += Character.charCount(codePoint);
+            boolean cjk = isCjk(codePoint);
+            boolean word = !cjk && Character.isLetterOrDigit(codePoint);
+            if (!cjk && !word) {
+                flush(result, current, currentCjk);
+                continue;
+            }
+            if (current.length() > 0 && cjk != currentCjk) {
+                flush(result, current, currentCjk);
+            }
+            currentCjk = cjk;
+            current.appendCodePoint(cjk ? codePoint : Character.toLowerCase(codePoint));
+        }
+        flush(result, current, currentCjk);
+        return result;
+    }
+
+    private static void flush(List<Segment> result, StringBuilder current, boolean cjk) {
+        if (current.length() == 0) return;
+        result.add(new Segment(current.toString().toLowerCase(Locale.ROOT), cjk));
+        current.setLength(0);
+    }
+
+    private static boolean isCjk(int codePoint) {
+        Character.UnicodeBlock block = Character.UnicodeBlock.of(codePoint);
+        return Character.isIdeographic(codePoint)
+                || block == Character.UnicodeBlock.HIRAGANA
+                || block == Character.UnicodeBlock.KATAKANA
+                || block == Character.UnicodeBlock.HANGUL_SYLLABLES;
+    }
+
+    private static final class Segment {
+        final String text;
+        final boolean cjk;
+
+        Segment(String text, boolean cjk) {
+            this.text = text;
+            this.cjk = cjk;
+        }
+    }
+}
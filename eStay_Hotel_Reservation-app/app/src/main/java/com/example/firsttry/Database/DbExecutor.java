@@ -0,0 +1,261 @@
+package com.example.firsttry.Database;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.lifecycle.Lifecycle;
+import androidx.lifecycle.LifecycleEventObserver;
+import androidx.lifecycle.LifecycleOwner;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 本地数据库（UserDbHelper、HotelRepository 的磁盘缓存）的后台执行器，替代各页面里零散的 new Thread。
+ * - 写操作（包括"先读再写"的操作，如累加未读数）全部进入单线程写队列，按提交顺序串行执行
+ * - 纯读操作进入一个小的读线程池；两个数据库都开启了 WAL，读不会被写阻塞
+ * - 结果通过回调投递到主线程；任务抛异常时改为调用 DbErrorCallback（同样在主线程），
+ *   调用方据此复位"进行中"之类的状态。传入 LifecycleOwner 时，owner 销毁后不再回调，
+ *   尚未开始的读操作直接取消（写操作照常执行，只是不回调）
+ * - 记录每个队列的排队深度、等待时间和执行时间，getStats() 可查看
+ */
+public class DbExecutor {
+
+    private static final String TAG = "DbExecutor";
+    private static final int READER_THREADS = 2;
+    // 执行超过这个时间的任务打印警告
+    private static final long SLOW_TASK_MS = 100;
+
+    private static volatile DbExecutor instance;
+
+    private final ExecutorService writer = Executors.newSingleThreadExecutor(namedFactory("db-writer"));
+    private final ExecutorService readers = Executors.newFixedThreadPool(READER_THREADS, namedFactory("db-reader"));
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    private final QueueStats writeStats = new QueueStats("write");
+    private final QueueStats readStats = new QueueStats("read");
+
+    // 在主线程回调结果
+    public interface DbCallback<T> {
+        void onResult(T result);
+    }
+
+    // 任务抛出异常时在主线程回调（异常已记录日志）
+    public interface DbErrorCallback {
+        void onError(Exception e);
+    }
+
+    public static DbExecutor getInstance() {
+        if (instance == null) {
+            synchronized (DbExecutor.class) {
+                if (instance == null) {
+                    instance = new DbExecutor();
+                }
+            }
+        }
+        return instance;
+    }
+
+    private DbExecutor() {}
+
+    // 只读查询，owner 可为 null
+    public <T> DbRequest<T> read(LifecycleOwner owner, Callable<T> task, DbCallback<T> callback) {
+        return submit(readers, readStats, false, owner, task, callback, null);
+    }
+
+    public <T> DbRequest<T> read(LifecycleOwner owner, Callable<T> task, DbCallback<T> callback,
+                                 DbErrorCallback errorCallback) {
+        return submit(readers, readStats, false, owner, task, callback, errorCallback);
+    }
+
+    // 写操作（或需要与其他写操作串行的读-改-写），owner 可为 null
+    public <T> DbRequest<T> write(LifecycleOwner owner, Callable<T> task, DbCallback<T> callback) {
+        return submit(writer, writeStats, true, owner, task, callback, null);
+    }
+
+    public <T> DbRequest<T> write(LifecycleOwner owner, Callable<T> task, DbCallback<T> callback,
+                                  DbErrorCallback errorCallback) {
+        return submit(writer, writeStats, true, owner, task, callback, errorCallback);
+    }
+
+    // 不需要结果的写操作
+    public DbRequest<Void> write(Runnable task) {
+        return submit(writer, writeStats, true, null, () -> {
+            task.run();
+            return null;
+        }, null, null);
+    }
+
+    public String getStats() {
+        return writeStats + "; " + readStats;
+    }
+
+    private <T> DbRequest<T> submit(ExecutorService executor, QueueStats stats, boolean isWrite,
+                                    LifecycleOwner owner, Callable<T> task, DbCallback<T> callback,
+                                    DbErrorCallback errorCallback) {
+        final DbRequest<T> request = new DbRequest<>();
+        final long enqueuedAt = SystemClock.elapsedRealtime();
+        stats.pending.incrementAndGet();
+
+        request.future = executor.submit(() -> {
+            long startedAt = SystemClock.elapsedRealtime();
+            stats.pending.decrementAndGet();
+            // 读操作开始前已经取消，直接跳过
+            if (!isWrite && request.isCancelled()) {
+                return null;
+            }
+            T result;
+            try {
+                result = task.call();
+            } catch (Exception e) {
+                Log.e(TAG, stats.name + " task failed", e);
+                stats.failed.incrementAndGet();
+                mainHandler.post(() -> {
+                    request.unbind();
+                    if (errorCallback != null && !request.isCancelled()) {
+                        errorCallback.onError(e);
+                    }
+                });
+                // 仍然抛给 Future，get() 的调用方能拿到原始异常
+                throw e;
+            } finally {
+                stats.record(startedAt - enqueuedAt, SystemClock.elapsedRealtime() - startedAt);
+            }
+            if (callback != null && !request.isCancelled()) {
+                mainHandler.post(() -> {
+                    if (!request.isCancelled()) {
+                        request.unbind();
+                        callback.onResult(result);
+                    }
+                });
+            } else {
+                mainHandler.post(request::unbind);
+            }
+            return result;
+        });
+
+        if (owner != null) {
+            request.bind(owner, mainHandler);
+        }
+        return request;
+    }
+
+    private static ThreadFactory namedFactory(String name) {
+        AtomicInteger count = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, name + "-" + count.incrementAndGet());
+            thread.setPriority(Thread.NORM_PRIORITY - 1);
+            return thread;
+        };
+    }
+
+    /**
+     * 一次提交的句柄：可以取消回调，也可以在后台线程阻塞等待结果。
+     */
+    public static class DbRequest<T> {
+        private volatile boolean cancelled;
+        private volatile Future<T> future;
+        private LifecycleOwner owner;
+        private LifecycleEventObserver observer;
+
+        DbRequest() {}
+
+        // 取消回调；读操作若尚未开始，轮到它时直接跳过（仍经过队列，排队统计保持准确）；写操作仍会完成
+        public void cancel() {
+            cancelled = true;
+        }
+
+        public boolean isCancelled() {
+            return cancelled;
+        }
+
+        // 阻塞等待结果，不能在主线程调用
+        public T get() throws ExecutionException, InterruptedException {
+            return future.get();
+        }
+
+        // 绑定生命周期：owner 进入 DESTROYED 时自动取消
+        void bind(LifecycleOwner owner, Handler mainHandler) {
+            Runnable register = () -> {
+                if (cancelled) return;
+                if (owner.getLifecycle().getCurrentState() == Lifecycle.State.DESTROYED) {
+                    cancel();
+                    return;
+                }
+                this.owner = owner;
+                this.observer = (source, event) -> {
+                    if (event == Lifecycle.Event.ON_DESTROY) {
+                        cancel();
+                        unbind();
+                    }
+                };
+                owner.getLifecycle().addObserver(observer);
+            };
+            // addObserver 必须在主线程调用
+            if (Looper.myLooper() == Looper.getMainLooper()) {
+                register.run();
+            } else {
+                mainHandler.post(register);
+            }
+        }
+
+        // 主线程调用
+        void unbind() {
+            if (owner != null && observer != null) {
+                owner.getLifecycle().removeObserver(observer);
+            }
+            owner = null;
+            observer = null;
+        }
+    }
+
+    // 单个队列的统计：当前排队数、累计任务数、平均/最大等待和执行时间
+    private static class QueueStats {
+        final String name;
+        final AtomicInteger pending = new AtomicInteger();
+        final AtomicLong completed = new AtomicLong();
+        final AtomicLong failed = new AtomicLong();
+        final AtomicLong totalWaitMs = new AtomicLong();
+        final AtomicLong totalRunMs = new AtomicLong();
+        final AtomicLong maxWaitMs = new AtomicLong();
+        final AtomicLong maxRunMs = new AtomicLong();
+
+        QueueStats(String name) {
+            this.name = name;
+        }
+
+        void record(long waitMs, long runMs) {
+            completed.incrementAndGet();
+            totalWaitMs.addAndGet(waitMs);
+            totalRunMs.addAndGet(runMs);
+            updateMax(maxWaitMs, waitMs);
+            updateMax(maxRunMs, runMs);
+            if (runMs > SLOW_TASK_MS) {
+                Log.w(TAG, name + " task took " + runMs + "ms (waited " + waitMs + "ms, pending " + pending.get() + ")");
+            }
+        }
+
+        private static void updateMax(AtomicLong max, long value) {
+            long current;
+            while (value > (current = max.get())) {
+                if (max.compareAndSet(current, value)) break;
+            }
+        }
+
+        @Override
+        public String toString() {
+            long n = Math.max(1, completed.get());
+            return name + ": pending=" + pending.get() + ", completed=" + completed.get() + ", failed=" + failed.get()
+                    + ", avgWait=" + totalWaitMs.get() / n + "ms, maxWait=" + maxWaitMs.get()
+                    + "ms, avgRun=" + totalRunMs.get() / n + "ms, maxRun=" + maxRunMs.get() + "ms";
+        }
+    }
+}
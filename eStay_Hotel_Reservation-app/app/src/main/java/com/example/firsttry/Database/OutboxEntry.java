@@ -0,0 +1,46 @@
+package com.example.firsttry.Database;
+
+// outbox 表中的一行：一条待发送（或已发送）的消息
+public class OutboxEntry {
+    public static final int STATE_PENDING = 0;
+    public static final int STATE_ACKED = 1;
+    public static final int STATE_FAILED = 2;
+
+    private final long id;
+    private final String clientMsgId;
+    private final String receiverId;
+    private final String content;
+    private final String token;
+    private final int attempts;
+    private final long createdMs;
+
+    public OutboxEntry(long id,
+                       String clientMsgId,
+                       String receiverId,
+                       String content,
+                       String token,
+                       int attempts,
+                       long createdMs) {
+        this.id = id;
+        this.clientMsgId = clientMsgId;
+        this.receiverId = receiverId;
+        this.content = content;
+        this.token = token;
+        this.attempts = attempts;
+        this.createdMs = createdMs;
+    }
+
+    public long getId() { return id; }
+
+    public String getClientMsgId() { return clientMsgId; }
+
+    public String getReceiverId() { return receiverId; }
+
+    public String getContent() { return content; }
+
+    public String getToken() { return token; }
+
+    public int getAttempts() { return attempts; }
+
+    public long getCreatedMs() { return createdMs; }
+}
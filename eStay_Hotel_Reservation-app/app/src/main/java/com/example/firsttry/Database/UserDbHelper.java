@@ -3,21 +3,35 @@ package com.example.firsttry.Database;
 import android.content.ContentValues;
 import android.content.Context;
 import android.database.Cursor;
+import android.database.DatabaseUtils;
 import android.database.sqlite.SQLiteDatabase;
 import android.database.sqlite.SQLiteOpenHelper;
+import android.database.sqlite.SQLiteStatement;
 import android.util.Log;
 
+import androidx.annotation.VisibleForTesting;
+
 import com.example.firsttry.activity.message.chat.ChatMessage;
 import com.example.firsttry.activity.message.Message;
+import com.example.firsttry.utils.TimeUtils;
 
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 
 public class UserDbHelper extends SQLiteOpenHelper {
 
     private static final String DB_NAME = "user.db";
     // 每次修改表结构，都应增加版本号，以触发 onUpgrade
-    private static final int DB_VERSION = 15; // 升级至 15
+    private static final int DB_VERSION = 20; // 升级至 20：聊天记录全文检索 chat_messages_fts
 
     // === 单例模式实现 ===
     private static UserDbHelper instance;
@@ -31,6 +45,16 @@ public class UserDbHelper extends SQLiteOpenHelper {
         return instance;
     }
 
+    // 只给测试用：关闭并丢弃单例，下一次 getInstance 会重新打开数据库（触发 onCreate / onUpgrade）
+    @VisibleForTesting
+    static synchronized void resetInstanceForTesting() {
+        if (instance != null) {
+            instance.close();
+        }
+        instance = null;
+        database = null;
+    }
+
     // --- 表和字段定义 ---
     public static final String TABLE_USER = "user";
     public static final String COL_ID = "_id";
@@ -44,6 +68,7 @@ public class UserDbHelper extends SQLiteOpenHelper {
     public static final String COL_SENDER = "sender_name";
     public static final String COL_CONTENT = "content";
     public static final String COL_TIME = "time";
+    public static final String COL_TIME_MS = "time_ms"; // time 对应的 epoch 毫秒，排序用它
     public static final String COL_UNREAD = "unread";
     public static final String COL_REMARK = "remark"; // remark 字段复用
 
@@ -53,9 +78,44 @@ public class UserDbHelper extends SQLiteOpenHelper {
     public static final String COL_CHAT_RECEIVER = "receiver";
     public static final String COL_CHAT_CONTENT = "content";
     public static final String COL_CHAT_TIMESTAMP = "timestamp";
+    public static final String COL_CHAT_TIMESTAMP_MS = "timestamp_ms"; // timestamp 对应的 epoch 毫秒，排序和分页用它
+
+    // 打开会话时按 conv_id 过滤、按 timestamp_ms 排序，复合索引避免全表扫描和临时排序
+    private static final String INDEX_CHAT_CONV_TIME = "idx_chat_messages_conv_time_ms";
+    // v16 的 (conv_id, timestamp) 文本索引，v17 起不再使用
+    private static final String LEGACY_INDEX_CHAT_CONV_TIME = "idx_chat_messages_conv_time";
+    private static final String INDEX_CHAT_MSG_ID = "idx_chat_messages_msg_id";
+
+    // 发件箱：待发送的消息先落库，由 OutboxFlusher 按 _id 顺序发送，服务端确认后标记为已确认
+    public static final String TABLE_OUTBOX = "outbox";
+    public static final String COL_OUTBOX_CLIENT_MSG_ID = "client_msg_id"; // 客户端生成，与 chat_messages.msg_id 相同
+    public static final String COL_OUTBOX_RECEIVER_ID = "receiver_id";
+    public static final String COL_OUTBOX_CONTENT = "content";
+    public static final String COL_OUTBOX_TOKEN = "token";
+    public static final String COL_OUTBOX_STATE = "state";
+    public static final String COL_OUTBOX_ATTEMPTS = "attempts";
+    public static final String COL_OUTBOX_SERVER_MSG_ID = "server_msg_id";
+    public static final String COL_OUTBOX_CREATED_MS = "created_ms";
+    public static final String COL_OUTBOX_UPDATED_MS = "updated_ms";
+    private static final String INDEX_OUTBOX_STATE = "idx_outbox_state";
+
+    // 增量同步水位：每个会话（conv_id）已同步到的最新消息时间；SYNC_ALL 表示整个收件箱
+    public static final String TABLE_SYNC_STATE = "sync_state";
+    public static final String COL_SYNC_HWM_MS = "hwm_ms";
+    public static final String COL_SYNC_UPDATED_MS = "updated_ms";
+    public static final String SYNC_ALL = "*";
+
+    // 聊天记录全文检索：FTS4 虚表，docid = chat_messages._id，tokens 为 ChatSearchTokenizer 切好的词
+    public static final String TABLE_CHAT_FTS = "chat_messages_fts";
+    public static final String COL_FTS_TOKENS = "tokens";
+    private static final String TRIGGER_CHAT_FTS_DELETE = "chat_messages_fts_ad";
+    // 搜索时最多对这么多条命中（按消息时间最新的优先）计算相关度，常见词也不会把整张表读出来
+    private static final int SEARCH_CANDIDATE_LIMIT = 2000;
 
     private UserDbHelper(Context context) {
         super(context, DB_NAME, null, DB_VERSION);
+        // WAL：读（会话列表、聊天记录）不再被写（收到新消息）阻塞，提交也更快
+        setWriteAheadLoggingEnabled(true);
     }
 
     @Override
@@ -76,6 +136,7 @@ public class UserDbHelper extends SQLiteOpenHelper {
                 COL_SENDER + " TEXT, " +
                 COL_CONTENT + " TEXT, " +
                 COL_TIME + " TEXT, " +
+                COL_TIME_MS + " INTEGER NOT NULL DEFAULT 0, " +
                 COL_UNREAD + " INTEGER, " +
                 COL_REMARK + " TEXT" +
                 ")";
@@ -88,9 +149,85 @@ public class UserDbHelper extends SQLiteOpenHelper {
                 + COL_CHAT_SENDER + " TEXT, "
                 + COL_CHAT_RECEIVER + " TEXT, "
                 + COL_CHAT_CONTENT + " TEXT, "
-                + COL_CHAT_TIMESTAMP + " TEXT"
+                + COL_CHAT_TIMESTAMP + " TEXT, "
+                + COL_CHAT_TIMESTAMP_MS + " INTEGER NOT NULL DEFAULT 0"
                 + ");";
         db.execSQL(createChatMessagesTableSql);
+        createChatMessageIndexes(db);
+        createOutboxTable(db);
+        createSyncStateTable(db);
+        createChatSearchTable(db);
+    }
+
+    // 分词只能在 Java 里做，所以写入索引由 insertChatMessage / insertChatMessagesInTransaction 在同一事务中完成；
+    // 删除（包括以后的清理、按会话删除）由触发器同步，不会留下指向已删除消息的索引
+    private static void createChatSearchTable(SQLiteDatabase db) {
+        db.execSQL("CREATE VIRTUAL TABLE IF NOT EXISTS " + TABLE_CHAT_FTS + " USING fts4("
+                + COL_FTS_TOKENS + ", tokenize=simple)");
+        db.execSQL("CREATE TRIGGER IF NOT EXISTS " + TRIGGER_CHAT_FTS_DELETE + " AFTER DELETE ON " + TABLE_CHAT_MESSAGES
+                + " BEGIN DELETE FROM " + TABLE_CHAT_FTS + " WHERE docid = old." + COL_ID + "; END");
+    }
+
+    // 已有聊天记录建索引（升级时调用，已在 onUpgrade 的事务中）
+    private static void backfillChatSearch(SQLiteDatabase db) {
+        SQLiteStatement insert = db.compileStatement("INSERT INTO " + TABLE_CHAT_FTS + " (docid, " + COL_FTS_TOKENS + ") VALUES (?, ?)");
+        Cursor cursor = db.query(TABLE_CHAT_MESSAGES, new String[]{COL_ID, COL_CHAT_CONTENT}, COL_CHAT_CONTENT + " IS NOT NULL",
+                null, null, null, null);
+        int indexed = 0;
+        try {
+            while (cursor.moveToNext()) {
+                insert.bindLong(1, cursor.getLong(0));
+                insert.bindString(2, ChatSearchTokenizer.tokenize(cursor.getString(1)));
+                insert.executeInsert();
+                indexed++;
+            }
+        } finally {
+            cursor.close();
+            insert.close();
+        }
+        Log.i("UserDbHelper", "Indexed " + indexed + " chat messages for search");
+    }
+
+    private static void createSyncStateTable(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE IF NOT EXISTS " + TABLE_SYNC_STATE + " ("
+                + COL_CONV_ID + " TEXT PRIMARY KEY, "
+                + COL_SYNC_HWM_MS + " INTEGER NOT NULL DEFAULT 0, "
+                + COL_SYNC_UPDATED_MS + " INTEGER NOT NULL DEFAULT 0"
+                + ");");
+    }
+
+    private static void createOutboxTable(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE IF NOT EXISTS " + TABLE_OUTBOX + " ("
+                + COL_ID + " INTEGER PRIMARY KEY AUTOINCREMENT, "
+                + COL_OUTBOX_CLIENT_MSG_ID + " TEXT NOT NULL UNIQUE, "
+                + COL_OUTBOX_RECEIVER_ID + " TEXT, "
+                + COL_OUTBOX_CONTENT + " TEXT, "
+                + COL_OUTBOX_TOKEN + " TEXT, "
+                + COL_OUTBOX_STATE + " INTEGER NOT NULL DEFAULT " + OutboxEntry.STATE_PENDING + ", "
+                + COL_OUTBOX_ATTEMPTS + " INTEGER NOT NULL DEFAULT 0, "
+                + COL_OUTBOX_SERVER_MSG_ID + " TEXT, "
+                + COL_OUTBOX_CREATED_MS + " INTEGER NOT NULL DEFAULT 0, "
+                + COL_OUTBOX_UPDATED_MS + " INTEGER NOT NULL DEFAULT 0"
+                + ");");
+        // 发送时按 state 取待发送的行，再按 _id 排序
+        db.execSQL("CREATE INDEX IF NOT EXISTS " + INDEX_OUTBOX_STATE + " ON " + TABLE_OUTBOX
+                + " (" + COL_OUTBOX_STATE + ", " + COL_ID + ")");
+    }
+
+    private static void createChatMessageIndexes(SQLiteDatabase db) {
+        createChatMsgIdIndex(db);
+        createChatConvTimeIndex(db);
+    }
+
+    private static void createChatMsgIdIndex(SQLiteDatabase db) {
+        db.execSQL("CREATE UNIQUE INDEX IF NOT EXISTS " + INDEX_CHAT_MSG_ID + " ON " + TABLE_CHAT_MESSAGES
+                + " (" + COL_CHAT_MSG_ID + ")");
+    }
+
+    // 依赖 timestamp_ms 列（v17 加入），升级时只能在 v17 步骤之后建
+    private static void createChatConvTimeIndex(SQLiteDatabase db) {
+        db.execSQL("CREATE INDEX IF NOT EXISTS " + INDEX_CHAT_CONV_TIME + " ON " + TABLE_CHAT_MESSAGES
+                + " (" + COL_CONV_ID + ", " + COL_CHAT_TIMESTAMP_MS + ")");
     }
 
     @Override
@@ -113,14 +250,102 @@ public class UserDbHelper extends SQLiteOpenHelper {
             } catch (Exception e) {
                 Log.e("UserDbHelper", "Failed to upgrade to version 15 for user.remark, falling back to destructive migration.", e);
                 fallbackToDestructiveMigration(db);
+                return;
+            }
+        }
+        if (oldVersion < 16) {
+            try {
+                // 旧版本用时间戳做 msg_id，可能有重复：每个 msg_id 只保留最后写入的一行，再建唯一索引
+                db.execSQL("DELETE FROM " + TABLE_CHAT_MESSAGES + " WHERE " + COL_CHAT_MSG_ID + " IS NOT NULL AND "
+                        + COL_ID + " NOT IN (SELECT MAX(" + COL_ID + ") FROM " + TABLE_CHAT_MESSAGES
+                        + " WHERE " + COL_CHAT_MSG_ID + " IS NOT NULL GROUP BY " + COL_CHAT_MSG_ID + ")");
+                // 这一步的表里还没有 timestamp_ms，只建 v16 当时的索引；(conv_id, timestamp_ms) 在 v17 建
+                createChatMsgIdIndex(db);
+                db.execSQL("CREATE INDEX IF NOT EXISTS " + LEGACY_INDEX_CHAT_CONV_TIME + " ON " + TABLE_CHAT_MESSAGES
+                        + " (" + COL_CONV_ID + ", " + COL_CHAT_TIMESTAMP + ")");
+                Log.i("UserDbHelper", "Upgraded to version 16: Added chat_messages indexes.");
+            } catch (Exception e) {
+                Log.e("UserDbHelper", "Failed to upgrade to version 16 for chat_messages indexes, falling back to destructive migration.", e);
+                fallbackToDestructiveMigration(db);
+                return;
+            }
+        }
+        if (oldVersion < 17) {
+            try {
+                // 文本时间只能按字典序比较，格式不统一时顺序就是错的；加整数毫秒列并回填已有数据
+                db.execSQL("ALTER TABLE " + TABLE_CONVERSATIONS + " ADD COLUMN " + COL_TIME_MS + " INTEGER NOT NULL DEFAULT 0");
+                db.execSQL("ALTER TABLE " + TABLE_CHAT_MESSAGES + " ADD COLUMN " + COL_CHAT_TIMESTAMP_MS + " INTEGER NOT NULL DEFAULT 0");
+                backfillMillis(db, TABLE_CONVERSATIONS, COL_TIME, COL_TIME_MS);
+                backfillMillis(db, TABLE_CHAT_MESSAGES, COL_CHAT_TIMESTAMP, COL_CHAT_TIMESTAMP_MS);
+                db.execSQL("DROP INDEX IF EXISTS " + LEGACY_INDEX_CHAT_CONV_TIME);
+                createChatConvTimeIndex(db);
+                Log.i("UserDbHelper", "Upgraded to version 17: Added epoch millis time columns.");
+            } catch (Exception e) {
+                Log.e("UserDbHelper", "Failed to upgrade to version 17 for time columns, falling back to destructive migration.", e);
+                fallbackToDestructiveMigration(db);
+                return;
             }
         }
+        if (oldVersion < 18) {
+            try {
+                createOutboxTable(db);
+                Log.i("UserDbHelper", "Upgraded to version 18: Added outbox table.");
+            } catch (Exception e) {
+                Log.e("UserDbHelper", "Failed to upgrade to version 18 for outbox, falling back to destructive migration.", e);
+                fallbackToDestructiveMigration(db);
+                return;
+            }
+        }
+        if (oldVersion < 19) {
+            try {
+                createSyncStateTable(db);
+                Log.i("UserDbHelper", "Upgraded to version 19: Added sync_state table.");
+            } catch (Exception e) {
+                Log.e("UserDbHelper", "Failed to upgrade to version 19 for sync_state, falling back to destructive migration.", e);
+                fallbackToDestructiveMigration(db);
+                return;
+            }
+        }
+        if (oldVersion < 20) {
+            try {
+                createChatSearchTable(db);
+                backfillChatSearch(db);
+                Log.i("UserDbHelper", "Upgraded to version 20: Added chat_messages_fts.");
+            } catch (Exception e) {
+                Log.e("UserDbHelper", "Failed to upgrade to version 20 for chat_messages_fts, falling back to destructive migration.", e);
+                fallbackToDestructiveMigration(db);
+            }
+        }
+    }
+
+    // 逐行解析旧的文本时间写入毫秒列（SQLite 的 strftime 不认识 "yyyy MM dd" 这类格式，只能在 Java 里解析）
+    private static void backfillMillis(SQLiteDatabase db, String table, String textColumn, String millisColumn) {
+        SQLiteStatement update = db.compileStatement("UPDATE " + table + " SET " + millisColumn + " = ? WHERE " + COL_ID + " = ?");
+        Cursor cursor = db.query(table, new String[]{COL_ID, textColumn}, textColumn + " IS NOT NULL", null, null, null, null);
+        int updated = 0;
+        try {
+            while (cursor.moveToNext()) {
+                long millis = TimeUtils.parseToMillis(cursor.getString(1));
+                if (millis <= 0) continue;
+                update.bindLong(1, millis);
+                update.bindLong(2, cursor.getLong(0));
+                update.executeUpdateDelete();
+                updated++;
+            }
+        } finally {
+            cursor.close();
+            update.close();
+        }
+        Log.i("UserDbHelper", "Backfilled " + updated + " rows of " + table + "." + millisColumn);
     }
 
     private void fallbackToDestructiveMigration(SQLiteDatabase db) {
         db.execSQL("DROP TABLE IF EXISTS " + TABLE_USER);
         db.execSQL("DROP TABLE IF EXISTS " + TABLE_CONVERSATIONS);
         db.execSQL("DROP TABLE IF EXISTS " + TABLE_CHAT_MESSAGES);
+        db.execSQL("DROP TABLE IF EXISTS " + TABLE_OUTBOX);
+        db.execSQL("DROP TABLE IF EXISTS " + TABLE_SYNC_STATE);
+        db.execSQL("DROP TABLE IF EXISTS " + TABLE_CHAT_FTS);
         onCreate(db);
     }
 
@@ -132,6 +357,7 @@ public class UserDbHelper extends SQLiteOpenHelper {
         ContentValues values = new ContentValues();
         values.put(COL_CONTENT, msg.getContent());
         values.put(COL_TIME, msg.getTime());
+        values.put(COL_TIME_MS, msg.getTimeMillis());
         values.put(COL_UNREAD, msg.getUnreadCount());
         if (msg.getRemark() != null) {
             values.put(COL_REMARK, msg.getRemark());
@@ -147,40 +373,234 @@ public class UserDbHelper extends SQLiteOpenHelper {
         }
     }
 
+    // 批量 upsert 会话：整批在一个事务里，用预编译语句逐行执行，只提交（fsync）一次
+    public void upsertConversationMessages(List<Message> messages) {
+        if (messages == null || messages.isEmpty()) return;
+        database.beginTransaction();
+        try {
+            upsertConversationsInTransaction(messages);
+            database.setTransactionSuccessful();
+        } finally {
+            database.endTransaction();
+        }
+    }
+
+    // 批量写入聊天记录（按 msg_id upsert），返回新插入的条数
+    public int insertChatMessages(List<ChatMessage> chatMessages) {
+        if (chatMessages == null || chatMessages.isEmpty()) return 0;
+        database.beginTransaction();
+        try {
+            int inserted = insertChatMessagesInTransaction(chatMessages);
+            database.setTransactionSuccessful();
+            return inserted;
+        } finally {
+            database.endTransaction();
+        }
+    }
+
+    // 会话更新和聊天记录在同一个事务中写入：要么都成功，要么都不写
+    public int applyMessageBatch(List<Message> conversationUpdates, List<ChatMessage> chatMessages) {
+        database.beginTransaction();
+        try {
+            if (conversationUpdates != null && !conversationUpdates.isEmpty()) {
+                upsertConversationsInTransaction(conversationUpdates);
+            }
+            int inserted = 0;
+            if (chatMessages != null && !chatMessages.isEmpty()) {
+                inserted = insertChatMessagesInTransaction(chatMessages);
+            }
+            database.setTransactionSuccessful();
+            return inserted;
+        } finally {
+            database.endTransaction();
+        }
+    }
+
+    // 收到新消息：更新会话预览并在 SQL 侧累加未读数（unread = unread + n），不需要先把会话读出来。
+    // minSdk 21 的 SQLite 不支持 ON CONFLICT DO UPDATE（3.24+，API 30 起），
+    // 这里用同一事务内的 UPDATE，未命中再 INSERT，效果等价且是原子的。
+    // 同一批里同一会话的多条消息合并成一次更新，预览取最后一条。返回受影响的会话 id（按出现顺序）
+    public List<String> applyIncomingMessages(List<Message> incoming, List<ChatMessage> chatMessages) {
+        Map<String, Message> latestByConv = new LinkedHashMap<>();
+        Map<String, Integer> countByConv = new HashMap<>();
+        if (incoming != null) {
+            for (Message msg : incoming) {
+                String convId = msg.getSenderName();
+                if (convId == null || convId.isEmpty()) continue;
+                latestByConv.put(convId, msg);
+                Integer count = countByConv.get(convId);
+                countByConv.put(convId, count == null ? 1 : count + 1);
+            }
+        }
+
+        database.beginTransaction();
+        try {
+            bumpConversationsInTransaction(latestByConv, countByConv);
+            if (chatMessages != null && !chatMessages.isEmpty()) {
+                insertChatMessagesInTransaction(chatMessages);
+            }
+            database.setTransactionSuccessful();
+        } finally {
+            database.endTransaction();
+        }
+        return new ArrayList<>(latestByConv.keySet());
+    }
+
+    // 新消息更新会话（applyIncomingMessages 和 applySyncedMessages 共用）：预览换成 latestByConv 里的消息，
+    // 未读数加上 unreadByConv 里的条数（没有记录时加 0），会话不存在时插入。
+    // 补回来的旧消息比现有预览还早时只累加未读数，不覆盖预览；时间未知（0）的消息照旧直接覆盖
+    private void bumpConversationsInTransaction(Map<String, Message> latestByConv, Map<String, Integer> unreadByConv) {
+        if (latestByConv.isEmpty()) return;
+        String newer = "?3 = 0 OR IFNULL(" + COL_TIME_MS + ", 0) <= ?3";
+        SQLiteStatement update = database.compileStatement("UPDATE " + TABLE_CONVERSATIONS + " SET "
+                + COL_CONTENT + " = CASE WHEN " + newer + " THEN ?1 ELSE " + COL_CONTENT + " END, "
+                + COL_TIME + " = CASE WHEN " + newer + " THEN ?2 ELSE " + COL_TIME + " END, "
+                + COL_TIME_MS + " = CASE WHEN " + newer + " THEN ?3 ELSE " + COL_TIME_MS + " END, "
+                + COL_UNREAD + " = IFNULL(" + COL_UNREAD + ", 0) + ?4 WHERE " + COL_CONV_ID + " = ?5");
+        SQLiteStatement insert = database.compileStatement("INSERT INTO " + TABLE_CONVERSATIONS + " ("
+                + COL_CONV_ID + ", " + COL_SENDER + ", " + COL_CONTENT + ", " + COL_TIME + ", "
+                + COL_TIME_MS + ", " + COL_UNREAD + ") VALUES (?, ?, ?, ?, ?, ?)");
+        try {
+            for (Map.Entry<String, Message> entry : latestByConv.entrySet()) {
+                String convId = entry.getKey();
+                Message msg = entry.getValue();
+                Integer unread = unreadByConv.get(convId);
+                int count = unread == null ? 0 : unread;
+                update.clearBindings();
+                bindStringOrNull(update, 1, msg.getContent());
+                bindStringOrNull(update, 2, msg.getTime());
+                update.bindLong(3, msg.getTimeMillis());
+                update.bindLong(4, count);
+                update.bindString(5, convId);
+                if (update.executeUpdateDelete() == 0) {
+                    insert.clearBindings();
+                    insert.bindString(1, convId);
+                    insert.bindString(2, convId);
+                    bindStringOrNull(insert, 3, msg.getContent());
+                    bindStringOrNull(insert, 4, msg.getTime());
+                    insert.bindLong(5, msg.getTimeMillis());
+                    insert.bindLong(6, count);
+                    insert.executeInsert();
+                }
+            }
+        } finally {
+            update.close();
+            insert.close();
+        }
+    }
+
+    // 与 upsertConversationMessage 语义一致：remark 为 null 时保留原值
+    private void upsertConversationsInTransaction(List<Message> messages) {
+        SQLiteStatement update = database.compileStatement("UPDATE " + TABLE_CONVERSATIONS + " SET "
+                + COL_CONTENT + " = ?, " + COL_TIME + " = ?, " + COL_TIME_MS + " = ?, " + COL_UNREAD + " = ?, "
+                + COL_REMARK + " = COALESCE(?, " + COL_REMARK + ") WHERE " + COL_CONV_ID + " = ?");
+        SQLiteStatement insert = database.compileStatement("INSERT INTO " + TABLE_CONVERSATIONS + " ("
+                + COL_CONV_ID + ", " + COL_SENDER + ", " + COL_CONTENT + ", " + COL_TIME + ", "
+                + COL_TIME_MS + ", " + COL_UNREAD + ", " + COL_REMARK + ") VALUES (?, ?, ?, ?, ?, ?, ?)");
+        try {
+            for (Message msg : messages) {
+                String convId = msg.getSenderName();
+                if (convId == null || convId.isEmpty()) continue;
+                update.clearBindings();
+                bindStringOrNull(update, 1, msg.getContent());
+                bindStringOrNull(update, 2, msg.getTime());
+                update.bindLong(3, msg.getTimeMillis());
+                update.bindLong(4, msg.getUnreadCount());
+                bindStringOrNull(update, 5, msg.getRemark());
+                update.bindString(6, convId);
+                if (update.executeUpdateDelete() == 0) {
+                    insert.clearBindings();
+                    insert.bindString(1, convId);
+                    insert.bindString(2, convId);
+                    bindStringOrNull(insert, 3, msg.getContent());
+                    bindStringOrNull(insert, 4, msg.getTime());
+                    insert.bindLong(5, msg.getTimeMillis());
+                    insert.bindLong(6, msg.getUnreadCount());
+                    bindStringOrNull(insert, 7, msg.getRemark());
+                    insert.executeInsert();
+                }
+            }
+        } finally {
+            update.close();
+            insert.close();
+        }
+    }
+
+    // 与 insertChatMessage 语义一致：msg_id 已存在时更新内容并保留原 _id
+    private int insertChatMessagesInTransaction(List<ChatMessage> chatMessages) {
+        return insertChatMessagesInTransaction(chatMessages, null);
+    }
+
+    // newMessages 不为 null 时收集新插入（而不是更新）的消息
+    private int insertChatMessagesInTransaction(List<ChatMessage> chatMessages, List<ChatMessage> newMessages) {
+        SQLiteStatement insert = database.compileStatement("INSERT OR IGNORE INTO " + TABLE_CHAT_MESSAGES + " ("
+                + COL_CHAT_MSG_ID + ", " + COL_CONV_ID + ", " + COL_CHAT_SENDER + ", " + COL_CHAT_RECEIVER + ", "
+                + COL_CHAT_CONTENT + ", " + COL_CHAT_TIMESTAMP + ", " + COL_CHAT_TIMESTAMP_MS + ") VALUES (?, ?, ?, ?, ?, ?, ?)");
+        SQLiteStatement update = database.compileStatement("UPDATE " + TABLE_CHAT_MESSAGES + " SET "
+                + COL_CONV_ID + " = ?, " + COL_CHAT_SENDER + " = ?, " + COL_CHAT_RECEIVER + " = ?, "
+                + COL_CHAT_CONTENT + " = ?, " + COL_CHAT_TIMESTAMP + " = ?, " + COL_CHAT_TIMESTAMP_MS + " = ? WHERE " + COL_CHAT_MSG_ID + " = ?");
+        ChatSearchIndexer indexer = new ChatSearchIndexer(database);
+        int inserted = 0;
+        try {
+            for (ChatMessage message : chatMessages) {
+                insert.clearBindings();
+                bindStringOrNull(insert, 1, message.getMessageId());
+                bindStringOrNull(insert, 2, message.getConversationId());
+                bindStringOrNull(insert, 3, message.getSender());
+                bindStringOrNull(insert, 4, message.getReceiver());
+                bindStringOrNull(insert, 5, message.getContent());
+                bindStringOrNull(insert, 6, message.getTimestamp());
+                insert.bindLong(7, message.getTimestampMillis());
+                long rowId = insert.executeInsert();
+                if (rowId != -1) {
+                    message.setRowId(rowId);
+                    indexer.index(rowId, message.getContent(), false);
+                    inserted++;
+                    if (newMessages != null) {
+                        newMessages.add(message);
+                    }
+                } else if (message.getMessageId() != null) {
+                    update.clearBindings();
+                    bindStringOrNull(update, 1, message.getConversationId());
+                    bindStringOrNull(update, 2, message.getSender());
+                    bindStringOrNull(update, 3, message.getReceiver());
+                    bindStringOrNull(update, 4, message.getContent());
+                    bindStringOrNull(update, 5, message.getTimestamp());
+                    update.bindLong(6, message.getTimestampMillis());
+                    update.bindString(7, message.getMessageId());
+                    update.executeUpdateDelete();
+                    // 内容可能变了，重建这一行的索引
+                    long existingRowId = findChatMessageRowId(message.getMessageId());
+                    if (existingRowId != -1) {
+                        message.setRowId(existingRowId);
+                        indexer.index(existingRowId, message.getContent(), true);
+                    }
+                }
+            }
+        } finally {
+            insert.close();
+            update.close();
+            indexer.close();
+        }
+        return inserted;
+    }
+
+    private static void bindStringOrNull(SQLiteStatement statement, int index, String value) {
+        if (value == null) {
+            statement.bindNull(index);
+        } else {
+            statement.bindString(index, value);
+        }
+    }
+
     public List<Message> loadAllConversations() {
         List<Message> list = new ArrayList<>();
-        String query = "SELECT T1.*, T2." + COL_PHOTO + " as sender_avatar, T2." + COL_REMARK + " as sender_remark " +
-                "FROM " + TABLE_CONVERSATIONS + " T1 " +
-                "LEFT JOIN " + TABLE_USER + " T2 ON T1." + COL_SENDER + " = T2." + COL_ACCOUNT +
-                " ORDER BY T1." + COL_TIME + " DESC";
+        String query = CONVERSATION_SELECT + " ORDER BY T1." + COL_TIME_MS + " DESC";
         Cursor cursor = database.rawQuery(query, null);
         if (cursor != null) {
             try {
-                if (cursor.moveToFirst()) {
-                    do {
-                        Message msg = new Message();
-                        msg.setId(cursor.getString(cursor.getColumnIndexOrThrow(COL_CONV_ID)));
-                        msg.setSenderName(cursor.getString(cursor.getColumnIndexOrThrow(COL_SENDER)));
-                        msg.setContent(cursor.getString(cursor.getColumnIndexOrThrow(COL_CONTENT)));
-                        msg.setTime(cursor.getString(cursor.getColumnIndexOrThrow(COL_TIME)));
-                        msg.setUnreadCount(cursor.getInt(cursor.getColumnIndexOrThrow(COL_UNREAD)));
-                        // 优先使用 user 表的 remark（sender_remark），若无则使用 conversations.remark
-                        String userRemark = null;
-                        try {
-                            userRemark = cursor.getString(cursor.getColumnIndexOrThrow("sender_remark"));
-                        } catch (Exception ignored) {}
-                        String convRemark = null;
-                        try {
-                            convRemark = cursor.getString(cursor.getColumnIndexOrThrow(COL_REMARK));
-                        } catch (Exception ignored) {}
-                        if (userRemark != null && !userRemark.isEmpty()) {
-                            msg.setRemark(userRemark);
-                        } else {
-                            msg.setRemark(convRemark);
-                        }
-                        msg.setSenderAvatar(cursor.getString(cursor.getColumnIndexOrThrow("sender_avatar")));
-                        list.add(msg);
-                    } while (cursor.moveToNext());
+                while (cursor.moveToNext()) {
+                    list.add(readConversationRow(cursor));
                 }
             } finally {
                 cursor.close();
@@ -189,6 +609,58 @@ public class UserDbHelper extends SQLiteOpenHelper {
         return list;
     }
 
+    // 只查指定的几个会话（conv_id 有唯一索引），收到新消息后用它刷新受影响的行，不必重读整张表
+    public List<Message> loadConversations(Collection<String> conversationIds) {
+        List<Message> list = new ArrayList<>();
+        if (conversationIds == null || conversationIds.isEmpty()) return list;
+        StringBuilder placeholders = new StringBuilder();
+        for (int i = 0; i < conversationIds.size(); i++) {
+            placeholders.append(i == 0 ? "?" : ", ?");
+        }
+        String query = CONVERSATION_SELECT + " WHERE T1." + COL_CONV_ID + " IN (" + placeholders + ")";
+        Cursor cursor = database.rawQuery(query, conversationIds.toArray(new String[0]));
+        if (cursor != null) {
+            try {
+                while (cursor.moveToNext()) {
+                    list.add(readConversationRow(cursor));
+                }
+            } finally {
+                cursor.close();
+            }
+        }
+        return list;
+    }
+
+    private static final String CONVERSATION_SELECT = "SELECT T1.*, T2." + COL_PHOTO + " as sender_avatar, T2." + COL_REMARK + " as sender_remark " +
+            "FROM " + TABLE_CONVERSATIONS + " T1 " +
+            "LEFT JOIN " + TABLE_USER + " T2 ON T1." + COL_SENDER + " = T2." + COL_ACCOUNT;
+
+    private static Message readConversationRow(Cursor cursor) {
+        Message msg = new Message();
+        msg.setId(cursor.getString(cursor.getColumnIndexOrThrow(COL_CONV_ID)));
+        msg.setSenderName(cursor.getString(cursor.getColumnIndexOrThrow(COL_SENDER)));
+        msg.setContent(cursor.getString(cursor.getColumnIndexOrThrow(COL_CONTENT)));
+        msg.setTime(cursor.getString(cursor.getColumnIndexOrThrow(COL_TIME)));
+        msg.setTimeMillis(cursor.getLong(cursor.getColumnIndexOrThrow(COL_TIME_MS)));
+        msg.setUnreadCount(cursor.getInt(cursor.getColumnIndexOrThrow(COL_UNREAD)));
+        // 优先使用 user 表的 remark（sender_remark），若无则使用 conversations.remark
+        String userRemark = null;
+        try {
+            userRemark = cursor.getString(cursor.getColumnIndexOrThrow("sender_remark"));
+        } catch (Exception ignored) {}
+        String convRemark = null;
+        try {
+            convRemark = cursor.getString(cursor.getColumnIndexOrThrow(COL_REMARK));
+        } catch (Exception ignored) {}
+        if (userRemark != null && !userRemark.isEmpty()) {
+            msg.setRemark(userRemark);
+        } else {
+            msg.setRemark(convRemark);
+        }
+        msg.setSenderAvatar(cursor.getString(cursor.getColumnIndexOrThrow("sender_avatar")));
+        return msg;
+    }
+
     public void clearUnreadCount(String senderName) {
         if (senderName == null || senderName.isEmpty()) return;
         ContentValues values = new ContentValues();
@@ -223,7 +695,8 @@ public class UserDbHelper extends SQLiteOpenHelper {
     }
 
     // --- ChatMessage (详细聊天记录) 相关方法 ---
-    public void insertChatMessage(ChatMessage chatMessage) {
+    // 按 msg_id upsert：已存在则更新内容，保留原行 _id（不用 REPLACE，它会删除再插入导致 _id 变化）
+    public long insertChatMessage(ChatMessage chatMessage) {
         ContentValues values = new ContentValues();
         values.put(COL_CHAT_MSG_ID, chatMessage.getMessageId());
         values.put(COL_CONV_ID, chatMessage.getConversationId());
@@ -231,7 +704,41 @@ public class UserDbHelper extends SQLiteOpenHelper {
         values.put(COL_CHAT_RECEIVER, chatMessage.getReceiver());
         values.put(COL_CHAT_CONTENT, chatMessage.getContent());
         values.put(COL_CHAT_TIMESTAMP, chatMessage.getTimestamp());
-        database.insert(TABLE_CHAT_MESSAGES, null, values);
+        values.put(COL_CHAT_TIMESTAMP_MS, chatMessage.getTimestampMillis());
+        long rowId;
+        database.beginTransaction();
+        ChatSearchIndexer indexer = new ChatSearchIndexer(database);
+        try {
+            rowId = database.insertWithOnConflict(TABLE_CHAT_MESSAGES, null, values, SQLiteDatabase.CONFLICT_IGNORE);
+            boolean existed = rowId == -1;
+            if (existed && chatMessage.getMessageId() != null) {
+                values.remove(COL_CHAT_MSG_ID);
+                database.update(TABLE_CHAT_MESSAGES, values, COL_CHAT_MSG_ID + " = ?", new String[]{chatMessage.getMessageId()});
+                rowId = findChatMessageRowId(chatMessage.getMessageId());
+            }
+            if (rowId != -1) {
+                indexer.index(rowId, chatMessage.getContent(), existed);
+            }
+            database.setTransactionSuccessful();
+        } finally {
+            indexer.close();
+            database.endTransaction();
+        }
+        // 回填行 id，分页游标需要它
+        if (rowId != -1) {
+            chatMessage.setRowId(rowId);
+        }
+        return rowId;
+    }
+
+    private long findChatMessageRowId(String msgId) {
+        Cursor cursor = database.query(TABLE_CHAT_MESSAGES, new String[]{COL_ID}, COL_CHAT_MSG_ID + " = ?", new String[]{msgId}, null, null, null);
+        if (cursor == null) return -1;
+        try {
+            return cursor.moveToFirst() ? cursor.getLong(0) : -1;
+        } finally {
+            cursor.close();
+        }
     }
     public Message loadSingleConversation(String conversationId) {
         Message msg = null;
@@ -247,6 +754,7 @@ public class UserDbHelper extends SQLiteOpenHelper {
                     msg.setSenderName(cursor.getString(cursor.getColumnIndexOrThrow(COL_SENDER)));
                     msg.setContent(cursor.getString(cursor.getColumnIndexOrThrow(COL_CONTENT)));
                     msg.setTime(cursor.getString(cursor.getColumnIndexOrThrow(COL_TIME)));
+                    msg.setTimeMillis(cursor.getLong(cursor.getColumnIndexOrThrow(COL_TIME_MS)));
                     msg.setUnreadCount(cursor.getInt(cursor.getColumnIndexOrThrow(COL_UNREAD)));
                     // 最关键的一步：获取 remark
                     msg.setRemark(cursor.getString(cursor.getColumnIndexOrThrow(COL_REMARK)));
@@ -258,29 +766,325 @@ public class UserDbHelper extends SQLiteOpenHelper {
         }
         return msg; // 返回找到的 Message 对象，如果没找到则返回 null
     }
-    public List<ChatMessage> loadMessagesForConversation(String conversationId, String currentUsername) {
+    // 按 (timestamp_ms, _id) 做 keyset 分页：返回游标之前（更早）的最多 limit 条，按时间正序排列。
+    // beforeRowId 为 0 时返回最新的一页。走 (conv_id, timestamp_ms) 索引，耗时与会话总条数无关
+    public List<ChatMessage> loadMessagesPage(String conversationId, String currentUsername,
+                                              long beforeTimestampMs, long beforeRowId, int limit) {
+        boolean olderPage = beforeRowId > 0;
+        String[] selectionArgs;
+        if (!olderPage) {
+            selectionArgs = new String[]{conversationId};
+        } else {
+            String before = String.valueOf(beforeTimestampMs);
+            selectionArgs = new String[]{conversationId, before, before, String.valueOf(beforeRowId)};
+        }
         List<ChatMessage> list = new ArrayList<>();
-        Cursor cursor = database.query(TABLE_CHAT_MESSAGES, null, COL_CONV_ID + " = ?", new String[]{conversationId}, null, null, COL_CHAT_TIMESTAMP + " ASC");
+        Cursor cursor = database.rawQuery(messagesPageSql(olderPage, limit), selectionArgs);
         if (cursor != null) {
             try {
-                if (cursor.moveToFirst()) {
-                    do {
-                        String msgId = cursor.getString(cursor.getColumnIndexOrThrow(COL_CHAT_MSG_ID));
-                        String sender = cursor.getString(cursor.getColumnIndexOrThrow(COL_CHAT_SENDER));
-                        String receiver = cursor.getString(cursor.getColumnIndexOrThrow(COL_CHAT_RECEIVER));
-                        String content = cursor.getString(cursor.getColumnIndexOrThrow(COL_CHAT_CONTENT));
-                        String timestamp = cursor.getString(cursor.getColumnIndexOrThrow(COL_CHAT_TIMESTAMP));
-                        boolean isSentByMe = sender.equals(currentUsername);
-                        list.add(new ChatMessage(msgId, conversationId, sender, receiver, content, timestamp, isSentByMe));
-                    } while (cursor.moveToNext());
+                int idxRowId = cursor.getColumnIndexOrThrow(COL_ID);
+                int idxMsgId = cursor.getColumnIndexOrThrow(COL_CHAT_MSG_ID);
+                int idxSender = cursor.getColumnIndexOrThrow(COL_CHAT_SENDER);
+                int idxReceiver = cursor.getColumnIndexOrThrow(COL_CHAT_RECEIVER);
+                int idxContent = cursor.getColumnIndexOrThrow(COL_CHAT_CONTENT);
+                int idxTimestamp = cursor.getColumnIndexOrThrow(COL_CHAT_TIMESTAMP);
+                int idxTimestampMs = cursor.getColumnIndexOrThrow(COL_CHAT_TIMESTAMP_MS);
+                while (cursor.moveToNext()) {
+                    String sender = cursor.getString(idxSender);
+                    boolean isSentByMe = sender != null && sender.equals(currentUsername);
+                    ChatMessage message = new ChatMessage(cursor.getString(idxMsgId), conversationId, sender,
+                            cursor.getString(idxReceiver), cursor.getString(idxContent), cursor.getString(idxTimestamp),
+                            cursor.getLong(idxTimestampMs), isSentByMe);
+                    message.setRowId(cursor.getLong(idxRowId));
+                    list.add(message);
                 }
             } finally {
                 cursor.close();
             }
         }
+        // 查询是倒序取的，翻转成聊天界面需要的正序
+        Collections.reverse(list);
+        applyOutboxStatus(list);
+        return list;
+    }
+
+    // loadMessagesPage 的 SQL（测试对同一个字符串做 EXPLAIN QUERY PLAN）。
+    // 参数依次是 conv_id；翻页时再加游标时间（两次）和游标 _id
+    @VisibleForTesting
+    static String messagesPageSql(boolean olderPage, int limit) {
+        String sql = "SELECT * FROM " + TABLE_CHAT_MESSAGES + " WHERE " + COL_CONV_ID + " = ?";
+        if (olderPage) {
+            sql += " AND (" + COL_CHAT_TIMESTAMP_MS + " < ? OR (" + COL_CHAT_TIMESTAMP_MS + " = ? AND " + COL_ID + " < ?))";
+        }
+        return sql + " ORDER BY " + COL_CHAT_TIMESTAMP_MS + " DESC, " + COL_ID + " DESC LIMIT " + limit;
+    }
+
+    // 自己发出的消息按发件箱中的状态显示发送中/失败；发件箱没有记录的视为已发送
+    private void applyOutboxStatus(List<ChatMessage> messages) {
+        List<String> ids = new ArrayList<>();
+        for (ChatMessage message : messages) {
+            if (message.isSentByMe() && message.getMessageId() != null) {
+                ids.add(message.getMessageId());
+            }
+        }
+        if (ids.isEmpty()) return;
+        StringBuilder placeholders = new StringBuilder();
+        for (int i = 0; i < ids.size(); i++) {
+            placeholders.append(i == 0 ? "?" : ",?");
+        }
+        Map<String, Integer> states = new HashMap<>();
+        Cursor cursor = database.rawQuery("SELECT " + COL_OUTBOX_CLIENT_MSG_ID + ", " + COL_OUTBOX_STATE + " FROM " + TABLE_OUTBOX
+                + " WHERE " + COL_OUTBOX_CLIENT_MSG_ID + " IN (" + placeholders + ")", ids.toArray(new String[0]));
+        try {
+            while (cursor.moveToNext()) {
+                states.put(cursor.getString(0), cursor.getInt(1));
+            }
+        } finally {
+            cursor.close();
+        }
+        if (states.isEmpty()) return;
+        for (int i = 0; i < messages.size(); i++) {
+            Integer state = states.get(messages.get(i).getMessageId());
+            if (state != null) {
+                messages.set(i, messages.get(i).withStatus(toChatStatus(state)));
+            }
+        }
+    }
+
+    public static int toChatStatus(int outboxState) {
+        switch (outboxState) {
+            case OutboxEntry.STATE_PENDING:
+                return ChatMessage.STATUS_SENDING;
+            case OutboxEntry.STATE_FAILED:
+                return ChatMessage.STATUS_FAILED;
+            default:
+                return ChatMessage.STATUS_SENT;
+        }
+    }
+
+    // --- 聊天记录全文检索 ---
+    /**
+     * 在所有聊天记录中搜索，按相关度排序返回最多 limit 条。
+     * 查询串按 ChatSearchTokenizer 切词后走 FTS 索引，不扫描 chat_messages；
+     * 相关度由 matchinfo 计算（BM25 的简化版：词频饱和 + 逆文档频率），相同分数时新消息在前。
+     * 目前还没有界面调用，搜索页接入前只作为数据层接口。
+     */
+    public List<ChatSearchResult> searchMessages(String query, int limit) {
+        List<ChatSearchResult> results = new ArrayList<>();
+        String match = ChatSearchTokenizer.buildMatchQuery(query);
+        if (match == null || limit <= 0) return results;
+        List<String> segments = ChatSearchTokenizer.querySegments(query);
+
+        String sql = "SELECT m." + COL_CHAT_MSG_ID + ", m." + COL_CONV_ID + ", m." + COL_CHAT_SENDER + ", m." + COL_CHAT_CONTENT
+                + ", m." + COL_CHAT_TIMESTAMP_MS + ", matchinfo(" + TABLE_CHAT_FTS + ", 'pcnx')"
+                + " FROM " + TABLE_CHAT_FTS + " JOIN " + TABLE_CHAT_MESSAGES + " m ON m." + COL_ID + " = " + TABLE_CHAT_FTS + ".docid"
+                + " WHERE " + TABLE_CHAT_FTS + " MATCH ?"
+                // 按消息时间而不是 docid 取最新的候选：同步补回的历史消息 _id 更大，但时间更早
+                + " ORDER BY m." + COL_CHAT_TIMESTAMP_MS + " DESC LIMIT " + SEARCH_CANDIDATE_LIMIT;
+        Cursor cursor = database.rawQuery(sql, new String[]{match});
+        try {
+            while (cursor.moveToNext()) {
+                String content = cursor.getString(3);
+                int[] snippetRange = new int[2];
+                String snippet = buildSnippet(content, segments, snippetRange);
+                results.add(new ChatSearchResult(cursor.getString(0), cursor.getString(1), cursor.getString(2), content,
+                        cursor.getLong(4), snippet, snippetRange[0], snippetRange[1], scoreMatchInfo(cursor.getBlob(5))));
+            }
+        } finally {
+            cursor.close();
+        }
+        Collections.sort(results, (a, b) -> {
+            int c = Double.compare(b.getScore(), a.getScore());
+            return c != 0 ? c : Long.compare(b.getTimestampMillis(), a.getTimestampMillis());
+        });
+        return results.size() > limit ? new ArrayList<>(results.subList(0, limit)) : results;
+    }
+
+    // matchinfo 'pcnx'：短语数 p、列数 c、总行数 n，然后每个短语每列 3 个值（本行命中数、全表命中数、命中的行数）
+    private static double scoreMatchInfo(byte[] blob) {
+        if (blob == null || blob.length < 12) return 0;
+        IntBuffer info = ByteBuffer.wrap(blob).order(ByteOrder.nativeOrder()).asIntBuffer();
+        int phrases = info.get(0);
+        int columns = info.get(1);
+        double totalRows = info.get(2);
+        double score = 0;
+        for (int p = 0; p < phrases; p++) {
+            for (int c = 0; c < columns; c++) {
+                int base = 3 + (p * columns + c) * 3;
+                if (base + 2 >= info.limit()) return score;
+                double hitsThisRow = info.get(base);
+                double rowsWithHits = info.get(base + 2);
+                if (hitsThisRow <= 0) continue;
+                double idf = Math.log(1 + (totalRows - rowsWithHits + 0.5) / (rowsWithHits + 0.5));
+                score += idf * (hitsThisRow * 2.2) / (hitsThisRow + 1.2);
+            }
+        }
+        return score;
+    }
+
+    // 以第一个命中的查询片段为中心截取摘要；range 返回命中在摘要中的位置
+    private static String buildSnippet(String content, List<String> segments, int[] range) {
+        range[0] = -1;
+        range[1] = -1;
+        if (content == null) return "";
+        String lower = content.toLowerCase(Locale.ROOT);
+        int hit = -1;
+        int hitLength = 0;
+        for (String segment : segments) {
+            int index = lower.indexOf(segment);
+            if (index >= 0 && (hit == -1 || index < hit)) {
+                hit = index;
+                hitLength = segment.length();
+            }
+        }
+        final int before = 12;
+        final int total = 48;
+        if (hit == -1) {
+            return content.length() <= total ? content : content.substring(0, total) + "…";
+        }
+        int start = Math.max(0, hit - before);
+        int end = Math.min(content.length(), Math.max(hit + hitLength, start + total));
+        StringBuilder snippet = new StringBuilder();
+        if (start > 0) snippet.append('…');
+        range[0] = snippet.length() + (hit - start);
+        range[1] = range[0] + hitLength;
+        snippet.append(content, start, end);
+        if (end < content.length()) snippet.append('…');
+        return snippet.toString();
+    }
+
+    // --- 增量同步水位 ---
+    // 没有记录时返回 0，表示从头同步
+    public long getSyncHighWaterMark(String key) {
+        Cursor cursor = database.query(TABLE_SYNC_STATE, new String[]{COL_SYNC_HWM_MS}, COL_CONV_ID + " = ?",
+                new String[]{key}, null, null, null);
+        if (cursor == null) return 0;
+        try {
+            return cursor.moveToFirst() ? cursor.getLong(0) : 0;
+        } finally {
+            cursor.close();
+        }
+    }
+
+    // 一页同步结果：聊天记录批量写入、会话预览/未读数更新和水位推进放在同一个事务里，写到一半崩溃不会跳过消息；
+    // 只有新插入的消息会更新会话（边界上重复返回的已经算过了），对方发来的计入未读数。
+    // 水位只前进不后退。返回新插入的条数
+    public int applySyncedMessages(String key, List<ChatMessage> chatMessages, long highWaterMarkMs) {
+        database.beginTransaction();
+        try {
+            List<ChatMessage> newMessages = new ArrayList<>();
+            int inserted = insertChatMessagesInTransaction(chatMessages, newMessages);
+            Map<String, Message> latestByConv = new LinkedHashMap<>();
+            Map<String, Integer> unreadByConv = new HashMap<>();
+            for (ChatMessage chat : newMessages) {
+                String convId = chat.getConversationId();
+                if (convId == null || convId.isEmpty()) continue;
+                Message latest = latestByConv.get(convId);
+                if (latest == null || chat.getTimestampMillis() >= latest.getTimeMillis()) {
+                    Message preview = new Message(null, convId, chat.getContent(), chat.getTimestamp(), 0);
+                    preview.setTimeMillis(chat.getTimestampMillis());
+                    latestByConv.put(convId, preview);
+                }
+                if (!chat.isSentByMe()) {
+                    Integer count = unreadByConv.get(convId);
+                    unreadByConv.put(convId, count == null ? 1 : count + 1);
+                }
+            }
+            bumpConversationsInTransaction(latestByConv, unreadByConv);
+            long now = System.currentTimeMillis();
+            SQLiteStatement update = database.compileStatement("UPDATE " + TABLE_SYNC_STATE + " SET "
+                    + COL_SYNC_HWM_MS + " = MAX(" + COL_SYNC_HWM_MS + ", ?), " + COL_SYNC_UPDATED_MS + " = ? WHERE "
+                    + COL_CONV_ID + " = ?");
+            try {
+                update.bindLong(1, highWaterMarkMs);
+                update.bindLong(2, now);
+                update.bindString(3, key);
+                if (update.executeUpdateDelete() == 0) {
+                    ContentValues values = new ContentValues();
+                    values.put(COL_CONV_ID, key);
+                    values.put(COL_SYNC_HWM_MS, highWaterMarkMs);
+                    values.put(COL_SYNC_UPDATED_MS, now);
+                    database.insert(TABLE_SYNC_STATE, null, values);
+                }
+            } finally {
+                update.close();
+            }
+            database.setTransactionSuccessful();
+            return inserted;
+        } finally {
+            database.endTransaction();
+        }
+    }
+
+    // --- Outbox (发件箱) 相关方法，都在 DbExecutor 的写队列中调用 ---
+    // client_msg_id 已存在时忽略（同一条消息不会入队两次）
+    public long enqueueOutbox(String clientMsgId, String receiverId, String content, String token, long createdMs) {
+        ContentValues values = new ContentValues();
+        values.put(COL_OUTBOX_CLIENT_MSG_ID, clientMsgId);
+        values.put(COL_OUTBOX_RECEIVER_ID, receiverId);
+        values.put(COL_OUTBOX_CONTENT, content);
+        values.put(COL_OUTBOX_TOKEN, token);
+        values.put(COL_OUTBOX_STATE, OutboxEntry.STATE_PENDING);
+        values.put(COL_OUTBOX_CREATED_MS, createdMs);
+        values.put(COL_OUTBOX_UPDATED_MS, createdMs);
+        return database.insertWithOnConflict(TABLE_OUTBOX, null, values, SQLiteDatabase.CONFLICT_IGNORE);
+    }
+
+    // 按入队顺序取一批待发送的消息
+    public List<OutboxEntry> loadPendingOutbox(int limit) {
+        List<OutboxEntry> list = new ArrayList<>();
+        Cursor cursor = database.query(TABLE_OUTBOX,
+                new String[]{COL_ID, COL_OUTBOX_CLIENT_MSG_ID, COL_OUTBOX_RECEIVER_ID, COL_OUTBOX_CONTENT,
+                        COL_OUTBOX_TOKEN, COL_OUTBOX_ATTEMPTS, COL_OUTBOX_CREATED_MS},
+                COL_OUTBOX_STATE + " = ?", new String[]{String.valueOf(OutboxEntry.STATE_PENDING)},
+                null, null, COL_ID + " ASC", String.valueOf(limit));
+        if (cursor == null) return list;
+        try {
+            while (cursor.moveToNext()) {
+                list.add(new OutboxEntry(cursor.getLong(0), cursor.getString(1), cursor.getString(2),
+                        cursor.getString(3), cursor.getString(4), cursor.getInt(5), cursor.getLong(6)));
+            }
+        } finally {
+            cursor.close();
+        }
         return list;
     }
 
+    public int countPendingOutbox() {
+        return (int) DatabaseUtils.queryNumEntries(database, TABLE_OUTBOX,
+                COL_OUTBOX_STATE + " = ?", new String[]{String.valueOf(OutboxEntry.STATE_PENDING)});
+    }
+
+    // 服务端已确认：记录服务端消息 id
+    public void markOutboxAcked(String clientMsgId, String serverMsgId, long nowMs) {
+        ContentValues values = new ContentValues();
+        values.put(COL_OUTBOX_STATE, OutboxEntry.STATE_ACKED);
+        values.put(COL_OUTBOX_SERVER_MSG_ID, serverMsgId);
+        values.put(COL_OUTBOX_UPDATED_MS, nowMs);
+        database.update(TABLE_OUTBOX, values, COL_OUTBOX_CLIENT_MSG_ID + " = ?", new String[]{clientMsgId});
+    }
+
+    // 服务端明确拒绝（4xx），重发也不会成功，不再阻塞后面的消息
+    public void markOutboxFailed(String clientMsgId, long nowMs) {
+        database.execSQL("UPDATE " + TABLE_OUTBOX + " SET " + COL_OUTBOX_STATE + " = " + OutboxEntry.STATE_FAILED + ", "
+                        + COL_OUTBOX_ATTEMPTS + " = " + COL_OUTBOX_ATTEMPTS + " + 1, " + COL_OUTBOX_UPDATED_MS + " = ? WHERE "
+                        + COL_OUTBOX_CLIENT_MSG_ID + " = ?",
+                new Object[]{nowMs, clientMsgId});
+    }
+
+    // 网络错误或 5xx：保持待发送，只记一次尝试
+    public void markOutboxAttempt(String clientMsgId, long nowMs) {
+        database.execSQL("UPDATE " + TABLE_OUTBOX + " SET " + COL_OUTBOX_ATTEMPTS + " = " + COL_OUTBOX_ATTEMPTS + " + 1, "
+                        + COL_OUTBOX_UPDATED_MS + " = ? WHERE " + COL_OUTBOX_CLIENT_MSG_ID + " = ?",
+                new Object[]{nowMs, clientMsgId});
+    }
+
+    // 已确认的行只用于排查问题，保留一段时间后清理
+    public int purgeAckedOutbox(long ackedBeforeMs) {
+        return database.delete(TABLE_OUTBOX, COL_OUTBOX_STATE + " = ? AND " + COL_OUTBOX_UPDATED_MS + " < ?",
+                new String[]{String.valueOf(OutboxEntry.STATE_ACKED), String.valueOf(ackedBeforeMs)});
+    }
+
     // --- User 表相关方法 ---
     public void insertUser(String account, String photo, String email, String token) {
         ContentValues values = new ContentValues();
@@ -359,4 +1163,38 @@ public class UserDbHelper extends SQLiteOpenHelper {
     }
 
 
-}
\ No newline at end of file
+
+    // 写入全文索引的预编译语句，随所在的写事务一起提交
+    private static final class ChatSearchIndexer {
+        private final SQLiteDatabase db;
+        private SQLiteStatement insert;
+        private SQLiteStatement delete;
+
+        ChatSearchIndexer(SQLiteDatabase db) {
+            this.db = db;
+        }
+
+        // replace 为 true 时先删掉这一行旧的索引（FTS 表的 docid 没有唯一约束冲突处理）
+        void index(long rowId, String content, boolean replace) {
+            if (replace) {
+                if (delete == null) {
+                    delete = db.compileStatement("DELETE FROM " + TABLE_CHAT_FTS + " WHERE docid = ?");
+                }
+                delete.bindLong(1, rowId);
+                delete.executeUpdateDelete();
+            }
+            if (content == null || content.isEmpty()) return;
+            if (insert == null) {
+                insert = db.compileStatement("INSERT INTO " + TABLE_CHAT_FTS + " (docid, " + COL_FTS_TOKENS + ") VALUES (?, ?)");
+            }
+            insert.bindLong(1, rowId);
+            insert.bindString(2, ChatSearchTokenizer.tokenize(content));
+            insert.executeInsert();
+        }
+
+        void close() {
+            if (insert != null) insert.close();
+            if (delete != null) delete.close();
+        }
+    }
+}
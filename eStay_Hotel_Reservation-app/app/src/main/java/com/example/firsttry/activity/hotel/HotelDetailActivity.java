@@ -19,6 +19,7 @@ import com.example.firsttry.activity.hotel.adapter.BannerAdapter;
 import com.example.firsttry.activity.hotel.adapter.RoomTypeAdapter;
 import com.example.firsttry.activity.hotel.dialog.CalendarDialogFragment;
 import com.example.firsttry.activity.hotel.model.HotelModel;
+import com.example.firsttry.activity.hotel.repository.HotelRepository;
 import com.google.android.material.appbar.AppBarLayout;
 import com.google.android.material.appbar.CollapsingToolbarLayout;
 import com.google.android.material.bottomsheet.BottomSheetDialog;
@@ -151,25 +152,16 @@ public class HotelDetailActivity extends AppCompatActivity {
 
         // Rating Button Logic
         findViewById(R.id.btn_rating).setOnClickListener(v -> showRatingDialog());
-        
-        // Load real hotel data
-        String hotelId = getIntent().getStringExtra(EXTRA_HOTEL_ID);
-        if (hotelId != null) {
-            loadHotelDetail(hotelId);
-        } else {
-            Toast.makeText(this, "无效的酒店ID", Toast.LENGTH_SHORT).show();
-            finish();
-        }
+        // 酒店详情在 initData 中加载
     }
 
+    // 先用列表/缓存数据立即渲染，再用网络结果补全房型余量
     private void loadHotelDetail(String hotelId) {
-        Toast.makeText(this, "正在加载酒店详情...", Toast.LENGTH_SHORT).show();
-         com.example.firsttry.remote.Http.HotelApi.getHotelDetail(hotelId, checkInDate, checkOutDate, new com.example.firsttry.remote.Http.HotelApi.HotelDetailCallback() {
-         /*com.example.firsttry.remote.Http.HotelApi.getHotelDetail(hotelId, new com.example.firsttry.remote.Http.HotelApi.HotelDetailCallback() {*/
+        HotelRepository.getInstance(this).getHotelDetail(hotelId, checkInDate, checkOutDate, new HotelRepository.HotelDetailCallback() {
             @Override
-            public void onSuccess(HotelModel hotel) {
+            public void onSuccess(HotelModel hotel, boolean fromCache) {
                 runOnUiThread(() -> {
-                    updateUI(hotel);
+                    updateUI(hotel, fromCache);
                 });
             }
 
@@ -187,9 +179,12 @@ public class HotelDetailActivity extends AppCompatActivity {
                 });
             }
         });
+        if (HotelRepository.getInstance(this).peek(hotelId, checkInDate, checkOutDate) == null) {
+            Toast.makeText(this, "正在加载酒店详情...", Toast.LENGTH_SHORT).show();
+        }
     }
 
-    private void updateUI(HotelModel hotel) {
+    private void updateUI(HotelModel hotel, boolean fromCache) {
         // Update Name
         TextView tvNameCn = findViewById(R.id.tv_hotel_name_cn);
         TextView tvNameEn = findViewById(R.id.tv_hotel_name_en);
@@ -215,8 +210,8 @@ public class HotelDetailActivity extends AppCompatActivity {
             updateBanner(hotel.getThumbnailUrl());
         }
         
-        // Update Room List
-        setupRoomList(hotel.getRoomTypes());
+        // Update Room List（缓存数据可能不含房型，等网络结果再提示）
+        setupRoomList(hotel.getRoomTypes(), !fromCache);
         
         // Update Facilities (Optional: if we want dynamic facilities)
         // For now, static layout in XML is fine or we can clear and add dynamic views.
@@ -333,13 +328,15 @@ public class HotelDetailActivity extends AppCompatActivity {
         bannerHandler.removeCallbacks(bannerRunnable);
     }
 
-    private void setupRoomList(List<HotelModel.RoomType> roomTypes) {
+    private void setupRoomList(List<HotelModel.RoomType> roomTypes, boolean showEmptyHint) {
         rvRoomList.setLayoutManager(new LinearLayoutManager(this));
         if (roomTypes != null && !roomTypes.isEmpty()) {
             roomAdapter = new RoomTypeAdapter(roomTypes);
         } else {
             roomAdapter = new RoomTypeAdapter(new ArrayList<>());
-            Toast.makeText(this, "暂无房型信息", Toast.LENGTH_SHORT).show();
+            if (showEmptyHint) {
+                Toast.makeText(this, "暂无房型信息", Toast.LENGTH_SHORT).show();
+            }
         }
         rvRoomList.setAdapter(roomAdapter);
     }
@@ -22,6 +22,7 @@ import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.appcompat.app.AppCompatActivity;
 import androidx.core.app.ActivityCompat;
+import androidx.core.content.IntentCompat;
 import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 
@@ -30,6 +31,9 @@ import com.example.firsttry.activity.hotel.adapter.HotelListAdapter;
 import com.example.firsttry.activity.hotel.dialog.CalendarDialogFragment;
 import com.example.firsttry.activity.hotel.model.HotelModel;
 import com.example.firsttry.activity.hotel.model.HotelSearchQuery;
+import com.example.firsttry.activity.hotel.repository.HotelRepository;
+import com.example.firsttry.activity.hotel.repository.HotelSpatialIndex;
+import com.example.firsttry.remote.Http.HotelRequestManager;
 
 import com.example.firsttry.utils.LocationUtils;
 import com.google.android.material.chip.Chip;
@@ -40,8 +44,10 @@ import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.Date;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Locale;
+import java.util.Set;
 
 import com.example.firsttry.activity.hotel.adapter.QuickFilterAdapter;
 
@@ -73,6 +79,22 @@ public class HotelListActivity extends AppCompatActivity {
 
     private boolean isTopSheetVisible = false;
 
+    // 分页状态：距离末尾还剩多少条时预取下一页
+    private static final int PREFETCH_DISTANCE = 3;
+    private int currentPage = 0;
+    private boolean isPageLoading = false;
+    private boolean hasMorePages = true;
+    // 每次查询条件变化递增，用于丢弃过期的分页回调
+    private int queryGeneration = 0;
+    private final Set<String> loadedHotelIds = new HashSet<>();
+    // 负责防抖、去重和取消被取代的列表请求
+    private final HotelRequestManager requestManager = new HotelRequestManager();
+
+    // "距离最近"在定位模式下先用本地缓存的附近酒店占位，第一页网络结果到达后替换
+    private static final int LOCAL_NEARBY_LIMIT = 30;
+    private static final double LOCAL_NEARBY_RADIUS_KM = 50;
+    private boolean showingLocalResults = false;
+
     public HotelSearchQuery getSearchQuery() {
         return searchQuery;
     }
@@ -83,7 +105,7 @@ public class HotelListActivity extends AppCompatActivity {
         setContentView(R.layout.activity_hotel_list);
 
         // Receive Data
-        searchQuery = (HotelSearchQuery) getIntent().getSerializableExtra("search_query");
+        searchQuery = IntentCompat.getParcelableExtra(getIntent(), "search_query", HotelSearchQuery.class);
         if (searchQuery == null) {
             searchQuery = new HotelSearchQuery();
             searchQuery.setCity("北京");
@@ -488,26 +510,120 @@ public class HotelListActivity extends AppCompatActivity {
         rvHotelList.setLayoutManager(new LinearLayoutManager(this));
         adapter = new HotelListAdapter(new ArrayList<>()); // Initialize with empty list
         rvHotelList.setAdapter(adapter);
+        rvHotelList.addOnScrollListener(new RecyclerView.OnScrollListener() {
+            @Override
+            public void onScrolled(@NonNull RecyclerView recyclerView, int dx, int dy) {
+                if (dy > 0) {
+                    loadNextPageIfNeeded();
+                }
+            }
+        });
         
         // Load real data
         refreshList();
     }
 
+    // 重新查询：从第一页开始加载。旧查询的请求由 requestManager.search 取代，
+    // 条件没变时进行中的第一页请求会被复用而不是取消重发
     private void refreshList() {
         // Show loading state if possible
         Toast.makeText(this, "正在加载酒店列表...", Toast.LENGTH_SHORT).show();
-        
-        // Call HotelApi to get real data
-        com.example.firsttry.remote.Http.HotelApi.getHotelList(searchQuery, new com.example.firsttry.remote.Http.HotelApi.HotelListCallback() {
+
+        queryGeneration++;
+        loadedHotelIds.clear();
+        hasMorePages = true;
+        showingLocalResults = false;
+        adapter.updateData(isLocalDistanceSort() ? findLocalNearby() : new ArrayList<>());
+        loadPage(1);
+    }
+
+    // 按距离排序且有定位时，距离按酒店坐标在本地计算，不依赖后端是否处理经纬度
+    private boolean isLocalDistanceSort() {
+        return "distance_asc".equals(searchQuery.getSortBy()) && searchQuery.isLocationMode();
+    }
+
+    // 本地空间索引中的附近酒店（已按距离排序），按关键字/价格/星级粗筛；设施筛选以网络结果为准
+    private List<HotelModel> findLocalNearby() {
+        List<HotelModel> nearby = HotelRepository.getInstance(this).findNearby(
+                searchQuery.getLatitude(), searchQuery.getLongitude(), LOCAL_NEARBY_LIMIT, LOCAL_NEARBY_RADIUS_KM);
+        List<HotelModel> result = new ArrayList<>();
+        for (HotelModel hotel : nearby) {
+            if (matchesLocalFilters(hotel)) {
+                result.add(hotel);
+            }
+        }
+        showingLocalResults = !result.isEmpty();
+        return result;
+    }
+
+    // 与后端的关键字、价格区间、星级条件保持一致
+    private boolean matchesLocalFilters(HotelModel hotel) {
+        String keyword = searchQuery.getKeyword();
+        if (keyword != null && !keyword.trim().isEmpty()) {
+            String needle = keyword.trim().toLowerCase(Locale.ROOT);
+            if (!containsIgnoreCase(hotel.getName(), needle)
+                    && !containsIgnoreCase(hotel.getNameEn(), needle)
+                    && !containsIgnoreCase(hotel.getDescription(), needle)
+                    && !containsIgnoreCase(hotel.getAddress(), needle)) {
+                return false;
+            }
+        }
+        if (searchQuery.getMinPrice() > 0 && hotel.getStartPrice() < searchQuery.getMinPrice()) return false;
+        if (searchQuery.getMaxPrice() > 0 && hotel.getStartPrice() > searchQuery.getMaxPrice()) return false;
+        if (searchQuery.getStarRating() > 0 && Math.round(hotel.getStarRating()) != searchQuery.getStarRating()) return false;
+        return true;
+    }
+
+    private static boolean containsIgnoreCase(String text, String lowerNeedle) {
+        return text != null && text.toLowerCase(Locale.ROOT).contains(lowerNeedle);
+    }
+
+    // 接近列表末尾时预取下一页
+    private void loadNextPageIfNeeded() {
+        if (isPageLoading || !hasMorePages) return;
+        LinearLayoutManager layoutManager = (LinearLayoutManager) rvHotelList.getLayoutManager();
+        if (layoutManager == null) return;
+        int lastVisible = layoutManager.findLastVisibleItemPosition();
+        if (lastVisible >= adapter.getItemCount() - PREFETCH_DISTANCE) {
+            loadPage(currentPage + 1);
+        }
+    }
+
+    private void loadPage(int page) {
+        isPageLoading = true;
+        final int generation = queryGeneration;
+        searchQuery.setPage(page);
+
+        // 第一页是新查询：防抖并取代之前的请求；后续页立即请求
+        com.example.firsttry.remote.Http.HotelApi.HotelListCallback callback = new com.example.firsttry.remote.Http.HotelApi.HotelListCallback() {
             @Override
-            public void onSuccess(List<HotelModel> hotels) {
+            public void onSuccess(List<HotelModel> hotels, int rawCount) {
                 runOnUiThread(() -> {
-                    if (hotels == null || hotels.isEmpty()) {
+                    // 查询条件已变化，丢弃过期页
+                    if (generation != queryGeneration) return;
+                    isPageLoading = false;
+                    currentPage = page;
+                    // 用服务端返回的条数判断：解析时丢掉了无效条目的满页后面仍可能还有数据
+                    if (hotels == null || rawCount < searchQuery.getPageSize()) {
+                        hasMorePages = false;
+                    }
+                    if (page == 1 && (hotels == null || hotels.isEmpty())) {
                         Toast.makeText(HotelListActivity.this, "暂无符合条件的酒店", Toast.LENGTH_SHORT).show();
                     }
-                    // 推荐排序兜底：按评分降序排序（优先 averageRating，其次 starRating）
+                    if (hotels == null) return;
+                    // 列表数据放入仓库，进入详情页时可以立即渲染
+                    HotelRepository.getInstance(HotelListActivity.this).putAll(hotels);
+
+                    // 按 _id 去重，避免翻页时后端数据变动导致重复
+                    List<HotelModel> newHotels = new ArrayList<>();
+                    for (HotelModel hotel : hotels) {
+                        if (loadedHotelIds.add(hotel.getId())) {
+                            newHotels.add(hotel);
+                        }
+                    }
+                    // 推荐排序兜底：按评分降序排序（优先 averageRating，其次 starRating），只在本页内排序
                     if (searchQuery.getSortBy() == null) {
-                        java.util.Collections.sort(hotels, (a, b) -> {
+                        java.util.Collections.sort(newHotels, (a, b) -> {
                             float ra = a.getAverageRating() > 0 ? a.getAverageRating() : a.getStarRating();
                             float rb = b.getAverageRating() > 0 ? b.getAverageRating() : b.getStarRating();
                             int cmp = Float.compare(rb, ra);
@@ -516,13 +632,36 @@ public class HotelListActivity extends AppCompatActivity {
                             return Integer.compare(a.getStartPrice(), b.getStartPrice());
                         });
                     }
-                    adapter.updateData(hotels);
+                    // 列表生效后再检查：第一页不足一屏时继续预取
+                    Runnable onCommitted = () -> rvHotelList.post(() -> loadNextPageIfNeeded());
+                    if (isLocalDistanceSort()) {
+                        // 距离排序：后端的分页顺序和本地计算的"距离我"不一致，后面的页里可能有更近的酒店，
+                        // 所以把新一页并入已显示的列表后整体重排（没有坐标的排在最后），而不是只排本页再追加。
+                        // 第一页的网络结果替换本地占位
+                        List<HotelModel> merged = new ArrayList<>();
+                        if (!(page == 1 && showingLocalResults)) {
+                            merged.addAll(adapter.getData());
+                        }
+                        merged.addAll(newHotels);
+                        showingLocalResults = false;
+                        adapter.updateData(HotelSpatialIndex.sortByDistance(merged,
+                                searchQuery.getLatitude(), searchQuery.getLongitude()), onCommitted);
+                    } else if (page == 1 && showingLocalResults) {
+                        // 用网络结果替换本地占位
+                        showingLocalResults = false;
+                        adapter.updateData(newHotels, onCommitted);
+                    } else {
+                        adapter.appendData(newHotels, onCommitted);
+                    }
                 });
             }
 
             @Override
             public void onError(String message) {
                 runOnUiThread(() -> {
+                    if (generation != queryGeneration) return;
+                    isPageLoading = false;
+                    if (keepLocalResults(page)) return;
                     Toast.makeText(HotelListActivity.this, "加载失败: " + message, Toast.LENGTH_SHORT).show();
                 });
             }
@@ -530,10 +669,37 @@ public class HotelListActivity extends AppCompatActivity {
             @Override
             public void onFailure(java.io.IOException e) {
                 runOnUiThread(() -> {
+                    if (generation != queryGeneration) return;
+                    isPageLoading = false;
+                    if (keepLocalResults(page)) return;
                     Toast.makeText(HotelListActivity.this, "网络错误: " + e.getMessage(), Toast.LENGTH_SHORT).show();
                 });
             }
-        });
+        };
+        if (page == 1) {
+            requestManager.search(searchQuery, callback);
+        } else {
+            requestManager.loadPage(searchQuery, callback);
+        }
+    }
+
+    // 第一页请求失败但已显示本地附近酒店时保留它们，不再翻页
+    private boolean keepLocalResults(int page) {
+        if (page != 1 || !showingLocalResults) return false;
+        hasMorePages = false;
+        Toast.makeText(this, "网络不可用，显示已缓存的附近酒店", Toast.LENGTH_SHORT).show();
+        return true;
+    }
+
+    private void cancelPageRequest() {
+        requestManager.cancelAll();
+        isPageLoading = false;
+    }
+
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        cancelPageRequest();
     }
 
     // private List<HotelModel> getMockData() { ... } // Removed mock data method
@@ -8,13 +8,18 @@ import android.widget.LinearLayout;
 import android.widget.TextView;
 
 import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.AsyncListDiffer;
+import androidx.recyclerview.widget.DiffUtil;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.bumptech.glide.Glide;
 import com.example.firsttry.R;
 import com.example.firsttry.activity.hotel.model.HotelModel;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Objects;
 
 import com.google.android.material.chip.Chip;
 
@@ -25,15 +30,61 @@ import com.example.firsttry.activity.hotel.HotelListActivity;
 
 public class HotelListAdapter extends RecyclerView.Adapter<HotelListAdapter.HotelViewHolder> {
 
-    private List<HotelModel> hotelList;
+    // 只比较列表展示用到的字段：价格、评分、距离（以及名称/缩略图），内容不变的行不会重新绑定
+    static final DiffUtil.ItemCallback<HotelModel> DIFF_CALLBACK = new DiffUtil.ItemCallback<HotelModel>() {
+        @Override
+        public boolean areItemsTheSame(@NonNull HotelModel oldItem, @NonNull HotelModel newItem) {
+            return Objects.equals(oldItem.getId(), newItem.getId());
+        }
+
+        @Override
+        public boolean areContentsTheSame(@NonNull HotelModel oldItem, @NonNull HotelModel newItem) {
+            return oldItem.getStartPrice() == newItem.getStartPrice()
+                    && Float.compare(oldItem.getAverageRating(), newItem.getAverageRating()) == 0
+                    && Float.compare(oldItem.getStarRating(), newItem.getStarRating()) == 0
+                    && Double.compare(oldItem.getDistanceKm(), newItem.getDistanceKm()) == 0
+                    && oldItem.isCityCenter() == newItem.isCityCenter()
+                    && Objects.equals(oldItem.getName(), newItem.getName())
+                    && Objects.equals(oldItem.getThumbnailUrl(), newItem.getThumbnailUrl());
+        }
+    };
+
+    // 在后台线程计算新旧列表差异，主线程只分发最小变更
+    private final AsyncListDiffer<HotelModel> differ = new AsyncListDiffer<>(this, DIFF_CALLBACK);
+    // 最近一次提交的列表；差异还在计算时连续追加也不会丢页
+    private List<HotelModel> latestList = new ArrayList<>();
 
     public HotelListAdapter(List<HotelModel> hotelList) {
-        this.hotelList = hotelList;
+        setHasStableIds(true);
+        updateData(hotelList);
     }
 
     public void updateData(List<HotelModel> newData) {
-        this.hotelList = newData;
-        notifyDataSetChanged();
+        updateData(newData, null);
+    }
+
+    // 整体替换列表；onCommitted 在新列表真正生效后回调（可为 null）
+    public void updateData(List<HotelModel> newData, Runnable onCommitted) {
+        latestList = newData == null ? new ArrayList<>() : new ArrayList<>(newData);
+        differ.submitList(latestList, onCommitted);
+    }
+
+    // 最近一次提交的列表（只读），合并下一页时用
+    public List<HotelModel> getData() {
+        return Collections.unmodifiableList(latestList);
+    }
+
+    // 分页加载：把下一页追加到列表末尾，差异计算结果即为区间插入
+    // onCommitted 在新列表真正生效后回调（可为 null）
+    public void appendData(List<HotelModel> moreData, Runnable onCommitted) {
+        if (moreData == null || moreData.isEmpty()) {
+            if (onCommitted != null) onCommitted.run();
+            return;
+        }
+        List<HotelModel> combined = new ArrayList<>(latestList);
+        combined.addAll(moreData);
+        latestList = combined;
+        differ.submitList(latestList, onCommitted);
     }
 
     @NonNull
@@ -45,13 +96,30 @@ public class HotelListAdapter extends RecyclerView.Adapter<HotelListAdapter.Hote
 
     @Override
     public void onBindViewHolder(@NonNull HotelViewHolder holder, int position) {
-        HotelModel hotel = hotelList.get(position);
+        HotelModel hotel = differ.getCurrentList().get(position);
         holder.bind(hotel);
     }
 
+    @Override
+    public long getItemId(int position) {
+        return stableIdFor(differ.getCurrentList().get(position).getId());
+    }
+
+    // 酒店 _id 的 64 位 FNV-1a 哈希作为 itemId：不保存映射，换查询、刷新后同一酒店的 itemId 仍然相同
+    static long stableIdFor(String hotelId) {
+        if (hotelId == null) return 0;
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < hotelId.length(); i++) {
+            hash ^= hotelId.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        // RecyclerView.NO_ID 是 -1，不能用作 itemId
+        return hash == RecyclerView.NO_ID ? 0 : hash;
+    }
+
     @Override
     public int getItemCount() {
-        return hotelList == null ? 0 : hotelList.size();
+        return differ.getCurrentList().size();
     }
 
     static class HotelViewHolder extends RecyclerView.ViewHolder {
@@ -62,6 +130,11 @@ public class HotelListAdapter extends RecyclerView.Adapter<HotelListAdapter.Hote
         TextView tvRatingBadge;
         LinearLayout llTags;
 
+        // 每个 ViewHolder 复用自己的标签视图，bind 时只改文字和可见性
+        private final List<TextView> tagViews = new ArrayList<>();
+        private final int tagTextColor;
+        private HotelModel boundHotel;
+
         public HotelViewHolder(@NonNull View itemView) {
             super(itemView);
             ivThumbnail = itemView.findViewById(R.id.iv_hotel_thumb);
@@ -70,35 +143,46 @@ public class HotelListAdapter extends RecyclerView.Adapter<HotelListAdapter.Hote
             tvPrice = itemView.findViewById(R.id.tv_price);
             tvRatingBadge = itemView.findViewById(R.id.tv_rating_badge);
             llTags = itemView.findViewById(R.id.ll_tags);
+            tagTextColor = itemView.getContext().getResources().getColor(R.color.app_primary_brown);
+
+            // Click Listener to open Detail
+            itemView.setOnClickListener(v -> {
+                HotelModel hotel = boundHotel;
+                if (hotel == null) return;
+                Intent intent = new Intent(itemView.getContext(), HotelDetailActivity.class);
+                intent.putExtra(HotelDetailActivity.EXTRA_HOTEL_ID, hotel.getId()); // Use real ID
+
+                // Pass dates from HotelListActivity if available
+                if (itemView.getContext() instanceof HotelListActivity) {
+                    HotelListActivity activity = (HotelListActivity) itemView.getContext();
+                    if (activity.getSearchQuery() != null) {
+                        intent.putExtra(HotelDetailActivity.EXTRA_CHECK_IN, activity.getSearchQuery().getCheckInDate());
+                        intent.putExtra(HotelDetailActivity.EXTRA_CHECK_OUT, activity.getSearchQuery().getCheckOutDate());
+                    }
+                }
+
+                itemView.getContext().startActivity(intent);
+            });
         }
 
         public void bind(HotelModel hotel) {
+            boundHotel = hotel;
             tvName.setText(hotel.getName());
             
             // Rating (显示数据库 averageRating，保留一位小数)
-            float rating = hotel.getAverageRating() > 0 ? hotel.getAverageRating() : hotel.getStarRating();
             tvRatingBadge.setVisibility(View.VISIBLE);
-            if (rating <= 0) {
-                tvRatingBadge.setText("暂无评分");
-            } else {
-                tvRatingBadge.setText(String.format("%.1f", rating));
-            }
+            tvRatingBadge.setText(hotel.getRatingText());
             
             // Distance logic
-            if (hotel.getDistanceKm() > 0) {
-                String distanceText;
-                if (hotel.isCityCenter()) {
-                    distanceText = String.format("据目的地 %.1f km", hotel.getDistanceKm());
-                } else {
-                    distanceText = String.format("距离我 %.1f km", hotel.getDistanceKm());
-                }
+            String distanceText = hotel.getDistanceText();
+            if (!distanceText.isEmpty()) {
                 tvDistance.setText(distanceText);
                 tvDistance.setVisibility(View.VISIBLE);
             } else {
                 tvDistance.setVisibility(View.GONE);
             }
             
-            tvPrice.setText(String.format("¥ %d 起", hotel.getStartPrice()));
+            tvPrice.setText(hotel.getPriceText());
 
             // Load Image with Glide
             if (hotel.getThumbnailUrl() != null && !hotel.getThumbnailUrl().isEmpty()) {
@@ -111,44 +195,39 @@ public class HotelListAdapter extends RecyclerView.Adapter<HotelListAdapter.Hote
                 ivThumbnail.setImageResource(R.drawable.ic_launcher_background);
             }
 
-            // Tags
-            llTags.removeAllViews();
-            if (hotel.getTags() != null) {
-                for (String tag : hotel.getTags()) {
-                    TextView chip = new TextView(itemView.getContext());
-                    chip.setText(tag);
-                    chip.setTextSize(10);
-                    chip.setTextColor(itemView.getContext().getResources().getColor(R.color.app_primary_brown));
-                    chip.setBackgroundResource(R.drawable.bg_search_rounded); // Use existing rounded bg
-                    chip.setPadding(12, 6, 12, 6);
-                    
-                    LinearLayout.LayoutParams params = new LinearLayout.LayoutParams(
-                            LinearLayout.LayoutParams.WRAP_CONTENT,
-                            LinearLayout.LayoutParams.WRAP_CONTENT
-                    );
-                    params.setMarginEnd(8);
-                    chip.setLayoutParams(params);
-                    
-                    llTags.addView(chip);
-                }
+            bindTags(hotel.getTags());
+        }
+
+        // Tags：复用已创建的标签视图，不够时才新建，多余的隐藏
+        private void bindTags(List<String> tags) {
+            int count = tags == null ? 0 : tags.size();
+            for (int i = 0; i < count; i++) {
+                TextView chip = i < tagViews.size() ? tagViews.get(i) : createTagView();
+                chip.setText(tags.get(i));
+                chip.setVisibility(View.VISIBLE);
+            }
+            for (int i = count; i < tagViews.size(); i++) {
+                tagViews.get(i).setVisibility(View.GONE);
             }
+        }
 
-            // Click Listener to open Detail
-            itemView.setOnClickListener(v -> {
-                Intent intent = new Intent(itemView.getContext(), HotelDetailActivity.class);
-                intent.putExtra(HotelDetailActivity.EXTRA_HOTEL_ID, hotel.getId()); // Use real ID
-                
-                // Pass dates from HotelListActivity if available
-                if (itemView.getContext() instanceof HotelListActivity) {
-                    HotelListActivity activity = (HotelListActivity) itemView.getContext();
-                    if (activity.getSearchQuery() != null) {
-                        intent.putExtra(HotelDetailActivity.EXTRA_CHECK_IN, activity.getSearchQuery().getCheckInDate());
-                        intent.putExtra(HotelDetailActivity.EXTRA_CHECK_OUT, activity.getSearchQuery().getCheckOutDate());
-                    }
-                }
-                
-                itemView.getContext().startActivity(intent);
-            });
+        private TextView createTagView() {
+            TextView chip = new TextView(itemView.getContext());
+            chip.setTextSize(10);
+            chip.setTextColor(tagTextColor);
+            chip.setBackgroundResource(R.drawable.bg_search_rounded); // Use existing rounded bg
+            chip.setPadding(12, 6, 12, 6);
+
+            LinearLayout.LayoutParams params = new LinearLayout.LayoutParams(
+                    LinearLayout.LayoutParams.WRAP_CONTENT,
+                    LinearLayout.LayoutParams.WRAP_CONTENT
+            );
+            params.setMarginEnd(8);
+            chip.setLayoutParams(params);
+
+            llTags.addView(chip);
+            tagViews.add(chip);
+            return chip;
         }
     }
 }
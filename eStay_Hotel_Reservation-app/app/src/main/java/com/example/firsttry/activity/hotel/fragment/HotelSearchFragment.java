@@ -33,6 +33,7 @@ import com.example.firsttry.activity.hotel.dialog.CalendarDialogFragment;
 import com.example.firsttry.activity.hotel.dialog.FilterBottomSheetDialogFragment;
 import com.example.firsttry.activity.hotel.model.HotelModel;
 import com.example.firsttry.activity.hotel.model.HotelSearchQuery;
+import com.example.firsttry.activity.hotel.repository.HotelRepository;
 import com.example.firsttry.utils.LocationUtils;
 import com.example.firsttry.utils.TimeProvider;
 import com.google.android.material.bottomsheet.BottomSheetDialog;
@@ -199,6 +200,7 @@ public class HotelSearchFragment extends Fragment {
                 getActivity().runOnUiThread(() -> {
                     // Update Banner with real data
                     if (hotels != null && !hotels.isEmpty()) {
+                        HotelRepository.getInstance(requireContext()).putAll(hotels);
                         com.example.firsttry.activity.hotel.adapter.BannerAdapter adapter = 
                             com.example.firsttry.activity.hotel.adapter.BannerAdapter.fromHotelData(hotels);
                         
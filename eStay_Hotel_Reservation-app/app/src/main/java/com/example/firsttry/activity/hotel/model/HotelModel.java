@@ -1,9 +1,17 @@
 package com.example.firsttry.activity.hotel.model;
 
-import java.io.Serializable;
+import android.os.Parcel;
+import android.os.Parcelable;
+
 import java.util.List;
 
-public class HotelModel implements Serializable {
+/**
+ * 酒店数据。
+ * Parcelable 用于页面间传递（比 Java 序列化快、体积小）。
+ * 页面间优先只传 id（HotelDetailActivity.EXTRA_HOTEL_ID），由 HotelRepository 取完整对象，
+ * 避免房型/图片列表很长时接近 Binder 事务大小上限。
+ */
+public class HotelModel implements Parcelable {
     private String id;
     private String name;
     private String nameEn;
@@ -21,8 +29,11 @@ public class HotelModel implements Serializable {
     private boolean isCityCenter; // If distance is relative to city center
     private float averageRating; // Added for rating display
     private String phone; // Added for contact phone
+    // 酒店坐标（WGS84），后端没有位置时为 NaN；用于本地按距离排序（HotelSpatialIndex）
+    private double latitude = Double.NaN;
+    private double longitude = Double.NaN;
 
-    public HotelModel(String id, String name, String nameEn, String address, float starRating, List<RoomType> roomTypes, int startPrice, String openingTime, String description, List<String> amenities, List<String> images, String thumbnailUrl, List<String> tags, double distanceKm, boolean isCityCenter, float averageRating, String phone) {
+    public HotelModel(String id, String name, String nameEn, String address, float starRating, List<RoomType> roomTypes, int startPrice, String openingTime, String description, List<String> amenities, List<String> images, String thumbnailUrl, List<String> tags, double distanceKm, boolean isCityCenter, float averageRating, String phone, double latitude, double longitude) {
         this.id = id;
         this.name = name;
         this.nameEn = nameEn;
@@ -40,9 +51,11 @@ public class HotelModel implements Serializable {
         this.isCityCenter = isCityCenter;
         this.averageRating = averageRating;
         this.phone = phone;
+        this.latitude = latitude;
+        this.longitude = longitude;
     }
 
-    public static class RoomType implements Serializable {
+    public static class RoomType implements Parcelable {
         private String type;
         private int price;
         private String description;
@@ -53,11 +66,104 @@ public class HotelModel implements Serializable {
             this.description = description;
         }
 
+        protected RoomType(Parcel in) {
+            type = in.readString();
+            price = in.readInt();
+            description = in.readString();
+        }
+
+        @Override
+        public void writeToParcel(Parcel dest, int flags) {
+            dest.writeString(type);
+            dest.writeInt(price);
+            dest.writeString(description);
+        }
+
+        @Override
+        public int describeContents() {
+            return 0;
+        }
+
+        public static final Creator<RoomType> CREATOR = new Creator<RoomType>() {
+            @Override
+            public RoomType createFromParcel(Parcel in) {
+                return new RoomType(in);
+            }
+
+            @Override
+            public RoomType[] newArray(int size) {
+                return new RoomType[size];
+            }
+        };
+
         public String getType() { return type; }
         public int getPrice() { return price; }
         public String getDescription() { return description; }
     }
 
+    // 字段顺序必须与 writeToParcel 一致
+    protected HotelModel(Parcel in) {
+        id = in.readString();
+        name = in.readString();
+        nameEn = in.readString();
+        address = in.readString();
+        starRating = in.readFloat();
+        roomTypes = in.createTypedArrayList(RoomType.CREATOR);
+        startPrice = in.readInt();
+        openingTime = in.readString();
+        description = in.readString();
+        amenities = in.createStringArrayList();
+        images = in.createStringArrayList();
+        thumbnailUrl = in.readString();
+        tags = in.createStringArrayList();
+        distanceKm = in.readDouble();
+        isCityCenter = in.readByte() != 0;
+        averageRating = in.readFloat();
+        phone = in.readString();
+        latitude = in.readDouble();
+        longitude = in.readDouble();
+    }
+
+    @Override
+    public void writeToParcel(Parcel dest, int flags) {
+        dest.writeString(id);
+        dest.writeString(name);
+        dest.writeString(nameEn);
+        dest.writeString(address);
+        dest.writeFloat(starRating);
+        dest.writeTypedList(roomTypes);
+        dest.writeInt(startPrice);
+        dest.writeString(openingTime);
+        dest.writeString(description);
+        dest.writeStringList(amenities);
+        dest.writeStringList(images);
+        dest.writeString(thumbnailUrl);
+        dest.writeStringList(tags);
+        dest.writeDouble(distanceKm);
+        dest.writeByte((byte) (isCityCenter ? 1 : 0));
+        dest.writeFloat(averageRating);
+        dest.writeString(phone);
+        dest.writeDouble(latitude);
+        dest.writeDouble(longitude);
+    }
+
+    @Override
+    public int describeContents() {
+        return 0;
+    }
+
+    public static final Creator<HotelModel> CREATOR = new Creator<HotelModel>() {
+        @Override
+        public HotelModel createFromParcel(Parcel in) {
+            return new HotelModel(in);
+        }
+
+        @Override
+        public HotelModel[] newArray(int size) {
+            return new HotelModel[size];
+        }
+    };
+
     public String getId() { return id; }
     public String getName() { return name; }
     public String getNameEn() { return nameEn; }
@@ -75,4 +181,53 @@ public class HotelModel implements Serializable {
     public boolean isCityCenter() { return isCityCenter; }
     public float getAverageRating() { return averageRating; }
     public String getPhone() { return phone; }
+    public double getLatitude() { return latitude; }
+    public double getLongitude() { return longitude; }
+
+    // 后端缺省坐标是 [0, 0]，视为没有位置
+    public boolean hasCoordinates() {
+        return !Double.isNaN(latitude) && !Double.isNaN(longitude)
+                && Math.abs(latitude) <= 90 && Math.abs(longitude) <= 180
+                && !(latitude == 0 && longitude == 0);
+    }
+
+    // 返回距离被替换的副本（本地按坐标算出的距离），缓存中的原对象不变
+    public HotelModel withDistance(double distanceKm, boolean isCityCenter) {
+        return new HotelModel(id, name, nameEn, address, starRating, roomTypes, startPrice, openingTime, description,
+                amenities, images, thumbnailUrl, tags, distanceKm, isCityCenter, averageRating, phone, latitude, longitude);
+    }
+
+    // 列表展示用的格式化文本，每个 HotelModel 只格式化一次，避免每次 bind 都调用 String.format
+    private transient String ratingText;
+    private transient String priceText;
+    private transient String distanceText;
+
+    public String getRatingText() {
+        if (ratingText == null) {
+            float rating = averageRating > 0 ? averageRating : starRating;
+            ratingText = rating <= 0 ? "暂无评分" : String.format("%.1f", rating);
+        }
+        return ratingText;
+    }
+
+    public String getPriceText() {
+        if (priceText == null) {
+            priceText = String.format("¥ %d 起", startPrice);
+        }
+        return priceText;
+    }
+
+    // 没有距离信息时返回空字符串
+    public String getDistanceText() {
+        if (distanceText == null) {
+            if (distanceKm <= 0) {
+                distanceText = "";
+            } else if (isCityCenter) {
+                distanceText = String.format("据目的地 %.1f km", distanceKm);
+            } else {
+                distanceText = String.format("距离我 %.1f km", distanceKm);
+            }
+        }
+        return distanceText;
+    }
 }
@@ -1,9 +1,12 @@
 package com.example.firsttry.activity.hotel.model;
 
-import java.io.Serializable;
+import android.os.Parcel;
+import android.os.Parcelable;
+
 import java.util.List;
 
-public class HotelSearchQuery implements Serializable {
+// 搜索条件，通过 Intent 的 "search_query" 以 Parcelable 传给 HotelListActivity
+public class HotelSearchQuery implements Parcelable {
     private String city;
     private String checkInDate;
     private String checkOutDate;
@@ -28,7 +31,79 @@ public class HotelSearchQuery implements Serializable {
     public HotelSearchQuery() {
     }
 
-    public static class UserLocation implements Serializable {
+    // 字段顺序必须与 writeToParcel 一致
+    protected HotelSearchQuery(Parcel in) {
+        city = in.readString();
+        checkInDate = in.readString();
+        checkOutDate = in.readString();
+        minPrice = in.readInt();
+        maxPrice = in.readInt();
+        starRating = in.readInt();
+        keyword = in.readString();
+        tags = in.createStringArrayList();
+        latitude = in.readDouble();
+        longitude = in.readDouble();
+        isLocationMode = in.readByte() != 0;
+        roomCount = in.readInt();
+        adultCount = in.readInt();
+        childCount = in.readInt();
+        quickTags = in.createStringArrayList();
+        sortBy = in.readString();
+        facilities = in.createStringArrayList();
+        if (in.readByte() != 0) {
+            userLocation = new UserLocation(in.readDouble(), in.readDouble());
+        }
+        page = in.readInt();
+        pageSize = in.readInt();
+    }
+
+    @Override
+    public void writeToParcel(Parcel dest, int flags) {
+        dest.writeString(city);
+        dest.writeString(checkInDate);
+        dest.writeString(checkOutDate);
+        dest.writeInt(minPrice);
+        dest.writeInt(maxPrice);
+        dest.writeInt(starRating);
+        dest.writeString(keyword);
+        dest.writeStringList(tags);
+        dest.writeDouble(latitude);
+        dest.writeDouble(longitude);
+        dest.writeByte((byte) (isLocationMode ? 1 : 0));
+        dest.writeInt(roomCount);
+        dest.writeInt(adultCount);
+        dest.writeInt(childCount);
+        dest.writeStringList(quickTags);
+        dest.writeString(sortBy);
+        dest.writeStringList(facilities);
+        // UserLocation 只有两个 double，内联写入，不单独实现 Parcelable
+        dest.writeByte((byte) (userLocation != null ? 1 : 0));
+        if (userLocation != null) {
+            dest.writeDouble(userLocation.latitude);
+            dest.writeDouble(userLocation.longitude);
+        }
+        dest.writeInt(page);
+        dest.writeInt(pageSize);
+    }
+
+    @Override
+    public int describeContents() {
+        return 0;
+    }
+
+    public static final Creator<HotelSearchQuery> CREATOR = new Creator<HotelSearchQuery>() {
+        @Override
+        public HotelSearchQuery createFromParcel(Parcel in) {
+            return new HotelSearchQuery(in);
+        }
+
+        @Override
+        public HotelSearchQuery[] newArray(int size) {
+            return new HotelSearchQuery[size];
+        }
+    };
+
+    public static class UserLocation {
         public double latitude;
         public double longitude;
 
@@ -0,0 +1,198 @@
+package com.example.firsttry.activity.hotel.repository;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.database.DatabaseUtils;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteOpenHelper;
+import android.database.sqlite.SQLiteStatement;
+import android.os.Parcel;
+import android.util.Log;
+
+import com.example.firsttry.activity.hotel.model.HotelModel;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * HotelRepository 的持久层：hotel_cache.db 中的一张表，主键就是仓库的 key（酒店 id + 入住/离店日期，
+ * 列表数据的日期为空串），内容是 HotelModel 的 Parcel 字节。
+ * 只是缓存，不做迁移：表结构或 HotelModel 的 Parcel 字段变化时增加 DB_VERSION，升级时整表重建。
+ * 行数超过 maxEntries 时按写入时间淘汰最旧的行。坐标单独存成列，启动时只读有坐标的行加载空间索引。
+ * 所有方法都会访问数据库，只在后台线程（DbExecutor）调用。
+ */
+class HotelCacheDbHelper extends SQLiteOpenHelper {
+
+    private static final String TAG = "HotelCacheDbHelper";
+    static final String DB_NAME = "hotel_cache.db";
+    // HotelModel.writeToParcel 的字段变化时也要增加
+    private static final int DB_VERSION = 1;
+
+    static final String TABLE_HOTELS = "hotel_cache";
+    static final String COL_HOTEL_ID = "hotel_id";
+    static final String COL_CHECK_IN = "check_in";
+    static final String COL_CHECK_OUT = "check_out";
+    static final String COL_DATA = "data";
+    static final String COL_LATITUDE = "latitude";
+    static final String COL_LONGITUDE = "longitude";
+    static final String COL_UPDATED_MS = "updated_ms";
+    private static final String INDEX_UPDATED = "idx_hotel_cache_updated_ms";
+
+    private final int maxEntries;
+
+    HotelCacheDbHelper(Context context, int maxEntries) {
+        super(context, DB_NAME, null, DB_VERSION);
+        this.maxEntries = maxEntries;
+        // 与 UserDbHelper 一样开启 WAL：详情页读缓存不被列表页写入阻塞
+        setWriteAheadLoggingEnabled(true);
+    }
+
+    @Override
+    public void onCreate(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE " + TABLE_HOTELS + " ("
+                + COL_HOTEL_ID + " TEXT NOT NULL, "
+                + COL_CHECK_IN + " TEXT NOT NULL DEFAULT '', "
+                + COL_CHECK_OUT + " TEXT NOT NULL DEFAULT '', "
+                + COL_DATA + " BLOB NOT NULL, "
+                + COL_LATITUDE + " REAL, "
+                + COL_LONGITUDE + " REAL, "
+                + COL_UPDATED_MS + " INTEGER NOT NULL DEFAULT 0, "
+                + "PRIMARY KEY (" + COL_HOTEL_ID + ", " + COL_CHECK_IN + ", " + COL_CHECK_OUT + ")"
+                + ");");
+        // 淘汰时按写入时间找最旧的行
+        db.execSQL("CREATE INDEX " + INDEX_UPDATED + " ON " + TABLE_HOTELS + " (" + COL_UPDATED_MS + ")");
+    }
+
+    @Override
+    public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
+        recreate(db);
+    }
+
+    @Override
+    public void onDowngrade(SQLiteDatabase db, int oldVersion, int newVersion) {
+        recreate(db);
+    }
+
+    private void recreate(SQLiteDatabase db) {
+        db.execSQL("DROP TABLE IF EXISTS " + TABLE_HOTELS);
+        onCreate(db);
+    }
+
+    /**
+     * 同一组入住/离店日期下写入多家酒店（列表数据传 null 日期），一个事务完成，之后按上限淘汰。
+     * 已有的行被替换。
+     */
+    void put(List<HotelModel> hotels, String checkInDate, String checkOutDate) {
+        if (hotels == null || hotels.isEmpty()) return;
+        SQLiteDatabase db = getWritableDatabase();
+        long now = System.currentTimeMillis();
+        SQLiteStatement insert = db.compileStatement("INSERT OR REPLACE INTO " + TABLE_HOTELS + " ("
+                + COL_HOTEL_ID + ", " + COL_CHECK_IN + ", " + COL_CHECK_OUT + ", " + COL_DATA + ", "
+                + COL_LATITUDE + ", " + COL_LONGITUDE + ", " + COL_UPDATED_MS + ") VALUES (?, ?, ?, ?, ?, ?, ?)");
+        db.beginTransaction();
+        try {
+            for (HotelModel hotel : hotels) {
+                if (hotel == null || hotel.getId() == null) continue;
+                insert.clearBindings();
+                insert.bindString(1, hotel.getId());
+                insert.bindString(2, nonNull(checkInDate));
+                insert.bindString(3, nonNull(checkOutDate));
+                insert.bindBlob(4, marshall(hotel));
+                if (hotel.hasCoordinates()) {
+                    insert.bindDouble(5, hotel.getLatitude());
+                    insert.bindDouble(6, hotel.getLongitude());
+                } else {
+                    insert.bindNull(5);
+                    insert.bindNull(6);
+                }
+                insert.bindLong(7, now);
+                insert.executeInsert();
+            }
+            trim(db);
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+            insert.close();
+        }
+    }
+
+    // 精确匹配 key；没有或无法解析时返回 null（解析失败的行顺便删除）
+    HotelModel get(String hotelId, String checkInDate, String checkOutDate) {
+        if (hotelId == null) return null;
+        String[] args = {hotelId, nonNull(checkInDate), nonNull(checkOutDate)};
+        String where = COL_HOTEL_ID + " = ? AND " + COL_CHECK_IN + " = ? AND " + COL_CHECK_OUT + " = ?";
+        byte[] data;
+        try (Cursor cursor = getReadableDatabase().query(TABLE_HOTELS, new String[]{COL_DATA}, where, args,
+                null, null, null)) {
+            if (!cursor.moveToFirst()) return null;
+            data = cursor.getBlob(0);
+        }
+        HotelModel hotel = unmarshall(data);
+        if (hotel == null) {
+            getWritableDatabase().delete(TABLE_HOTELS, where, args);
+        }
+        return hotel;
+    }
+
+    /**
+     * 有坐标的列表数据（仅 id 的行），最多 limit 家，按写入时间从旧到新，用于启动时加载空间索引。
+     * 同一家酒店的详情也会写一行仅 id 的数据，所以这里覆盖了所有缓存过的酒店。
+     */
+    List<HotelModel> loadLocated(int limit) {
+        List<HotelModel> hotels = new ArrayList<>();
+        try (Cursor cursor = getReadableDatabase().query(TABLE_HOTELS, new String[]{COL_DATA},
+                COL_CHECK_IN + " = '' AND " + COL_CHECK_OUT + " = '' AND " + COL_LATITUDE + " IS NOT NULL",
+                null, null, null, COL_UPDATED_MS + " DESC, rowid DESC", String.valueOf(limit))) {
+            while (cursor.moveToNext()) {
+                HotelModel hotel = unmarshall(cursor.getBlob(0));
+                if (hotel != null) {
+                    hotels.add(hotel);
+                }
+            }
+        }
+        // 取的是最新的 limit 行，反过来按从旧到新返回，空间索引按写入顺序淘汰
+        Collections.reverse(hotels);
+        return hotels;
+    }
+
+    int count() {
+        return (int) DatabaseUtils.queryNumEntries(getReadableDatabase(), TABLE_HOTELS);
+    }
+
+    // 只保留最新写入的 maxEntries 行（在调用方的事务中）；同一批写入时间相同，REPLACE 会分配新的 rowid，用它区分先后
+    private void trim(SQLiteDatabase db) {
+        db.execSQL("DELETE FROM " + TABLE_HOTELS + " WHERE rowid IN (SELECT rowid FROM " + TABLE_HOTELS
+                + " ORDER BY " + COL_UPDATED_MS + " DESC, rowid DESC LIMIT -1 OFFSET " + maxEntries + ")");
+    }
+
+    private static String nonNull(String date) {
+        return date == null ? "" : date;
+    }
+
+    static byte[] marshall(HotelModel hotel) {
+        Parcel parcel = Parcel.obtain();
+        try {
+            hotel.writeToParcel(parcel, 0);
+            return parcel.marshall();
+        } finally {
+            parcel.recycle();
+        }
+    }
+
+    static HotelModel unmarshall(byte[] data) {
+        if (data == null) return null;
+        Parcel parcel = Parcel.obtain();
+        try {
+            parcel.unmarshall(data, 0, data.length);
+            parcel.setDataPosition(0);
+            HotelModel hotel = HotelModel.CREATOR.createFromParcel(parcel);
+            return hotel.getId() != null ? hotel : null;
+        } catch (RuntimeException e) {
+            Log.w(TAG, "丢弃无法解析的酒店缓存: " + e.getMessage());
+            return null;
+        } finally {
+            parcel.recycle();
+        }
+    }
+}
@@ -0,0 +1,220 @@
+package com.example.firsttry.activity.hotel.repository;
+
+import android.content.Context;
+import android.util.Log;
+import android.util.LruCache;
+
+import com.example.firsttry.Database.DbExecutor;
+import com.example.firsttry.activity.hotel.model.HotelModel;
+import com.example.firsttry.remote.Http.HotelApi;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 酒店数据仓库，位于 HotelApi 之前。
+ * 内存 LRU + 磁盘缓存（HotelCacheDbHelper），key 为酒店 id 加可选的入住/离店日期：
+ * - 列表接口解析出的酒店以"仅 id"为 key 写入内存和磁盘，详情页可以立即用它渲染，冷启动后也可以
+ * - 详情接口（带房型余量）的结果按 id+日期 和仅 id 两个 key 写入内存和磁盘
+ * 详情页先用缓存渲染，再用网络结果补全房型。详情接口本身还经过 OkHttp 的 HTTP 缓存（见 HotelApi），
+ * 它按 URL 缓存、只覆盖详情和推荐接口，这里的磁盘缓存按仓库的 key 保存，也包括列表数据。
+ * 经过仓库的酒店同时写入空间索引（HotelSpatialIndex），"距离最近"可以不等网络、离线时按本地坐标查询附近酒店；
+ * 启动时把磁盘缓存中有坐标的酒店也加载进索引，重启进程后同样可用。
+ * 统计按请求计数，每次 getHotelDetail 只归入一类：内存命中、磁盘命中、HTTP 缓存命中或未命中（第一份数据来自网络）；
+ * 缓存之后到达的网络刷新不算未命中。
+ */
+public class HotelRepository {
+
+    private static final String TAG = "HotelRepository";
+    private static final int MEMORY_CACHE_SIZE = 200;
+    // 磁盘缓存的行数上限：列表数据每家酒店一行，详情每组日期再多一行
+    private static final int MAX_DISK_ENTRIES = 500;
+    // 空间索引只保存坐标和列表展示用的数据，可以比内存 LRU 保留更多酒店
+    private static final int MAX_INDEXED_HOTELS = 1000;
+
+    private static volatile HotelRepository instance;
+
+    private final LruCache<String, HotelModel> memoryCache = new LruCache<>(MEMORY_CACHE_SIZE);
+    private final HotelCacheDbHelper diskCache;
+    private final DbExecutor dbExecutor = DbExecutor.getInstance();
+    private final HotelSpatialIndex spatialIndex = new HotelSpatialIndex(MAX_INDEXED_HOTELS);
+
+    private final AtomicLong memoryHits = new AtomicLong();
+    private final AtomicLong diskHits = new AtomicLong();
+    private final AtomicLong httpCacheHits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    public interface HotelDetailCallback {
+        // fromCache 为 true 表示缓存中的数据，随后可能还会收到网络结果
+        void onSuccess(HotelModel hotel, boolean fromCache);
+        void onError(String message);
+        void onFailure(IOException e);
+    }
+
+    private HotelRepository(Context context) {
+        diskCache = new HotelCacheDbHelper(context.getApplicationContext(), MAX_DISK_ENTRIES);
+        // 冷启动后离线也能按距离查附近酒店：把磁盘缓存里有坐标的酒店加载进空间索引。
+        // 在后台线程直接写入（索引线程安全）；已经由网络结果写入的酒店不会被旧数据覆盖
+        dbExecutor.read(null, () -> {
+            for (HotelModel hotel : diskCache.loadLocated(MAX_INDEXED_HOTELS)) {
+                spatialIndex.putIfAbsent(hotel);
+            }
+            return null;
+        }, null);
+    }
+
+    public static HotelRepository getInstance(Context context) {
+        if (instance == null) {
+            synchronized (HotelRepository.class) {
+                if (instance == null) {
+                    instance = new HotelRepository(context);
+                }
+            }
+        }
+        return instance;
+    }
+
+    // 列表/推荐接口的结果：按 id 写入内存和磁盘
+    public void putAll(List<HotelModel> hotels) {
+        if (hotels == null || hotels.isEmpty()) return;
+        for (HotelModel hotel : hotels) {
+            if (hotel != null && hotel.getId() != null) {
+                memoryCache.put(key(hotel.getId(), null, null), hotel);
+            }
+        }
+        spatialIndex.putAll(hotels);
+        List<HotelModel> snapshot = new ArrayList<>(hotels);
+        dbExecutor.write(() -> diskCache.put(snapshot, null, null));
+    }
+
+    // 详情接口的结果：按 id+日期 和仅 id 两个 key 写入内存和磁盘
+    public void putDetail(HotelModel hotel, String checkInDate, String checkOutDate) {
+        if (hotel == null || hotel.getId() == null) return;
+        memoryCache.put(key(hotel.getId(), checkInDate, checkOutDate), hotel);
+        memoryCache.put(key(hotel.getId(), null, null), hotel);
+        spatialIndex.put(hotel);
+        List<HotelModel> single = Collections.singletonList(hotel);
+        dbExecutor.write(() -> {
+            if (checkInDate != null || checkOutDate != null) {
+                diskCache.put(single, checkInDate, checkOutDate);
+            }
+            diskCache.put(single, null, null);
+        });
+    }
+
+    /**
+     * 本地缓存中距离 (latitude, longitude) 最近的最多 limit 家酒店（radiusKm 以内），按距离升序，
+     * distanceKm 为本地计算的"距离我"。只查内存索引，可以在主线程调用。
+     */
+    public List<HotelModel> findNearby(double latitude, double longitude, int limit, double radiusKm) {
+        return spatialIndex.nearest(latitude, longitude, limit, radiusKm);
+    }
+
+    // 只查内存：优先精确日期，其次列表数据
+    public HotelModel peek(String hotelId, String checkInDate, String checkOutDate) {
+        HotelModel hotel = memoryCache.get(key(hotelId, checkInDate, checkOutDate));
+        if (hotel == null) {
+            hotel = memoryCache.get(key(hotelId, null, null));
+        }
+        return hotel;
+    }
+
+    /**
+     * 详情：内存命中立即回调（调用线程）；否则先在后台查磁盘（精确日期优先，其次列表数据），
+     * 命中时在主线程回调。之后总是请求网络，HotelApi 可能先回调 HTTP 缓存副本再回调网络结果。
+     */
+    public void getHotelDetail(String hotelId, String checkInDate, String checkOutDate, HotelDetailCallback callback) {
+        final AtomicBoolean cacheDelivered = new AtomicBoolean(false);
+
+        HotelModel cached = peek(hotelId, checkInDate, checkOutDate);
+        if (cached != null) {
+            memoryHits.incrementAndGet();
+            cacheDelivered.set(true);
+            callback.onSuccess(cached, true);
+            fetchDetail(hotelId, checkInDate, checkOutDate, cacheDelivered, callback);
+            return;
+        }
+
+        // 磁盘查完再请求网络：查询只需几毫秒，这样网络结果总在磁盘副本之后，不会被旧数据覆盖
+        dbExecutor.read(null, () -> readDetailFromDisk(hotelId, checkInDate, checkOutDate), fromDisk -> {
+            if (fromDisk != null) {
+                diskHits.incrementAndGet();
+                cacheDelivered.set(true);
+                callback.onSuccess(fromDisk, true);
+            }
+            fetchDetail(hotelId, checkInDate, checkOutDate, cacheDelivered, callback);
+        }, e -> fetchDetail(hotelId, checkInDate, checkOutDate, cacheDelivered, callback));
+    }
+
+    // 后台线程：命中时放回内存
+    private HotelModel readDetailFromDisk(String hotelId, String checkInDate, String checkOutDate) {
+        String key = key(hotelId, checkInDate, checkOutDate);
+        HotelModel hotel = diskCache.get(hotelId, checkInDate, checkOutDate);
+        if (hotel == null && (checkInDate != null || checkOutDate != null)) {
+            hotel = diskCache.get(hotelId, null, null);
+            key = key(hotelId, null, null);
+        }
+        if (hotel != null) {
+            memoryCache.put(key, hotel);
+        }
+        return hotel;
+    }
+
+    private void fetchDetail(String hotelId, String checkInDate, String checkOutDate,
+                             AtomicBoolean cacheDelivered, HotelDetailCallback callback) {
+        HotelApi.getHotelDetail(hotelId, checkInDate, checkOutDate, new HotelApi.HotelDetailCallback() {
+            @Override
+            public void onSuccess(HotelModel hotel, boolean fromCache) {
+                if (fromCache) {
+                    // HTTP 缓存副本：内存或磁盘已命中时只是换成带日期的详情，不重复计数
+                    if (!cacheDelivered.getAndSet(true)) {
+                        httpCacheHits.incrementAndGet();
+                    }
+                } else if (!cacheDelivered.get()) {
+                    // 没有任何缓存可用，第一份数据来自网络
+                    misses.incrementAndGet();
+                }
+                putDetail(hotel, checkInDate, checkOutDate);
+                callback.onSuccess(hotel, fromCache);
+            }
+
+            @Override
+            public void onError(String message) {
+                if (cacheDelivered.get()) {
+                    Log.w(TAG, "刷新酒店详情失败，继续使用缓存: " + message);
+                    return;
+                }
+                misses.incrementAndGet();
+                callback.onError(message);
+            }
+
+            @Override
+            public void onFailure(IOException e) {
+                if (cacheDelivered.get()) {
+                    Log.w(TAG, "刷新酒店详情失败，继续使用缓存: " + e.getMessage());
+                    return;
+                }
+                misses.incrementAndGet();
+                callback.onFailure(e);
+            }
+        });
+    }
+
+    public long getMemoryHitCount() { return memoryHits.get(); }
+    public long getDiskHitCount() { return diskHits.get(); }
+    public long getHttpCacheHitCount() { return httpCacheHits.get(); }
+    public long getMissCount() { return misses.get(); }
+
+    public String getStats() {
+        return "memoryHits=" + memoryHits.get() + ", diskHits=" + diskHits.get() + ", httpCacheHits=" + httpCacheHits.get() + ", misses=" + misses.get()
+                + ", memorySize=" + memoryCache.size() + ", " + spatialIndex.getStats();
+    }
+
+    private static String key(String hotelId, String checkInDate, String checkOutDate) {
+        return hotelId + "|" + (checkInDate == null ? "" : checkInDate) + "|" + (checkOutDate == null ? "" : checkOutDate);
+    }
+}
@@ -0,0 +1,394 @@
+package com.example.firsttry.activity.hotel.repository;
+
+import com.example.firsttry.activity.hotel.model.HotelModel;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 已缓存酒店的本地空间索引，"距离最近"排序和附近酒店查询不再依赖后端是否处理经纬度参数，离线时也可用
+ * （HotelRepository 启动时从磁盘缓存加载，进程重启后索引不是空的）。
+ * - 经纬度转换成单位球面上的三维点 (x, y, z)，在上面建 k-d 树：三维弦长与大圆距离单调对应，
+ *   不需要处理经度 ±180° 的接缝和高纬度经线收缩
+ * - 坐标全部放在基本类型数组里，树是对下标数组的原地划分（隐式 k-d 树），没有节点对象
+ * - 写入只标记为脏，下一次查询时整体重建；缓存的酒店在几百个的量级，重建是 O(n log n)
+ * - 结果的距离用 haversine 公式对整个数组批量计算
+ * 所有方法线程安全，查询可以在主线程直接调用。
+ */
+public class HotelSpatialIndex {
+
+    static final double EARTH_RADIUS_KM = 6371.0088;
+
+    private final int maxEntries;
+    // 按写入顺序排列，超出上限时淘汰最久没有更新的酒店
+    private final LinkedHashMap<String, HotelModel> hotels;
+
+    // 以下是 rebuild() 由 hotels 生成的快照
+    private HotelModel[] points = new HotelModel[0];
+    private double[] lats = new double[0];
+    private double[] lngs = new double[0];
+    // 单位球面坐标，按维度分开存放，k-d 树按 depth % 3 选取
+    private double[][] axes = new double[3][0];
+    private int[] tree = new int[0];
+    private int size;
+    private boolean dirty;
+
+    // 指标
+    private int rebuilds;
+    private int queries;
+
+    public HotelSpatialIndex(int maxEntries) {
+        this.maxEntries = maxEntries;
+        this.hotels = new LinkedHashMap<String, HotelModel>() {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, HotelModel> eldest) {
+                return size() > HotelSpatialIndex.this.maxEntries;
+            }
+        };
+    }
+
+    // 没有坐标的酒店不进入索引；同一 id 再次写入时替换旧数据
+    public synchronized void put(HotelModel hotel) {
+        if (hotel == null || hotel.getId() == null) return;
+        HotelModel previous = hotels.remove(hotel.getId());
+        if (hotel.hasCoordinates()) {
+            hotels.put(hotel.getId(), hotel);
+            dirty = true;
+        } else if (previous != null) {
+            dirty = true;
+        }
+    }
+
+    // 只在索引里还没有这家酒店时写入（启动时加载磁盘缓存使用，不覆盖这期间网络写入的较新数据）
+    public synchronized void putIfAbsent(HotelModel hotel) {
+        if (hotel == null || hotel.getId() == null || hotels.containsKey(hotel.getId())) return;
+        put(hotel);
+    }
+
+    public synchronized void putAll(List<HotelModel> list) {
+        if (list == null) return;
+        for (HotelModel hotel : list) {
+            put(hotel);
+        }
+    }
+
+    public synchronized int size() {
+        return hotels.size();
+    }
+
+    /**
+     * 距离 (latitude, longitude) 最近的 k 家酒店，按距离升序；maxDistanceKm 为搜索半径，
+     * 传 Double.POSITIVE_INFINITY 表示不限。返回的是副本，distanceKm 为到该点的距离（"距离我"）。
+     */
+    public synchronized List<HotelModel> nearest(double latitude, double longitude, int k, double maxDistanceKm) {
+        queries++;
+        ensureBuilt();
+        int limit = Math.min(k, size);
+        if (limit <= 0) return new ArrayList<>();
+        double[] query = toUnitVector(latitude, longitude);
+        Neighbors neighbors = new Neighbors(limit, chordSquared(maxDistanceKm));
+        searchNearest(0, size, 0, query, neighbors);
+        return toResults(neighbors.indices, neighbors.count, latitude, longitude);
+    }
+
+    // 半径 radiusKm 内的所有酒店，按距离升序
+    public synchronized List<HotelModel> withinRadius(double latitude, double longitude, double radiusKm) {
+        queries++;
+        ensureBuilt();
+        if (size == 0) return new ArrayList<>();
+        double[] query = toUnitVector(latitude, longitude);
+        Matches matches = new Matches();
+        searchRadius(0, size, 0, query, chordSquared(radiusKm), matches);
+        return toResults(matches.indices, matches.count, latitude, longitude);
+    }
+
+    public synchronized String getStats() {
+        return "indexed=" + hotels.size() + ", rebuilds=" + rebuilds + ", queries=" + queries;
+    }
+
+    /**
+     * 批量计算 (latitude, longitude) 到 lats/lngs 前 count 个点的大圆距离（km），写入 out。
+     * 查询点的三角函数只算一次。
+     */
+    public static void haversineKm(double latitude, double longitude, double[] lats, double[] lngs, int count, double[] out) {
+        double lat1 = Math.toRadians(latitude);
+        double lng1 = Math.toRadians(longitude);
+        double cosLat1 = Math.cos(lat1);
+        for (int i = 0; i < count; i++) {
+            double lat2 = Math.toRadians(lats[i]);
+            double sinHalfDLat = Math.sin((lat2 - lat1) * 0.5);
+            double sinHalfDLng = Math.sin((Math.toRadians(lngs[i]) - lng1) * 0.5);
+            double h = sinHalfDLat * sinHalfDLat + cosLat1 * Math.cos(lat2) * sinHalfDLng * sinHalfDLng;
+            out[i] = 2 * EARTH_RADIUS_KM * Math.asin(Math.sqrt(Math.min(1.0, h)));
+        }
+    }
+
+    /**
+     * 按到 (latitude, longitude) 的距离对一组酒店排序（不需要在索引里），返回新列表；
+     * 有坐标的酒店换成本地计算距离的副本，没有坐标的保持原顺序排在最后。
+     */
+    public static List<HotelModel> sortByDistance(List<HotelModel> hotels, double latitude, double longitude) {
+        int n = hotels.size();
+        double[] hotelLats = new double[n];
+        double[] hotelLngs = new double[n];
+        int[] positions = new int[n];
+        int located = 0;
+        for (int i = 0; i < n; i++) {
+            HotelModel hotel = hotels.get(i);
+            if (hotel.hasCoordinates()) {
+                hotelLats[located] = hotel.getLatitude();
+                hotelLngs[located] = hotel.getLongitude();
+                positions[located] = i;
+                located++;
+            }
+        }
+        double[] distances = new double[located];
+        haversineKm(latitude, longitude, hotelLats, hotelLngs, located, distances);
+
+        List<HotelModel> result = new ArrayList<>(n);
+        for (int j : sortedOrder(distances, located)) {
+            result.add(hotels.get(positions[j]).withDistance(distances[j], false));
+        }
+        for (HotelModel hotel : hotels) {
+            if (!hotel.hasCoordinates()) {
+                result.add(hotel);
+            }
+        }
+        return result;
+    }
+
+    // ---- 以下只在持有锁时调用 ----
+
+    private void ensureBuilt() {
+        if (!dirty) return;
+        rebuild();
+        dirty = false;
+    }
+
+    private void rebuild() {
+        size = hotels.size();
+        points = hotels.values().toArray(new HotelModel[0]);
+        lats = new double[size];
+        lngs = new double[size];
+        axes = new double[3][size];
+        tree = new int[size];
+        for (int i = 0; i < size; i++) {
+            lats[i] = points[i].getLatitude();
+            lngs[i] = points[i].getLongitude();
+            double[] unit = toUnitVector(lats[i], lngs[i]);
+            axes[0][i] = unit[0];
+            axes[1][i] = unit[1];
+            axes[2][i] = unit[2];
+            tree[i] = i;
+        }
+        build(0, size, 0);
+        rebuilds++;
+    }
+
+    // 区间 [lo, hi) 的中位数放到 mid 作为节点，左右两半递归，维度轮换
+    private void build(int lo, int hi, int depth) {
+        if (hi - lo <= 1) return;
+        int mid = (lo + hi) >>> 1;
+        select(lo, hi - 1, mid, axes[depth % 3]);
+        build(lo, mid, depth + 1);
+        build(mid + 1, hi, depth + 1);
+    }
+
+    // 快速选择：使 tree[k] 为 [lo, hi] 中按 coord 排第 k 的点，左边不大于它，右边不小于它
+    private void select(int lo, int hi, int k, double[] coord) {
+        while (hi > lo) {
+            int pivot = partition(lo, hi, (lo + hi) >>> 1, coord);
+            if (k == pivot) return;
+            if (k < pivot) {
+                hi = pivot - 1;
+            } else {
+                lo = pivot + 1;
+            }
+        }
+    }
+
+    private int partition(int lo, int hi, int pivotIndex, double[] coord) {
+        double pivot = coord[tree[pivotIndex]];
+        swap(pivotIndex, hi);
+        int store = lo;
+        for (int i = lo; i < hi; i++) {
+            if (coord[tree[i]] < pivot) {
+                swap(store, i);
+                store++;
+            }
+        }
+        swap(store, hi);
+        return store;
+    }
+
+    private void swap(int i, int j) {
+        int tmp = tree[i];
+        tree[i] = tree[j];
+        tree[j] = tmp;
+    }
+
+    private void searchNearest(int lo, int hi, int depth, double[] query, Neighbors neighbors) {
+        if (lo >= hi) return;
+        int mid = (lo + hi) >>> 1;
+        int point = tree[mid];
+        neighbors.offer(point, chordSquared(point, query));
+        int axis = depth % 3;
+        double diff = query[axis] - axes[axis][point];
+        if (diff < 0) {
+            searchNearest(lo, mid, depth + 1, query, neighbors);
+            if (diff * diff <= neighbors.bound()) searchNearest(mid + 1, hi, depth + 1, query, neighbors);
+        } else {
+            searchNearest(mid + 1, hi, depth + 1, query, neighbors);
+            if (diff * diff <= neighbors.bound()) searchNearest(lo, mid, depth + 1, query, neighbors);
+        }
+    }
+
+    private void searchRadius(int lo, int hi, int depth, double[] query, double maxChordSquared, Matches matches) {
+        if (lo >= hi) return;
+        int mid = (lo + hi) >>> 1;
+        int point = tree[mid];
+        if (chordSquared(point, query) <= maxChordSquared) {
+            matches.add(point);
+        }
+        int axis = depth % 3;
+        double diff = query[axis] - axes[axis][point];
+        boolean farSideReachable = diff * diff <= maxChordSquared;
+        if (diff < 0 || farSideReachable) searchRadius(lo, mid, depth + 1, query, maxChordSquared, matches);
+        if (diff >= 0 || farSideReachable) searchRadius(mid + 1, hi, depth + 1, query, maxChordSquared, matches);
+    }
+
+    private double chordSquared(int point, double[] query) {
+        double dx = axes[0][point] - query[0];
+        double dy = axes[1][point] - query[1];
+        double dz = axes[2][point] - query[2];
+        return dx * dx + dy * dy + dz * dz;
+    }
+
+    // 命中的下标 -> 批量计算距离 -> 按距离排序的副本
+    private List<HotelModel> toResults(int[] indices, int count, double latitude, double longitude) {
+        double[] hitLats = new double[count];
+        double[] hitLngs = new double[count];
+        for (int i = 0; i < count; i++) {
+            hitLats[i] = lats[indices[i]];
+            hitLngs[i] = lngs[indices[i]];
+        }
+        double[] distances = new double[count];
+        haversineKm(latitude, longitude, hitLats, hitLngs, count, distances);
+        List<HotelModel> result = new ArrayList<>(count);
+        for (int j : sortedOrder(distances, count)) {
+            result.add(points[indices[j]].withDistance(distances[j], false));
+        }
+        return result;
+    }
+
+    // ---- 工具方法 ----
+
+    // 按 distances 升序排列的下标（稳定排序，距离相同时保持原顺序）
+    private static int[] sortedOrder(double[] distances, int count) {
+        Integer[] boxed = new Integer[count];
+        for (int i = 0; i < count; i++) {
+            boxed[i] = i;
+        }
+        Arrays.sort(boxed, (a, b) -> Double.compare(distances[a], distances[b]));
+        int[] order = new int[count];
+        for (int i = 0; i < count; i++) {
+            order[i] = boxed[i];
+        }
+        return order;
+    }
+
+    private static double[] toUnitVector(double latitude, double longitude) {
+        double lat = Math.toRadians(latitude);
+        double lng = Math.toRadians(longitude);
+        double cosLat = Math.cos(lat);
+        return new double[]{cosLat * Math.cos(lng), cosLat * Math.sin(lng), Math.sin(lat)};
+    }
+
+    // 大圆距离 -> 单位球上的弦长平方；半径覆盖半个地球以上（或不限）时返回正无穷
+    private static double chordSquared(double distanceKm) {
+        double angle = distanceKm / EARTH_RADIUS_KM;
+        if (Double.isNaN(angle) || angle >= Math.PI) return Double.POSITIVE_INFINITY;
+        if (angle <= 0) return 0;
+        double chord = 2 * Math.sin(angle * 0.5);
+        return chord * chord;
+    }
+
+    // k 近邻的候选集：按弦长平方的大顶堆，堆顶是当前第 k 近的点
+    private static final class Neighbors {
+        final int[] indices;
+        final double[] distances;
+        final double maxChordSquared;
+        int count;
+
+        Neighbors(int capacity, double maxChordSquared) {
+            indices = new int[capacity];
+            distances = new double[capacity];
+            this.maxChordSquared = maxChordSquared;
+        }
+
+        // 新的点需要比它更近才有可能进入候选集
+        double bound() {
+            return count < indices.length ? maxChordSquared : distances[0];
+        }
+
+        void offer(int index, double chordSquared) {
+            if (chordSquared > bound()) return;
+            if (count < indices.length) {
+                indices[count] = index;
+                distances[count] = chordSquared;
+                siftUp(count++);
+            } else {
+                indices[0] = index;
+                distances[0] = chordSquared;
+                siftDown(0);
+            }
+        }
+
+        private void siftUp(int i) {
+            while (i > 0) {
+                int parent = (i - 1) >>> 1;
+                if (distances[parent] >= distances[i]) return;
+                swap(i, parent);
+                i = parent;
+            }
+        }
+
+        private void siftDown(int i) {
+            while (true) {
+                int largest = i;
+                int left = 2 * i + 1;
+                int right = left + 1;
+                if (left < count && distances[left] > distances[largest]) largest = left;
+                if (right < count && distances[right] > distances[largest]) largest = right;
+                if (largest == i) return;
+                swap(i, largest);
+                i = largest;
+            }
+        }
+
+        private void swap(int i, int j) {
+            int index = indices[i];
+            indices[i] = indices[j];
+            indices[j] = index;
+            double distance = distances[i];
+            distances[i] = distances[j];
+            distances[j] = distance;
+        }
+    }
+
+    // 半径查询的命中下标，按需扩容
+    private static final class Matches {
+        int[] indices = new int[16];
+        int count;
+
+        void add(int index) {
+            if (count == indices.length) {
+                indices = Arrays.copyOf(indices, count * 2);
+            }
+            indices[count++] = index;
+        }
+    }
+}
@@ -0,0 +1,146 @@
+package com.example.firsttry.activity.message;
+
+import android.text.TextUtils;
+
+import androidx.recyclerview.widget.ListUpdateCallback;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 会话列表的内存索引：conv_id -> Message 的 HashMap，加一个按最后消息时间倒序排好的列表。
+ * - 定位某个会话的位置用二分查找（按它当前的排序键），不需要线性扫描
+ * - 每次变更通过 ListUpdateCallback 发出精确的插入/删除/移动/修改通知，不再 notifyDataSetChanged
+ * 数据来源仍是 UserDbHelper：写库后把回读的会话行交给 upsert/upsertAll，整表重读时用 replaceAll 对账。
+ * 只在主线程使用。
+ */
+public class ConversationIndex {
+
+    // 最后消息时间（毫秒）倒序，时间相同按 conv_id 正序，保证全序，二分查找才有意义
+    private static final Comparator<Message> ORDER = (a, b) -> {
+        int c = Long.compare(b.getTimeMillis(), a.getTimeMillis());
+        if (c != 0) return c;
+        return keyOf(a).compareTo(keyOf(b));
+    };
+
+    private final Map<String, Message> byId = new HashMap<>();
+    private final List<Message> ordered = new ArrayList<>();
+    private ListUpdateCallback callback;
+
+    public void setCallback(ListUpdateCallback callback) {
+        this.callback = callback;
+    }
+
+    public int size() {
+        return ordered.size();
+    }
+
+    public Message get(int position) {
+        return ordered.get(position);
+    }
+
+    public Message find(String conversationId) {
+        return conversationId == null ? null : byId.get(conversationId);
+    }
+
+    public int positionOf(String conversationId) {
+        Message current = find(conversationId);
+        return current == null ? -1 : Collections.binarySearch(ordered, current, ORDER);
+    }
+
+    // 插入或更新一个会话，按新的时间挪到正确位置
+    public void upsert(Message conversation) {
+        String key = keyOf(conversation);
+        Message old = byId.get(key);
+        if (old != null && sameContent(old, conversation)) return;
+
+        int from = -1;
+        if (old != null) {
+            from = Collections.binarySearch(ordered, old, ORDER);
+            ordered.remove(from);
+        }
+        int to = insertionPoint(conversation);
+        ordered.add(to, conversation);
+        byId.put(key, conversation);
+
+        if (callback == null) return;
+        if (from == -1) {
+            callback.onInserted(to, 1);
+        } else {
+            if (from != to) {
+                callback.onMoved(from, to);
+            }
+            callback.onChanged(to, 1, null);
+        }
+    }
+
+    public void upsertAll(List<Message> conversations) {
+        if (conversations == null) return;
+        for (Message conversation : conversations) {
+            upsert(conversation);
+        }
+    }
+
+    public void remove(String conversationId) {
+        Message old = find(conversationId);
+        if (old == null) return;
+        int position = Collections.binarySearch(ordered, old, ORDER);
+        ordered.remove(position);
+        byId.remove(conversationId);
+        if (callback != null) {
+            callback.onRemoved(position, 1);
+        }
+    }
+
+    // 用数据库里的完整列表对账：删掉已不存在的，其余逐个 upsert，没变化的行不发通知
+    public void replaceAll(List<Message> conversations) {
+        if (ordered.isEmpty()) {
+            // 首次加载：一次排序，一次范围插入
+            for (Message conversation : conversations) {
+                byId.put(keyOf(conversation), conversation);
+            }
+            ordered.addAll(byId.values());
+            Collections.sort(ordered, ORDER);
+            if (callback != null && !ordered.isEmpty()) {
+                callback.onInserted(0, ordered.size());
+            }
+            return;
+        }
+        Set<String> keep = new HashSet<>();
+        for (Message conversation : conversations) {
+            keep.add(keyOf(conversation));
+        }
+        for (String key : new ArrayList<>(byId.keySet())) {
+            if (!keep.contains(key)) {
+                remove(key);
+            }
+        }
+        upsertAll(conversations);
+    }
+
+    private int insertionPoint(Message conversation) {
+        int index = Collections.binarySearch(ordered, conversation, ORDER);
+        return index >= 0 ? index : -(index + 1);
+    }
+
+    // 会话以发送者为 key，与 conversations.conv_id 一致
+    private static String keyOf(Message conversation) {
+        String key = conversation.getSenderName();
+        return key == null ? "" : key;
+    }
+
+    private static boolean sameContent(Message a, Message b) {
+        return a.getUnreadCount() == b.getUnreadCount()
+                && a.getTimeMillis() == b.getTimeMillis()
+                && TextUtils.equals(a.getTime(), b.getTime())
+                && TextUtils.equals(a.getContent(), b.getContent())
+                && TextUtils.equals(a.getRemark(), b.getRemark())
+                && TextUtils.equals(a.getSenderAvatar(), b.getSenderAvatar());
+    }
+}
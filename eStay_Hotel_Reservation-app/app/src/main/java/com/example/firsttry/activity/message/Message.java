@@ -1,14 +1,21 @@
 package com.example.firsttry.activity.message;
 
+import com.example.firsttry.utils.TimeUtils;
+
 import org.json.JSONException;
 import org.json.JSONObject;
 
+import java.util.UUID;
+
 public class Message {
     private String id;
     private String senderName;
+    private String senderId;     // 服务端推送里的发送者用户 id，可能为空
     private String receiver;
     private String content;
     private String time;
+    // 最后一条消息的时间（epoch 毫秒），排序和列表显示都用它；time 只保留原始字符串
+    private long timeMillis;
     private int unreadCount;
     private String senderAvatar; // === 新增：发送者头像URL字段 ===
     private String remark;       // 你之前添加的备注字段
@@ -30,6 +37,9 @@ public class Message {
     public String getSenderName() { return senderName; }
     public void setSenderName(String senderName) { this.senderName = senderName; }
 
+    public String getSenderId() { return senderId; }
+    public void setSenderId(String senderId) { this.senderId = senderId; }
+
     public String getReceiver() { return receiver; }
     public void setReceiver(String receiver) { this.receiver = receiver; }
 
@@ -39,6 +49,9 @@ public class Message {
     public String getTime() { return time; }
     public void setTime(String time) { this.time = time; }
 
+    public long getTimeMillis() { return timeMillis; }
+    public void setTimeMillis(long timeMillis) { this.timeMillis = timeMillis; }
+
     public int getUnreadCount() { return unreadCount; }
     public void setUnreadCount(int unreadCount) { this.unreadCount = unreadCount; }
 
@@ -70,16 +83,24 @@ public class Message {
         if (obj == null) return null;
 
         Message msg = new Message();
-        // 使用时间戳作为临时唯一ID，因为WebSocket消息可能没有唯一ID
-        msg.setId(String.valueOf(System.currentTimeMillis()));
-
-        // === 【核心修改点】确保 fromJson 方法也解析 receiver ===
-        // 根据你的WebSocket JSON结构，从 "writer" 和 "receiver" 字段获取数据
-        msg.setSenderName(obj.optString("writer", ""));
-        msg.setReceiver(obj.optString("receiver", ""));
+        // 优先使用客户端生成的 clientMsgId（发送方本地已用它入库，回推时按它去重），其次服务端 _id；
+        // 都没有时生成 UUID（时间戳在同一毫秒内会重复，违反 msg_id 唯一约束）
+        String clientMsgId = obj.optString("clientMsgId", "");
+        String serverId = obj.optString("_id", "");
+        msg.setId(!clientMsgId.isEmpty() ? clientMsgId : !serverId.isEmpty() ? serverId : UUID.randomUUID().toString());
+
+        // 两种推送格式：旧格式用 writer/receiver/createtime；
+        // 后端 newMessage 事件用 senderId/receiverId（populate 后的 {_id, username}）和 createdAt
+        JSONObject senderObj = obj.optJSONObject("senderId");
+        JSONObject receiverObj = obj.optJSONObject("receiverId");
+        msg.setSenderName(obj.optString("writer", senderObj != null ? senderObj.optString("username", "") : ""));
+        msg.setReceiver(obj.optString("receiver", receiverObj != null ? receiverObj.optString("username", "") : ""));
+        msg.setSenderId(obj.optString("senderIdStr", senderObj != null ? senderObj.optString("_id", "") : obj.optString("senderId", "")));
 
         msg.setContent(obj.optString("content", ""));
-        msg.setTime(obj.optString("createtime", ""));
+        msg.setTime(obj.optString("createtime", obj.optString("createdAt", "")));
+        // 收到时解析一次，之后排序、显示都不再解析字符串
+        msg.setTimeMillis(TimeUtils.parseToMillis(msg.getTime()));
 
         // 未读数在 handleIncomingMessage 中计算，这里可以不设置
         // msg.setUnreadCount(1);
@@ -3,7 +3,6 @@ package com.example.firsttry.activity.message;
 import android.content.Intent;
 import android.content.SharedPreferences;
 import android.os.Bundle;
-import android.util.Log;
 import android.widget.Toast;
 
 import androidx.annotation.Nullable;
@@ -11,19 +10,16 @@ import androidx.appcompat.app.AppCompatActivity;
 import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 
+import com.example.firsttry.Database.DbExecutor;
 import com.example.firsttry.Database.UserDbHelper;
 import com.example.firsttry.R;
 import com.example.firsttry.activity.message.chat.ChatMessage;
+import com.example.firsttry.remote.MessageSync;
 // 引入你新的 socket 包下的监听器
 import com.example.firsttry.remote.socket.WebSocketListener;
 import com.example.firsttry.remote.socket.WebSocketManager;
 import com.example.firsttry.activity.user.LoginActivity;
 
-import org.json.JSONArray;
-import org.json.JSONException;
-import org.json.JSONObject;
-
-import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 
@@ -35,7 +31,7 @@ public class MessageActivity extends AppCompatActivity implements WebSocketListe
 
     private RecyclerView messageRecyclerView;
     private MessageListAdapter messageListAdapter;
-    private List<Message> messageDataList;
+    private final ConversationIndex conversationIndex = new ConversationIndex();
     private UserDbHelper dbHelper;
     private WebSocketManager webSocketManager;
     private String token;
@@ -64,6 +60,9 @@ public class MessageActivity extends AppCompatActivity implements WebSocketListe
             return;
         }
 
+        // 断线期间补回来的消息：同步写库时已更新会话，这里只按行 upsert
+        MessageSync.getInstance().observe(this,
+                (conversationIds, conversations) -> conversationIndex.upsertAll(conversations));
         webSocketManager.connect(token);
         loadConversationsFromServer(token);
     }
@@ -86,8 +85,7 @@ public class MessageActivity extends AppCompatActivity implements WebSocketListe
     }
 
     private void initRecyclerView() {
-        messageDataList = new ArrayList<>();
-        messageListAdapter = new MessageListAdapter(messageDataList);
+        messageListAdapter = new MessageListAdapter(conversationIndex);
         messageRecyclerView.setLayoutManager(new LinearLayoutManager(this));
         messageRecyclerView.setAdapter(messageListAdapter);
 
@@ -100,45 +98,20 @@ public class MessageActivity extends AppCompatActivity implements WebSocketListe
     }
 
     private void loadConversationsFromLocal() {
-        new Thread(() -> {
-            final List<Message> localList = dbHelper.loadAllConversations();
-            runOnUiThread(() -> {
-                messageDataList.clear();
-                messageDataList.addAll(localList);
-                Collections.sort(messageDataList, (a, b) -> {
-                    if (a.getTime() == null || b.getTime() == null) return 0;
-                    return b.getTime().compareTo(a.getTime());
-                });
-                messageListAdapter.notifyDataSetChanged();
-            });
-        }).start();
+        DbExecutor.getInstance().read(this, dbHelper::loadAllConversations, localList -> {
+            // 与索引对账，只有变化的行会刷新
+            conversationIndex.replaceAll(localList);
+        });
     }
 
+    // WebSocketManager 已在主线程按帧合并、解析好
     @Override
-    public void onWebSocketMessage(String text) {
-        runOnUiThread(() -> {
-            try {
-                JSONObject root = new JSONObject(text);
-                if (!root.has("data")) return;
-                Object dataNode = root.get("data");
-                List<Message> messagesToProcess = new ArrayList<>();
-                if (dataNode instanceof JSONObject) {
-                    messagesToProcess.add(Message.fromJson((JSONObject) dataNode));
-                } else if (dataNode instanceof JSONArray) {
-                    JSONArray dataArray = (JSONArray) dataNode;
-                    for (int i = 0; i < dataArray.length(); i++) {
-                        messagesToProcess.add(Message.fromJson(dataArray.optJSONObject(i)));
-                    }
-                }
-                for (Message message : messagesToProcess) {
-                    if (message != null && message.getSenderName() != null && !message.getSenderName().isEmpty()) {
-                        handleIncomingMessage(message);
-                    }
-                }
-            } catch (JSONException e) {
-                Log.d("WS_MessageActivity", "解析JSON失败: " + text, e);
+    public void onWebSocketMessages(List<Message> messages) {
+        for (Message message : messages) {
+            if (message.getSenderName() != null && !message.getSenderName().isEmpty()) {
+                handleIncomingMessage(message);
             }
-        });
+        }
     }
 
     @Override
@@ -147,47 +120,30 @@ public class MessageActivity extends AppCompatActivity implements WebSocketListe
     }
 
     private void handleIncomingMessage(Message newMsg) {
-        new Thread(() -> {
-            String currentUsername = getSharedPreferences("app_prefs", MODE_PRIVATE).getString("account", "");
-            List<Message> currentList = dbHelper.loadAllConversations();
-            Message targetConversation = null;
-            for (Message item : currentList) {
-                if (newMsg.getSenderName().equals(item.getSenderName())) {
-                    targetConversation = item;
-                    break;
-                }
-            }
-            newMsg.setUnreadCount(targetConversation == null ? 1 : targetConversation.getUnreadCount() + 1);
-            dbHelper.upsertConversationMessage(newMsg);
-
+        String currentUsername = getSharedPreferences("app_prefs", MODE_PRIVATE).getString("account", "");
+        // 未读数在 SQL 里原子累加，写完只回读这一个会话，列表只刷新对应的行
+        DbExecutor.getInstance().write(this, () -> {
             boolean isSentByMe = newMsg.getSenderName().equals(currentUsername);
             String conversationPartner = isSentByMe ? newMsg.getReceiver() : newMsg.getSenderName();
             ChatMessage chatMessage = new ChatMessage(
                     newMsg.getId(), conversationPartner, newMsg.getSenderName(),
-                    newMsg.getReceiver(), newMsg.getContent(), newMsg.getTime(), isSentByMe
+                    newMsg.getReceiver(), newMsg.getContent(), newMsg.getTime(), newMsg.getTimeMillis(), isSentByMe
             );
-            dbHelper.insertChatMessage(chatMessage);
-
-            runOnUiThread(this::loadConversationsFromLocal);
-        }).start();
+            List<String> changed = dbHelper.applyIncomingMessages(
+                    Collections.singletonList(newMsg), Collections.singletonList(chatMessage));
+            return dbHelper.loadConversations(changed);
+        }, conversationIndex::upsertAll);
     }
 
     private void loadConversationsFromServer(String token) {
-        new Thread(() -> {
-            try {
-                // Mock implementation
-                Thread.sleep(500); // Simulate delay
-                List<Message> serverList = com.example.firsttry.utils.MockData.getMockMessages();
-
-                if (serverList != null) {
-                    for (Message msg : serverList) {
-                        dbHelper.upsertConversationMessage(msg);
-                    }
-                    runOnUiThread(this::loadConversationsFromLocal);
-                }
-            } catch (Exception e) {
-                e.printStackTrace();
-            }
-        }).start();
+        // Mock implementation：模拟网络延迟后写入
+        messageRecyclerView.postDelayed(() -> {
+            List<Message> serverList = com.example.firsttry.utils.MockData.getMockMessages();
+            if (serverList == null || isFinishing()) return;
+            DbExecutor.getInstance().write(this, () -> {
+                dbHelper.upsertConversationMessages(serverList);
+                return null;
+            }, ignored -> loadConversationsFromLocal());
+        }, 500); // Simulate delay
     }
 }
\ No newline at end of file
@@ -7,11 +7,11 @@ import android.view.View;
 import android.view.ViewGroup;
 import android.widget.TextView;
 import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.AdapterListUpdateCallback;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.example.firsttry.R;
 import com.example.firsttry.utils.TimeUtils;
-import java.util.List;
 
 public class MessageListAdapter extends RecyclerView.Adapter<MessageListAdapter.MessageViewHolder> {
 
@@ -19,11 +19,13 @@ public class MessageListAdapter extends RecyclerView.Adapter<MessageListAdapter.
         void onItemClick(Message message, int position);
     }
 
-    private List<Message> messageList;
+    // 数据由 ConversationIndex 持有，它的每次变更直接转成对本适配器的精确通知
+    private final ConversationIndex conversations;
     private OnItemClickListener onItemClickListener;
 
-    public MessageListAdapter(List<Message> messageList) {
-        this.messageList = messageList;
+    public MessageListAdapter(ConversationIndex conversations) {
+        this.conversations = conversations;
+        conversations.setCallback(new AdapterListUpdateCallback(this));
     }
 
     public void setOnItemClickListener(OnItemClickListener listener) {
@@ -41,7 +43,7 @@ public class MessageListAdapter extends RecyclerView.Adapter<MessageListAdapter.
     @Override
     public void onBindViewHolder(@NonNull MessageViewHolder holder, int position) {
         Log.d("123",String.valueOf(position));
-        Message currentMessage = messageList.get(position);
+        Message currentMessage = conversations.get(position);
         // 已移除头像展示
 
         // --- 设置备注或昵称 ---
@@ -53,7 +55,7 @@ public class MessageListAdapter extends RecyclerView.Adapter<MessageListAdapter.
 
         // --- 设置其他信息 ---
         holder.messageSnippet.setText(currentMessage.getContent());
-        holder.timestamp.setText(TimeUtils.formatFriendlyTime(currentMessage.getTime()));
+        holder.timestamp.setText(TimeUtils.formatFriendlyTime(currentMessage.getTimeMillis(), currentMessage.getTime()));
 
         int unread = currentMessage.getUnreadCount();
         if (unread > 0) {
@@ -65,14 +67,14 @@ public class MessageListAdapter extends RecyclerView.Adapter<MessageListAdapter.
 
         holder.itemView.setOnClickListener(v -> {
             if (onItemClickListener != null) {
-                onItemClickListener.onItemClick(currentMessage, position);
+                onItemClickListener.onItemClick(currentMessage, holder.getAdapterPosition());
             }
         });
     }
 
     @Override
     public int getItemCount() {
-        return messageList == null ? 0 : messageList.size();
+        return conversations.size();
     }
 
     public static class MessageViewHolder extends RecyclerView.ViewHolder {
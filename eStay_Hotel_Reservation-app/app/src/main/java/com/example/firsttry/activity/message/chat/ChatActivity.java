@@ -22,25 +22,23 @@ import androidx.appcompat.app.AppCompatActivity;
 import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 
-import com.example.firsttry.Database.User;
+import com.example.firsttry.Database.DbExecutor;
 import com.example.firsttry.Database.UserDbHelper;
 import com.example.firsttry.R;
 import com.example.firsttry.activity.message.Message;
 import com.example.firsttry.activity.message.chat.remark.EditRemarkActivity;
-import com.example.firsttry.remote.Http.UserApi;
+import com.example.firsttry.remote.MessageSync;
+import com.example.firsttry.remote.OutboxFlusher;
 import com.example.firsttry.remote.socket.WebSocketListener;
 import com.example.firsttry.remote.socket.WebSocketManager;
+import com.example.firsttry.utils.TimeUtils;
 
-import org.json.JSONArray;
-import org.json.JSONException;
-import org.json.JSONObject;
 
-import java.io.IOException;
-import java.text.SimpleDateFormat;
 import java.util.ArrayList;
-import java.util.Date;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
-import java.util.Locale;
+import java.util.UUID;
 
 public class ChatActivity extends AppCompatActivity implements WebSocketListener {
 
@@ -60,11 +58,20 @@ public class ChatActivity extends AppCompatActivity implements WebSocketListener
     private int selectedTabIndex = -1;
 
     private UserDbHelper dbHelper;
+    private DbExecutor dbExecutor;
     private ChatAdapter chatAdapter;
     private List<ChatMessage> chatMessageList;
     private WebSocketManager webSocketManager;
     private ActivityResultLauncher<Intent> editRemarkLauncher;
 
+    // 聊天记录分页：打开时只加载最新一页，上滑到顶部附近再加载更早的
+    private static final int PAGE_SIZE = 30;
+    private static final int LOAD_OLDER_THRESHOLD = 5;
+    // 内存中超过这么多条时，回到底部会裁掉顶部的早期消息
+    private static final int MAX_WINDOW_SIZE = PAGE_SIZE * 6;
+    private boolean hasMoreOlder = false;
+    private boolean isLoadingOlder = false;
+
     @Override
     protected void onCreate(@Nullable Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
@@ -77,6 +84,7 @@ public class ChatActivity extends AppCompatActivity implements WebSocketListener
         currentUsername = prefs.getString("account", "");
 
         dbHelper = UserDbHelper.getInstance(this);
+        dbExecutor = DbExecutor.getInstance();
         webSocketManager = WebSocketManager.getInstance();
 
         if (!TextUtils.isEmpty(currentUsername)) {
@@ -84,7 +92,7 @@ public class ChatActivity extends AppCompatActivity implements WebSocketListener
         }
 
         if (!TextUtils.isEmpty(hotelName) && !TextUtils.isEmpty(conversationPartnerName)) {
-            new Thread(() -> dbHelper.updateRemark(conversationPartnerName, hotelName)).start();
+            dbExecutor.write(() -> dbHelper.updateRemark(conversationPartnerName, hotelName));
         }
 
         initViews();
@@ -101,60 +109,85 @@ public class ChatActivity extends AppCompatActivity implements WebSocketListener
         syncHistoryFromServerIfNeeded();
 
         setupSendButton();
-    }
-
-    private void syncHistoryFromServerIfNeeded() {
-        new Thread(() -> {
-            final List<ChatMessage> localHistory = dbHelper.loadMessagesForConversation(conversationPartnerName, currentUsername);
 
-            if (!localHistory.isEmpty()) {
-                runOnUiThread(() -> {
-                    updateChatList(localHistory);
-                });
-            } else {
-                if (token == null) {
-                    Log.w("ChatActivity", "无法从服务器同步，token is null.");
-                    return;
-                }
-                UserApi.getMessages(token, new UserApi.MessageListCallback() {
-                    @Override
-                    public void onSuccess(List<Message> serverMessages) {
-                        new Thread(() -> {
-                            final List<ChatMessage> historyToDisplay = new ArrayList<>();
-                            for (Message msg : serverMessages) {
-                                boolean isSentByMe = msg.getSenderName().equals(currentUsername);
-                                ChatMessage chatMessage = new ChatMessage(
-                                        msg.getId(), msg.getSenderName(), msg.getSenderName(),
-                                        msg.getReceiver(), msg.getContent(), msg.getTime(), isSentByMe
-                                );
-                                dbHelper.insertChatMessage(chatMessage);
-                                historyToDisplay.add(chatMessage);
-                            }
-                            runOnUiThread(() -> updateChatList(historyToDisplay));
-                        }).start();
-                    }
+        // 发送结果回来后只更新对应消息的状态，ChatAdapter 按 payload 局部刷新
+        OutboxFlusher.getInstance().observe(this, this::onOutboxStateChanged);
 
-                    @Override
-                    public void onError(String message) {
-                        runOnUiThread(() -> Log.e("ChatActivity", "同步历史记录失败: " + message));
-                    }
+        // 前台期间订阅推送。酒店会话接收所有推送；普通会话只要与对方用户名或 id 相关的消息
+        List<String> subscribed = !TextUtils.isEmpty(hotelName) ? null
+                : Arrays.asList(conversationPartnerName, conversationPartnerId);
+        webSocketManager.observe(this, this, subscribed);
+    }
 
-                    @Override
-                    public void onFailure(@NonNull IOException e) {
-                        runOnUiThread(() -> Log.e("ChatActivity", "同步历史记录网络失败", e));
-                    }
-                });
+    // 先只加载最新一页；再从服务器增量同步这个会话水位之后的消息，有新消息时重新加载最新一页
+    private void syncHistoryFromServerIfNeeded() {
+        reloadLatestPage();
+        MessageSync messageSync = MessageSync.getInstance();
+        messageSync.observe(this, (conversationIds, conversations) -> {
+            if (conversationIds.contains(conversationPartnerName)) {
+                reloadLatestPage();
             }
-        }).start();
+        });
+        if (token == null) {
+            Log.w("ChatActivity", "无法从服务器同步，token is null.");
+            return;
+        }
+        // 酒店会话的对方 id 不确定，按整个收件箱同步
+        messageSync.syncConversation(conversationPartnerName, TextUtils.isEmpty(hotelName) ? conversationPartnerId : null);
+    }
+
+    private void reloadLatestPage() {
+        dbExecutor.read(this,
+                () -> dbHelper.loadMessagesPage(conversationPartnerName, currentUsername, 0, 0, PAGE_SIZE),
+                this::updateChatList);
     }
+
     private void updateChatList(List<ChatMessage> messages) {
         chatMessageList.clear();
         chatMessageList.addAll(messages);
-        chatAdapter.notifyDataSetChanged();
-        if (!chatMessageList.isEmpty()) {
-            rvMessages.scrollToPosition(chatMessageList.size() - 1);
-        }
+        hasMoreOlder = messages.size() >= PAGE_SIZE;
+        // 按 messageId 做 diff，没变的行不重新绑定
+        submitChatList(this::scrollToBottom);
+    }
+
+    // chatMessageList 是页面自己的工作副本，每次变更后提交一份快照给 ChatAdapter
+    private void submitChatList(Runnable onCommitted) {
+        chatAdapter.submitList(new ArrayList<>(chatMessageList), onCommitted);
+    }
+
+    // 向上滚动接近顶部时，以当前最早一条消息为游标加载更早的一页，插入到列表头部
+    private void loadOlderMessages() {
+        if (isLoadingOlder || !hasMoreOlder || chatMessageList.isEmpty()) return;
+        final ChatMessage oldest = chatMessageList.get(0);
+        // 还没写入数据库的消息没有行 id，不能作为游标
+        if (oldest.getRowId() <= 0) return;
+        isLoadingOlder = true;
+        final long beforeTimestamp = oldest.getTimestampMillis();
+        final long beforeRowId = oldest.getRowId();
+        dbExecutor.read(this,
+                () -> dbHelper.loadMessagesPage(conversationPartnerName, currentUsername, beforeTimestamp, beforeRowId, PAGE_SIZE),
+                older -> {
+                    isLoadingOlder = false;
+                    // 加载期间列表被重置或裁剪过，游标已失效
+                    if (chatMessageList.isEmpty() || chatMessageList.get(0) != oldest) return;
+                    hasMoreOlder = older.size() >= PAGE_SIZE;
+                    if (older.isEmpty()) return;
+                    chatMessageList.addAll(0, older);
+                    submitChatList(null);
+                });
+    }
+
+    // 回到底部附近时，裁掉已经远离可见区域的早期消息，内存中只保留最近几页；再次上滑会重新从数据库加载
+    private void trimOlderMessagesIfNeeded(LinearLayoutManager layoutManager) {
+        int size = chatMessageList.size();
+        if (size <= MAX_WINDOW_SIZE || isLoadingOlder) return;
+        int removeCount = size - PAGE_SIZE * 3;
+        if (layoutManager.findFirstVisibleItemPosition() - removeCount < PAGE_SIZE) return;
+        chatMessageList.subList(0, removeCount).clear();
+        submitChatList(null);
+        hasMoreOlder = true;
     }
+
     //滚动到底部
     private void scrollToBottom() {
         if (!chatMessageList.isEmpty()) {
@@ -166,7 +199,6 @@ public class ChatActivity extends AppCompatActivity implements WebSocketListener
     @Override
     protected void onResume() {
         super.onResume();
-        webSocketManager.addListener(this);
         setupHeader();
         
         // 连接WebSocket服务器
@@ -179,12 +211,6 @@ public class ChatActivity extends AppCompatActivity implements WebSocketListener
         }
     }
 
-    @Override
-    protected void onPause() {
-        super.onPause();
-        webSocketManager.removeListener(this);
-    }
-
     private void initViews() {
         tvUserName = findViewById(R.id.tv_user_name);
         rvMessages = findViewById(R.id.rv_messages);
@@ -211,18 +237,14 @@ public class ChatActivity extends AppCompatActivity implements WebSocketListener
             return;
         }
 
-        new Thread(() -> {
-            final Message conversation = dbHelper.loadSingleConversation(conversationPartnerName);
-            final User partnerUser = dbHelper.searchUserByAccount(conversationPartnerName);
-            runOnUiThread(() -> {
-                if (conversation != null && !TextUtils.isEmpty(conversation.getRemark())) {
-                    tvUserName.setText(conversation.getRemark());
-                } else {
-                    tvUserName.setText(conversationPartnerName);
-                }
-                // 已移除头像展示
-            });
-        }).start();
+        dbExecutor.read(this, () -> dbHelper.loadSingleConversation(conversationPartnerName), conversation -> {
+            if (conversation != null && !TextUtils.isEmpty(conversation.getRemark())) {
+                tvUserName.setText(conversation.getRemark());
+            } else {
+                tvUserName.setText(conversationPartnerName);
+            }
+            // 已移除头像展示
+        });
     }
 
     private void setupFaq() {
@@ -232,8 +254,8 @@ public class ChatActivity extends AppCompatActivity implements WebSocketListener
             return;
         }
         String welcome = "您好，欢迎使用易宿酒店预订平台！\n常见问题可点击上方卡片进行咨询~";
-        String time = new java.text.SimpleDateFormat("yyyy-MM-dd HH:mm:ss", java.util.Locale.getDefault()).format(new java.util.Date());
-        ChatMessage welcomeMsg = new ChatMessage(String.valueOf(System.currentTimeMillis()), conversationPartnerName, conversationPartnerName, currentUsername, welcome, time, false);
+        long now = System.currentTimeMillis();
+        ChatMessage welcomeMsg = new ChatMessage(UUID.randomUUID().toString(), conversationPartnerName, conversationPartnerName, currentUsername, welcome, TimeUtils.formatMillis(now), now, false);
         handleNewMessage(welcomeMsg);
         layoutFaq.setVisibility(View.VISIBLE);
         String[] tabs = new String[]{"预订相关", "入住须知", "会员服务", "退款政策", "其他问题"};
@@ -336,12 +358,12 @@ public class ChatActivity extends AppCompatActivity implements WebSocketListener
     }
 
     private void sendFaqQuestion(String content) {
-        String formattedTime = new java.text.SimpleDateFormat("yyyy-MM-dd HH:mm:ss", java.util.Locale.getDefault()).format(new java.util.Date());
-        ChatMessage sentMsg = new ChatMessage(String.valueOf(System.currentTimeMillis()), conversationPartnerName, currentUsername, conversationPartnerName, content, formattedTime, true);
+        long now = System.currentTimeMillis();
+        String clientMsgId = UUID.randomUUID().toString();
+        ChatMessage sentMsg = new ChatMessage(clientMsgId, conversationPartnerName, currentUsername, conversationPartnerName, content, TimeUtils.formatMillis(now), now, true)
+                .withStatus(ChatMessage.STATUS_SENDING);
         handleNewMessage(sentMsg);
-        try {
-            webSocketManager.sendMessage(token, conversationPartnerId, content);
-        } catch (Exception ignored) { }
+        OutboxFlusher.getInstance().enqueue(token, conversationPartnerId, clientMsgId, content);
     }
 
     private int dp(int v) {
@@ -351,11 +373,23 @@ public class ChatActivity extends AppCompatActivity implements WebSocketListener
 
     private void initRecyclerView() {
         chatMessageList = new ArrayList<>();
-        chatAdapter = new ChatAdapter(chatMessageList);
+        chatAdapter = new ChatAdapter();
         LinearLayoutManager layoutManager = new LinearLayoutManager(this);
         layoutManager.setStackFromEnd(true);
         rvMessages.setLayoutManager(layoutManager);
         rvMessages.setAdapter(chatAdapter);
+        rvMessages.addOnScrollListener(new RecyclerView.OnScrollListener() {
+            @Override
+            public void onScrolled(@NonNull RecyclerView recyclerView, int dx, int dy) {
+                if (dy < 0) {
+                    if (layoutManager.findFirstVisibleItemPosition() <= LOAD_OLDER_THRESHOLD) {
+                        loadOlderMessages();
+                    }
+                } else if (dy > 0) {
+                    trimOlderMessagesIfNeeded(layoutManager);
+                }
+            }
+        });
     }
 
     private void setupActivityResultLaunchers() {
@@ -374,137 +408,76 @@ public class ChatActivity extends AppCompatActivity implements WebSocketListener
                 return;
             }
             etInput.setText("");
-            SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss", Locale.getDefault());
-            sdf.setTimeZone(java.util.TimeZone.getTimeZone("Asia/Shanghai")); // 关键加上这一行
-            String formattedTime = sdf.format(new Date());
-            ChatMessage sentMsg = new ChatMessage(String.valueOf(System.currentTimeMillis()), conversationPartnerName, currentUsername, conversationPartnerName, content, formattedTime, true);
+            long now = System.currentTimeMillis();
+            String formattedTime = TimeUtils.formatMillis(now); // 北京时间
+            // 本地聊天记录和发件箱用同一个 id，服务端回推这条消息时按 id 去重
+            String clientMsgId = UUID.randomUUID().toString();
+            ChatMessage sentMsg = new ChatMessage(clientMsgId, conversationPartnerName, currentUsername, conversationPartnerName, content, formattedTime, now, true)
+                    .withStatus(ChatMessage.STATUS_SENDING);
             handleNewMessage(sentMsg);
-            try {
-                JSONObject messageJson = new JSONObject();
-                messageJson.put("content", content);
-                messageJson.put("writer", currentUsername);
-                messageJson.put("receiver", conversationPartnerName);
-                messageJson.put("createtime", formattedTime);
-                // 修复：使用正确的用户ID作为receiverId
-                // 这里使用lywn（酒店1的负责人）的ID
-                String conversationPartnerId = "698acb0ecfa6fad12150079f"; // lywn的有效用户ID
-                webSocketManager.sendMessage(token, conversationPartnerId, content);
-            } catch (JSONException e) {
-                Log.e("ChatActivity", "构造发送 JSON 失败", e);
-            }
+            // 修复：使用正确的用户ID作为receiverId
+            // 这里使用lywn（酒店1的负责人）的ID
+            String conversationPartnerId = "698acb0ecfa6fad12150079f"; // lywn的有效用户ID
+            // 先落库再由 OutboxFlusher 在后台发送，离线时也不会丢
+            OutboxFlusher.getInstance().enqueue(token, conversationPartnerId, clientMsgId, content);
         });
     }
 
     private void handleNewMessage(ChatMessage newMessage) {
         chatMessageList.add(newMessage);
-        chatAdapter.notifyItemInserted(chatMessageList.size() - 1);
-        scrollToBottom();
-        new Thread(() -> {
-            dbHelper.insertChatMessage(newMessage);
-            Message convMsg = new Message();
-            convMsg.setSenderName(conversationPartnerName);
-            convMsg.setContent(newMessage.getContent());
-            convMsg.setTime(newMessage.getTimestamp());
-            convMsg.setUnreadCount(0);
-            
-            // 如果有 hotelName，保存为备注，这样列表页就会显示酒店名称
-            if (!TextUtils.isEmpty(hotelName)) {
-                convMsg.setRemark(hotelName);
+        submitChatList(this::scrollToBottom);
+        Message convMsg = new Message();
+        convMsg.setSenderName(conversationPartnerName);
+        convMsg.setContent(newMessage.getContent());
+        convMsg.setTime(newMessage.getTimestamp());
+        convMsg.setTimeMillis(newMessage.getTimestampMillis());
+        convMsg.setUnreadCount(0);
+
+        // 如果有 hotelName，保存为备注，这样列表页就会显示酒店名称
+        if (!TextUtils.isEmpty(hotelName)) {
+            convMsg.setRemark(hotelName);
+        }
+
+        // 聊天记录和会话预览在同一个事务中写入
+        dbExecutor.write(() -> dbHelper.applyMessageBatch(Collections.singletonList(convMsg), Collections.singletonList(newMessage)));
+    }
+
+    private void onOutboxStateChanged(String clientMsgId, int outboxState) {
+        // 刚发出的消息在列表末尾，从后往前找
+        for (int i = chatMessageList.size() - 1; i >= 0; i--) {
+            ChatMessage message = chatMessageList.get(i);
+            if (clientMsgId.equals(message.getMessageId())) {
+                chatMessageList.set(i, message.withStatus(UserDbHelper.toChatStatus(outboxState)));
+                submitChatList(null);
+                return;
             }
-            
-            dbHelper.upsertConversationMessage(convMsg);
-        }).start();
+        }
     }
 
     private void clearUnreadCountForConversation(String senderNameToClear) {
-        new Thread(() -> dbHelper.clearUnreadCount(senderNameToClear)).start();
+        dbExecutor.write(() -> dbHelper.clearUnreadCount(senderNameToClear));
     }
 
+    // WebSocketManager 已在主线程按帧合并、解析好，并按订阅的会话过滤过
     @Override
-    public void onWebSocketMessage(String text) {
-        runOnUiThread(() -> {
-            try {
-                Log.d("ChatActivity_WS", "收到WebSocket消息: " + text);
-                JSONObject root = new JSONObject(text);
-                
-                // 检查消息格式，可能是直接的消息对象，也可能是包含data字段的对象
-                JSONObject messageData;
-                if (root.has("data")) {
-                    Object dataNode = root.get("data");
-                    if (dataNode instanceof JSONObject) {
-                        messageData = (JSONObject) dataNode;
-                    } else if (dataNode instanceof JSONArray) {
-                        JSONArray dataArray = (JSONArray) dataNode;
-                        if (dataArray.length() > 0) {
-                            messageData = dataArray.getJSONObject(0);
-                        } else {
-                            return;
-                        }
-                    } else {
-                        return;
-                    }
-                } else {
-                    // 如果没有data字段，直接使用root作为消息对象
-                    messageData = root;
-                }
-                
-                Log.d("ChatActivity_WS", "解析后的消息对象: " + messageData.toString());
-                
-                // 提取必要的字段
-                String content = messageData.optString("content");
-                String time = messageData.optString("createdAt", messageData.optString("createtime"));
-                
-                // 获取发送者信息
-                String senderId = messageData.optString("senderIdStr", messageData.optString("senderId"));
-                String receiverId = messageData.optString("receiverIdStr", messageData.optString("receiverId"));
-                
-                // 获取发送者名称（可能在senderId对象中）
-                String senderName;
-                if (messageData.has("senderId") && messageData.get("senderId") instanceof JSONObject) {
-                    JSONObject senderObj = messageData.getJSONObject("senderId");
-                    senderName = senderObj.optString("username");
-                } else {
-                    // 如果没有用户名信息，使用conversationPartnerName
-                    senderName = conversationPartnerName;
-                }
-                
-                // 检查是否是当前会话的消息
-                // 如果是酒店会话，直接处理
-                if (!TextUtils.isEmpty(hotelName)) {
-                    // 酒店会话，直接显示消息
-                    ChatMessage receivedMsg = new ChatMessage(
-                            String.valueOf(System.currentTimeMillis()),
-                            conversationPartnerName,
-                            senderName,  // 使用发送者名称
-                            currentUsername,  // 当前用户作为接收者
-                            content,
-                            time,
-                            false  // 不是我发送的
-                    );
-                    handleNewMessage(receivedMsg);
-                } else {
-                    // 普通用户会话，检查是否是当前会话的消息
-                    // 由于我们没有正确的用户ID映射，暂时使用用户名进行比较
-                    boolean isRelated = senderName.equals(conversationPartnerName) || 
-                                      senderId.equals("698acb0ecfa6fad12150079f"); // lywn的ID
-                    
-                    if (isRelated) {
-                        ChatMessage receivedMsg = new ChatMessage(
-                                String.valueOf(System.currentTimeMillis()),
-                                conversationPartnerName,
-                                senderName,
-                                currentUsername,
-                                content,
-                                time,
-                                false
-                        );
-                        handleNewMessage(receivedMsg);
-                    }
-                }
-            } catch (JSONException e) {
-                Log.e("ChatActivity_WS", "解析JSON失败", e);
-            }
-        });
+    public void onWebSocketMessages(List<Message> messages) {
+        for (Message message : messages) {
+            // 服务端也会把我发出的消息推回给我，本地发送时已经显示过
+            if (!TextUtils.isEmpty(currentUsername) && currentUsername.equals(message.getSenderName())) continue;
+            // 没有用户名信息时，视为对方发来的
+            String senderName = TextUtils.isEmpty(message.getSenderName()) ? conversationPartnerName : message.getSenderName();
+            ChatMessage receivedMsg = new ChatMessage(
+                    message.getId(),
+                    conversationPartnerName,
+                    senderName,
+                    currentUsername,  // 当前用户作为接收者
+                    message.getContent(),
+                    message.getTime(),
+                    message.getTimeMillis(),
+                    false  // 不是我发送的
+            );
+            handleNewMessage(receivedMsg);
+        }
     }
 
     @Override
@@ -1,30 +1,116 @@
 package com.example.firsttry.activity.message.chat;
 
+import android.os.Handler;
+import android.os.Looper;
+import android.text.TextUtils;
+import android.util.LruCache;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
 import android.widget.TextView;
 import androidx.annotation.NonNull;
+import androidx.core.text.PrecomputedTextCompat;
+import androidx.core.widget.TextViewCompat;
+import androidx.recyclerview.widget.AsyncListDiffer;
+import androidx.recyclerview.widget.DiffUtil;
 import androidx.recyclerview.widget.RecyclerView;
 import com.example.firsttry.R;
-import com.example.firsttry.activity.message.chat.ChatMessage;
-import com.example.firsttry.utils.TimeUtils; // 确保引入了 TimeUtils
+import com.example.firsttry.utils.TimeUtils;
 import java.util.List;
-
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * 聊天消息列表。
+ * - 列表通过 submitList 整体提交，AsyncListDiffer 在后台线程按 messageId 计算差异，只刷新变化的行
+ * - 只有发送状态变化（发送中/已发送/失败）时带 PAYLOAD_STATUS 局部刷新，不重新绑定正文
+ * - 正文在提交前于后台线程预先测量（PrecomputedTextCompat），绑定时主线程不再做文字测量；
+ *   结果按 messageId 缓存
+ */
 public class ChatAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder> {
 
     private static final int VIEW_TYPE_MESSAGE_SENT = 1;
     private static final int VIEW_TYPE_MESSAGE_RECEIVED = 2;
 
-    private List<ChatMessage> chatMessageList;
+    // 只刷新发送状态
+    static final Object PAYLOAD_STATUS = new Object();
+
+    // 内存中的消息窗口最多几页（见 ChatActivity.MAX_WINDOW_SIZE），缓存略大于窗口
+    private static final int TEXT_CACHE_SIZE = 400;
+
+    static final DiffUtil.ItemCallback<ChatMessage> DIFF_CALLBACK = new DiffUtil.ItemCallback<ChatMessage>() {
+        @Override
+        public boolean areItemsTheSame(@NonNull ChatMessage oldItem, @NonNull ChatMessage newItem) {
+            return TextUtils.equals(oldItem.getMessageId(), newItem.getMessageId());
+        }
+
+        @Override
+        public boolean areContentsTheSame(@NonNull ChatMessage oldItem, @NonNull ChatMessage newItem) {
+            return oldItem.getStatus() == newItem.getStatus() && sameBody(oldItem, newItem);
+        }
+
+        @Override
+        public Object getChangePayload(@NonNull ChatMessage oldItem, @NonNull ChatMessage newItem) {
+            return sameBody(oldItem, newItem) ? PAYLOAD_STATUS : null;
+        }
+    };
+
+    // 预测量正文的线程，所有聊天页共用
+    private static final ExecutorService TEXT_EXECUTOR = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "chat-text-layout");
+        thread.setPriority(Thread.MIN_PRIORITY);
+        return thread;
+    });
+
+    private final AsyncListDiffer<ChatMessage> differ = new AsyncListDiffer<>(this, DIFF_CALLBACK);
+    private final LruCache<String, PrecomputedTextCompat> textCache = new LruCache<>(TEXT_CACHE_SIZE);
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    // 两种气泡的正文样式不同，各自的测量参数在 onAttachedToRecyclerView 中从布局里取
+    private PrecomputedTextCompat.Params sentParams;
+    private PrecomputedTextCompat.Params receivedParams;
+    private int submitGeneration = 0;
+
+    /**
+     * 提交新的消息列表（必须是新的 List 实例，之后不要再修改它）。
+     * 先在后台测量还没缓存的正文，再交给 AsyncListDiffer；onCommitted 在列表生效后于主线程调用。
+     * 连续提交时只有最后一次生效，被覆盖的提交不会回调。
+     */
+    public void submitList(List<ChatMessage> messages, Runnable onCommitted) {
+        final int generation = ++submitGeneration;
+        final PrecomputedTextCompat.Params sent = sentParams;
+        final PrecomputedTextCompat.Params received = receivedParams;
+        if (sent == null || received == null) {
+            differ.submitList(messages, onCommitted);
+            return;
+        }
+        TEXT_EXECUTOR.execute(() -> {
+            for (ChatMessage message : messages) {
+                precompute(message, message.isSentByMe() ? sent : received);
+            }
+            mainHandler.post(() -> {
+                if (generation != submitGeneration) return;
+                differ.submitList(messages, onCommitted);
+            });
+        });
+    }
 
-    public ChatAdapter(List<ChatMessage> chatMessageList) {
-        this.chatMessageList = chatMessageList;
+    @Override
+    public void onAttachedToRecyclerView(@NonNull RecyclerView recyclerView) {
+        super.onAttachedToRecyclerView(recyclerView);
+        if (sentParams != null) return;
+        // 用真实的条目布局取参数，保证与绑定时的 TextView 一致（setPrecomputedText 要求参数匹配）
+        LayoutInflater inflater = LayoutInflater.from(recyclerView.getContext());
+        TextView sentBody = inflater.inflate(R.layout.item_chat_sent, recyclerView, false)
+                .findViewById(R.id.text_message_body_sent);
+        TextView receivedBody = inflater.inflate(R.layout.item_chat_received, recyclerView, false)
+                .findViewById(R.id.text_message_body_received);
+        sentParams = TextViewCompat.getTextMetricsParams(sentBody);
+        receivedParams = TextViewCompat.getTextMetricsParams(receivedBody);
     }
 
     @Override
     public int getItemViewType(int position) {
-        ChatMessage message = chatMessageList.get(position);
+        ChatMessage message = differ.getCurrentList().get(position);
         if (message.isSentByMe()) {
             return VIEW_TYPE_MESSAGE_SENT;
         } else {
@@ -49,35 +135,95 @@ public class ChatAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder> {
 
     @Override
     public void onBindViewHolder(@NonNull RecyclerView.ViewHolder holder, int position) {
-        ChatMessage message = chatMessageList.get(position);
+        ChatMessage message = differ.getCurrentList().get(position);
         switch (holder.getItemViewType()) {
             case VIEW_TYPE_MESSAGE_SENT:
-                ((SentMessageHolder) holder).bind(message);
+                ((SentMessageHolder) holder).bind(message, textCache);
                 break;
             case VIEW_TYPE_MESSAGE_RECEIVED:
-                ((ReceivedMessageHolder) holder).bind(message);
+                ((ReceivedMessageHolder) holder).bind(message, textCache);
                 break;
         }
     }
 
+    @Override
+    public void onBindViewHolder(@NonNull RecyclerView.ViewHolder holder, int position, @NonNull List<Object> payloads) {
+        if (payloads.isEmpty() || !(holder instanceof SentMessageHolder)) {
+            onBindViewHolder(holder, position);
+            return;
+        }
+        // 只有 PAYLOAD_STATUS：正文和时间不变
+        ((SentMessageHolder) holder).bindStatus(differ.getCurrentList().get(position));
+    }
+
     @Override
     public int getItemCount() {
-        return chatMessageList == null ? 0 : chatMessageList.size();
+        return differ.getCurrentList().size();
+    }
+
+    // 后台线程调用；已缓存且正文没变时跳过
+    private void precompute(ChatMessage message, PrecomputedTextCompat.Params params) {
+        String id = message.getMessageId();
+        String content = message.getContent();
+        if (id == null || content == null) return;
+        PrecomputedTextCompat cached = textCache.get(id);
+        if (cached != null && TextUtils.equals(cached, content)) return;
+        textCache.put(id, PrecomputedTextCompat.create(content, params));
+    }
+
+    private static boolean sameBody(ChatMessage a, ChatMessage b) {
+        return a.isSentByMe() == b.isSentByMe()
+                && a.getTimestampMillis() == b.getTimestampMillis()
+                && TextUtils.equals(a.getContent(), b.getContent())
+                && TextUtils.equals(a.getTimestamp(), b.getTimestamp());
+    }
+
+    // 有预测量结果就直接用，否则（还没测量、参数不匹配）退回普通 setText
+    private static void bindBody(TextView textView, ChatMessage message, LruCache<String, PrecomputedTextCompat> textCache) {
+        String id = message.getMessageId();
+        PrecomputedTextCompat precomputed = id == null ? null : textCache.get(id);
+        if (precomputed != null && TextUtils.equals(precomputed, message.getContent())) {
+            try {
+                TextViewCompat.setPrecomputedText(textView, precomputed);
+                return;
+            } catch (IllegalArgumentException ignored) {
+                // 参数与 TextView 不一致
+            }
+        }
+        textView.setText(message.getContent());
     }
 
     // ViewHolder for "Sent" messages
     private static class SentMessageHolder extends RecyclerView.ViewHolder {
-        TextView messageText, timeText;
+        TextView messageText, timeText, statusText;
 
         SentMessageHolder(View itemView) {
             super(itemView);
             messageText = itemView.findViewById(R.id.text_message_body_sent);
             timeText = itemView.findViewById(R.id.text_message_time_sent);
+            statusText = itemView.findViewById(R.id.text_message_status_sent);
+        }
+
+        void bind(ChatMessage message, LruCache<String, PrecomputedTextCompat> textCache) {
+            bindBody(messageText, message, textCache);
+            timeText.setText(TimeUtils.formatFriendlyTime(message.getTimestampMillis(), message.getTimestamp()));
+            bindStatus(message);
         }
 
-        void bind(ChatMessage message) {
-            messageText.setText(message.getContent());
-            timeText.setText(TimeUtils.formatFriendlyTime(message.getTimestamp()));
+        void bindStatus(ChatMessage message) {
+            switch (message.getStatus()) {
+                case ChatMessage.STATUS_SENDING:
+                    statusText.setText("发送中");
+                    statusText.setVisibility(View.VISIBLE);
+                    break;
+                case ChatMessage.STATUS_FAILED:
+                    statusText.setText("发送失败");
+                    statusText.setVisibility(View.VISIBLE);
+                    break;
+                default:
+                    statusText.setVisibility(View.GONE);
+                    break;
+            }
         }
     }
 
@@ -92,12 +238,12 @@ public class ChatAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder> {
             nameText = itemView.findViewById(R.id.text_message_name_received);
         }
 
-        void bind(ChatMessage message) {
-            messageText.setText(message.getContent());
+        void bind(ChatMessage message, LruCache<String, PrecomputedTextCompat> textCache) {
+            bindBody(messageText, message, textCache);
             // nameText.setText(message.getSender()); // 可选
 
             // === 【核心修改点】确保使用的是 getTimestamp() ===
-            timeText.setText(TimeUtils.formatFriendlyTime(message.getTimestamp()));
+            timeText.setText(TimeUtils.formatFriendlyTime(message.getTimestampMillis(), message.getTimestamp()));
         }
     }
-}
\ No newline at end of file
+}
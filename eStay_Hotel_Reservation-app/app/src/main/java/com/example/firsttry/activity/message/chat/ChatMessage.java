@@ -1,22 +1,52 @@
 package com.example.firsttry.activity.message.chat;
 
+import com.example.firsttry.utils.TimeUtils;
+
 public class ChatMessage {
+    // 发送状态，只对自己发出的消息有意义；收到的消息为 STATUS_NONE
+    public static final int STATUS_NONE = 0;
+    public static final int STATUS_SENDING = 1;
+    public static final int STATUS_SENT = 2;
+    public static final int STATUS_FAILED = 3;
+
     private String messageId;
     private String conversationId;
     private String sender;
     private String receiver;
     private String content;
     private String timestamp;
+    // 消息时间（epoch 毫秒），与 rowId 一起作为分页游标，也用于显示
+    private long timestampMillis;
     private boolean isSentByMe;
+    private int status;
+    // chat_messages 表的 _id，与 timestampMillis 一起作为分页游标；未入库时为 0
+    private long rowId;
 
+    // 只有时间字符串时（服务端/推送消息）在这里解析一次
     public ChatMessage(String messageId, String conversationId, String sender, String receiver, String content, String timestamp, boolean isSentByMe) {
+        this(messageId, conversationId, sender, receiver, content, timestamp, TimeUtils.parseToMillis(timestamp), isSentByMe);
+    }
+
+    public ChatMessage(String messageId, String conversationId, String sender, String receiver, String content,
+                       String timestamp, long timestampMillis, boolean isSentByMe) {
         this.messageId = messageId;
         this.conversationId = conversationId;
         this.sender = sender;
         this.receiver = receiver;
         this.content = content;
         this.timestamp = timestamp;
+        this.timestampMillis = timestampMillis;
         this.isSentByMe = isSentByMe;
+        // 默认：自己发的视为已发送（发件箱里没有记录的历史消息），收到的没有状态
+        this.status = isSentByMe ? STATUS_SENT : STATUS_NONE;
+    }
+
+    // 状态变化时生成新对象而不是原地修改，列表 diff 才能比较出前后差异
+    public ChatMessage withStatus(int status) {
+        ChatMessage copy = new ChatMessage(messageId, conversationId, sender, receiver, content, timestamp, timestampMillis, isSentByMe);
+        copy.rowId = rowId;
+        copy.status = status;
+        return copy;
     }
 
     public String getMessageId() { return messageId; }
@@ -25,5 +55,9 @@ public class ChatMessage {
     public String getReceiver() { return receiver; }
     public String getContent() { return content; }
     public String getTimestamp() { return timestamp; }
+    public long getTimestampMillis() { return timestampMillis; }
     public boolean isSentByMe() { return isSentByMe; }
+    public int getStatus() { return status; }
+    public long getRowId() { return rowId; }
+    public void setRowId(long rowId) { this.rowId = rowId; }
 }
\ No newline at end of file
@@ -8,6 +8,7 @@ import android.util.Log;
 import android.widget.EditText;
 import androidx.annotation.Nullable;
 import androidx.appcompat.app.AppCompatActivity;
+import com.example.firsttry.Database.DbExecutor;
 import com.example.firsttry.Database.UserDbHelper;
 import com.example.firsttry.activity.message.Message;
 import com.example.firsttry.R;
@@ -48,17 +49,16 @@ public class EditRemarkActivity extends AppCompatActivity {
             if (conversationId != null) {
                 btnSave.setEnabled(false);
 
-                new Thread(() -> {
+                DbExecutor.getInstance().write(this, () -> {
                     dbHelper.updateRemark(conversationId, newRemark);
                     Log.d("EditRemark", "Remark saved successfully");
-
-                    runOnUiThread(() -> {
-                        Intent result = new Intent();
-                        result.putExtra("new_remark", newRemark);
-                        setResult(RESULT_OK, result);
-                        finish();
-                    });
-                }).start();
+                    return null;
+                }, ignored -> {
+                    Intent result = new Intent();
+                    result.putExtra("new_remark", newRemark);
+                    setResult(RESULT_OK, result);
+                    finish();
+                });
             } else {
                 Log.e("EditRemark", "conversationId is null, cannot save!");
                 finish();
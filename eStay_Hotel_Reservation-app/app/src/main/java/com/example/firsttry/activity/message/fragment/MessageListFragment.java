@@ -4,6 +4,9 @@ import android.content.Context;
 import android.content.Intent;
 import android.content.SharedPreferences;
 import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
 import android.util.Log;
 import android.view.LayoutInflater;
 import android.view.View;
@@ -16,34 +19,39 @@ import androidx.fragment.app.Fragment;
 import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 
+import com.example.firsttry.Database.DbExecutor;
 import com.example.firsttry.Database.UserDbHelper;
 import com.example.firsttry.R;
+import com.example.firsttry.activity.message.ConversationIndex;
 import com.example.firsttry.activity.message.Message;
 import com.example.firsttry.activity.message.MessageListAdapter;
 import com.example.firsttry.activity.message.chat.ChatActivity;
 import com.example.firsttry.activity.message.chat.ChatMessage;
 import com.example.firsttry.activity.user.LoginActivity;
+import com.example.firsttry.remote.MessageSync;
 import com.example.firsttry.remote.socket.WebSocketListener;
 import com.example.firsttry.remote.socket.WebSocketManager;
 import com.example.firsttry.utils.MockData;
 
-import org.json.JSONArray;
-import org.json.JSONException;
-import org.json.JSONObject;
-
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.List;
 
 public class MessageListFragment extends Fragment implements WebSocketListener {
 
     private RecyclerView messageRecyclerView;
     private MessageListAdapter messageListAdapter;
-    private List<Message> messageDataList;
+    private final ConversationIndex conversationIndex = new ConversationIndex();
     private UserDbHelper dbHelper;
     private WebSocketManager webSocketManager;
     private String token;
 
+    // 消息突发时的微批处理窗口
+    private static final long INCOMING_BATCH_WINDOW_MS = 50;
+    private final Handler batchHandler = new Handler(Looper.getMainLooper());
+    private final List<Message> pendingIncoming = new ArrayList<>();
+    private final Runnable flushIncomingRunnable = this::flushIncomingMessages;
+    private boolean flushScheduled = false;
+
     @Nullable
     @Override
     public View onCreateView(@NonNull LayoutInflater inflater, @Nullable ViewGroup container, @Nullable Bundle savedInstanceState) {
@@ -73,6 +81,9 @@ public class MessageListFragment extends Fragment implements WebSocketListener {
             return;
         }
 
+        // 断线期间补回来的消息：同步写库时已更新会话，这里只按行 upsert
+        MessageSync.getInstance().observe(getViewLifecycleOwner(),
+                (conversationIds, conversations) -> conversationIndex.upsertAll(conversations));
         webSocketManager.connect(token);
         loadConversationsFromServer(token);
     }
@@ -88,6 +99,8 @@ public class MessageListFragment extends Fragment implements WebSocketListener {
     public void onPause() {
         super.onPause();
         webSocketManager.removeListener(this);
+        // 离开页面前把攒着的消息写掉
+        flushIncomingMessages();
     }
 
     private void initViews(View view) {
@@ -95,8 +108,7 @@ public class MessageListFragment extends Fragment implements WebSocketListener {
     }
 
     private void initRecyclerView() {
-        messageDataList = new ArrayList<>();
-        messageListAdapter = new MessageListAdapter(messageDataList);
+        messageListAdapter = new MessageListAdapter(conversationIndex);
         messageRecyclerView.setLayoutManager(new LinearLayoutManager(getContext()));
         messageRecyclerView.setAdapter(messageListAdapter);
 
@@ -108,49 +120,22 @@ public class MessageListFragment extends Fragment implements WebSocketListener {
     }
 
     private void loadConversationsFromLocal() {
-        new Thread(() -> {
-            if (getContext() == null) return;
-            final List<Message> localList = dbHelper.loadAllConversations();
-            if (getActivity() != null) {
-                getActivity().runOnUiThread(() -> {
-                    messageDataList.clear();
-                    messageDataList.addAll(localList);
-                    Collections.sort(messageDataList, (a, b) -> {
-                        if (a.getTime() == null || b.getTime() == null) return 0;
-                        return b.getTime().compareTo(a.getTime());
-                    });
-                    messageListAdapter.notifyDataSetChanged();
-                });
-            }
-        }).start();
+        if (getView() == null) return;
+        // 绑定视图生命周期：onDestroyView 之后不再回调
+        DbExecutor.getInstance().read(getViewLifecycleOwner(), dbHelper::loadAllConversations, localList -> {
+            // 与索引对账，只有变化的行会刷新
+            conversationIndex.replaceAll(localList);
+        });
     }
 
+    // WebSocketManager 已在主线程按帧合并、解析好
     @Override
-    public void onWebSocketMessage(String text) {
-        if (getActivity() == null) return;
-        getActivity().runOnUiThread(() -> {
-            try {
-                JSONObject root = new JSONObject(text);
-                if (!root.has("data")) return;
-                Object dataNode = root.get("data");
-                List<Message> messagesToProcess = new ArrayList<>();
-                if (dataNode instanceof JSONObject) {
-                    messagesToProcess.add(Message.fromJson((JSONObject) dataNode));
-                } else if (dataNode instanceof JSONArray) {
-                    JSONArray dataArray = (JSONArray) dataNode;
-                    for (int i = 0; i < dataArray.length(); i++) {
-                        messagesToProcess.add(Message.fromJson(dataArray.optJSONObject(i)));
-                    }
-                }
-                for (Message message : messagesToProcess) {
-                    if (message != null && message.getSenderName() != null && !message.getSenderName().isEmpty()) {
-                        handleIncomingMessage(message);
-                    }
-                }
-            } catch (JSONException e) {
-                Log.d("WS_MessageFragment", "解析JSON失败: " + text, e);
+    public void onWebSocketMessages(List<Message> messages) {
+        for (Message message : messages) {
+            if (message.getSenderName() != null && !message.getSenderName().isEmpty()) {
+                enqueueIncomingMessage(message);
             }
-        });
+        }
     }
 
     @Override
@@ -158,53 +143,51 @@ public class MessageListFragment extends Fragment implements WebSocketListener {
         // Optional
     }
 
-    private void handleIncomingMessage(Message newMsg) {
-        new Thread(() -> {
-            if (getContext() == null) return;
-            String currentUsername = requireActivity().getSharedPreferences("app_prefs", Context.MODE_PRIVATE).getString("account", "");
-            List<Message> currentList = dbHelper.loadAllConversations();
-            Message targetConversation = null;
-            for (Message item : currentList) {
-                if (newMsg.getSenderName().equals(item.getSenderName())) {
-                    targetConversation = item;
-                    break;
-                }
-            }
-            newMsg.setUnreadCount(targetConversation == null ? 1 : targetConversation.getUnreadCount() + 1);
-            dbHelper.upsertConversationMessage(newMsg);
-
-            boolean isSentByMe = newMsg.getSenderName().equals(currentUsername);
-            String conversationPartner = isSentByMe ? newMsg.getReceiver() : newMsg.getSenderName();
-            ChatMessage chatMessage = new ChatMessage(
-                    newMsg.getId(), conversationPartner, newMsg.getSenderName(),
-                    newMsg.getReceiver(), newMsg.getContent(), newMsg.getTime(), isSentByMe
-            );
-            dbHelper.insertChatMessage(chatMessage);
-
-            if (getActivity() != null) {
-                getActivity().runOnUiThread(this::loadConversationsFromLocal);
+    // 收到的消息先攒一小段时间，整批在一个事务中写库，刷新一次列表
+    private void enqueueIncomingMessage(Message newMsg) {
+        pendingIncoming.add(newMsg);
+        if (!flushScheduled) {
+            flushScheduled = true;
+            batchHandler.postDelayed(flushIncomingRunnable, INCOMING_BATCH_WINDOW_MS);
+        }
+    }
+
+    private void flushIncomingMessages() {
+        flushScheduled = false;
+        batchHandler.removeCallbacks(flushIncomingRunnable);
+        if (pendingIncoming.isEmpty() || getContext() == null) return;
+        final List<Message> batch = new ArrayList<>(pendingIncoming);
+        pendingIncoming.clear();
+        final String currentUsername = requireActivity().getSharedPreferences("app_prefs", Context.MODE_PRIVATE).getString("account", "");
+
+        // 未读数在 SQL 里原子累加，写完只回读受影响的会话，列表按行刷新
+        DbExecutor.getInstance().write(getView() != null ? getViewLifecycleOwner() : null, () -> {
+            long start = SystemClock.elapsedRealtime();
+            List<ChatMessage> chatMessages = new ArrayList<>(batch.size());
+            for (Message newMsg : batch) {
+                boolean isSentByMe = newMsg.getSenderName().equals(currentUsername);
+                String conversationPartner = isSentByMe ? newMsg.getReceiver() : newMsg.getSenderName();
+                chatMessages.add(new ChatMessage(
+                        newMsg.getId(), conversationPartner, newMsg.getSenderName(),
+                        newMsg.getReceiver(), newMsg.getContent(), newMsg.getTime(), newMsg.getTimeMillis(), isSentByMe
+                ));
             }
-        }).start();
+            List<String> changed = dbHelper.applyIncomingMessages(batch, chatMessages);
+            List<Message> updated = dbHelper.loadConversations(changed);
+            Log.d("WS_MessageFragment", "批量写入 " + batch.size() + " 条消息，耗时 " + (SystemClock.elapsedRealtime() - start) + "ms");
+            return updated;
+        }, conversationIndex::upsertAll);
     }
 
     private void loadConversationsFromServer(String token) {
-        new Thread(() -> {
-            try {
-                // Mock implementation
-                Thread.sleep(500); // Simulate delay
-                List<Message> serverList = MockData.getMockMessages();
-
-                if (serverList != null) {
-                    for (Message msg : serverList) {
-                        dbHelper.upsertConversationMessage(msg);
-                    }
-                    if (getActivity() != null) {
-                        getActivity().runOnUiThread(this::loadConversationsFromLocal);
-                    }
-                }
-            } catch (Exception e) {
-                e.printStackTrace();
-            }
-        }).start();
+        // Mock implementation：模拟网络延迟后写入
+        batchHandler.postDelayed(() -> {
+            List<Message> serverList = MockData.getMockMessages();
+            if (serverList == null || getView() == null) return;
+            DbExecutor.getInstance().write(getViewLifecycleOwner(), () -> {
+                dbHelper.upsertConversationMessages(serverList);
+                return null;
+            }, ignored -> loadConversationsFromLocal());
+        }, 500); // Simulate delay
     }
 }
\ No newline at end of file
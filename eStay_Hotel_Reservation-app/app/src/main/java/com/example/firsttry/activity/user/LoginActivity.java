@@ -11,6 +11,7 @@ import android.widget.Toast;
 
 import androidx.appcompat.app.AppCompatActivity;
 
+import com.example.firsttry.Database.DbExecutor;
 import com.example.firsttry.Database.User;
 import com.example.firsttry.Database.UserDbHelper;
 import com.example.firsttry.R;
@@ -66,8 +67,8 @@ public class LoginActivity extends AppCompatActivity {
                 @Override
                 public void onSuccess(String token) {
                     AuthManager.getInstance().saveToken(token);
-                    // 在后台线程做数据库相关阻塞操作
-                    new Thread(() -> {
+                    // 数据库相关阻塞操作交给写队列
+                    DbExecutor.getInstance().write(LoginActivity.this, () -> {
                         User user = dbHelper.searchUserByAccount(inputAccount);
                         if (user == null) {
                             dbHelper.insertUser(inputAccount, null, null, token);
@@ -78,25 +79,24 @@ public class LoginActivity extends AppCompatActivity {
                         // 保存账号到 SharedPreferences（可以在后台调用 apply）
                         SharedPreferences prefs = getSharedPreferences("app_prefs", MODE_PRIVATE);
                         prefs.edit().putString("account", inputAccount).apply();
-
-                        // 仅 UI 操作回到主线程
-                        runOnUiThread(() -> {
-                            Toast.makeText(LoginActivity.this, "登录成功", Toast.LENGTH_SHORT).show();
-                            try {
-                                // 防御性跳转：检查目标类是否存在
-                                Class<?> targetClass = Class.forName("com.example.firsttry.MainActivity");
-                                Intent intent = new Intent(LoginActivity.this, targetClass);
-                                startActivity(intent);
-                                finish();
-                            } catch (ClassNotFoundException e) {
-                                Log.e("LoginActivity", "Target activity not found", e);
-                                Toast.makeText(LoginActivity.this, "无法跳转：目标页面未找到", Toast.LENGTH_SHORT).show();
-                            } catch (Exception e) {
-                                Log.e("LoginActivity", "Navigation failed", e);
-                                Toast.makeText(LoginActivity.this, "页面跳转发生错误", Toast.LENGTH_SHORT).show();
-                            }
-                        });
-                    }).start();
+                        return null;
+                    }, ignored -> {
+                        // 仅 UI 操作在主线程
+                        Toast.makeText(LoginActivity.this, "登录成功", Toast.LENGTH_SHORT).show();
+                        try {
+                            // 防御性跳转：检查目标类是否存在
+                            Class<?> targetClass = Class.forName("com.example.firsttry.MainActivity");
+                            Intent intent = new Intent(LoginActivity.this, targetClass);
+                            startActivity(intent);
+                            finish();
+                        } catch (ClassNotFoundException e) {
+                            Log.e("LoginActivity", "Target activity not found", e);
+                            Toast.makeText(LoginActivity.this, "无法跳转：目标页面未找到", Toast.LENGTH_SHORT).show();
+                        } catch (Exception e) {
+                            Log.e("LoginActivity", "Navigation failed", e);
+                            Toast.makeText(LoginActivity.this, "页面跳转发生错误", Toast.LENGTH_SHORT).show();
+                        }
+                    });
                 }
 
 
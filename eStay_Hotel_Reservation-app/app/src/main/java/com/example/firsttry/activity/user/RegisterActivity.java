@@ -10,6 +10,7 @@ import android.widget.Toast;
 
 import androidx.appcompat.app.AppCompatActivity;
 
+import com.example.firsttry.Database.DbExecutor;
 import com.example.firsttry.Database.UserDbHelper;
 import com.example.firsttry.R;
 import com.example.firsttry.remote.Http.UserApi;
@@ -72,18 +73,17 @@ public class RegisterActivity extends AppCompatActivity {
             @Override
             public void onSuccess(String message) {
                 // 后台执行数据库插入
-                new Thread(() -> {
+                DbExecutor.getInstance().write(RegisterActivity.this, () -> {
                     dbHelper.insertUser(account, photo, email, "");
-
-                    // 切回主线程做界面跳转和提示
-                    runOnUiThread(() -> {
-                        Toast.makeText(RegisterActivity.this, "用户创建成功", Toast.LENGTH_SHORT).show();
-                        Intent intent = new Intent(RegisterActivity.this, LoginActivity.class);
-                        intent.addFlags(Intent.FLAG_ACTIVITY_CLEAR_TOP | Intent.FLAG_ACTIVITY_NEW_TASK);
-                        startActivity(intent);
-                        finish();
-                    });
-                }).start();
+                    return null;
+                }, ignored -> {
+                    // 主线程做界面跳转和提示
+                    Toast.makeText(RegisterActivity.this, "用户创建成功", Toast.LENGTH_SHORT).show();
+                    Intent intent = new Intent(RegisterActivity.this, LoginActivity.class);
+                    intent.addFlags(Intent.FLAG_ACTIVITY_CLEAR_TOP | Intent.FLAG_ACTIVITY_NEW_TASK);
+                    startActivity(intent);
+                    finish();
+                });
             }
 
 
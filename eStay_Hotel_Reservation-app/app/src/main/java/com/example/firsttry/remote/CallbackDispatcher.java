@@ -0,0 +1,63 @@
+package com.example.firsttry.remote;
+
+import android.os.Handler;
+import android.os.Looper;
+
+/**
+ * 网络层回调的统一分发入口。
+ * HotelApi / UserApi / LocationUtils 等不再每次 new Handler(Looper.getMainLooper())，
+ * 而是通过 CallbackDispatcher.get() 把回调投递到主线程。
+ * 单元测试中可以用 setInstance(new TestCallbackDispatcher()) 替换（见 src/test），无需 Android Looper。
+ */
+public abstract class CallbackDispatcher {
+
+    private static volatile CallbackDispatcher instance = new MainThreadDispatcher();
+
+    public static CallbackDispatcher get() {
+        return instance;
+    }
+
+    // 测试时替换；传 null 恢复为主线程分发
+    public static void setInstance(CallbackDispatcher dispatcher) {
+        instance = dispatcher != null ? dispatcher : new MainThreadDispatcher();
+    }
+
+    public abstract void post(Runnable task);
+
+    public abstract void postDelayed(Runnable task, long delayMs);
+
+    // 移除尚未执行的任务（防抖、定时器）
+    public abstract void remove(Runnable task);
+
+    // 主线程分发：整个进程共享一个 Handler，第一次使用时创建
+    static class MainThreadDispatcher extends CallbackDispatcher {
+
+        private volatile Handler handler;
+
+        private Handler handler() {
+            if (handler == null) {
+                synchronized (this) {
+                    if (handler == null) {
+                        handler = new Handler(Looper.getMainLooper());
+                    }
+                }
+            }
+            return handler;
+        }
+
+        @Override
+        public void post(Runnable task) {
+            handler().post(task);
+        }
+
+        @Override
+        public void postDelayed(Runnable task, long delayMs) {
+            handler().postDelayed(task, delayMs);
+        }
+
+        @Override
+        public void remove(Runnable task) {
+            handler().removeCallbacks(task);
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package com.example.firsttry.remote.Http;
+
+import androidx.annotation.NonNull;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.Interceptor;
+import okhttp3.Response;
+
+/**
+ * 应用拦截器：按请求路径应用 HttpClientConfig 中的接口级连接/读取/写入超时。
+ * callTimeout 在拦截器里已经开始计时，无法修改，由 HttpClient.newCall 设置。
+ */
+class EndpointTimeoutInterceptor implements Interceptor {
+
+    private final HttpClientConfig config;
+
+    EndpointTimeoutInterceptor(HttpClientConfig config) {
+        this.config = config;
+    }
+
+    @NonNull
+    @Override
+    public Response intercept(@NonNull Chain chain) throws IOException {
+        HttpClientConfig.EndpointTimeout timeout = config.timeoutFor(chain.request().url().encodedPath());
+        if (timeout == null) {
+            return chain.proceed(chain.request());
+        }
+        return chain
+                .withConnectTimeout(timeout.connectTimeoutMs, TimeUnit.MILLISECONDS)
+                .withReadTimeout(timeout.readTimeoutMs, TimeUnit.MILLISECONDS)
+                .withWriteTimeout(timeout.writeTimeoutMs, TimeUnit.MILLISECONDS)
+                .proceed(chain.request());
+    }
+}
@@ -1,54 +1,54 @@
 package com.example.firsttry.remote.Http;
 
-import android.os.Handler;
-import android.os.Looper;
 import android.util.Log;
 
 import com.example.firsttry.activity.hotel.model.HotelModel;
 import com.example.firsttry.activity.hotel.model.HotelSearchQuery;
-import com.google.gson.Gson;
-import com.google.gson.JsonArray;
-import com.google.gson.JsonElement;
-import com.google.gson.JsonObject;
-import com.google.gson.JsonParser;
+import com.example.firsttry.remote.CallbackDispatcher;
 
-import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
 
 import java.io.IOException;
-import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
 
+import okhttp3.CacheControl;
 import okhttp3.Call;
 import okhttp3.Callback;
+import okhttp3.HttpUrl;
 import okhttp3.MediaType;
-import okhttp3.OkHttpClient;
 import okhttp3.Request;
 import okhttp3.RequestBody;
 import okhttp3.Response;
+import okhttp3.ResponseBody;
 
 public class HotelApi {
 
     private static final String TAG = "HotelApi";
-    private static final OkHttpClient client = HttpClient.getClient();
-    private static final Gson gson = new Gson();
-
+    // 走 stale-while-revalidate（见 enqueueWithCache），onSuccess 可能被调用两次：
+    // 先是磁盘缓存中的副本，网络返回 200（内容有变化）时再调用一次；返回 304 时只有第一次
     public interface FeaturedHotelsCallback {
         void onSuccess(List<HotelModel> hotels);
         void onError(String message);
         void onFailure(IOException e);
     }
 
+    // 列表接口不读过期缓存，每次请求 onSuccess 最多调用一次。
+    // rawCount 是服务端本页返回的条数（hotels 已去掉缺少必填字段的条目，可能更少），判断是否翻到最后一页用它
     public interface HotelListCallback {
-        void onSuccess(List<HotelModel> hotels);
+        void onSuccess(List<HotelModel> hotels, int rawCount);
         void onError(String message);
         void onFailure(IOException e);
     }
 
+    // 走 stale-while-revalidate（见 enqueueWithCache），onSuccess 可能被调用两次：
+    // 先是磁盘缓存中的副本，网络返回 200（内容有变化）时再用新数据调用一次；返回 304 时只有第一次。
+    // 实现方应当能用第二次的结果覆盖第一次。fromCache 为 true 表示这次是 HTTP 缓存中的副本（房型余量可能已过期）
     public interface HotelDetailCallback {
-        void onSuccess(HotelModel hotel);
+        void onSuccess(HotelModel hotel, boolean fromCache);
         void onError(String message);
         void onFailure(IOException e);
     }
@@ -60,6 +60,7 @@ public class HotelApi {
     }
 
     // 获取推荐酒店（用于首页Banner）
+    // 开启 stale-while-revalidate 时可能回调两次：先缓存，后网络（内容有变化时）
     public static void getFeaturedHotels(FeaturedHotelsCallback callback) {
         String url = HttpClient.BASE_URL + "api/public/hotels/featured";
         Log.d(TAG, "GET: " + url);
@@ -68,58 +69,54 @@ public class HotelApi {
                 .url(url)
                 .build();
 
-        client.newCall(request).enqueue(new Callback() {
-            @Override
-            public void onFailure(@androidx.annotation.NonNull Call call, @androidx.annotation.NonNull IOException e) {
-                if (callback != null) {
-                    new Handler(Looper.getMainLooper()).post(() -> callback.onFailure(e));
-                }
-            }
-
+        enqueueWithCache(request, new CachedResponseHandler() {
             @Override
-            public void onResponse(@androidx.annotation.NonNull Call call, @androidx.annotation.NonNull Response response) throws IOException {
+            public void onResponse(Response response, boolean fromCache) throws IOException {
                 if (response.isSuccessful()) {
-                    String responseBody = response.body() != null ? response.body().string() : "";
-                    Log.d(TAG, "Response: " + responseBody);
-                    
-                    // 解析JSON响应
-                    try {
-                        JsonObject jsonObject = JsonParser.parseString(responseBody).getAsJsonObject();
-                        JsonArray hotelsArray = jsonObject.getAsJsonArray("hotels");
-                        
-                        List<HotelModel> hotels = new ArrayList<>();
-                        for (JsonElement hotelElement : hotelsArray) {
-                            JsonObject hotelJson = hotelElement.getAsJsonObject();
-                            HotelModel hotel = parseHotelJson(hotelJson, false);
-                            if (hotel != null) {
-                                hotels.add(hotel);
-                            }
-                        }
+                    // 流式解析JSON响应
+                    try (ResponseBody body = response.body()) {
+                        if (body == null) throw new IOException("empty body");
+                        List<HotelModel> hotels = HotelJsonReader.readHotelList(body.charStream(), false);
+                        Log.d(TAG, "Parsed hotels: " + hotels.size() + (fromCache ? " (cache)" : ""));
                         
                         if (callback != null) {
-                            new Handler(Looper.getMainLooper()).post(() -> callback.onSuccess(hotels));
+                            CallbackDispatcher.get().post(() -> callback.onSuccess(hotels));
                         }
                     } catch (Exception e) {
                         Log.e(TAG, "解析酒店数据失败: " + e.getMessage());
                         if (callback != null) {
-                            new Handler(Looper.getMainLooper()).post(() -> callback.onError("解析酒店数据失败"));
+                            CallbackDispatcher.get().post(() -> callback.onError("解析酒店数据失败"));
                         }
                     }
                 } else {
+                    response.close();
                     if (callback != null) {
-                        new Handler(Looper.getMainLooper()).post(() -> callback.onError("请求失败: " + response.code()));
+                        CallbackDispatcher.get().post(() -> callback.onError("请求失败: " + response.code()));
                     }
                 }
             }
+
+            @Override
+            public void onFailure(IOException e) {
+                if (callback != null) {
+                    CallbackDispatcher.get().post(() -> callback.onFailure(e));
+                }
+            }
         });
     }
 
-    // 获取酒店列表
-    public static void getHotelList(HotelSearchQuery query, HotelListCallback callback) {
+    // 获取酒店列表，返回 Call 以便调用方在查询变化时取消
+    public static Call getHotelList(HotelSearchQuery query, HotelListCallback callback) {
+        return getHotelList(buildHotelListUrl(query), query.isLocationMode(), callback);
+    }
+
+    // 根据查询条件构建列表URL。设施参数去重并排序，相同条件总是得到相同的URL，
+    // HotelRequestManager 用它作为请求去重的规范化 key
+    public static HttpUrl buildHotelListUrl(HotelSearchQuery query) {
         String url = HttpClient.BASE_URL + "api/public/hotels";
         
         // 构建URL参数
-        okhttp3.HttpUrl.Builder urlBuilder = okhttp3.HttpUrl.parse(url).newBuilder();
+        HttpUrl.Builder urlBuilder = HttpUrl.parse(url).newBuilder();
         
         if (query.getCity() != null) urlBuilder.addQueryParameter("city", query.getCity());
         
@@ -146,7 +143,7 @@ public class HotelApi {
         
         // 设施/标签
         // 将 tags、quickTags 和 facilities 合并传给 amenities 参数
-        List<String> allAmenities = new ArrayList<>();
+        Set<String> allAmenities = new TreeSet<>();
         if (query.getTags() != null) allAmenities.addAll(query.getTags());
         if (query.getQuickTags() != null) allAmenities.addAll(query.getQuickTags());
         if (query.getFacilities() != null) allAmenities.addAll(query.getFacilities());
@@ -160,123 +157,120 @@ public class HotelApi {
         urlBuilder.addQueryParameter("page", String.valueOf(query.getPage()));
         urlBuilder.addQueryParameter("pageSize", String.valueOf(query.getPageSize()));
 
-        String finalUrl = urlBuilder.build().toString();
-        Log.d(TAG, "GET: " + finalUrl);
+        return urlBuilder.build();
+    }
+
+    public static Call getHotelList(HttpUrl url, boolean isLocationMode, HotelListCallback callback) {
+        Log.d(TAG, "GET: " + url);
 
         Request request = new Request.Builder()
-                .url(finalUrl)
+                .url(url)
                 .get()
                 .build();
 
-        client.newCall(request).enqueue(new Callback() {
+        Call call = HttpClient.newCall(request);
+        call.enqueue(new Callback() {
             @Override
             public void onFailure(@androidx.annotation.NonNull Call call, @androidx.annotation.NonNull IOException e) {
+                // 主动取消的请求（查询已变化）不再回调
+                if (call.isCanceled()) return;
                 if (callback != null) {
-                    new Handler(Looper.getMainLooper()).post(() -> callback.onFailure(e));
+                    CallbackDispatcher.get().post(() -> callback.onFailure(e));
                 }
             }
 
             @Override
             public void onResponse(@androidx.annotation.NonNull Call call, @androidx.annotation.NonNull Response response) throws IOException {
                 if (response.isSuccessful()) {
-                    String responseBody = response.body() != null ? response.body().string() : "";
-                    Log.d(TAG, "Response: " + responseBody);
-                    
-                    // 解析JSON响应
-                    try {
-                        JsonObject jsonObject = JsonParser.parseString(responseBody).getAsJsonObject();
-                        JsonArray hotelsArray = jsonObject.getAsJsonArray("hotels");
-                        
-                        List<HotelModel> hotels = new ArrayList<>();
-                        for (JsonElement hotelElement : hotelsArray) {
-                            JsonObject hotelJson = hotelElement.getAsJsonObject();
-                            HotelModel hotel = parseHotelJson(hotelJson, query.isLocationMode());
-                            if (hotel != null) {
-                                hotels.add(hotel);
-                            }
-                        }
+                    // 流式解析JSON响应
+                    try (ResponseBody body = response.body()) {
+                        if (body == null) throw new IOException("empty body");
+                        HotelJsonReader.HotelPage page = HotelJsonReader.readHotelPage(body.charStream(), isLocationMode);
+                        Log.d(TAG, "Parsed hotels: " + page.hotels.size() + "/" + page.rawCount);
                         
                         if (callback != null) {
-                            new Handler(Looper.getMainLooper()).post(() -> callback.onSuccess(hotels));
+                            CallbackDispatcher.get().post(() -> callback.onSuccess(page.hotels, page.rawCount));
                         }
                     } catch (Exception e) {
                         Log.e(TAG, "解析酒店数据失败: " + e.getMessage());
                         if (callback != null) {
-                            new Handler(Looper.getMainLooper()).post(() -> callback.onError("解析酒店数据失败"));
+                            CallbackDispatcher.get().post(() -> callback.onError("解析酒店数据失败"));
                         }
                     }
                 } else {
                     if (callback != null) {
-                        new Handler(Looper.getMainLooper()).post(() -> callback.onError("请求失败: " + response.code()));
+                        CallbackDispatcher.get().post(() -> callback.onError("请求失败: " + response.code()));
                     }
                 }
             }
         });
+        return call;
     }
 
     // 获取酒店详情
+    // 开启 stale-while-revalidate 时可能回调两次：先缓存，后网络（内容有变化时）
     public static void getHotelDetail(String hotelId, String checkInDate, String checkOutDate, HotelDetailCallback callback) {
         String url = HttpClient.BASE_URL + "api/public/hotels/" + hotelId;
         
         // 构建URL参数
-        okhttp3.HttpUrl.Builder urlBuilder = okhttp3.HttpUrl.parse(url).newBuilder();
+        HttpUrl.Builder urlBuilder = HttpUrl.parse(url).newBuilder();
         if (checkInDate != null) urlBuilder.addQueryParameter("checkInDate", checkInDate);
         if (checkOutDate != null) urlBuilder.addQueryParameter("checkOutDate", checkOutDate);
         
-        String finalUrl = urlBuilder.build().toString();
-        Log.d(TAG, "GET: " + finalUrl);
+        getHotelDetail(urlBuilder.build(), callback);
+    }
+
+    // 按完整 URL 请求详情，测试中指向本地的模拟服务器
+    static void getHotelDetail(HttpUrl url, HotelDetailCallback callback) {
+        Log.d(TAG, "GET: " + url);
 
         Request request = new Request.Builder()
-                .url(finalUrl)
+                .url(url)
                 .build();
 
-        client.newCall(request).enqueue(new Callback() {
-            @Override
-            public void onFailure(@androidx.annotation.NonNull Call call, @androidx.annotation.NonNull IOException e) {
-                if (callback != null) {
-                    new Handler(Looper.getMainLooper()).post(() -> callback.onFailure(e));
-                }
-            }
-
+        enqueueWithCache(request, new CachedResponseHandler() {
             @Override
-            public void onResponse(@androidx.annotation.NonNull Call call, @androidx.annotation.NonNull Response response) throws IOException {
+            public void onResponse(Response response, boolean fromCache) throws IOException {
                 if (response.isSuccessful()) {
-                    String responseBody = response.body() != null ? response.body().string() : "";
-                    Log.d(TAG, "Response: " + responseBody);
-                    
-                    // 解析JSON响应
-                    try {
-                        JsonObject jsonObject = JsonParser.parseString(responseBody).getAsJsonObject();
-                        JsonObject hotelJson = jsonObject.getAsJsonObject("hotel");
-                        HotelModel hotel = parseHotelJson(hotelJson, false);
+                    // 流式解析JSON响应
+                    try (ResponseBody body = response.body()) {
+                        if (body == null) throw new IOException("empty body");
+                        HotelModel hotel = HotelJsonReader.readHotelDetail(body.charStream());
                         
                         if (hotel != null) {
                             if (callback != null) {
-                                new Handler(Looper.getMainLooper()).post(() -> callback.onSuccess(hotel));
+                                CallbackDispatcher.get().post(() -> callback.onSuccess(hotel, fromCache));
                             }
                         } else {
                             if (callback != null) {
-                                new Handler(Looper.getMainLooper()).post(() -> callback.onError("解析酒店数据失败"));
+                                CallbackDispatcher.get().post(() -> callback.onError("解析酒店数据失败"));
                             }
                         }
                     } catch (Exception e) {
                         Log.e(TAG, "解析酒店数据失败: " + e.getMessage());
                         if (callback != null) {
-                            new Handler(Looper.getMainLooper()).post(() -> callback.onError("解析酒店数据失败"));
+                            CallbackDispatcher.get().post(() -> callback.onError("解析酒店数据失败"));
                         }
                     }
                 } else {
+                    response.close();
                     if (callback != null) {
-                        new Handler(Looper.getMainLooper()).post(() -> callback.onError("请求失败: " + response.code()));
+                        CallbackDispatcher.get().post(() -> callback.onError("请求失败: " + response.code()));
                     }
                 }
             }
+
+            @Override
+            public void onFailure(IOException e) {
+                if (callback != null) {
+                    CallbackDispatcher.get().post(() -> callback.onFailure(e));
+                }
+            }
         });
     }
 
     // 提交酒店评分
     public static void submitRating(String hotelId, float rating, String comment, String token, RatingCallback callback) {
-        OkHttpClient client = HttpClient.getClient();
         String url = HttpClient.BASE_URL + "api/ratings/" + hotelId;
         
         try {
@@ -303,11 +297,11 @@ public class HotelApi {
             Log.d(TAG, "Request Body: " + requestBody.toString());
             
             // 发送请求
-            client.newCall(request).enqueue(new Callback() {
+            HttpClient.newCall(request).enqueue(new Callback() {
                 @Override
                 public void onFailure(@androidx.annotation.NonNull Call call, @androidx.annotation.NonNull IOException e) {
                     if (callback != null) {
-                        new Handler(Looper.getMainLooper()).post(() -> callback.onFailure(e));
+                        CallbackDispatcher.get().post(() -> callback.onFailure(e));
                     }
                 }
                 
@@ -321,19 +315,19 @@ public class HotelApi {
                             JSONObject jsonObject = new JSONObject(responseBody);
                             String message = jsonObject.getString("message");
                             if (callback != null) {
-                                new Handler(Looper.getMainLooper()).post(() -> callback.onSuccess(message));
+                                CallbackDispatcher.get().post(() -> callback.onSuccess(message));
                             }
                         } catch (JSONException e) {
                             Log.e(TAG, "解析响应数据失败: " + e.getMessage());
                             if (callback != null) {
-                                new Handler(Looper.getMainLooper()).post(() -> callback.onError("解析响应数据失败"));
+                                CallbackDispatcher.get().post(() -> callback.onError("解析响应数据失败"));
                             }
                         }
                     } else {
                         String errorBody = response.body() != null ? response.body().string() : "";
                         Log.e(TAG, "请求失败: " + response.code() + ", " + errorBody);
                         if (callback != null) {
-                            new Handler(Looper.getMainLooper()).post(() -> callback.onError("请求失败: " + response.code()));
+                            CallbackDispatcher.get().post(() -> callback.onError("请求失败: " + response.code()));
                         }
                     }
                 }
@@ -347,127 +341,75 @@ public class HotelApi {
         }
     }
 
-    // 将JSON对象转换为HotelModel
-    private static HotelModel parseHotelJson(JsonObject hotelJson, boolean isLocationMode) {
-        try {
-            // 获取酒店ID
-            String id = hotelJson.get("_id").getAsString();
-            
-            // 获取酒店名称
-            String name = hotelJson.get("name").getAsString();
-            String nameEn = hotelJson.has("name_en") ? hotelJson.get("name_en").getAsString() : "";
-            
-            // 获取酒店地址
-            String address = hotelJson.get("address").getAsString();
-            
-            // 获取酒店评分（使用浮点数，兼容整型/字符串）
-            float starRating = 0f;
-            if (hotelJson.has("starRating") && !hotelJson.get("starRating").isJsonNull()) {
-                try {
-                    starRating = hotelJson.get("starRating").getAsFloat();
-                } catch (Exception e) {
-                    try {
-                        starRating = (float) hotelJson.get("starRating").getAsInt();
-                    } catch (Exception ignored) { }
-                }
-            }
-            
-            // 获取酒店价格
-            int startPrice = hotelJson.get("price").getAsInt();
-            
-            // 获取开业时间
-            String openingTime = hotelJson.has("openingTime") ? hotelJson.get("openingTime").getAsString() : "";
-            
-            // 获取酒店描述
-            String description = hotelJson.has("description") ? hotelJson.get("description").getAsString() : "";
-            
-            // 获取酒店设施
-            List<String> amenities = new ArrayList<>();
-            if (hotelJson.has("amenities")) {
-                JsonArray amenitiesArray = hotelJson.getAsJsonArray("amenities");
-                for (JsonElement amenity : amenitiesArray) {
-                    amenities.add(amenity.getAsString());
-                }
-            }
-            
-            // 获取酒店图片
-            List<String> images = new ArrayList<>();
-            String thumbnailUrl = "https://via.placeholder.com/300x200?text=Hotel+Image";
-            
-            // 优先使用mainImage作为缩略图
-            if (hotelJson.has("mainImage") && !hotelJson.get("mainImage").isJsonNull() && !hotelJson.get("mainImage").getAsString().isEmpty()) {
-                thumbnailUrl = hotelJson.get("mainImage").getAsString();
+    // 带缓存的响应处理；fromCache 为 true 表示来自磁盘缓存的（可能已过期的）副本
+    private interface CachedResponseHandler {
+        void onResponse(Response response, boolean fromCache) throws IOException;
+        void onFailure(IOException e);
+    }
+
+    // stale-while-revalidate：先只读磁盘缓存并立即回调，再发网络请求校验。
+    // 网络请求由 OkHttp Cache 自动带上 ETag/Last-Modified，
+    // 返回 304（或缓存仍新鲜、根本没有发出网络请求）且已经展示过缓存时不再重复回调；已展示缓存时网络失败也不再报错。
+    private static void enqueueWithCache(Request request, CachedResponseHandler handler) {
+        HttpCachePolicy policy = HttpClient.getCachePolicy();
+        if (!policy.isStaleWhileRevalidate()) {
+            enqueueRevalidate(request, false, handler);
+            return;
+        }
+
+        Request cacheOnlyRequest = request.newBuilder()
+                .cacheControl(new CacheControl.Builder()
+                        .onlyIfCached()
+                        .maxStale(policy.getMaxStaleSeconds(), TimeUnit.SECONDS)
+                        .build())
+                .build();
+
+        HttpClient.newCall(cacheOnlyRequest).enqueue(new Callback() {
+            @Override
+            public void onFailure(@androidx.annotation.NonNull Call call, @androidx.annotation.NonNull IOException e) {
+                enqueueRevalidate(request, false, handler);
             }
-            
-            // 获取所有图片
-            if (hotelJson.has("images")) {
-                JsonArray imagesArray = hotelJson.getAsJsonArray("images");
-                for (JsonElement image : imagesArray) {
-                    String imageUrl = image.getAsString();
-                    images.add(imageUrl);
-                    // 如果没有mainImage，则使用第一张图片作为缩略图
-                    if (thumbnailUrl.equals("https://via.placeholder.com/300x200?text=Hotel+Image")) {
-                        thumbnailUrl = imageUrl;
+
+            @Override
+            public void onResponse(@androidx.annotation.NonNull Call call, @androidx.annotation.NonNull Response response) {
+                // 缓存未命中时 OkHttp 返回 504
+                boolean hit = response.isSuccessful();
+                if (hit) {
+                    try {
+                        handler.onResponse(response, true);
+                    } catch (IOException e) {
+                        hit = false;
                     }
+                } else {
+                    response.close();
                 }
+                enqueueRevalidate(request, hit, handler);
             }
-            
-            // 解析房型
-            List<HotelModel.RoomType> roomTypes = new ArrayList<>();
-            if (hotelJson.has("roomTypes")) {
-                JsonArray roomTypesArray = hotelJson.getAsJsonArray("roomTypes");
-                for (JsonElement roomTypeElement : roomTypesArray) {
-                    JsonObject roomTypeJson = roomTypeElement.getAsJsonObject();
-                    String type = roomTypeJson.has("type") ? roomTypeJson.get("type").getAsString() : "";
-                    int price = roomTypeJson.has("price") ? roomTypeJson.get("price").getAsInt() : 0;
-                    String roomDesc = roomTypeJson.has("description") ? roomTypeJson.get("description").getAsString() : "";
-                    roomTypes.add(new HotelModel.RoomType(type, price, roomDesc));
+        });
+    }
+
+    private static void enqueueRevalidate(Request request, boolean cacheDelivered, CachedResponseHandler handler) {
+        HttpClient.newCall(request).enqueue(new Callback() {
+            @Override
+            public void onFailure(@androidx.annotation.NonNull Call call, @androidx.annotation.NonNull IOException e) {
+                if (cacheDelivered) {
+                    Log.w(TAG, "后台校验失败，继续使用缓存: " + e.getMessage());
+                    return;
                 }
+                handler.onFailure(e);
             }
-            
-            // 从服务器获取真实评分数据
-            float averageRating = 0.0f;
-            if (hotelJson.has("averageRating") && !hotelJson.get("averageRating").isJsonNull()) {
-                averageRating = hotelJson.get("averageRating").getAsFloat();
-            } else if (hotelJson.has("rating") && !hotelJson.get("rating").isJsonNull()) {
-                // 兼容 rating 字段
-                averageRating = hotelJson.get("rating").getAsFloat();
-            }
-            
-            // 获取酒店联系电话
-            String phone = "";
-            if (hotelJson.has("phone") && !hotelJson.get("phone").isJsonNull()) {
-                phone = hotelJson.get("phone").getAsString();
-            }
-            
-            // 创建标签列表
-            List<String> tags = new ArrayList<>();
-            
-            // 使用星级创建标签，格式为"X星级"
-            tags.add(String.format("%.0f星级", starRating));
-            if (amenities.size() > 0) {
-                tags.addAll(amenities.subList(0, Math.min(2, amenities.size())));
-            }
-            
-            // 设置距离和位置显示逻辑
-            // 距离：尝试从后端获取真实距离，如果不存在则默认为0
-            double distanceKm = 0.0;
-            if (hotelJson.has("distance") && !hotelJson.get("distance").isJsonNull()) {
-                distanceKm = hotelJson.get("distance").getAsDouble();
-                // 如果后端返回的是米，转换为千米 (假设后端可能返回米)
-                // 但根据通常API设计，我们假设它已经是km或我们可以直接使用
-                // 这里假设是km，如果数值很大可能是米，暂时按km处理
+
+            @Override
+            public void onResponse(@androidx.annotation.NonNull Call call, @androidx.annotation.NonNull Response response) throws IOException {
+                Response networkResponse = response.networkResponse();
+                // 内容未变化（304），或者服务端给了 max-age、缓存仍新鲜，OkHttp 直接用缓存应答（没有网络响应）：
+                // 两种情况都是缓存副本已经展示过了，不再重复回调
+                if (cacheDelivered && (networkResponse == null || networkResponse.code() == 304)) {
+                    response.close();
+                    return;
+                }
+                handler.onResponse(response, false);
             }
-            
-            // 距离类型：根据查询模式决定
-            // 如果是定位模式(isLocationMode=true)，则显示"距离我" -> isCityCenter=false
-            // 如果是城市模式(isLocationMode=false)，则显示"据目的地" -> isCityCenter=true
-            boolean isCityCenter = !isLocationMode;
-            
-            return new HotelModel(id, name, nameEn, address, starRating, roomTypes, startPrice, openingTime, description, amenities, images, thumbnailUrl, tags, distanceKm, isCityCenter, averageRating, phone);
-        } catch (Exception e) {
-            Log.e(TAG, "解析单个酒店失败: " + e.getMessage());
-            return null;
-        }
+        });
     }
 }
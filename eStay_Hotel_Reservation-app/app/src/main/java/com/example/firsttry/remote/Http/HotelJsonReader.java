@@ -0,0 +1,336 @@
+package com.example.firsttry.remote.Http;
+
+import android.util.Log;
+
+import com.example.firsttry.activity.hotel.model.HotelModel;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 酒店接口的流式解析器。
+ * 直接从 OkHttp 的响应流中逐个字段读取 hotels[] / hotel，
+ * 不再先把整个响应读成 String 再构建 JsonObject 树，避免大页面在内存中存在多份拷贝。
+ * 字段含义与兼容逻辑与原先 parseHotelJson 保持一致。
+ */
+class HotelJsonReader {
+
+    private static final String TAG = "HotelJsonReader";
+    private static final String PLACEHOLDER_THUMBNAIL = "https://via.placeholder.com/300x200?text=Hotel+Image";
+
+    private HotelJsonReader() {}
+
+    // 一页列表的解析结果。rawCount 是响应里 hotels[] 的元素个数（含缺少必填字段被丢弃的），
+    // 判断是否还有下一页要用它：丢弃了几条的满页不能当成最后一页
+    static final class HotelPage {
+        final List<HotelModel> hotels;
+        final int rawCount;
+
+        HotelPage(List<HotelModel> hotels, int rawCount) {
+            this.hotels = hotels;
+            this.rawCount = rawCount;
+        }
+    }
+
+    static List<HotelModel> readHotelList(Reader source, boolean isLocationMode) throws IOException {
+        return readHotelPage(source, isLocationMode).hotels;
+    }
+
+    // 读取 { "hotels": [ ... ] } 结构，其他顶层字段直接跳过
+    static HotelPage readHotelPage(Reader source, boolean isLocationMode) throws IOException {
+        List<HotelModel> hotels = new ArrayList<>();
+        int rawCount = 0;
+        try (JsonReader reader = new JsonReader(source)) {
+            reader.beginObject();
+            while (reader.hasNext()) {
+                String name = reader.nextName();
+                if ("hotels".equals(name) && reader.peek() == JsonToken.BEGIN_ARRAY) {
+                    reader.beginArray();
+                    while (reader.hasNext()) {
+                        rawCount++;
+                        HotelModel hotel = readHotel(reader, isLocationMode);
+                        if (hotel != null) {
+                            hotels.add(hotel);
+                        }
+                    }
+                    reader.endArray();
+                } else {
+                    reader.skipValue();
+                }
+            }
+            reader.endObject();
+        }
+        return new HotelPage(hotels, rawCount);
+    }
+
+    // 读取 { "hotel": { ... } } 结构
+    static HotelModel readHotelDetail(Reader source) throws IOException {
+        HotelModel hotel = null;
+        try (JsonReader reader = new JsonReader(source)) {
+            reader.beginObject();
+            while (reader.hasNext()) {
+                String name = reader.nextName();
+                if ("hotel".equals(name) && reader.peek() == JsonToken.BEGIN_OBJECT) {
+                    hotel = readHotel(reader, false);
+                } else {
+                    reader.skipValue();
+                }
+            }
+            reader.endObject();
+        }
+        return hotel;
+    }
+
+    // 读取单个酒店对象；缺少必填字段（_id/name/address/price）时返回 null，与旧逻辑一致
+    private static HotelModel readHotel(JsonReader reader, boolean isLocationMode) throws IOException {
+        if (reader.peek() != JsonToken.BEGIN_OBJECT) {
+            reader.skipValue();
+            return null;
+        }
+
+        String id = null;
+        String name = null;
+        String nameEn = "";
+        String address = null;
+        float starRating = 0f;
+        Integer startPrice = null;
+        String openingTime = "";
+        String description = "";
+        List<String> amenities = new ArrayList<>();
+        List<String> images = new ArrayList<>();
+        String mainImage = null;
+        List<HotelModel.RoomType> roomTypes = new ArrayList<>();
+        Float averageRating = null;
+        Float rating = null;
+        String phone = "";
+        double distanceKm = 0.0;
+        double[] lngLat = null;
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String field = reader.nextName();
+            if (reader.peek() == JsonToken.NULL) {
+                reader.nextNull();
+                continue;
+            }
+            switch (field) {
+                case "_id":
+                    id = readString(reader);
+                    break;
+                case "name":
+                    name = readString(reader);
+                    break;
+                case "name_en":
+                    nameEn = readString(reader);
+                    break;
+                case "address":
+                    address = readString(reader);
+                    break;
+                case "starRating":
+                    starRating = (float) readDouble(reader, 0);
+                    break;
+                case "price":
+                    startPrice = (int) readDouble(reader, 0);
+                    break;
+                case "openingTime":
+                    openingTime = readString(reader);
+                    break;
+                case "description":
+                    description = readString(reader);
+                    break;
+                case "amenities":
+                    readStringArray(reader, amenities);
+                    break;
+                case "mainImage":
+                    mainImage = readString(reader);
+                    break;
+                case "images":
+                    readStringArray(reader, images);
+                    break;
+                case "roomTypes":
+                    readRoomTypes(reader, roomTypes);
+                    break;
+                case "averageRating":
+                    averageRating = (float) readDouble(reader, 0);
+                    break;
+                case "rating":
+                    rating = (float) readDouble(reader, 0);
+                    break;
+                case "phone":
+                    phone = readString(reader);
+                    break;
+                case "distance":
+                    // 这里假设后端返回的已经是 km
+                    distanceKm = readDouble(reader, 0);
+                    break;
+                case "location":
+                    lngLat = readLocation(reader);
+                    break;
+                default:
+                    reader.skipValue();
+                    break;
+            }
+        }
+        reader.endObject();
+
+        if (id == null || name == null || address == null || startPrice == null) {
+            Log.e(TAG, "解析单个酒店失败: 缺少必填字段, id=" + id);
+            return null;
+        }
+
+        // 优先使用 mainImage 作为缩略图，否则使用第一张图片
+        String thumbnailUrl = PLACEHOLDER_THUMBNAIL;
+        if (mainImage != null && !mainImage.isEmpty()) {
+            thumbnailUrl = mainImage;
+        } else if (!images.isEmpty()) {
+            thumbnailUrl = images.get(0);
+        }
+
+        // 优先 averageRating，兼容 rating 字段
+        float finalRating = 0.0f;
+        if (averageRating != null) {
+            finalRating = averageRating;
+        } else if (rating != null) {
+            finalRating = rating;
+        }
+
+        // 标签：星级 + 前两个设施
+        List<String> tags = new ArrayList<>();
+        tags.add(String.format("%.0f星级", starRating));
+        if (amenities.size() > 0) {
+            tags.addAll(amenities.subList(0, Math.min(2, amenities.size())));
+        }
+
+        // 定位模式显示"距离我"，城市模式显示"据目的地"
+        boolean isCityCenter = !isLocationMode;
+
+        double latitude = lngLat != null ? lngLat[1] : Double.NaN;
+        double longitude = lngLat != null ? lngLat[0] : Double.NaN;
+
+        return new HotelModel(id, name, nameEn, address, starRating, roomTypes, startPrice, openingTime, description, amenities, images, thumbnailUrl, tags, distanceKm, isCityCenter, finalRating, phone, latitude, longitude);
+    }
+
+    // GeoJSON Point：{ "type": "Point", "coordinates": [lng, lat] }；格式不对时返回 null
+    private static double[] readLocation(JsonReader reader) throws IOException {
+        if (reader.peek() != JsonToken.BEGIN_OBJECT) {
+            reader.skipValue();
+            return null;
+        }
+        double[] lngLat = null;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String field = reader.nextName();
+            if (!"coordinates".equals(field) || reader.peek() != JsonToken.BEGIN_ARRAY) {
+                reader.skipValue();
+                continue;
+            }
+            double[] values = new double[2];
+            int count = 0;
+            reader.beginArray();
+            while (reader.hasNext()) {
+                double value = readDouble(reader, Double.NaN);
+                if (count < values.length) {
+                    values[count] = value;
+                }
+                count++;
+            }
+            reader.endArray();
+            if (count >= 2) {
+                lngLat = values;
+            }
+        }
+        reader.endObject();
+        return lngLat;
+    }
+
+    private static void readRoomTypes(JsonReader reader, List<HotelModel.RoomType> out) throws IOException {
+        if (reader.peek() != JsonToken.BEGIN_ARRAY) {
+            reader.skipValue();
+            return;
+        }
+        reader.beginArray();
+        while (reader.hasNext()) {
+            if (reader.peek() != JsonToken.BEGIN_OBJECT) {
+                reader.skipValue();
+                continue;
+            }
+            String type = "";
+            int price = 0;
+            String roomDesc = "";
+            reader.beginObject();
+            while (reader.hasNext()) {
+                String field = reader.nextName();
+                if (reader.peek() == JsonToken.NULL) {
+                    reader.nextNull();
+                    continue;
+                }
+                switch (field) {
+                    case "type":
+                        type = readString(reader);
+                        break;
+                    case "price":
+                        price = (int) readDouble(reader, 0);
+                        break;
+                    case "description":
+                        roomDesc = readString(reader);
+                        break;
+                    default:
+                        reader.skipValue();
+                        break;
+                }
+            }
+            reader.endObject();
+            out.add(new HotelModel.RoomType(type, price, roomDesc));
+        }
+        reader.endArray();
+    }
+
+    private static void readStringArray(JsonReader reader, List<String> out) throws IOException {
+        if (reader.peek() != JsonToken.BEGIN_ARRAY) {
+            reader.skipValue();
+            return;
+        }
+        reader.beginArray();
+        while (reader.hasNext()) {
+            JsonToken token = reader.peek();
+            if (token == JsonToken.STRING || token == JsonToken.NUMBER) {
+                out.add(reader.nextString());
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endArray();
+    }
+
+    // 字符串字段：兼容数字/布尔，其他类型跳过
+    private static String readString(JsonReader reader) throws IOException {
+        JsonToken token = reader.peek();
+        if (token == JsonToken.STRING || token == JsonToken.NUMBER) {
+            return reader.nextString();
+        }
+        if (token == JsonToken.BOOLEAN) {
+            return String.valueOf(reader.nextBoolean());
+        }
+        reader.skipValue();
+        return null;
+    }
+
+    // 数值字段：兼容 "4.5" 这样的字符串，无法解析时返回默认值
+    private static double readDouble(JsonReader reader, double defaultValue) throws IOException {
+        JsonToken token = reader.peek();
+        if (token == JsonToken.NUMBER || token == JsonToken.STRING) {
+            String raw = reader.nextString();
+            try {
+                return Double.parseDouble(raw);
+            } catch (NumberFormatException e) {
+                return defaultValue;
+            }
+        }
+        reader.skipValue();
+        return defaultValue;
+    }
+}
@@ -0,0 +1,163 @@
+package com.example.firsttry.remote.Http;
+
+import android.util.Log;
+
+import androidx.annotation.VisibleForTesting;
+
+import com.example.firsttry.activity.hotel.model.HotelModel;
+import com.example.firsttry.activity.hotel.model.HotelSearchQuery;
+import com.example.firsttry.remote.CallbackDispatcher;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import okhttp3.Call;
+import okhttp3.HttpUrl;
+
+/**
+ * 酒店列表请求管理：每个列表页面持有一个实例。
+ * - search：新的查询条件，防抖后发送，并取消所有被取代的请求
+ * - loadPage：翻页，立即发送，不取消其他请求
+ * - 规范化 URL 相同的请求在进行中时只发一次，回调合并
+ * 所有方法和回调都在主线程执行。
+ */
+public class HotelRequestManager {
+
+    private static final String TAG = "HotelRequestManager";
+    // 快速连续点筛选/排序时，只发送最后一次
+    public static final long DEFAULT_DEBOUNCE_MS = 300;
+
+    // 实际发请求的地方，默认是 HotelApi.getHotelList；测试时换成不走网络的假实现
+    interface ListSource {
+        Call getHotelList(HttpUrl url, boolean isLocationMode, HotelApi.HotelListCallback callback);
+    }
+
+    private final CallbackDispatcher dispatcher;
+    private final ListSource source;
+    private final long debounceMs;
+    // 规范化 URL -> 进行中的请求
+    private final Map<String, InFlight> inFlight = new HashMap<>();
+    private Runnable pendingSearch;
+
+    public HotelRequestManager() {
+        this(DEFAULT_DEBOUNCE_MS);
+    }
+
+    public HotelRequestManager(long debounceMs) {
+        this(debounceMs, CallbackDispatcher.get(), HotelApi::getHotelList);
+    }
+
+    // 测试时传入 TestCallbackDispatcher 用虚拟时间驱动防抖，并用假的 ListSource 控制请求何时返回
+    @VisibleForTesting
+    HotelRequestManager(long debounceMs, CallbackDispatcher dispatcher, ListSource source) {
+        this.debounceMs = debounceMs;
+        this.dispatcher = dispatcher;
+        this.source = source;
+    }
+
+    // 新查询：在调用时刻快照查询条件，防抖后发送；之前的请求全部作废，
+    // 只有与新查询 URL 相同、仍在进行中的请求保留，防抖结束后直接合并到它上面
+    public void search(HotelSearchQuery query, HotelApi.HotelListCallback callback) {
+        final HttpUrl url = HotelApi.buildHotelListUrl(query);
+        final boolean isLocationMode = query.isLocationMode();
+        final String key = url.toString();
+
+        cancelPendingSearch();
+        cancelAllExcept(key);
+
+        pendingSearch = () -> {
+            pendingSearch = null;
+            enqueue(key, url, isLocationMode, callback);
+        };
+        dispatcher.postDelayed(pendingSearch, debounceMs);
+    }
+
+    // 翻页：立即发送；同一页已经在请求中时合并回调
+    public void loadPage(HotelSearchQuery query, HotelApi.HotelListCallback callback) {
+        HttpUrl url = HotelApi.buildHotelListUrl(query);
+        enqueue(url.toString(), url, query.isLocationMode(), callback);
+    }
+
+    // 页面销毁时调用；重新查询不需要先调用它，search 会取代旧请求
+    public void cancelAll() {
+        cancelPendingSearch();
+        cancelAllExcept(null);
+    }
+
+    private void enqueue(String key, HttpUrl url, boolean isLocationMode, HotelApi.HotelListCallback callback) {
+        InFlight existing = inFlight.get(key);
+        if (existing != null) {
+            Log.d(TAG, "合并重复请求: " + key);
+            existing.callbacks.add(callback);
+            return;
+        }
+
+        InFlight request = new InFlight();
+        request.callbacks.add(callback);
+        inFlight.put(key, request);
+        request.call = source.getHotelList(url, isLocationMode, new HotelApi.HotelListCallback() {
+            @Override
+            public void onSuccess(List<HotelModel> hotels, int rawCount) {
+                if (!finish(key, request)) return;
+                for (HotelApi.HotelListCallback cb : request.callbacks) {
+                    if (cb != null) cb.onSuccess(hotels, rawCount);
+                }
+            }
+
+            @Override
+            public void onError(String message) {
+                if (!finish(key, request)) return;
+                for (HotelApi.HotelListCallback cb : request.callbacks) {
+                    if (cb != null) cb.onError(message);
+                }
+            }
+
+            @Override
+            public void onFailure(IOException e) {
+                if (!finish(key, request)) return;
+                for (HotelApi.HotelListCallback cb : request.callbacks) {
+                    if (cb != null) cb.onFailure(e);
+                }
+            }
+        });
+    }
+
+    // 请求结束时移出表；已被取消的请求返回 false，不再回调
+    private boolean finish(String key, InFlight request) {
+        if (inFlight.get(key) == request) {
+            inFlight.remove(key);
+        }
+        return !request.cancelled;
+    }
+
+    private void cancelAllExcept(String keepKey) {
+        Iterator<Map.Entry<String, InFlight>> it = inFlight.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<String, InFlight> entry = it.next();
+            if (entry.getKey().equals(keepKey)) continue;
+            InFlight request = entry.getValue();
+            request.cancelled = true;
+            if (request.call != null) {
+                request.call.cancel();
+            }
+            it.remove();
+        }
+    }
+
+    private void cancelPendingSearch() {
+        if (pendingSearch != null) {
+            dispatcher.remove(pendingSearch);
+            pendingSearch = null;
+        }
+    }
+
+    private static class InFlight {
+        Call call;
+        boolean cancelled;
+        final List<HotelApi.HotelListCallback> callbacks = new ArrayList<>();
+    }
+}
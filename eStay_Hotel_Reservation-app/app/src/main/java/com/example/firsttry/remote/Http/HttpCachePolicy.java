@@ -0,0 +1,25 @@
+package com.example.firsttry.remote.Http;
+
+/**
+ * 公共酒店接口（api/public/hotels*）的缓存策略。
+ * staleWhileRevalidate 为 true 时，详情和首页 Banner 会先用磁盘缓存中的副本渲染，
+ * 再发起带 ETag / Last-Modified 的条件请求校验，内容有变化才再次回调。
+ */
+public class HttpCachePolicy {
+
+    // 默认：先展示最多一天前的缓存，再后台校验
+    public static final HttpCachePolicy DEFAULT = new HttpCachePolicy(true, 24 * 60 * 60);
+    // 不使用过期缓存，每次都等网络结果（仍然会走条件请求）
+    public static final HttpCachePolicy NETWORK_FIRST = new HttpCachePolicy(false, 0);
+
+    private final boolean staleWhileRevalidate;
+    private final int maxStaleSeconds;
+
+    public HttpCachePolicy(boolean staleWhileRevalidate, int maxStaleSeconds) {
+        this.staleWhileRevalidate = staleWhileRevalidate;
+        this.maxStaleSeconds = maxStaleSeconds;
+    }
+
+    public boolean isStaleWhileRevalidate() { return staleWhileRevalidate; }
+    public int getMaxStaleSeconds() { return maxStaleSeconds; }
+}
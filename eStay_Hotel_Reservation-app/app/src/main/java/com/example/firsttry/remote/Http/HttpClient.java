@@ -1,20 +1,119 @@
 // package 请改成你的：com.example.firsttry.data.remote
 package com.example.firsttry.remote.Http;
 
+import android.content.Context;
+
+import androidx.annotation.VisibleForTesting;
+
+import com.example.firsttry.BuildConfig;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.Cache;
+import okhttp3.Call;
+import okhttp3.ConnectionPool;
+import okhttp3.Dispatcher;
 import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.brotli.BrotliInterceptor;
 
 public class HttpClient {
 
-    private static OkHttpClient client;
+    // 公共酒店接口的磁盘缓存大小
+    private static final long CACHE_SIZE_BYTES = 10L * 1024 * 1024;
+
+    // 后端地址由构建参数决定（-Pestay.baseUrl=... 或环境变量 ESTAY_BASE_URL），默认模拟器地址
+    public static final String BASE_URL = normalizeBaseUrl(BuildConfig.BASE_URL);
+
+    private static volatile OkHttpClient client;
+    private static Cache cache;
+    // newCall 在请求线程上不加锁读取，configure 之后要立即可见
+    private static volatile HttpClientConfig config = HttpClientConfig.DEFAULT;
+    private static volatile HttpCachePolicy cachePolicy = HttpCachePolicy.DEFAULT;
+
+    // 在 Application.onCreate 中调用，创建磁盘缓存
+    public static synchronized void init(Context context) {
+        if (cache == null) {
+            cache = new Cache(new File(context.getApplicationContext().getCacheDir(), "http_cache"), CACHE_SIZE_BYTES);
+            // 缓存要在 client 创建前设置；已经创建过的话重建一次
+            client = null;
+        }
+    }
+
+    // 测试用：使用指定目录作为磁盘缓存（null 表示不缓存），并重建 client
+    @VisibleForTesting
+    static synchronized void initForTesting(File cacheDir) {
+        cache = cacheDir != null ? new Cache(cacheDir, CACHE_SIZE_BYTES) : null;
+        client = null;
+    }
+
+    // 替换连接池/超时配置，下次 getClient() 时按新配置创建
+    public static synchronized void configure(HttpClientConfig newConfig) {
+        config = newConfig != null ? newConfig : HttpClientConfig.DEFAULT;
+        client = null;
+    }
 
     public static OkHttpClient getClient() {
-        if (client == null) {
-            client = new OkHttpClient.Builder()
-                    // 这里以后可以加拦截器、超时配置等
-                    .build();
+        OkHttpClient result = client;
+        if (result == null) {
+            synchronized (HttpClient.class) {
+                result = client;
+                if (result == null) {
+                    result = buildClient(config, cache);
+                    client = result;
+                }
+            }
         }
-        return client;
+        return result;
     }
 
-    public static final String BASE_URL = "http://10.0.2.2:5000/";
-}
\ No newline at end of file
+    // 创建 Call 并应用接口级的 callTimeout（整个请求的总时长，包括重定向和重试）
+    public static Call newCall(Request request) {
+        Call call = getClient().newCall(request);
+        HttpClientConfig.EndpointTimeout timeout = config.timeoutFor(request.url().encodedPath());
+        if (timeout != null) {
+            call.timeout().timeout(timeout.callTimeoutMs, TimeUnit.MILLISECONDS);
+        }
+        return call;
+    }
+
+    private static OkHttpClient buildClient(HttpClientConfig config, Cache cache) {
+        Dispatcher dispatcher = new Dispatcher();
+        dispatcher.setMaxRequests(config.maxRequests);
+        dispatcher.setMaxRequestsPerHost(config.maxRequestsPerHost);
+
+        OkHttpClient.Builder builder = new OkHttpClient.Builder()
+                .dispatcher(dispatcher)
+                .connectionPool(new ConnectionPool(config.maxIdleConnections, config.keepAliveMs, TimeUnit.MILLISECONDS))
+                // 服务端支持时通过 ALPN 协商 HTTP/2（仅 https），否则回落到 HTTP/1.1
+                .protocols(Arrays.asList(Protocol.HTTP_2, Protocol.HTTP_1_1))
+                .connectTimeout(config.connectTimeoutMs, TimeUnit.MILLISECONDS)
+                .readTimeout(config.readTimeoutMs, TimeUnit.MILLISECONDS)
+                .writeTimeout(config.writeTimeoutMs, TimeUnit.MILLISECONDS)
+                .callTimeout(config.callTimeoutMs, TimeUnit.MILLISECONDS)
+                .retryOnConnectionFailure(true)
+                .addInterceptor(new EndpointTimeoutInterceptor(config))
+                // 请求头带上 Accept-Encoding: br, gzip 并透明解压；没有它时 OkHttp 只协商 gzip
+                .addInterceptor(BrotliInterceptor.INSTANCE)
+                .addNetworkInterceptor(new PublicHotelCacheInterceptor());
+        if (cache != null) {
+            builder.cache(cache);
+        }
+        return builder.build();
+    }
+
+    public static HttpCachePolicy getCachePolicy() {
+        return cachePolicy;
+    }
+
+    public static void setCachePolicy(HttpCachePolicy policy) {
+        cachePolicy = policy != null ? policy : HttpCachePolicy.DEFAULT;
+    }
+
+    private static String normalizeBaseUrl(String url) {
+        return url.endsWith("/") ? url : url + "/";
+    }
+}
@@ -0,0 +1,130 @@
+package com.example.firsttry.remote.Http;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * OkHttpClient 的连接池、并发和超时配置。
+ * 默认值针对移动网络：连接/读取超时比 OkHttp 默认更短，并设置整体 callTimeout，
+ * 避免弱网下请求长时间挂起。EndpointTimeout 按路径前缀覆盖单个接口的超时。
+ */
+public class HttpClientConfig {
+
+    public static final HttpClientConfig DEFAULT = new Builder()
+            // 公共酒店接口：用户在等列表/详情，尽快失败以便展示缓存或重试
+            .endpoint(new EndpointTimeout("/api/public/hotels", 5_000, 10_000, 10_000, 15_000))
+            // 登录注册等：请求体小，快速失败
+            .endpoint(new EndpointTimeout("/api/auth/", 5_000, 10_000, 10_000, 15_000))
+            // 消息历史可能较大，读取时间放宽
+            .endpoint(new EndpointTimeout("/api/messages", 8_000, 20_000, 15_000, 30_000))
+            .build();
+
+    final int maxIdleConnections;
+    final long keepAliveMs;
+    final int maxRequests;
+    final int maxRequestsPerHost;
+    final long connectTimeoutMs;
+    final long readTimeoutMs;
+    final long writeTimeoutMs;
+    final long callTimeoutMs;
+    final List<EndpointTimeout> endpointTimeouts;
+
+    private HttpClientConfig(Builder builder) {
+        this.maxIdleConnections = builder.maxIdleConnections;
+        this.keepAliveMs = builder.keepAliveMs;
+        this.maxRequests = builder.maxRequests;
+        this.maxRequestsPerHost = builder.maxRequestsPerHost;
+        this.connectTimeoutMs = builder.connectTimeoutMs;
+        this.readTimeoutMs = builder.readTimeoutMs;
+        this.writeTimeoutMs = builder.writeTimeoutMs;
+        this.callTimeoutMs = builder.callTimeoutMs;
+        this.endpointTimeouts = Collections.unmodifiableList(new ArrayList<>(builder.endpointTimeouts));
+    }
+
+    // 按路径前缀查找接口级超时，取最长匹配；没有匹配时返回 null
+    EndpointTimeout timeoutFor(String encodedPath) {
+        EndpointTimeout best = null;
+        for (EndpointTimeout timeout : endpointTimeouts) {
+            if (encodedPath.startsWith(timeout.pathPrefix)
+                    && (best == null || timeout.pathPrefix.length() > best.pathPrefix.length())) {
+                best = timeout;
+            }
+        }
+        return best;
+    }
+
+    public Builder newBuilder() {
+        Builder builder = new Builder();
+        builder.maxIdleConnections = maxIdleConnections;
+        builder.keepAliveMs = keepAliveMs;
+        builder.maxRequests = maxRequests;
+        builder.maxRequestsPerHost = maxRequestsPerHost;
+        builder.connectTimeoutMs = connectTimeoutMs;
+        builder.readTimeoutMs = readTimeoutMs;
+        builder.writeTimeoutMs = writeTimeoutMs;
+        builder.callTimeoutMs = callTimeoutMs;
+        builder.endpointTimeouts.addAll(endpointTimeouts);
+        return builder;
+    }
+
+    // 单个接口的超时（毫秒）
+    public static class EndpointTimeout {
+        final String pathPrefix;
+        final int connectTimeoutMs;
+        final int readTimeoutMs;
+        final int writeTimeoutMs;
+        final long callTimeoutMs;
+
+        public EndpointTimeout(String pathPrefix, int connectTimeoutMs, int readTimeoutMs, int writeTimeoutMs, long callTimeoutMs) {
+            this.pathPrefix = pathPrefix;
+            this.connectTimeoutMs = connectTimeoutMs;
+            this.readTimeoutMs = readTimeoutMs;
+            this.writeTimeoutMs = writeTimeoutMs;
+            this.callTimeoutMs = callTimeoutMs;
+        }
+    }
+
+    public static class Builder {
+        // 单一后端主机：少量空闲连接即可，保活 5 分钟
+        private int maxIdleConnections = 5;
+        private long keepAliveMs = 5 * 60 * 1000L;
+        // 同一主机最多 6 个并发（列表翻页 + 详情 + 图片外的接口），总数 32
+        private int maxRequests = 32;
+        private int maxRequestsPerHost = 6;
+        private long connectTimeoutMs = 10_000;
+        private long readTimeoutMs = 15_000;
+        private long writeTimeoutMs = 15_000;
+        private long callTimeoutMs = 30_000;
+        private final List<EndpointTimeout> endpointTimeouts = new ArrayList<>();
+
+        public Builder connectionPool(int maxIdleConnections, long keepAliveMs) {
+            this.maxIdleConnections = maxIdleConnections;
+            this.keepAliveMs = keepAliveMs;
+            return this;
+        }
+
+        public Builder maxRequests(int maxRequests, int maxRequestsPerHost) {
+            this.maxRequests = maxRequests;
+            this.maxRequestsPerHost = maxRequestsPerHost;
+            return this;
+        }
+
+        public Builder timeouts(long connectTimeoutMs, long readTimeoutMs, long writeTimeoutMs, long callTimeoutMs) {
+            this.connectTimeoutMs = connectTimeoutMs;
+            this.readTimeoutMs = readTimeoutMs;
+            this.writeTimeoutMs = writeTimeoutMs;
+            this.callTimeoutMs = callTimeoutMs;
+            return this;
+        }
+
+        public Builder endpoint(EndpointTimeout timeout) {
+            endpointTimeouts.add(timeout);
+            return this;
+        }
+
+        public HttpClientConfig build() {
+            return new HttpClientConfig(this);
+        }
+    }
+}
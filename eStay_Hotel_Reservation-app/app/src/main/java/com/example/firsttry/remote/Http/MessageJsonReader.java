@@ -0,0 +1,169 @@
+package com.example.firsttry.remote.Http;
+
+import com.example.firsttry.activity.message.Message;
+import com.example.firsttry.utils.TimeUtils;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 消息增量同步接口的流式解析器，与 HotelJsonReader 同样的做法：
+ * 直接从响应流中逐条读取 messages[]，不把整页响应读成 String / JSONObject 树。
+ * 字段含义与 Message.fromJson 一致（senderId/receiverId 为 populate 后的 {_id, username}）。
+ */
+class MessageJsonReader {
+
+    // 一页同步结果
+    static class Page {
+        final List<Message> messages;
+        final boolean hasMore;
+
+        Page(List<Message> messages, boolean hasMore) {
+            this.messages = messages;
+            this.hasMore = hasMore;
+        }
+    }
+
+    private MessageJsonReader() {}
+
+    // 读取 { "messages": [ ... ], "hasMore": bool } 结构，其他顶层字段直接跳过
+    static Page readPage(Reader source) throws IOException {
+        List<Message> messages = new ArrayList<>();
+        boolean hasMore = false;
+        try (JsonReader reader = new JsonReader(source)) {
+            reader.beginObject();
+            while (reader.hasNext()) {
+                String name = reader.nextName();
+                if ("messages".equals(name) && reader.peek() == JsonToken.BEGIN_ARRAY) {
+                    reader.beginArray();
+                    while (reader.hasNext()) {
+                        Message message = readMessage(reader);
+                        if (message != null) {
+                            messages.add(message);
+                        }
+                    }
+                    reader.endArray();
+                } else if ("hasMore".equals(name) && reader.peek() == JsonToken.BOOLEAN) {
+                    hasMore = reader.nextBoolean();
+                } else {
+                    reader.skipValue();
+                }
+            }
+            reader.endObject();
+        }
+        return new Page(messages, hasMore);
+    }
+
+    // 读取单条消息；没有 id 或内容时返回 null
+    private static Message readMessage(JsonReader reader) throws IOException {
+        if (reader.peek() != JsonToken.BEGIN_OBJECT) {
+            reader.skipValue();
+            return null;
+        }
+
+        String id = null;
+        String clientMsgId = null;
+        String senderId = null;
+        String senderName = "";
+        String receiverName = "";
+        String content = null;
+        String createdAt = "";
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String field = reader.nextName();
+            if (reader.peek() == JsonToken.NULL) {
+                reader.nextNull();
+                continue;
+            }
+            switch (field) {
+                case "_id":
+                    id = readString(reader);
+                    break;
+                case "clientMsgId":
+                    clientMsgId = readString(reader);
+                    break;
+                case "senderId":
+                    if (reader.peek() == JsonToken.BEGIN_OBJECT) {
+                        String[] user = readUser(reader);
+                        if (senderId == null) senderId = user[0];
+                        senderName = user[1];
+                    } else if (senderId == null) {
+                        senderId = readString(reader);
+                    } else {
+                        reader.skipValue();
+                    }
+                    break;
+                case "senderIdStr":
+                    senderId = readString(reader);
+                    break;
+                case "receiverId":
+                    if (reader.peek() == JsonToken.BEGIN_OBJECT) {
+                        receiverName = readUser(reader)[1];
+                    } else {
+                        reader.skipValue();
+                    }
+                    break;
+                case "content":
+                    content = readString(reader);
+                    break;
+                case "createdAt":
+                    createdAt = readString(reader);
+                    break;
+                default:
+                    reader.skipValue();
+                    break;
+            }
+        }
+        reader.endObject();
+
+        String messageId = clientMsgId != null && !clientMsgId.isEmpty() ? clientMsgId : id;
+        if (messageId == null || content == null) return null;
+
+        Message message = new Message();
+        message.setId(messageId);
+        message.setSenderId(senderId);
+        message.setSenderName(senderName);
+        message.setReceiver(receiverName);
+        message.setContent(content);
+        message.setTime(createdAt);
+        message.setTimeMillis(TimeUtils.parseToMillis(createdAt));
+        return message;
+    }
+
+    // populate 后的用户对象，返回 {_id, username}
+    private static String[] readUser(JsonReader reader) throws IOException {
+        String[] user = {null, ""};
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String field = reader.nextName();
+            if (reader.peek() == JsonToken.NULL) {
+                reader.nextNull();
+                continue;
+            }
+            if ("_id".equals(field)) {
+                user[0] = readString(reader);
+            } else if ("username".equals(field)) {
+                String username = readString(reader);
+                user[1] = username != null ? username : "";
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+        return user;
+    }
+
+    private static String readString(JsonReader reader) throws IOException {
+        JsonToken token = reader.peek();
+        if (token == JsonToken.STRING || token == JsonToken.NUMBER) {
+            return reader.nextString();
+        }
+        reader.skipValue();
+        return null;
+    }
+}
@@ -0,0 +1,36 @@
+package com.example.firsttry.remote.Http;
+
+import androidx.annotation.NonNull;
+
+import java.io.IOException;
+
+import okhttp3.Interceptor;
+import okhttp3.Request;
+import okhttp3.Response;
+
+/**
+ * 网络拦截器：后端没有为公共酒店接口返回 Cache-Control 时，
+ * 补上 "public, max-age=0"，让 OkHttp 把响应写入磁盘缓存，
+ * 下次请求时带上 If-None-Match / If-Modified-Since 做条件校验（命中则 304，不重新下载）。
+ */
+class PublicHotelCacheInterceptor implements Interceptor {
+
+    private static final String PUBLIC_HOTELS_PATH = "/api/public/hotels";
+
+    @NonNull
+    @Override
+    public Response intercept(@NonNull Chain chain) throws IOException {
+        Request request = chain.request();
+        Response response = chain.proceed(request);
+
+        if (!"GET".equals(request.method())
+                || !request.url().encodedPath().startsWith(PUBLIC_HOTELS_PATH)
+                || response.header("Cache-Control") != null) {
+            return response;
+        }
+        return response.newBuilder()
+                .removeHeader("Pragma")
+                .header("Cache-Control", "public, max-age=0")
+                .build();
+    }
+}
@@ -2,8 +2,10 @@ package com.example.firsttry.remote.Http;
 
 import android.util.Log;
 
+import androidx.annotation.VisibleForTesting;
+
 import com.example.firsttry.activity.message.Message;
-import com.example.firsttry.remote.Http.HttpClient;
+import com.example.firsttry.remote.CallbackDispatcher;
 
 import org.json.JSONException;
 import org.json.JSONObject;
@@ -13,11 +15,12 @@ import java.util.List;
 
 import okhttp3.Call;
 import okhttp3.Callback;
+import okhttp3.HttpUrl;
 import okhttp3.MediaType;
-import okhttp3.OkHttpClient;
 import okhttp3.Request;
 import okhttp3.RequestBody;
 import okhttp3.Response;
+import okhttp3.ResponseBody;
 
 public class UserApi {
 
@@ -33,15 +36,28 @@ public class UserApi {
         void onFailure(IOException e);
     }
 
-    public interface MessageListCallback {
-        void onSuccess(List<Message> messages);
+    // 发送消息的回调：onError 带上 HTTP 状态码，调用方据此区分可重试（5xx）和不可重试（4xx）的错误
+    public interface SendMessageCallback {
+        // 2xx 即为确认；响应体无法解析时 serverMessageId 为 null
+        void onSuccess(String serverMessageId);
+        void onError(int statusCode, String message);
+        void onFailure(IOException e);
+    }
+
+    // 增量同步一页的回调；hasMore 为 true 时以本页最后一条的时间继续拉取
+    public interface MessageSyncCallback {
+        void onSuccess(List<Message> messages, boolean hasMore);
         void onError(String message);
         void onFailure(IOException e);
     }
 
+    // 所有回调统一投递到主线程（以前在 OkHttp 线程回调）
+    private static void deliver(Runnable callbackCall) {
+        CallbackDispatcher.get().post(callbackCall);
+    }
+
     // 注册用户
     public static void register(String account, String email, String password, String confirmedPassword, String photo, UserCallback callback) {
-        OkHttpClient client = HttpClient.getClient();
         String url = HttpClient.BASE_URL + "api/auth/register";
 
         JSONObject requestBody = new JSONObject();
@@ -51,7 +67,7 @@ public class UserApi {
             requestBody.put("password", password);
         } catch (JSONException e) {
             if (callback != null) {
-                callback.onError("Request body error");
+                deliver(() -> callback.onError("Request body error"));
             }
             return;
         }
@@ -62,11 +78,11 @@ public class UserApi {
                 .post(body)
                 .build();
 
-        client.newCall(request).enqueue(new Callback() {
+        HttpClient.newCall(request).enqueue(new Callback() {
             @Override
             public void onFailure(Call call, IOException e) {
                 if (callback != null) {
-                    callback.onFailure(e);
+                    deliver(() -> callback.onFailure(e));
                 }
             }
 
@@ -77,11 +93,11 @@ public class UserApi {
                         JSONObject responseBody = new JSONObject(response.body().string());
                         String token = responseBody.getString("token");
                         if (callback != null) {
-                            callback.onSuccess(token);
+                            deliver(() -> callback.onSuccess(token));
                         }
                     } catch (JSONException e) {
                         if (callback != null) {
-                            callback.onError("Response parsing error");
+                            deliver(() -> callback.onError("Response parsing error"));
                         }
                     }
                 } else {
@@ -99,11 +115,11 @@ public class UserApi {
                         }
                         
                         if (callback != null) {
-                            callback.onError(errorMessage);
+                            deliver(() -> callback.onError(errorMessage));
                         }
                     } catch (JSONException e) {
                         if (callback != null) {
-                            callback.onError("Error parsing error response");
+                            deliver(() -> callback.onError("Error parsing error response"));
                         }
                     }
                 }
@@ -113,7 +129,6 @@ public class UserApi {
 
     // 登录用户
     public static void login(String account, String password, UserCallback callback) {
-        OkHttpClient client = HttpClient.getClient();
         String url = HttpClient.BASE_URL + "api/auth/login";
 
         JSONObject requestBody = new JSONObject();
@@ -122,7 +137,7 @@ public class UserApi {
             requestBody.put("password", password);
         } catch (JSONException e) {
             if (callback != null) {
-                callback.onError("Request body error");
+                deliver(() -> callback.onError("Request body error"));
             }
             return;
         }
@@ -133,11 +148,11 @@ public class UserApi {
                 .post(body)
                 .build();
 
-        client.newCall(request).enqueue(new Callback() {
+        HttpClient.newCall(request).enqueue(new Callback() {
             @Override
             public void onFailure(Call call, IOException e) {
                 if (callback != null) {
-                    callback.onFailure(e);
+                    deliver(() -> callback.onFailure(e));
                 }
             }
 
@@ -148,11 +163,11 @@ public class UserApi {
                         JSONObject responseBody = new JSONObject(response.body().string());
                         String token = responseBody.getString("token");
                         if (callback != null) {
-                            callback.onSuccess(token);
+                            deliver(() -> callback.onSuccess(token));
                         }
                     } catch (JSONException e) {
                         if (callback != null) {
-                            callback.onError("Response parsing error");
+                            deliver(() -> callback.onError("Response parsing error"));
                         }
                     }
                 } else {
@@ -160,11 +175,11 @@ public class UserApi {
                         JSONObject errorBody = new JSONObject(response.body().string());
                         String errorMessage = errorBody.getString("message");
                         if (callback != null) {
-                            callback.onError(errorMessage);
+                            deliver(() -> callback.onError(errorMessage));
                         }
                     } catch (JSONException e) {
                         if (callback != null) {
-                            callback.onError("Error parsing error response");
+                            deliver(() -> callback.onError("Error parsing error response"));
                         }
                     }
                 }
@@ -174,7 +189,6 @@ public class UserApi {
 
     // 忘记密码
     public static void forget_password(String email, UserCallback callback) {
-        OkHttpClient client = HttpClient.getClient();
         String url = HttpClient.BASE_URL + "api/auth/forgot-password";
 
         JSONObject requestBody = new JSONObject();
@@ -182,7 +196,7 @@ public class UserApi {
             requestBody.put("email", email);
         } catch (JSONException e) {
             if (callback != null) {
-                callback.onError("Request body error");
+                deliver(() -> callback.onError("Request body error"));
             }
             return;
         }
@@ -193,11 +207,11 @@ public class UserApi {
                 .post(body)
                 .build();
 
-        client.newCall(request).enqueue(new Callback() {
+        HttpClient.newCall(request).enqueue(new Callback() {
             @Override
             public void onFailure(Call call, IOException e) {
                 if (callback != null) {
-                    callback.onFailure(e);
+                    deliver(() -> callback.onFailure(e));
                 }
             }
 
@@ -211,11 +225,11 @@ public class UserApi {
                             currentResetToken = responseBody.getString("resetToken");
                         }
                         if (callback != null) {
-                            callback.onSuccess(message);
+                            deliver(() -> callback.onSuccess(message));
                         }
                     } catch (JSONException e) {
                         if (callback != null) {
-                            callback.onError("Response parsing error");
+                            deliver(() -> callback.onError("Response parsing error"));
                         }
                     }
                 } else {
@@ -223,11 +237,11 @@ public class UserApi {
                         JSONObject errorBody = new JSONObject(response.body().string());
                         String errorMessage = errorBody.getString("message");
                         if (callback != null) {
-                            callback.onError(errorMessage);
+                            deliver(() -> callback.onError(errorMessage));
                         }
                     } catch (JSONException e) {
                         if (callback != null) {
-                            callback.onError("Error parsing error response");
+                            deliver(() -> callback.onError("Error parsing error response"));
                         }
                     }
                 }
@@ -240,15 +254,12 @@ public class UserApi {
         // 由于后端没有OTP验证接口，直接返回成功，并打印Token
         Log.d(TAG, "Mock verify OTP: " + otp + ", Current Token: " + currentResetToken);
         if (callback != null) {
-            new android.os.Handler(android.os.Looper.getMainLooper()).post(() -> 
-                callback.onSuccess("OTP Verified (Mock)")
-            );
+            CallbackDispatcher.get().post(() -> callback.onSuccess("OTP Verified (Mock)"));
         }
     }
 
     // 重置密码
     public static void reset_password(String email, String password, String confirmPassword, String otp, UserCallback callback) {
-        OkHttpClient client = HttpClient.getClient();
         String url = HttpClient.BASE_URL + "api/auth/reset-password";
 
         JSONObject requestBody = new JSONObject();
@@ -261,7 +272,7 @@ public class UserApi {
             requestBody.put("token", otp); // 后端接收 token
         } catch (JSONException e) {
             if (callback != null) {
-                callback.onError("Request body error");
+                deliver(() -> callback.onError("Request body error"));
             }
             return;
         }
@@ -272,11 +283,11 @@ public class UserApi {
                 .post(body)
                 .build();
 
-        client.newCall(request).enqueue(new Callback() {
+        HttpClient.newCall(request).enqueue(new Callback() {
             @Override
             public void onFailure(Call call, IOException e) {
                 if (callback != null) {
-                    callback.onFailure(e);
+                    deliver(() -> callback.onFailure(e));
                 }
             }
 
@@ -287,11 +298,11 @@ public class UserApi {
                         JSONObject responseBody = new JSONObject(response.body().string());
                         String message = responseBody.getString("message");
                         if (callback != null) {
-                            callback.onSuccess(message);
+                            deliver(() -> callback.onSuccess(message));
                         }
                     } catch (JSONException e) {
                         if (callback != null) {
-                            callback.onError("Response parsing error");
+                            deliver(() -> callback.onError("Response parsing error"));
                         }
                     }
                 } else {
@@ -299,11 +310,11 @@ public class UserApi {
                         JSONObject errorBody = new JSONObject(response.body().string());
                         String errorMessage = errorBody.getString("message");
                         if (callback != null) {
-                            callback.onError(errorMessage);
+                            deliver(() -> callback.onError(errorMessage));
                         }
                     } catch (JSONException e) {
                         if (callback != null) {
-                            callback.onError("Error parsing error response");
+                            deliver(() -> callback.onError("Error parsing error response"));
                         }
                     }
                 }
@@ -311,54 +322,66 @@ public class UserApi {
         });
     }
 
-    // 获取消息列表
-    public static void getMessages(String token, final MessageListCallback callback) {
-        OkHttpClient client = HttpClient.getClient();
-        String url = HttpClient.BASE_URL + "api/messages";
+    // 增量同步：只拉取 createdAt >= sinceMs 的消息（按时间正序，跳过最前面的 skip 条，一页最多 limit 条）；
+    // peerId 不为空时只要与该用户之间的消息。响应流式解析，不整页读成 String
+    public static void getMessagesSince(String token, long sinceMs, int skip, String peerId, int limit, final MessageSyncCallback callback) {
+        getMessagesSince(HttpUrl.get(HttpClient.BASE_URL + "api/messages"), token, sinceMs, skip, peerId, limit, callback);
+    }
+
+    // 按完整接口地址请求，测试中指向本地的模拟服务器
+    @VisibleForTesting
+    public static void getMessagesSince(HttpUrl endpoint, String token, long sinceMs, int skip, String peerId, int limit, final MessageSyncCallback callback) {
+        HttpUrl.Builder urlBuilder = endpoint.newBuilder()
+                .addQueryParameter("since", String.valueOf(sinceMs))
+                .addQueryParameter("limit", String.valueOf(limit));
+        if (skip > 0) {
+            urlBuilder.addQueryParameter("skip", String.valueOf(skip));
+        }
+        if (peerId != null && !peerId.isEmpty()) {
+            urlBuilder.addQueryParameter("peer", peerId);
+        }
 
         Request request = new Request.Builder()
-                .url(url)
+                .url(urlBuilder.build())
                 .get()
                 .addHeader("Authorization", "Bearer " + token)
                 .build();
 
-        client.newCall(request).enqueue(new Callback() {
+        HttpClient.newCall(request).enqueue(new Callback() {
             @Override
             public void onFailure(Call call, IOException e) {
                 if (callback != null) {
-                    callback.onFailure(e);
+                    deliver(() -> callback.onFailure(e));
                 }
             }
 
             @Override
             public void onResponse(Call call, Response response) throws IOException {
-                if (response.isSuccessful()) {
-                    try {
-                        // 注意：这里需要根据实际的Message类结构进行解析
-                        // 由于Message类的具体实现未知，这里只做基本的响应处理
-                        // 在实际应用中，需要将JSON响应转换为Message对象列表
-                        String responseBody = response.body().string();
-                        // 这里假设前端有相应的解析逻辑
-                        if (callback != null) {
-                            // 由于缺乏具体的Message解析逻辑，这里暂时返回空列表
-                            // 在实际应用中，需要解析responseBody并创建Message对象列表
-                            callback.onSuccess(java.util.Collections.emptyList());
+                try (ResponseBody body = response.body()) {
+                    if (response.isSuccessful()) {
+                        try {
+                            if (body == null) throw new IOException("empty body");
+                            MessageJsonReader.Page page = MessageJsonReader.readPage(body.charStream());
+                            if (callback != null) {
+                                deliver(() -> callback.onSuccess(page.messages, page.hasMore));
+                            }
+                        } catch (Exception e) {
+                            Log.e(TAG, "解析消息同步结果失败: " + e.getMessage());
+                            if (callback != null) {
+                                deliver(() -> callback.onError("Response parsing error"));
+                            }
                         }
-                    } catch (Exception e) {
-                        if (callback != null) {
-                            callback.onError("Response parsing error");
-                        }
-                    }
-                } else {
-                    try {
-                        JSONObject errorBody = new JSONObject(response.body().string());
-                        String errorMessage = errorBody.getString("message");
-                        if (callback != null) {
-                            callback.onError(errorMessage);
-                        }
-                    } catch (JSONException e) {
-                        if (callback != null) {
-                            callback.onError("Error parsing error response");
+                    } else {
+                        try {
+                            JSONObject errorBody = new JSONObject(body != null ? body.string() : "");
+                            String errorMessage = errorBody.optString("message", "HTTP " + response.code());
+                            if (callback != null) {
+                                deliver(() -> callback.onError(errorMessage));
+                            }
+                        } catch (JSONException e) {
+                            if (callback != null) {
+                                deliver(() -> callback.onError("Error parsing error response"));
+                            }
                         }
                     }
                 }
@@ -366,18 +389,23 @@ public class UserApi {
         });
     }
 
-    // 发送消息
-    public static void sendMessage(String token, String receiverId, String content, UserCallback callback) {
-        OkHttpClient client = HttpClient.getClient();
-        String url = HttpClient.BASE_URL + "api/messages";
+    // 发送消息；clientMsgId 由客户端生成，重发同一条消息时服务端据此去重
+    public static void sendMessage(String token, String receiverId, String clientMsgId, String content, SendMessageCallback callback) {
+        sendMessage(HttpUrl.get(HttpClient.BASE_URL + "api/messages"), token, receiverId, clientMsgId, content, callback);
+    }
 
+    // 按完整接口地址请求，测试中指向本地的模拟服务器
+    @VisibleForTesting
+    public static void sendMessage(HttpUrl url, String token, String receiverId, String clientMsgId, String content,
+                                   SendMessageCallback callback) {
         JSONObject requestBody = new JSONObject();
         try {
             requestBody.put("receiverId", receiverId);
             requestBody.put("content", content);
+            requestBody.put("clientMsgId", clientMsgId);
         } catch (JSONException e) {
             if (callback != null) {
-                callback.onError("Request body error");
+                deliver(() -> callback.onError(0, "Request body error"));
             }
             return;
         }
@@ -389,39 +417,44 @@ public class UserApi {
                 .addHeader("Authorization", "Bearer " + token)
                 .build();
 
-        client.newCall(request).enqueue(new Callback() {
+        HttpClient.newCall(request).enqueue(new Callback() {
             @Override
             public void onFailure(Call call, IOException e) {
                 if (callback != null) {
-                    callback.onFailure(e);
+                    deliver(() -> callback.onFailure(e));
                 }
             }
 
             @Override
             public void onResponse(Call call, Response response) throws IOException {
+                int code = response.code();
                 if (response.isSuccessful()) {
+                    // 201 新建，200 表示服务端已有这条消息（重发），两种都算确认。
+                    // 状态码已经说明服务端收下了消息，响应体读不出或解析失败只是拿不到服务端 id，
+                    // 不能当成发送失败（否则发件箱会标记为失败，用户重发会产生重复消息）
+                    String serverMessageId = null;
                     try {
                         JSONObject responseBody = new JSONObject(response.body().string());
-                        String message = responseBody.getString("message");
-                        if (callback != null) {
-                            callback.onSuccess(message);
-                        }
-                    } catch (JSONException e) {
-                        if (callback != null) {
-                            callback.onError("Response parsing error");
-                        }
+                        JSONObject data = responseBody.optJSONObject("data");
+                        serverMessageId = data != null ? data.optString("_id", null) : null;
+                    } catch (JSONException | IOException e) {
+                        Log.w(TAG, "发送成功(" + code + ")但响应无法解析，按已确认处理: " + e.getMessage());
+                    }
+                    String finalServerMessageId = serverMessageId;
+                    if (callback != null) {
+                        deliver(() -> callback.onSuccess(finalServerMessageId));
                     }
                 } else {
+                    String errorMessage;
                     try {
                         JSONObject errorBody = new JSONObject(response.body().string());
-                        String errorMessage = errorBody.getString("message");
-                        if (callback != null) {
-                            callback.onError(errorMessage);
-                        }
+                        errorMessage = errorBody.optString("message", "HTTP " + code);
                     } catch (JSONException e) {
-                        if (callback != null) {
-                            callback.onError("Error parsing error response");
-                        }
+                        errorMessage = "Error parsing error response";
+                    }
+                    String finalErrorMessage = errorMessage;
+                    if (callback != null) {
+                        deliver(() -> callback.onError(code, finalErrorMessage));
                     }
                 }
             }
@@ -0,0 +1,288 @@
+package com.example.firsttry.remote;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.text.TextUtils;
+import android.util.Log;
+
+import androidx.lifecycle.Lifecycle;
+import androidx.lifecycle.LifecycleEventObserver;
+import androidx.lifecycle.LifecycleOwner;
+
+import com.example.firsttry.Database.DbExecutor;
+import com.example.firsttry.Database.UserDbHelper;
+import com.example.firsttry.activity.message.Message;
+import com.example.firsttry.activity.message.chat.ChatMessage;
+import com.example.firsttry.remote.Http.UserApi;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 消息增量同步（补洞），替代原来"本地没有记录时整表下载一次"的做法。
+ * - UserDbHelper.sync_state 里记录水位：SYNC_ALL 是整个收件箱，另外每个会话（conv_id）各有一个
+ * - 只请求水位之后的消息（since，含边界；同一次同步内用 skip 跳过边界上已拿到的消息，
+ *   跨次同步时边界上重复返回的消息按 msg_id 去重），
+ *   流式解析后整页在一个事务里批量写入并推进水位，hasMore 时接着拉下一页（见 processPage）
+ * - WebSocket 每次（重新）连上后调用 syncAll()，断线期间漏掉的推送都会补回来；
+ *   聊天页打开时调用 syncConversation()，水位取会话水位和全局水位中较新的一个
+ * - 写入了新消息时通知监听器（主线程），附带同一事务更新后回读的会话行：聊天页据此刷新，会话列表按行 upsert
+ * - 读写数据库失败时复位这个水位的同步状态，稍后自动重试（连续失败有上限）
+ * 所有方法在主线程调用；同一个水位同一时刻只有一个同步在跑。
+ */
+public class MessageSync {
+
+    private static final String TAG = "MessageSync";
+    private static final int PAGE_LIMIT = 200;
+    private static final long DB_RETRY_DELAY_MS = 5000;
+    private static final int MAX_DB_RETRIES = 3;
+
+    public interface SyncListener {
+        // 本次同步写入了新消息的会话（conv_id），以及写库后回读的这些会话行（预览、未读数已更新）
+        void onMessagesSynced(Set<String> conversationIds, List<Message> conversations);
+    }
+
+    private static volatile MessageSync instance;
+
+    private final Context appContext;
+    private final UserDbHelper dbHelper;
+    private final DbExecutor dbExecutor = DbExecutor.getInstance();
+    private final CallbackDispatcher dispatcher = CallbackDispatcher.get();
+    private final List<SyncListener> listeners = new ArrayList<>();
+    // 正在同步的水位 key
+    private final Set<String> running = new HashSet<>();
+    // 水位 key -> 连续的数据库失败次数，同步成功后清零
+    private final Map<String, Integer> dbFailures = new HashMap<>();
+
+    // 指标
+    private int requests;
+    private int received;
+    private int inserted;
+    private int errors;
+
+    public static void init(Context context) {
+        if (instance == null) {
+            synchronized (MessageSync.class) {
+                if (instance == null) {
+                    instance = new MessageSync(context.getApplicationContext());
+                }
+            }
+        }
+    }
+
+    public static MessageSync getInstance() {
+        if (instance == null) {
+            throw new IllegalStateException("MessageSync 未初始化，请先在 App.onCreate 中调用 init");
+        }
+        return instance;
+    }
+
+    private MessageSync(Context context) {
+        appContext = context;
+        dbHelper = UserDbHelper.getInstance(context);
+    }
+
+    // 绑定生命周期：立即开始监听，ON_DESTROY 时移除
+    public void observe(LifecycleOwner owner, SyncListener listener) {
+        listeners.add(listener);
+        owner.getLifecycle().addObserver(new LifecycleEventObserver() {
+            @Override
+            public void onStateChanged(LifecycleOwner source, Lifecycle.Event event) {
+                if (event == Lifecycle.Event.ON_DESTROY) {
+                    listeners.remove(listener);
+                    source.getLifecycle().removeObserver(this);
+                }
+            }
+        });
+    }
+
+    // 补齐整个收件箱（WebSocket 连上后调用）
+    public void syncAll() {
+        start(UserDbHelper.SYNC_ALL, null);
+    }
+
+    // 补齐单个会话；peerId 为对方用户 id，为空时退化为整个收件箱
+    public void syncConversation(String conversationId, String peerId) {
+        if (TextUtils.isEmpty(conversationId) || TextUtils.isEmpty(peerId)) {
+            syncAll();
+            return;
+        }
+        start(conversationId, peerId);
+    }
+
+    public String getStats() {
+        return "requests=" + requests + ", received=" + received + ", inserted=" + inserted + ", errors=" + errors;
+    }
+
+    private void start(String key, String peerId) {
+        if (!running.add(key)) return;
+        SharedPreferences prefs = appContext.getSharedPreferences("app_prefs", Context.MODE_PRIVATE);
+        String currentUsername = prefs.getString("account", "");
+        if (TextUtils.isEmpty(currentUsername)) {
+            running.remove(key);
+            return;
+        }
+        // token 和水位都在写队列里读，排在之前的同步写入之后
+        dbExecutor.write(null, () -> {
+            long since = dbHelper.getSyncHighWaterMark(key);
+            if (!UserDbHelper.SYNC_ALL.equals(key)) {
+                // 全局同步已经覆盖到的时间，单个会话不需要再拉
+                since = Math.max(since, dbHelper.getSyncHighWaterMark(UserDbHelper.SYNC_ALL));
+            }
+            return new SyncStart(dbHelper.getUserToken(currentUsername), since);
+        }, syncStart -> {
+            if (TextUtils.isEmpty(syncStart.token)) {
+                running.remove(key);
+                return;
+            }
+            fetchPage(key, peerId, currentUsername, syncStart.token, syncStart.sinceMs, 0);
+        }, e -> onDbFailure(key, peerId));
+    }
+
+    private void fetchPage(String key, String peerId, String currentUsername, String token, long sinceMs, int skip) {
+        requests++;
+        UserApi.getMessagesSince(token, sinceMs, skip, peerId, PAGE_LIMIT, new UserApi.MessageSyncCallback() {
+            @Override
+            public void onSuccess(List<Message> messages, boolean hasMore) {
+                received += messages.size();
+                SyncPage page = processPage(currentUsername, messages, hasMore, sinceMs, skip);
+                dbExecutor.write(null, () -> {
+                    int count = dbHelper.applySyncedMessages(key, page.chatMessages, page.highWaterMarkMs);
+                    // 有新消息时在写队列里顺便回读受影响的会话，会话列表不用整表重读
+                    List<Message> conversations = count > 0
+                            ? dbHelper.loadConversations(page.conversations) : new ArrayList<>();
+                    return new SyncWrite(count, conversations);
+                }, write -> {
+                    inserted += write.inserted;
+                    if (write.inserted > 0) {
+                        Log.d(TAG, "同步 " + key + "：新增 " + write.inserted + " 条消息");
+                        notifySynced(page.conversations, write.conversations);
+                    }
+                    if (page.continuePaging) {
+                        fetchPage(key, peerId, currentUsername, token, page.highWaterMarkMs, page.nextSkip);
+                    } else {
+                        dbFailures.remove(key);
+                        running.remove(key);
+                    }
+                }, e -> onDbFailure(key, peerId));
+            }
+
+            @Override
+            public void onError(String message) {
+                errors++;
+                running.remove(key);
+                Log.e(TAG, "同步 " + key + " 失败: " + message);
+            }
+
+            @Override
+            public void onFailure(IOException e) {
+                // 网络失败不重试：下次重连或打开聊天页时会从同一水位继续
+                errors++;
+                running.remove(key);
+                Log.w(TAG, "同步 " + key + " 网络失败: " + e.getMessage());
+            }
+        });
+    }
+
+    // 数据库异常：放开这个水位，稍后从库里的水位重新开始；连续失败太多次就等下次重连或打开聊天页
+    private void onDbFailure(String key, String peerId) {
+        errors++;
+        running.remove(key);
+        Integer previous = dbFailures.get(key);
+        int failures = previous == null ? 1 : previous + 1;
+        dbFailures.put(key, failures);
+        if (failures > MAX_DB_RETRIES) {
+            Log.e(TAG, "同步 " + key + " 数据库连续失败 " + failures + " 次，暂停重试");
+            dbFailures.remove(key);
+            return;
+        }
+        Log.w(TAG, "同步 " + key + " 数据库失败，" + DB_RETRY_DELAY_MS + "ms 后重试");
+        dispatcher.postDelayed(() -> start(key, peerId), DB_RETRY_DELAY_MS);
+    }
+
+    /**
+     * 把一页同步结果转换成聊天记录，并算出新水位和下一页的起点。
+     * 服务端按 (createdAt, _id) 正序返回 createdAt >= since 的消息并跳过前 skip 条，所以：
+     * - 水位前进时，下一页从新水位开始，跳过本页落在新水位这一毫秒上的消息（它们已经拿到了）
+     * - 整页都在 since 这一毫秒上（水位没有前进）时，保持 since，skip 累加本页条数，不会反复请求同一页
+     */
+    static SyncPage processPage(String currentUsername, List<Message> messages, boolean hasMore, long sinceMs, int skip) {
+        long highWaterMark = sinceMs;
+        Set<String> conversations = new HashSet<>();
+        List<ChatMessage> chatMessages = new ArrayList<>(messages.size());
+        for (Message msg : messages) {
+            boolean isSentByMe = currentUsername.equals(msg.getSenderName());
+            String conversationPartner = isSentByMe ? msg.getReceiver() : msg.getSenderName();
+            chatMessages.add(new ChatMessage(
+                    msg.getId(), conversationPartner, msg.getSenderName(),
+                    msg.getReceiver(), msg.getContent(), msg.getTime(), msg.getTimeMillis(), isSentByMe
+            ));
+            conversations.add(conversationPartner);
+            highWaterMark = Math.max(highWaterMark, msg.getTimeMillis());
+        }
+
+        int nextSkip;
+        if (highWaterMark == sinceMs) {
+            nextSkip = skip + messages.size();
+        } else {
+            nextSkip = 0;
+            for (Message msg : messages) {
+                if (msg.getTimeMillis() == highWaterMark) nextSkip++;
+            }
+        }
+        return new SyncPage(chatMessages, conversations, highWaterMark, nextSkip, hasMore && !messages.isEmpty());
+    }
+
+    private void notifySynced(Set<String> conversationIds, List<Message> conversations) {
+        for (SyncListener listener : new ArrayList<>(listeners)) {
+            listener.onMessagesSynced(conversationIds, conversations);
+        }
+    }
+
+    // 一页同步结果的处理结果
+    static final class SyncPage {
+        final List<ChatMessage> chatMessages;
+        // 本页涉及的会话（conv_id）
+        final Set<String> conversations;
+        final long highWaterMarkMs;
+        // 下一页的 skip（since 为 highWaterMarkMs）
+        final int nextSkip;
+        final boolean continuePaging;
+
+        SyncPage(List<ChatMessage> chatMessages, Set<String> conversations, long highWaterMarkMs,
+                 int nextSkip, boolean continuePaging) {
+            this.chatMessages = chatMessages;
+            this.conversations = conversations;
+            this.highWaterMarkMs = highWaterMarkMs;
+            this.nextSkip = nextSkip;
+            this.continuePaging = continuePaging;
+        }
+    }
+
+    // 一页同步结果写库后的结果
+    private static final class SyncWrite {
+        final int inserted;
+        final List<Message> conversations;
+
+        SyncWrite(int inserted, List<Message> conversations) {
+            this.inserted = inserted;
+            this.conversations = conversations;
+        }
+    }
+
+    // 一次同步的起点
+    private static final class SyncStart {
+        final String token;
+        final long sinceMs;
+
+        SyncStart(String token, long sinceMs) {
+            this.token = token;
+            this.sinceMs = sinceMs;
+        }
+    }
+}
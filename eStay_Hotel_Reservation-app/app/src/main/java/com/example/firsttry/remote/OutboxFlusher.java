@@ -0,0 +1,205 @@
+package com.example.firsttry.remote;
+
+import android.content.Context;
+import android.util.Log;
+
+import androidx.lifecycle.Lifecycle;
+import androidx.lifecycle.LifecycleEventObserver;
+import androidx.lifecycle.LifecycleOwner;
+
+import com.example.firsttry.Database.DbExecutor;
+import com.example.firsttry.Database.OutboxEntry;
+import com.example.firsttry.Database.UserDbHelper;
+import com.example.firsttry.remote.Http.UserApi;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 发件箱的后台发送器，替代原来"直接 POST，失败了再用 socket emit 一次"的发送方式。
+ * - 发送时先把消息写进 outbox 表（带客户端生成的 clientMsgId）就返回，界面不等网络
+ * - 按入队顺序逐条 POST，同一时刻只有一个请求在途，对方收到的顺序与发送顺序一致
+ * - 服务端确认（2xx）后标记为已确认；服务端按 (发送者, clientMsgId) 去重，重发不会产生重复消息
+ * - 网络错误或 5xx：停在这一条，按指数退避稍后重试；连接恢复（WebSocket 重新连上）时立即重试
+ * - 4xx：服务端明确拒绝，标记失败，不阻塞后面的消息
+ * 所有方法在主线程调用，数据库操作走 DbExecutor 写队列（读-改-写需要与入队、确认串行）。
+ */
+public class OutboxFlusher {
+
+    private static final String TAG = "OutboxFlusher";
+    private static final int BATCH_SIZE = 20;
+    private static final long RETRY_BASE_DELAY_MS = 2000;
+    private static final long RETRY_MAX_DELAY_MS = 60_000;
+    // 已确认的行保留一天
+    private static final long ACKED_RETENTION_MS = 24L * 60 * 60 * 1000;
+
+    // 消息发送结果（主线程回调），聊天页据此更新"发送中/失败"
+    public interface OutboxListener {
+        // state 为 OutboxEntry.STATE_ACKED 或 STATE_FAILED
+        void onOutboxStateChanged(String clientMsgId, int state);
+    }
+
+    private static volatile OutboxFlusher instance;
+
+    private final UserDbHelper dbHelper;
+    private final DbExecutor dbExecutor = DbExecutor.getInstance();
+    private final CallbackDispatcher dispatcher = CallbackDispatcher.get();
+    private final Runnable retryRunnable = this::flush;
+    private final List<OutboxListener> listeners = new ArrayList<>();
+
+    private boolean flushing = false;
+    // 发送过程中又有新消息入队或收到了 flush 请求，本轮结束后再跑一轮
+    private boolean flushRequested = false;
+    private int retryAttempt = 0;
+
+    // 指标
+    private int sent;
+    private int acked;
+    private int failed;
+    private int retries;
+
+    public static void init(Context context) {
+        if (instance == null) {
+            synchronized (OutboxFlusher.class) {
+                if (instance == null) {
+                    instance = new OutboxFlusher(context.getApplicationContext());
+                }
+            }
+        }
+    }
+
+    public static OutboxFlusher getInstance() {
+        if (instance == null) {
+            throw new IllegalStateException("OutboxFlusher 未初始化，请先在 App.onCreate 中调用 init");
+        }
+        return instance;
+    }
+
+    private OutboxFlusher(Context context) {
+        dbHelper = UserDbHelper.getInstance(context);
+    }
+
+    // 绑定生命周期：立即开始监听，ON_DESTROY 时移除
+    public void observe(LifecycleOwner owner, OutboxListener listener) {
+        listeners.add(listener);
+        owner.getLifecycle().addObserver(new LifecycleEventObserver() {
+            @Override
+            public void onStateChanged(LifecycleOwner source, Lifecycle.Event event) {
+                if (event == Lifecycle.Event.ON_DESTROY) {
+                    listeners.remove(listener);
+                    source.getLifecycle().removeObserver(this);
+                }
+            }
+        });
+    }
+
+    // 入队一条消息并尝试发送；clientMsgId 同时用作本地聊天记录的 msg_id
+    public void enqueue(String token, String receiverId, String clientMsgId, String content) {
+        long now = System.currentTimeMillis();
+        dbExecutor.write(null, () -> {
+            dbHelper.purgeAckedOutbox(now - ACKED_RETENTION_MS);
+            return dbHelper.enqueueOutbox(clientMsgId, receiverId, content, token, now);
+        }, rowId -> flush(), e -> {
+            // 没能落库，这条消息不会被发送
+            failed++;
+            notifyStateChanged(clientMsgId, OutboxEntry.STATE_FAILED);
+        });
+    }
+
+    // 立即发送所有待发送的消息（连接恢复时调用）；正在发送时只做标记
+    public void flush() {
+        if (flushing) {
+            flushRequested = true;
+            return;
+        }
+        dispatcher.remove(retryRunnable);
+        flushing = true;
+        flushRequested = false;
+        // 读取失败时按网络错误处理：复位 flushing 并退避重试，否则发件箱会一直停在"发送中"
+        dbExecutor.write(null, () -> dbHelper.loadPendingOutbox(BATCH_SIZE), this::sendBatch, e -> finishFlush(true));
+    }
+
+    public String getStats() {
+        return "sent=" + sent + ", acked=" + acked + ", failed=" + failed + ", retries=" + retries
+                + ", retryAttempt=" + retryAttempt;
+    }
+
+    private void sendBatch(List<OutboxEntry> batch) {
+        if (batch == null || batch.isEmpty()) {
+            finishFlush(false);
+            return;
+        }
+        Log.d(TAG, "发送 " + batch.size() + " 条待发送消息");
+        sendNext(batch, 0);
+    }
+
+    private void sendNext(List<OutboxEntry> batch, int index) {
+        if (index >= batch.size()) {
+            // 这一批发完了，可能还有下一批
+            flushing = false;
+            flush();
+            return;
+        }
+        OutboxEntry entry = batch.get(index);
+        sent++;
+        UserApi.sendMessage(entry.getToken(), entry.getReceiverId(), entry.getClientMsgId(), entry.getContent(),
+                new UserApi.SendMessageCallback() {
+                    @Override
+                    public void onSuccess(String serverMessageId) {
+                        acked++;
+                        retryAttempt = 0;
+                        long now = System.currentTimeMillis();
+                        dbExecutor.write(() -> dbHelper.markOutboxAcked(entry.getClientMsgId(), serverMessageId, now));
+                        notifyStateChanged(entry.getClientMsgId(), OutboxEntry.STATE_ACKED);
+                        sendNext(batch, index + 1);
+                    }
+
+                    @Override
+                    public void onError(int statusCode, String message) {
+                        long now = System.currentTimeMillis();
+                        if (statusCode >= 500 || statusCode == 429) {
+                            Log.w(TAG, "服务端暂时不可用(" + statusCode + ")，稍后重试: " + message);
+                            dbExecutor.write(() -> dbHelper.markOutboxAttempt(entry.getClientMsgId(), now));
+                            finishFlush(true);
+                            return;
+                        }
+                        Log.e(TAG, "消息被服务端拒绝(" + statusCode + ")，不再重试: " + message);
+                        failed++;
+                        dbExecutor.write(() -> dbHelper.markOutboxFailed(entry.getClientMsgId(), now));
+                        notifyStateChanged(entry.getClientMsgId(), OutboxEntry.STATE_FAILED);
+                        sendNext(batch, index + 1);
+                    }
+
+                    @Override
+                    public void onFailure(IOException e) {
+                        Log.w(TAG, "消息发送失败，稍后重试: " + e.getMessage());
+                        long now = System.currentTimeMillis();
+                        dbExecutor.write(() -> dbHelper.markOutboxAttempt(entry.getClientMsgId(), now));
+                        finishFlush(true);
+                    }
+                });
+    }
+
+    private void notifyStateChanged(String clientMsgId, int state) {
+        for (OutboxListener listener : new ArrayList<>(listeners)) {
+            listener.onOutboxStateChanged(clientMsgId, state);
+        }
+    }
+
+    private void finishFlush(boolean retryLater) {
+        flushing = false;
+        if (retryLater) {
+            // 停在失败的这一条，保证顺序；退避期间新的 enqueue/flush 会直接触发重试
+            long delay = Math.min(RETRY_BASE_DELAY_MS << Math.min(retryAttempt, 10), RETRY_MAX_DELAY_MS);
+            retryAttempt++;
+            retries++;
+            flushRequested = false;
+            dispatcher.postDelayed(retryRunnable, delay);
+            return;
+        }
+        if (flushRequested) {
+            flush();
+        }
+    }
+}
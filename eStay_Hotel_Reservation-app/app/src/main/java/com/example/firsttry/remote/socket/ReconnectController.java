@@ -0,0 +1,211 @@
+package com.example.firsttry.remote.socket;
+
+import android.util.Log;
+
+import com.example.firsttry.remote.CallbackDispatcher;
+
+import java.util.Random;
+
+/**
+ * WebSocket 唯一的重连入口（状态机），替代原来 onDisconnect / onConnectError / 5 秒定时检查三处各自重连，
+ * 以及 Socket.IO 自带的 reconnection（在 WebSocketManager 中已关闭）。
+ * - 断开或连接失败后按指数退避重试：1s, 2s, 4s ... 封顶 60s，每次延迟在 [d/2, d] 内随机（jitter），
+ *   服务端重启时客户端不会同时涌入
+ * - 同一时刻最多只有一个待执行的重连；重复的断开/错误事件会被忽略
+ * - App 在后台或没有网络时暂停重连；回到前台/网络恢复时立即重连并重置退避
+ * - 记录连接耗时、重连次数等指标，getStats() 可查看
+ * 定时器通过 CallbackDispatcher 调度，所有方法都在同一线程（主线程）调用；
+ * 测试时可传入 TestCallbackDispatcher 和假的 Transport 模拟 Socket.IO 服务端。
+ */
+public class ReconnectController {
+
+    private static final String TAG = "ReconnectController";
+
+    public static final long DEFAULT_BASE_DELAY_MS = 1000;
+    public static final long DEFAULT_MAX_DELAY_MS = 60_000;
+
+    // 实际的连接，由 WebSocketManager 用 Socket.IO 实现
+    public interface Transport {
+        void open();
+        void close();
+    }
+
+    // 时间来源：默认系统时钟，测试时用虚拟时钟
+    public interface Clock {
+        long now();
+    }
+
+    public enum State {
+        IDLE,        // 未启动或已 stop
+        CONNECTING,  // 已调用 open，等待结果
+        CONNECTED,
+        WAITING,     // 已安排下一次重连
+        PAUSED       // 需要连接，但在后台或无网络
+    }
+
+    private final Transport transport;
+    private final CallbackDispatcher dispatcher;
+    private final Clock clock;
+    private final Random random;
+    private final long baseDelayMs;
+    private final long maxDelayMs;
+
+    private State state = State.IDLE;
+    private boolean foreground = true;
+    private boolean networkAvailable = true;
+    private int attempt = 0;
+    private long connectStartedAt;
+    private final Runnable retryRunnable = this::onRetryTimer;
+
+    // 指标
+    private int connectAttempts;
+    private int connects;
+    private int reconnects;
+    private int failures;
+    private long lastConnectLatencyMs;
+    private long totalConnectLatencyMs;
+    private long lastBackoffMs;
+
+    public ReconnectController(Transport transport) {
+        this(transport, CallbackDispatcher.get(), System::currentTimeMillis, new Random(),
+                DEFAULT_BASE_DELAY_MS, DEFAULT_MAX_DELAY_MS);
+    }
+
+    public ReconnectController(Transport transport, CallbackDispatcher dispatcher, Clock clock, Random random,
+                               long baseDelayMs, long maxDelayMs) {
+        this.transport = transport;
+        this.dispatcher = dispatcher;
+        this.clock = clock;
+        this.random = random;
+        this.baseDelayMs = baseDelayMs;
+        this.maxDelayMs = maxDelayMs;
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    // 需要保持连接
+    public void start() {
+        if (state != State.IDLE) return;
+        attempt = 0;
+        connectOrPause();
+    }
+
+    // 不再需要连接：取消待执行的重连并关闭连接
+    public void stop() {
+        dispatcher.remove(retryRunnable);
+        State previous = state;
+        state = State.IDLE;
+        if (previous == State.CONNECTING || previous == State.CONNECTED) {
+            transport.close();
+        }
+    }
+
+    public void setForeground(boolean foreground) {
+        if (this.foreground == foreground) return;
+        this.foreground = foreground;
+        onConditionsChanged();
+    }
+
+    public void setNetworkAvailable(boolean available) {
+        if (this.networkAvailable == available) return;
+        this.networkAvailable = available;
+        onConditionsChanged();
+    }
+
+    // ---- Transport 事件 ----
+
+    public void onConnected() {
+        // WAITING：旧连接迟到的断开事件已经安排了重试，但这次连接其实成功了
+        if (state != State.CONNECTING && state != State.WAITING) return;
+        dispatcher.remove(retryRunnable);
+        long latency = clock.now() - connectStartedAt;
+        lastConnectLatencyMs = latency;
+        totalConnectLatencyMs += latency;
+        if (connects > 0) reconnects++;
+        connects++;
+        attempt = 0;
+        state = State.CONNECTED;
+        Log.d(TAG, "已连接，耗时 " + latency + "ms");
+    }
+
+    // 断开和连接失败走同一条路径；已在等待或暂停时重复的事件直接忽略
+    public void onDisconnected() {
+        if (state != State.CONNECTING && state != State.CONNECTED) return;
+        if (state == State.CONNECTING) failures++;
+        scheduleRetryOrPause();
+    }
+
+    public String getStats() {
+        return "state=" + state + ", attempts=" + connectAttempts + ", connects=" + connects
+                + ", reconnects=" + reconnects + ", failures=" + failures
+                + ", lastLatency=" + lastConnectLatencyMs + "ms, avgLatency="
+                + (connects == 0 ? 0 : totalConnectLatencyMs / connects) + "ms, lastBackoff=" + lastBackoffMs + "ms";
+    }
+
+    // ---- 内部状态转换 ----
+
+    private boolean canConnect() {
+        return foreground && networkAvailable;
+    }
+
+    private void onConditionsChanged() {
+        if (state == State.IDLE) return;
+        if (!canConnect()) {
+            // 已建立的连接保留；只是不再安排新的重连
+            if (state == State.WAITING) {
+                dispatcher.remove(retryRunnable);
+                state = State.PAUSED;
+            }
+            return;
+        }
+        if (state == State.PAUSED || state == State.WAITING) {
+            // 条件恢复：立即重连，退避从头开始
+            dispatcher.remove(retryRunnable);
+            attempt = 0;
+            connectNow();
+        }
+    }
+
+    private void connectOrPause() {
+        if (canConnect()) {
+            connectNow();
+        } else {
+            state = State.PAUSED;
+        }
+    }
+
+    private void scheduleRetryOrPause() {
+        if (!canConnect()) {
+            state = State.PAUSED;
+            return;
+        }
+        long delay = nextDelay();
+        lastBackoffMs = delay;
+        attempt++;
+        state = State.WAITING;
+        Log.d(TAG, "第 " + attempt + " 次重连将在 " + delay + "ms 后进行");
+        dispatcher.postDelayed(retryRunnable, delay);
+    }
+
+    private void onRetryTimer() {
+        if (state != State.WAITING) return;
+        connectOrPause();
+    }
+
+    private void connectNow() {
+        state = State.CONNECTING;
+        connectAttempts++;
+        connectStartedAt = clock.now();
+        transport.open();
+    }
+
+    // 指数退避：base * 2^attempt，封顶 max；在 [d/2, d] 内随机
+    long nextDelay() {
+        long delay = baseDelayMs << Math.min(attempt, 20);
+        if (delay <= 0 || delay > maxDelayMs) delay = maxDelayMs;
+        long half = delay / 2;
+        return half + (long) (random.nextDouble() * (delay - half));
+    }
+}
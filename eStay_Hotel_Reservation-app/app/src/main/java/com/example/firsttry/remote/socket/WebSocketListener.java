@@ -1,10 +1,15 @@
 // AppWebSocketListener.java (新文件)
 package com.example.firsttry.remote.socket;
 
+import com.example.firsttry.activity.message.Message;
+
+import java.util.List;
+
 public interface WebSocketListener {
-    // 当收到新的WebSocket消息时被调用
-    void onWebSocketMessage(String text);
+    // 收到新消息时在主线程调用：消息已由 WebSocketManager 解析好，
+    // 同一帧内到达的消息合并为一批，且只包含该监听器订阅的会话
+    void onWebSocketMessages(List<Message> messages);
 
     // 当WebSocket状态变化时被调用 (可选，但推荐)
     void onWebSocketStatusChanged(String status);
-}
\ No newline at end of file
+}
@@ -1,15 +1,37 @@
 package com.example.firsttry.remote.socket;
 
+import android.app.Activity;
+import android.app.Application;
+import android.content.Context;
+import android.net.ConnectivityManager;
+import android.net.Network;
+import android.net.NetworkCapabilities;
+import android.net.NetworkInfo;
+import android.net.NetworkRequest;
+import android.os.Bundle;
 import android.os.Handler;
 import android.os.Looper;
 import android.util.Log;
+import android.view.Choreographer;
 
-import org.json.JSONException;
+import androidx.lifecycle.Lifecycle;
+import androidx.lifecycle.LifecycleEventObserver;
+import androidx.lifecycle.LifecycleOwner;
+
+import com.example.firsttry.activity.message.Message;
+import com.example.firsttry.remote.MessageSync;
+import com.example.firsttry.remote.OutboxFlusher;
+
+import org.json.JSONArray;
 import org.json.JSONObject;
-import java.io.IOException;
 import java.net.URISyntaxException;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 import io.socket.client.IO;
 import io.socket.client.Socket;
@@ -18,25 +40,30 @@ import io.socket.emitter.Emitter;
 public class WebSocketManager {
 
     private static final String TAG = "WebSocketManager";
-    // WebSocket服务器地址 - 模拟器专用地址
-    private static final String SOCKET_SERVER_URL = "http://10.0.2.2:5000";
+    // WebSocket服务器地址 - 与 HTTP 接口同一后端（去掉末尾的 /）
+    private static final String SOCKET_SERVER_URL = com.example.firsttry.remote.Http.HttpClient.BASE_URL
+            .substring(0, com.example.firsttry.remote.Http.HttpClient.BASE_URL.length() - 1);
     private static volatile WebSocketManager instance;
     private Socket mSocket;
     private boolean isConnected = false;
-    private final List<WebSocketListener> listeners = new ArrayList<>();
+    // 写少读多：增删监听器时复制，分发时直接遍历快照，不再每条消息复制一次
+    private final List<Subscription> listeners = new CopyOnWriteArrayList<>();
+    // socket 线程解析好的消息，等下一帧在主线程一次性分发；由 pendingMessages 自身加锁
+    private final List<Message> pendingMessages = new ArrayList<>();
+    private boolean frameScheduled = false;
+    private final Choreographer.FrameCallback dispatchFrame = frameTimeNanos -> dispatchPendingMessages();
     private Handler handler = new Handler(Looper.getMainLooper());
     private String currentUserId;
-    // 添加连接检查定时器
-    private Runnable connectionCheckRunnable;
-    // 连接检查间隔（毫秒）
-    private static final long CONNECTION_CHECK_INTERVAL = 5000;
+    // 唯一的重连入口：指数退避 + jitter，后台/断网时暂停
+    private final ReconnectController reconnectController;
+    private int startedActivities = 0;
 
     private WebSocketManager() {
         try {
             // 初始化Socket.IO客户端
             IO.Options options = new IO.Options();
-            options.reconnectionAttempts = 5;
-            options.reconnectionDelay = 1000;
+            // 关闭 Socket.IO 自带的重连，统一由 ReconnectController 负责，避免多条重连路径叠加
+            options.reconnection = false;
             options.timeout = 10000;
             
             mSocket = IO.socket(SOCKET_SERVER_URL, options);
@@ -49,6 +76,80 @@ public class WebSocketManager {
         } catch (URISyntaxException e) {
             Log.e(TAG, "WebSocket初始化失败: " + e.getMessage());
         }
+        reconnectController = new ReconnectController(new ReconnectController.Transport() {
+            @Override
+            public void open() {
+                if (mSocket == null) return;
+                notifyStatusChanged("正在连接...");
+                mSocket.connect();
+            }
+
+            @Override
+            public void close() {
+                if (mSocket != null) {
+                    mSocket.disconnect();
+                }
+            }
+        });
+    }
+
+    /**
+     * 在 Application.onCreate 中调用一次：跟踪前后台和网络状态，
+     * App 进入后台或断网时暂停重连，恢复时立即重连。
+     */
+    public void bindAppState(Application application) {
+        application.registerActivityLifecycleCallbacks(new Application.ActivityLifecycleCallbacks() {
+            @Override
+            public void onActivityStarted(Activity activity) {
+                if (startedActivities++ == 0) {
+                    reconnectController.setForeground(true);
+                }
+            }
+
+            @Override
+            public void onActivityStopped(Activity activity) {
+                if (--startedActivities == 0) {
+                    reconnectController.setForeground(false);
+                }
+            }
+
+            @Override public void onActivityCreated(Activity activity, Bundle savedInstanceState) {}
+            @Override public void onActivityResumed(Activity activity) {}
+            @Override public void onActivityPaused(Activity activity) {}
+            @Override public void onActivitySaveInstanceState(Activity activity, Bundle outState) {}
+            @Override public void onActivityDestroyed(Activity activity) {}
+        });
+        // 冷启动时还没有 Activity 启动，先按前台处理
+        reconnectController.setForeground(true);
+
+        ConnectivityManager connectivityManager =
+                (ConnectivityManager) application.getSystemService(Context.CONNECTIVITY_SERVICE);
+        if (connectivityManager == null) return;
+        // registerDefaultNetworkCallback 需要 API 24，这里用 API 21 可用的 registerNetworkCallback 统计可用网络数
+        NetworkRequest request = new NetworkRequest.Builder()
+                .addCapability(NetworkCapabilities.NET_CAPABILITY_INTERNET)
+                .build();
+        connectivityManager.registerNetworkCallback(request, new ConnectivityManager.NetworkCallback() {
+            private final Set<Network> available = new HashSet<>();
+
+            @Override
+            public void onAvailable(Network network) {
+                handler.post(() -> {
+                    available.add(network);
+                    reconnectController.setNetworkAvailable(true);
+                });
+            }
+
+            @Override
+            public void onLost(Network network) {
+                handler.post(() -> {
+                    available.remove(network);
+                    reconnectController.setNetworkAvailable(!available.isEmpty());
+                });
+            }
+        });
+        NetworkInfo activeNetwork = connectivityManager.getActiveNetworkInfo();
+        reconnectController.setNetworkAvailable(activeNetwork != null && activeNetwork.isConnected());
     }
 
     public static WebSocketManager getInstance() {
@@ -62,98 +163,76 @@ public class WebSocketManager {
         return instance;
     }
 
-    // 连接到WebSocket服务器
+    // 连接到WebSocket服务器（主线程调用）
     public void connect(String userId) {
         Log.d(TAG, "连接到WebSocket服务器: " + userId);
         if (mSocket == null) {
             Log.e(TAG, "WebSocket客户端未初始化，无法连接");
             return;
         }
-        
-        // 如果已经连接，但用户ID不同，需要重新连接
-        if (isConnected) {
-            if (currentUserId != null && currentUserId.equals(userId)) {
-                // 已经连接到正确的房间，不需要重新连接
-                Log.d(TAG, "已经连接到正确的房间，不需要重新连接");
-                return;
-            } else {
-                // 连接的用户ID不同，需要重新连接
-                Log.d(TAG, "用户ID不同，需要重新连接");
-                mSocket.disconnect();
-                isConnected = false;
-            }
+
+        if (currentUserId != null && currentUserId.equals(userId)
+                && reconnectController.getState() != ReconnectController.State.IDLE) {
+            // 已经连接（或正在按退避重连）到正确的房间，不需要重复发起
+            Log.d(TAG, "已经连接到正确的房间，不需要重新连接");
+            return;
         }
-        
+        if (currentUserId != null && !currentUserId.equals(userId)) {
+            // 连接的用户ID不同，需要重新连接
+            Log.d(TAG, "用户ID不同，需要重新连接");
+            reconnectController.stop();
+            isConnected = false;
+        }
+
         currentUserId = userId;
-        notifyStatusChanged("正在连接...");
-        mSocket.connect();
-        
-        // 启动连接检查定时器
-        startConnectionCheck();
+        reconnectController.start();
     }
 
-    // 断开WebSocket连接
+    // 断开WebSocket连接，不再自动重连
     public void disconnect() {
         Log.d(TAG, "断开WebSocket连接");
-        if (mSocket != null) {
-            mSocket.disconnect();
-            isConnected = false;
-            notifyStatusChanged("已断开");
-        }
-        
-        // 停止连接检查定时器
-        stopConnectionCheck();
+        reconnectController.stop();
+        isConnected = false;
+        notifyStatusChanged("已断开");
     }
 
-    // 发送消息
-  public void sendMessage(String token, String receiverId, String content) {
-    Log.d(TAG, "发送消息: receiverId=" + receiverId + ", content=" + content);
-    
-    // 使用UserApi发送消息（后端会处理WebSocket推送）
-    com.example.firsttry.remote.Http.UserApi.sendMessage(token, receiverId, content, new com.example.firsttry.remote.Http.UserApi.UserCallback() {
-      @Override
-      public void onSuccess(String tokenOrMessage) {
-        Log.d(TAG, "消息发送成功: " + tokenOrMessage);
-      }
-      
-      @Override
-      public void onError(String message) {
-        Log.e(TAG, "消息发送错误: " + message);
-      }
-      
-      @Override
-      public void onFailure(IOException e) {
-        Log.e(TAG, "消息发送失败: " + e.getMessage());
-        
-        // HTTP失败后，如果WebSocket连接可用，可以尝试使用WebSocket发送
-        if (isConnected && mSocket != null) {
-          Log.d(TAG, "尝试使用WebSocket发送消息");
-          try {
-            JSONObject messageObj = new JSONObject();
-            // 使用当前用户ID，如果没有则使用默认值
-            String senderIdToUse = currentUserId != null ? currentUserId : getDefaultUserId();
-            messageObj.put("senderId", senderIdToUse);
-            messageObj.put("receiverId", receiverId);
-            messageObj.put("content", content);
-            mSocket.emit("sendMessage", messageObj);
-          } catch (JSONException jsonE) {
-            Log.e(TAG, "WebSocket发送失败: " + jsonE.getMessage());
-          }
-        }
-      }
-    });
-  }
-
-    // 添加监听器
+    // 添加监听器：接收所有会话的消息
     public void addListener(WebSocketListener listener) {
-        if (!listeners.contains(listener)) {
-            listeners.add(listener);
-        }
+        addListener(listener, null);
+    }
+
+    // 添加监听器：只接收与 conversationIds 相关的消息（发送者/接收者用户名或发送者 id 命中其一）；
+    // conversationIds 为 null 表示接收全部。同一个监听器再次添加会替换原来的订阅
+    public void addListener(WebSocketListener listener, Collection<String> conversationIds) {
+        if (listener == null) return;
+        removeListener(listener);
+        listeners.add(new Subscription(listener, conversationIds));
+    }
+
+    // 绑定生命周期：ON_RESUME 时订阅，ON_PAUSE 时取消，ON_DESTROY 后不再跟踪。主线程调用
+    public void observe(LifecycleOwner owner, WebSocketListener listener, Collection<String> conversationIds) {
+        owner.getLifecycle().addObserver(new LifecycleEventObserver() {
+            @Override
+            public void onStateChanged(LifecycleOwner source, Lifecycle.Event event) {
+                if (event == Lifecycle.Event.ON_RESUME) {
+                    addListener(listener, conversationIds);
+                } else if (event == Lifecycle.Event.ON_PAUSE) {
+                    removeListener(listener);
+                } else if (event == Lifecycle.Event.ON_DESTROY) {
+                    removeListener(listener);
+                    source.getLifecycle().removeObserver(this);
+                }
+            }
+        });
     }
 
     // 移除监听器
     public void removeListener(WebSocketListener listener) {
-        listeners.remove(listener);
+        for (Subscription subscription : listeners) {
+            if (subscription.listener == listener) {
+                listeners.remove(subscription);
+            }
+        }
     }
 
     // 检查连接状态
@@ -161,59 +240,9 @@ public class WebSocketManager {
         return isConnected;
     }
     
-    // 重连WebSocket服务器
-    public void reconnect(String userId) {
-        Log.d(TAG, "重连WebSocket服务器: " + userId);
-        if (mSocket == null) {
-            Log.e(TAG, "WebSocket客户端未初始化，无法重连");
-            return;
-        }
-        
-        currentUserId = userId;
-        notifyStatusChanged("正在重连...");
-        
-        if (isConnected) {
-            mSocket.disconnect();
-            isConnected = false;
-        }
-        
-        // 确保Socket处于断开状态后再尝试连接
-        if (!mSocket.connected()) {
-            mSocket.connect();
-        }
-    }
-    
-    // 启动连接检查定时器
-    private void startConnectionCheck() {
-        Log.d(TAG, "启动连接检查定时器");
-        // 停止之前的定时器
-        stopConnectionCheck();
-        
-        // 创建连接检查任务
-        connectionCheckRunnable = new Runnable() {
-            @Override
-            public void run() {
-                // 检查连接状态
-                if (!isConnected && currentUserId != null) {
-                    Log.d(TAG, "连接已断开，尝试重新连接");
-                    reconnect(currentUserId);
-                }
-                // 再次安排检查
-                handler.postDelayed(this, CONNECTION_CHECK_INTERVAL);
-            }
-        };
-        
-        // 开始检查
-        handler.postDelayed(connectionCheckRunnable, CONNECTION_CHECK_INTERVAL);
-    }
-    
-    // 停止连接检查定时器
-    private void stopConnectionCheck() {
-        if (connectionCheckRunnable != null) {
-            Log.d(TAG, "停止连接检查定时器");
-            handler.removeCallbacks(connectionCheckRunnable);
-            connectionCheckRunnable = null;
-        }
+    // 连接耗时、重连次数等指标
+    public String getConnectionStats() {
+        return reconnectController.getStats();
     }
 
     // 获取当前用户ID
@@ -233,7 +262,8 @@ public class WebSocketManager {
         public void call(Object... args) {
             handler.post(() -> {
                 isConnected = true;
-                Log.d(TAG, "WebSocket已连接，Socket ID: " + mSocket.id());
+                reconnectController.onConnected();
+                Log.d(TAG, "WebSocket已连接，Socket ID: " + mSocket.id() + "，" + reconnectController.getStats());
                 notifyStatusChanged("已连接");
                 
                 // 连接成功后加入用户房间
@@ -241,6 +271,9 @@ public class WebSocketManager {
                     mSocket.emit("join", currentUserId);
                     Log.d(TAG, "加入房间: " + currentUserId);
                 }
+                // 连接恢复：把离线期间积压在发件箱里的消息发出去，并补齐断线期间漏掉的推送
+                OutboxFlusher.getInstance().flush();
+                MessageSync.getInstance().syncAll();
             });
         }
     };
@@ -252,12 +285,8 @@ public class WebSocketManager {
                 isConnected = false;
                 Log.d(TAG, "WebSocket已断开连接");
                 notifyStatusChanged("已断开");
-                
-                // 断开连接后，自动尝试重新连接
-                if (currentUserId != null) {
-                    Log.d(TAG, "开始重新连接WebSocket...");
-                    reconnect(currentUserId);
-                }
+                // 是否重连、何时重连由 ReconnectController 决定
+                reconnectController.onDisconnected();
             });
         }
     };
@@ -269,48 +298,108 @@ public class WebSocketManager {
                 String errorMsg = args[0] != null ? args[0].toString() : "未知错误";
                 Log.e(TAG, "WebSocket连接错误: " + errorMsg);
                 notifyStatusChanged("连接错误: " + errorMsg);
-                
-                // 连接错误后，自动尝试重新连接
-                if (currentUserId != null) {
-                    Log.d(TAG, "连接错误，开始重新连接WebSocket...");
-                    reconnect(currentUserId);
-                }
+                reconnectController.onDisconnected();
             });
         }
     };
 
+    // 在 socket 线程把整帧解析成 Message，只解析这一次，监听器拿到的是解析好的对象
     private Emitter.Listener onNewMessage = new Emitter.Listener() {
         @Override
         public void call(Object... args) {
-            handler.post(() -> {
-                try {
-                    // 将收到的消息转换为JSON字符串并通知监听器
-                    JSONObject message = (JSONObject) args[0];
-                    String messageJson = message.toString();
-                    Log.d(TAG, "收到新消息: " + messageJson);
-                    notifyMessageReceived(messageJson);
-                } catch (Exception e) {
-                    Log.e(TAG, "消息处理错误: " + e.getMessage());
+            try {
+                if (args.length == 0 || !(args[0] instanceof JSONObject)) return;
+                List<Message> messages = parseFrame((JSONObject) args[0]);
+                if (!messages.isEmpty()) {
+                    enqueueMessages(messages);
                 }
-            });
+            } catch (Exception e) {
+                Log.e(TAG, "消息处理错误: " + e.getMessage());
+            }
         }
     };
 
-    // 通知所有监听器收到新消息
-    private void notifyMessageReceived(String text) {
-        for (WebSocketListener listener : new ArrayList<>(listeners)) {
-            if (listener != null) {
-                listener.onWebSocketMessage(text);
+    // 推送可能是 {data: {...}}、{data: [...]}，也可能直接就是消息对象
+    static List<Message> parseFrame(JSONObject root) {
+        List<Message> messages = new ArrayList<>();
+        Object dataNode = root.opt("data");
+        if (dataNode instanceof JSONObject) {
+            addIfValid(messages, Message.fromJson((JSONObject) dataNode));
+        } else if (dataNode instanceof JSONArray) {
+            JSONArray dataArray = (JSONArray) dataNode;
+            for (int i = 0; i < dataArray.length(); i++) {
+                addIfValid(messages, Message.fromJson(dataArray.optJSONObject(i)));
+            }
+        } else if (dataNode == null) {
+            addIfValid(messages, Message.fromJson(root));
+        }
+        return messages;
+    }
+
+    private static void addIfValid(List<Message> messages, Message message) {
+        if (message != null && message.getContent() != null) {
+            messages.add(message);
+        }
+    }
+
+    // 突发流量下同一帧内到达的消息攒成一批，下一帧（Choreographer）在主线程统一分发
+    private void enqueueMessages(List<Message> messages) {
+        synchronized (pendingMessages) {
+            pendingMessages.addAll(messages);
+            if (frameScheduled) return;
+            frameScheduled = true;
+        }
+        // Choreographer 是线程相关的，必须在主线程获取
+        handler.post(() -> Choreographer.getInstance().postFrameCallback(dispatchFrame));
+    }
+
+    private void dispatchPendingMessages() {
+        List<Message> batch;
+        synchronized (pendingMessages) {
+            batch = new ArrayList<>(pendingMessages);
+            pendingMessages.clear();
+            frameScheduled = false;
+        }
+        if (batch.isEmpty()) return;
+        Log.d(TAG, "分发 " + batch.size() + " 条新消息");
+        // 订阅全部会话的监听器共用同一个列表，不允许修改
+        batch = Collections.unmodifiableList(batch);
+        for (Subscription subscription : listeners) {
+            List<Message> matched = subscription.filter(batch);
+            if (!matched.isEmpty()) {
+                subscription.listener.onWebSocketMessages(matched);
             }
         }
     }
 
     // 通知所有监听器状态变化
     private void notifyStatusChanged(String status) {
-        for (WebSocketListener listener : new ArrayList<>(listeners)) {
-            if (listener != null) {
-                listener.onWebSocketStatusChanged(status);
+        for (Subscription subscription : listeners) {
+            subscription.listener.onWebSocketStatusChanged(status);
+        }
+    }
+
+    // 一个监听器及其订阅的会话；conversationIds 为 null 表示全部
+    private static final class Subscription {
+        final WebSocketListener listener;
+        final Set<String> conversationIds;
+
+        Subscription(WebSocketListener listener, Collection<String> conversationIds) {
+            this.listener = listener;
+            this.conversationIds = conversationIds == null ? null : new HashSet<>(conversationIds);
+        }
+
+        List<Message> filter(List<Message> batch) {
+            if (conversationIds == null) return batch;
+            List<Message> matched = new ArrayList<>();
+            for (Message message : batch) {
+                if (conversationIds.contains(message.getSenderName())
+                        || conversationIds.contains(message.getReceiver())
+                        || conversationIds.contains(message.getSenderId())) {
+                    matched.add(message);
+                }
             }
+            return matched;
         }
     }
 }
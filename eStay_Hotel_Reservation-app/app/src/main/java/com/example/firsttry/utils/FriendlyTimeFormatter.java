@@ -0,0 +1,148 @@
+package com.example.firsttry.utils;
+
+import android.util.LruCache;
+
+import androidx.annotation.VisibleForTesting;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 消息列表用的相对时间格式化（"刚刚" / "N分钟前" / "HH:mm" / "昨天 HH:mm" / "MM-dd" / "yyyy-MM-dd"）。
+ * - "现在"按分钟取整缓存，每过一个 tick（整分钟）才刷新一次，连同今天/昨天/今年的零点一起算好
+ * - 同一个 tick 内输出只取决于消息时间，所以结果放进一个小 LRU，列表来回滚动时直接命中；
+ *   LRU 挂在 tick 上，tick 切换时整个丢弃，不会读到上一分钟算出的结果
+ * - tick 整体替换，多线程读不加锁；DateTimeFormatter 本身线程安全
+ * 时区固定为北京时间，与服务端一致。
+ */
+public class FriendlyTimeFormatter {
+
+    private static final ZoneId ZONE_SHANGHAI = ZoneId.of("Asia/Shanghai");
+    private static final DateTimeFormatter MONTH_DAY_FORMATTER = DateTimeFormatter.ofPattern("MM-dd");
+    private static final DateTimeFormatter FULL_DATE_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd");
+
+    private static final long TICK_MS = 60_000;
+    private static final int CACHE_SIZE = 256;
+
+    private static volatile FriendlyTimeFormatter instance;
+
+    // 时间来源：默认系统时钟，测试时用固定时钟验证跨零点、跨年
+    public interface Clock {
+        long now();
+    }
+
+    private final Clock clock;
+    private volatile Tick tick;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    public static FriendlyTimeFormatter getInstance() {
+        if (instance == null) {
+            synchronized (FriendlyTimeFormatter.class) {
+                if (instance == null) {
+                    instance = new FriendlyTimeFormatter();
+                }
+            }
+        }
+        return instance;
+    }
+
+    private FriendlyTimeFormatter() {
+        this(System::currentTimeMillis);
+    }
+
+    @VisibleForTesting
+    FriendlyTimeFormatter(Clock clock) {
+        this.clock = clock;
+    }
+
+    public String format(long millis) {
+        if (millis <= 0) return "";
+        Tick current = currentTick();
+        String cached = current.cache.get(millis);
+        if (cached != null) {
+            hits.incrementAndGet();
+            return cached;
+        }
+        misses.incrementAndGet();
+        String result = current.format(millis);
+        current.cache.put(millis, result);
+        return result;
+    }
+
+    public String getStats() {
+        Tick current = tick;
+        return "hits=" + hits.get() + ", misses=" + misses.get() + ", size=" + (current == null ? 0 : current.cache.size());
+    }
+
+    // 过了当前 tick 才重新计算，绝大多数调用只是一次 volatile 读和一次比较
+    private Tick currentTick() {
+        long now = clock.now();
+        Tick current = tick;
+        if (current != null && now >= current.startMs && now < current.endMs) {
+            return current;
+        }
+        synchronized (this) {
+            current = tick;
+            if (current == null || now < current.startMs || now >= current.endMs) {
+                current = new Tick(now - now % TICK_MS);
+                tick = current;
+            }
+            return current;
+        }
+    }
+
+    // 一个 tick 内不变的"现在"和各个日期边界
+    private static final class Tick {
+        final long startMs;
+        final long endMs;
+        final long todayStartMs;
+        final long yesterdayStartMs;
+        final long yearStartMs;
+        final LruCache<Long, String> cache = new LruCache<>(CACHE_SIZE);
+
+        Tick(long startMs) {
+            this.startMs = startMs;
+            this.endMs = startMs + TICK_MS;
+            LocalDate today = Instant.ofEpochMilli(startMs).atZone(ZONE_SHANGHAI).toLocalDate();
+            todayStartMs = today.atStartOfDay(ZONE_SHANGHAI).toInstant().toEpochMilli();
+            yesterdayStartMs = today.minusDays(1).atStartOfDay(ZONE_SHANGHAI).toInstant().toEpochMilli();
+            yearStartMs = today.withDayOfYear(1).atStartOfDay(ZONE_SHANGHAI).toInstant().toEpochMilli();
+        }
+
+        String format(long millis) {
+            // 以 tick 开始时刻为"现在"，误差最多一分钟且只会偏小；未来时间按"刚刚"处理
+            long minutes = Math.max(0, startMs - millis) / 60_000;
+            if (minutes < 1) return "刚刚";
+            if (minutes < 60) return minutes + "分钟前";
+
+            if (millis >= todayStartMs) {
+                return formatHourMinute(millis - todayStartMs); // 今天 HH:mm
+            }
+            if (millis >= yesterdayStartMs) {
+                return "昨天 " + formatHourMinute(millis - yesterdayStartMs);
+            }
+            LocalDate date = Instant.ofEpochMilli(millis).atZone(ZONE_SHANGHAI).toLocalDate();
+            if (millis >= yearStartMs) {
+                return date.format(MONTH_DAY_FORMATTER); // 今年 MM-dd
+            }
+            return date.format(FULL_DATE_FORMATTER); // 往年 yyyy-MM-dd
+        }
+
+        // 距零点的毫秒数直接换算成 HH:mm，不经过日期对象
+        private static String formatHourMinute(long sinceDayStartMs) {
+            int totalMinutes = (int) (sinceDayStartMs / 60_000);
+            int hour = totalMinutes / 60;
+            int minute = totalMinutes % 60;
+            char[] chars = {
+                    (char) ('0' + hour / 10), (char) ('0' + hour % 10), ':',
+                    (char) ('0' + minute / 10), (char) ('0' + minute % 10)
+            };
+            return new String(chars);
+        }
+    }
+}
@@ -8,11 +8,11 @@ import android.location.Address;
 import android.location.Geocoder;
 import android.location.Location;
 import android.location.LocationManager;
-import android.os.Handler;
-import android.os.Looper;
 
 import androidx.core.app.ActivityCompat;
 
+import com.example.firsttry.remote.CallbackDispatcher;
+
 import java.io.IOException;
 import java.util.List;
 import java.util.Locale;
@@ -85,7 +85,7 @@ public class LocationUtils {
                 }
                 
                 String finalCity = city;
-                new Handler(Looper.getMainLooper()).post(() -> {
+                CallbackDispatcher.get().post(() -> {
                     callback.onLocationSuccess(lat, lon, finalCity);
                 });
             }).start();
@@ -94,7 +94,7 @@ public class LocationUtils {
             // For better UX in emulator/testing, if location is null, we can return a mock location or error
             if (ENABLE_MOCK_LOCATION) {
                 // Use mock location
-                new Handler(Looper.getMainLooper()).post(() -> {
+                CallbackDispatcher.get().post(() -> {
                     callback.onLocationSuccess(DEFAULT_MOCK_LATITUDE, DEFAULT_MOCK_LONGITUDE, DEFAULT_MOCK_CITY);
                 });
             } else {
@@ -2,40 +2,34 @@ package com.example.firsttry.utils;
 
 import android.util.Log;
 
+import java.time.Instant;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
 import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
 import java.time.format.DateTimeParseException;
 import java.time.temporal.ChronoUnit;
-import java.text.ParseException;
-import java.text.SimpleDateFormat;
-import java.util.Calendar;
-import java.util.Date;
-import java.util.Locale;
 
 public class TimeUtils {
 
+    // DateTimeFormatter 不可变、线程安全，全局共用一个，不再每次 new SimpleDateFormat
+    private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ISO_LOCAL_DATE; // yyyy-MM-dd
+
     public static String getTodayDate() {
-        SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd", Locale.getDefault());
-        return sdf.format(new Date());
+        return LocalDate.now().format(DATE_FORMATTER);
     }
 
     public static String getTomorrowDate() {
-        SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd", Locale.getDefault());
-        Calendar calendar = Calendar.getInstance();
-        calendar.add(Calendar.DAY_OF_YEAR, 1);
-        return sdf.format(calendar.getTime());
+        return LocalDate.now().plusDays(1).format(DATE_FORMATTER);
     }
 
     public static String formatDateMMdd(String dateStr) {
         if (dateStr == null) return "";
         try {
-            SimpleDateFormat inputFormat = new SimpleDateFormat("yyyy-MM-dd", Locale.getDefault());
-            Date date = inputFormat.parse(dateStr);
-            SimpleDateFormat outputFormat = new SimpleDateFormat("MM-dd", Locale.getDefault());
-            return outputFormat.format(date);
-        } catch (ParseException e) {
-            e.printStackTrace();
+            return LocalDate.parse(dateStr, DATE_FORMATTER).format(MONTH_DAY_FORMATTER);
+        } catch (DateTimeParseException e) {
+            Log.e("TimeUtils", "无法解析日期: " + dateStr, e);
             return dateStr;
         }
     }
@@ -43,13 +37,11 @@ public class TimeUtils {
     public static int calculateDaysBetween(String startDateStr, String endDateStr) {
         if (startDateStr == null || endDateStr == null) return 1;
         try {
-            SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd", Locale.getDefault());
-            Date startDate = sdf.parse(startDateStr);
-            Date endDate = sdf.parse(endDateStr);
-            long diff = endDate.getTime() - startDate.getTime();
-            return (int) (diff / (1000 * 60 * 60 * 24));
-        } catch (ParseException e) {
-            e.printStackTrace();
+            LocalDate startDate = LocalDate.parse(startDateStr, DATE_FORMATTER);
+            LocalDate endDate = LocalDate.parse(endDateStr, DATE_FORMATTER);
+            return (int) ChronoUnit.DAYS.between(startDate, endDate);
+        } catch (DateTimeParseException e) {
+            Log.e("TimeUtils", "无法解析日期: " + startDateStr + " / " + endDateStr, e);
             return 1;
         }
     }
@@ -67,44 +59,58 @@ public class TimeUtils {
 
     // 定义输出格式
     private static final ZoneId ZONE_SHANGHAI = ZoneId.of("Asia/Shanghai");
-    private static final DateTimeFormatter TIME_FORMATTER = DateTimeFormatter.ofPattern("HH:mm");
     private static final DateTimeFormatter MONTH_DAY_FORMATTER = DateTimeFormatter.ofPattern("MM-dd");
-    private static final DateTimeFormatter FULL_DATE_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd");
 
+    // 兼容旧调用：先解析成毫秒再格式化。列表绑定请直接用 formatFriendlyTime(long)
     public static String formatFriendlyTime(String timeString) {
         if (timeString == null || timeString.isEmpty()) {
             return "";
         }
+        long millis = parseToMillis(timeString);
+        return millis > 0 ? formatFriendlyTime(millis) : timeString;
+    }
 
-        LocalDateTime messageTime;
+    /**
+     * 把消息时间字符串解析成 epoch 毫秒，只在消息入库/收到时调用一次。
+     * 支持 "yyyy-MM-dd HH:mm:ss"、"yyyy MM dd HH:mm:ss"、"yyyy-MM-dd'T'HH:mm:ss"（均按北京时间），
+     * 以及带时区的 ISO-8601（服务端 createdAt，如 2024-05-01T08:00:00.000Z）。解析失败返回 0
+     */
+    public static long parseToMillis(String timeString) {
+        if (timeString == null || timeString.isEmpty()) {
+            return 0;
+        }
         try {
-            messageTime = LocalDateTime.parse(timeString, INPUT_FORMATTER_DASH);
-        } catch (DateTimeParseException e) {
-            Log.e("TimeUtils", "无法解析时间字符串: " + timeString, e);
-            return timeString;
+            return OffsetDateTime.parse(timeString).toInstant().toEpochMilli();
+        } catch (DateTimeParseException ignored) {
+            // 不带时区，按本地格式继续尝试
         }
+        DateTimeFormatter[] formatters = {INPUT_FORMATTER_DASH, INPUT_FORMATTER_T, INPUT_FORMATTER_SPACE};
+        for (DateTimeFormatter formatter : formatters) {
+            try {
+                return LocalDateTime.parse(timeString, formatter).atZone(ZONE_SHANGHAI).toInstant().toEpochMilli();
+            } catch (DateTimeParseException ignored) {
+                // 尝试下一种格式
+            }
+        }
+        Log.e("TimeUtils", "无法解析时间字符串: " + timeString);
+        return 0;
+    }
 
-        // 使用北京时间的“当前时间”
-        LocalDateTime now = LocalDateTime.now(ZONE_SHANGHAI);
-
-        long seconds = ChronoUnit.SECONDS.between(messageTime, now);
-        if (seconds < 0) seconds = 0;  // 防止未来时间导致负数
-
-        if (seconds < 60) return "刚刚";
+    // 当前时间按库里统一的格式输出，和 epoch 毫秒一起写入
+    public static String formatMillis(long millis) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(millis), ZONE_SHANGHAI).format(INPUT_FORMATTER_DASH);
+    }
 
-        long minutes = seconds / 60;
-        if (minutes < 60) return minutes + "分钟前";
+    // 列表绑定用：由 FriendlyTimeFormatter 按分钟缓存"现在"和日期边界，结果也有 LRU 缓存
+    public static String formatFriendlyTime(long millis) {
+        return FriendlyTimeFormatter.getInstance().format(millis);
+    }
 
-        if (messageTime.toLocalDate().equals(now.toLocalDate())) {
-            return messageTime.format(TIME_FORMATTER); // 今天 HH:mm
-        }
-        if (messageTime.toLocalDate().equals(now.toLocalDate().minusDays(1))) {
-            return "昨天 " + messageTime.format(TIME_FORMATTER);
+    // 没有可用的毫秒值（旧数据或无法解析的时间）时原样显示字符串
+    public static String formatFriendlyTime(long millis, String rawFallback) {
+        if (millis <= 0) {
+            return rawFallback == null ? "" : rawFallback;
         }
-        if (messageTime.getYear() == now.getYear()) {
-            return messageTime.format(MONTH_DAY_FORMATTER); // 今年 MM-dd
-        }
-
-        return messageTime.format(FULL_DATE_FORMATTER); // 往年 yyyy-MM-dd
+        return formatFriendlyTime(millis);
     }
-}
\ No newline at end of file
+}
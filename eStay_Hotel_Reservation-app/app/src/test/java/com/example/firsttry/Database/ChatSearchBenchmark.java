@@ -0,0 +1,122 @@
+package com.example.firsttry.Database;
+
+import static org.junit.Assert.assertEquals;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import com.example.firsttry.utils.MicroBenchmark;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+/**
+ * 100 万条聊天记录上 searchMessages（FTS4）对比 content LIKE '%词%' 全表扫描的耗时，
+ * 分别测罕见词（完整订单号）、订单号前缀和常见词（约四分之一的消息都包含）。
+ * 语料由几条模板加递增的订单号组成，用递归 CTE 在 SQLite 里生成，分词结果按模板在 Java 侧算一次再拼接。
+ * 跑在 Robolectric 使用的宿主机 SQLite 上，只看两种查询的相对差距。
+ * 运行：./gradlew :app:testDebugUnitTest -Pestay.benchmark=true --tests '*ChatSearchBenchmark'
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 34)
+public class ChatSearchBenchmark {
+
+    private static final int TOTAL = 1_000_000;
+    private static final long BASE_MS = 1_700_000_000_000L;
+    private static final String[] TEMPLATES = {
+            "您好，您预订的酒店已确认",
+            "请问几点可以入住？",
+            "Check-in time is 14:00",
+            "房间有早餐吗",
+            "我想改到5月3日入住",
+            "好的，谢谢",
+            "订单已取消，退款三个工作日到账",
+            "WiFi 密码是多少",
+    };
+    private static final String ORDER_LABEL = " 订单号 ";
+
+    private Context context;
+    private UserDbHelper helper;
+
+    @Before
+    public void setUp() {
+        MicroBenchmark.assumeEnabled();
+        context = ApplicationProvider.getApplicationContext();
+        UserDbHelper.resetInstanceForTesting();
+        context.deleteDatabase("user.db");
+        helper = UserDbHelper.getInstance(context);
+        populate(helper.getWritableDatabase());
+    }
+
+    @After
+    public void tearDown() {
+        UserDbHelper.resetInstanceForTesting();
+        context.deleteDatabase("user.db");
+    }
+
+    @Test
+    public void searchVersusLikeScan() {
+        SQLiteDatabase db = helper.getReadableDatabase();
+        String[][] queries = {{"rare", "123456"}, {"prefix", "12345"}, {"common", "入住"}};
+        for (String[] query : queries) {
+            MicroBenchmark.measure("fts " + query[0], 200, 2000, () -> helper.searchMessages(query[1], 20));
+            MicroBenchmark.measure("like " + query[0], 200, 2000, () -> likeScan(db, query[1], 20));
+        }
+    }
+
+    // 没有全文索引时的做法：逐行比较 content，再按时间取最新的 limit 条
+    private static int likeScan(SQLiteDatabase db, String term, int limit) {
+        int count = 0;
+        try (Cursor cursor = db.rawQuery("SELECT " + UserDbHelper.COL_CHAT_MSG_ID + ", " + UserDbHelper.COL_CHAT_CONTENT
+                + " FROM " + UserDbHelper.TABLE_CHAT_MESSAGES + " WHERE " + UserDbHelper.COL_CHAT_CONTENT + " LIKE ?"
+                + " ORDER BY " + UserDbHelper.COL_CHAT_TIMESTAMP_MS + " DESC LIMIT " + limit,
+                new String[]{"%" + term + "%"})) {
+            while (cursor.moveToNext()) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private static void populate(SQLiteDatabase db) {
+        db.beginTransaction();
+        try {
+            db.execSQL("CREATE TEMP TABLE bench_templates (k INTEGER PRIMARY KEY, content TEXT, tokens TEXT)");
+            for (int k = 0; k < TEMPLATES.length; k++) {
+                db.execSQL("INSERT INTO bench_templates (k, content, tokens) VALUES (?, ?, ?)",
+                        new Object[]{k, TEMPLATES[k], ChatSearchTokenizer.tokenize(TEMPLATES[k] + ORDER_LABEL)});
+            }
+            db.execSQL("WITH RECURSIVE seq(x) AS (SELECT 1 UNION ALL SELECT x + 1 FROM seq WHERE x < " + TOTAL + ") "
+                    + "INSERT INTO " + UserDbHelper.TABLE_CHAT_MESSAGES + " (" + UserDbHelper.COL_ID + ", "
+                    + UserDbHelper.COL_CHAT_MSG_ID + ", " + UserDbHelper.COL_CONV_ID + ", "
+                    + UserDbHelper.COL_CHAT_SENDER + ", " + UserDbHelper.COL_CHAT_RECEIVER + ", "
+                    + UserDbHelper.COL_CHAT_CONTENT + ", " + UserDbHelper.COL_CHAT_TIMESTAMP + ", "
+                    + UserDbHelper.COL_CHAT_TIMESTAMP_MS + ") "
+                    + "SELECT x, 'm' || x, 'c' || (x % 100), 'c' || (x % 100), 'alice', "
+                    + "t.content || '" + ORDER_LABEL + "' || (100000 + x), '', " + BASE_MS + " + x * 1000 "
+                    + "FROM seq JOIN bench_templates t ON t.k = x % " + TEMPLATES.length);
+            db.execSQL("INSERT INTO " + UserDbHelper.TABLE_CHAT_FTS + " (docid, " + UserDbHelper.COL_FTS_TOKENS + ") "
+                    + "SELECT m." + UserDbHelper.COL_ID + ", t.tokens || ' ' || (100000 + m." + UserDbHelper.COL_ID + ") "
+                    + "FROM " + UserDbHelper.TABLE_CHAT_MESSAGES + " m JOIN bench_templates t ON t.k = m."
+                    + UserDbHelper.COL_ID + " % " + TEMPLATES.length);
+            db.execSQL("DROP TABLE bench_templates");
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+        // 拼出来的分词结果必须和写入路径上 ChatSearchTokenizer 的结果一致，否则测的不是同一个索引
+        String content = TEMPLATES[123 % TEMPLATES.length] + ORDER_LABEL + (100000 + 123);
+        try (Cursor cursor = db.rawQuery("SELECT " + UserDbHelper.COL_FTS_TOKENS + " FROM " + UserDbHelper.TABLE_CHAT_FTS
+                + " WHERE docid = 123", null)) {
+            cursor.moveToFirst();
+            assertEquals(ChatSearchTokenizer.tokenize(content), cursor.getString(0));
+        }
+    }
+}
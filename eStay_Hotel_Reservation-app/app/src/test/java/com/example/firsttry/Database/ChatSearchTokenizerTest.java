@@ -0,0 +1,61 @@
+package com.example.firsttry.Database;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+public class ChatSearchTokenizerTest {
+
+    @Test
+    public void cjkRunBecomesBigramsPlusTrailingChar() {
+        assertEquals("预订 订酒 酒店 店", ChatSearchTokenizer.tokenize("预订酒店"));
+        assertEquals("好", ChatSearchTokenizer.tokenize("好"));
+        // 假名也按二元组切
+        assertEquals("ホテ テル ル", ChatSearchTokenizer.tokenize("ホテル"));
+    }
+
+    @Test
+    public void lettersAndDigitsAreLowercasedWordsAndPunctuationSplits() {
+        assertEquals("订单 单号 号 a1234 5 月 1 日入 入住 住",
+                ChatSearchTokenizer.tokenize("订单号 A1234, 5月1日入住!"));
+        assertEquals("hotel 预订 订", ChatSearchTokenizer.tokenize("Hotel预订"));
+        assertEquals("", ChatSearchTokenizer.tokenize("，。！ 😀"));
+        assertEquals("", ChatSearchTokenizer.tokenize(null));
+    }
+
+    @Test
+    public void queryUsesBigramsWithoutTrailingChar() {
+        assertEquals("酒店", ChatSearchTokenizer.buildMatchQuery("酒店"));
+        assertEquals("订酒 酒店", ChatSearchTokenizer.buildMatchQuery("订酒店"));
+    }
+
+    @Test
+    public void singleCjkCharAndLastWordArePrefixTerms() {
+        assertEquals("酒*", ChatSearchTokenizer.buildMatchQuery("酒"));
+        assertEquals("订单 a12*", ChatSearchTokenizer.buildMatchQuery("订单 A12"));
+        // 只有最后一个字母数字词按前缀匹配
+        assertEquals("a12 订单", ChatSearchTokenizer.buildMatchQuery("A12 订单"));
+        assertEquals("20240501 room*", ChatSearchTokenizer.buildMatchQuery("20240501 room"));
+    }
+
+    @Test
+    public void ftsOperatorsAndQuotesAreNeutralised() {
+        // 引号、减号、星号是分隔符；小写的 or 在 FTS4 里只是普通词
+        assertEquals("酒店 or x*", ChatSearchTokenizer.buildMatchQuery("\"酒店\" OR -x*"));
+    }
+
+    @Test
+    public void emptyQueryHasNoMatchExpression() {
+        assertNull(ChatSearchTokenizer.buildMatchQuery(null));
+        assertNull(ChatSearchTokenizer.buildMatchQuery(""));
+        assertNull(ChatSearchTokenizer.buildMatchQuery(" ,，!? "));
+    }
+
+    @Test
+    public void querySegmentsAreLowercasedRuns() {
+        assertEquals(Arrays.asList("hotel", "酒店", "a1"), ChatSearchTokenizer.querySegments("Hotel 酒店-A1"));
+    }
+}
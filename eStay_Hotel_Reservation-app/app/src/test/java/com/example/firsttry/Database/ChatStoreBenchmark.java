@@ -0,0 +1,105 @@
+package com.example.firsttry.Database;
+
+import android.content.Context;
+import android.database.sqlite.SQLiteDatabase;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import com.example.firsttry.utils.MicroBenchmark;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+/**
+ * 打开会话（loadMessagesPage 取最新一页）和向上翻到会话中部的耗时，
+ * 分别在 1 万、10 万、100 万条消息的库上测，再删掉 (conv_id, timestamp_ms) 索引测一遍作对比。
+ * 消息平均分布在 100 个会话里，会话本身也随总量变大。
+ * 跑在 Robolectric 使用的宿主机 SQLite 上，和真机的绝对数值不同，只看随数据量的变化趋势。
+ * 运行：./gradlew :app:testDebugUnitTest -Pestay.benchmark=true --tests '*ChatStoreBenchmark'
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 34)
+public class ChatStoreBenchmark {
+
+    private static final int CONVERSATIONS = 100;
+    private static final int PAGE_SIZE = 50;
+    private static final long BASE_MS = 1_700_000_000_000L;
+
+    private Context context;
+
+    @Before
+    public void setUp() {
+        MicroBenchmark.assumeEnabled();
+        context = ApplicationProvider.getApplicationContext();
+        UserDbHelper.resetInstanceForTesting();
+        context.deleteDatabase("user.db");
+    }
+
+    @After
+    public void tearDown() {
+        UserDbHelper.resetInstanceForTesting();
+        context.deleteDatabase("user.db");
+    }
+
+    @Test
+    public void open10k() {
+        run(10_000);
+    }
+
+    @Test
+    public void open100k() {
+        run(100_000);
+    }
+
+    @Test
+    public void open1m() {
+        run(1_000_000);
+    }
+
+    private void run(int total) {
+        UserDbHelper helper = UserDbHelper.getInstance(context);
+        SQLiteDatabase db = helper.getWritableDatabase();
+        populate(db, total);
+
+        String conv = "c7";
+        int perConversation = total / CONVERSATIONS;
+        // 会话中部的 keyset 游标：第 i 条消息的时间是 BASE_MS + i 秒
+        long middleMs = BASE_MS + (long) (perConversation / 2 * CONVERSATIONS + 7) * 1000;
+
+        MicroBenchmark.measure(total + " open, indexed",
+                () -> helper.loadMessagesPage(conv, "alice", 0, 0, PAGE_SIZE));
+        MicroBenchmark.measure(total + " scroll back, indexed",
+                () -> helper.loadMessagesPage(conv, "alice", middleMs, Long.MAX_VALUE, PAGE_SIZE));
+
+        db.execSQL("DROP INDEX idx_chat_messages_conv_time_ms");
+        MicroBenchmark.measure(total + " open, no index", 200, 2000,
+                () -> helper.loadMessagesPage(conv, "alice", 0, 0, PAGE_SIZE));
+        MicroBenchmark.measure(total + " scroll back, no index", 200, 2000,
+                () -> helper.loadMessagesPage(conv, "alice", middleMs, Long.MAX_VALUE, PAGE_SIZE));
+    }
+
+    // 递归 CTE 在 SQLite 里直接生成数据，一条语句写完，比逐行插入快几个数量级；
+    // 全文索引由 Java 侧写入，这里不生成，不影响按会话分页的查询
+    private static void populate(SQLiteDatabase db, int total) {
+        db.beginTransaction();
+        try {
+            db.execSQL("WITH RECURSIVE seq(x) AS (SELECT 1 UNION ALL SELECT x + 1 FROM seq WHERE x < " + total + ") "
+                    + "INSERT INTO " + UserDbHelper.TABLE_CHAT_MESSAGES + " ("
+                    + UserDbHelper.COL_CHAT_MSG_ID + ", " + UserDbHelper.COL_CONV_ID + ", "
+                    + UserDbHelper.COL_CHAT_SENDER + ", " + UserDbHelper.COL_CHAT_RECEIVER + ", "
+                    + UserDbHelper.COL_CHAT_CONTENT + ", " + UserDbHelper.COL_CHAT_TIMESTAMP + ", "
+                    + UserDbHelper.COL_CHAT_TIMESTAMP_MS + ") "
+                    + "SELECT 'm' || x, 'c' || (x % " + CONVERSATIONS + "), "
+                    + "CASE WHEN x % 2 = 0 THEN 'alice' ELSE 'c' || (x % " + CONVERSATIONS + ") END, "
+                    + "CASE WHEN x % 2 = 0 THEN 'c' || (x % " + CONVERSATIONS + ") ELSE 'alice' END, "
+                    + "'第 ' || x || ' 条消息，订单号 ' || (100000 + x), '', " + BASE_MS + " + x * 1000 FROM seq");
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+}
@@ -0,0 +1,209 @@
+package com.example.firsttry.Database;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.robolectric.Shadows.shadowOf;
+
+import android.os.Looper;
+
+import androidx.lifecycle.Lifecycle;
+import androidx.lifecycle.testing.TestLifecycleOwner;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// 数据库执行器：回调回到主线程（测试里手动推进主线程 Looper），生命周期结束后读取消、写照常执行但不回调，
+// 异常走错误回调，统计计数正确。DbExecutor 是单例，统计按前后差值比较
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 34)
+public class DbExecutorTest {
+
+    private static final Pattern COUNTER = Pattern.compile("(\\w+): pending=(\\d+), completed=(\\d+), failed=(\\d+)");
+
+    private final DbExecutor executor = DbExecutor.getInstance();
+    private TestLifecycleOwner owner;
+    // 占住读线程池 / 写线程，让之后提交的任务排队
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    @Before
+    public void setUp() {
+        owner = new TestLifecycleOwner(Lifecycle.State.RESUMED);
+    }
+
+    @After
+    public void tearDown() {
+        release.countDown();
+    }
+
+    @Test
+    public void readResultIsDeliveredOnMainThread() throws Exception {
+        List<Integer> results = new ArrayList<>();
+        DbExecutor.DbRequest<Integer> request = executor.read(owner, () -> 42, results::add);
+
+        assertEquals(Integer.valueOf(42), request.get());
+        // 结果已经算好，但要等主线程处理消息才回调
+        assertTrue(results.isEmpty());
+        idleMainLooper();
+        assertEquals(1, results.size());
+        assertEquals(Integer.valueOf(42), results.get(0));
+    }
+
+    @Test
+    public void queuedReadIsSkippedWhenOwnerIsDestroyed() throws Exception {
+        blockReaders();
+        AtomicBoolean ran = new AtomicBoolean();
+        List<String> results = new ArrayList<>();
+        DbExecutor.DbRequest<String> request = executor.read(owner, () -> {
+            ran.set(true);
+            return "rows";
+        }, results::add);
+
+        owner.setCurrentState(Lifecycle.State.DESTROYED);
+        assertTrue(request.isCancelled());
+        release.countDown();
+
+        assertNull(request.get());
+        idleMainLooper();
+        assertFalse(ran.get());
+        assertTrue(results.isEmpty());
+    }
+
+    @Test
+    public void writeStillRunsAfterDestroyButDoesNotCallBack() throws Exception {
+        blockWriter();
+        AtomicBoolean ran = new AtomicBoolean();
+        List<Integer> results = new ArrayList<>();
+        DbExecutor.DbRequest<Integer> request = executor.write(owner, () -> {
+            ran.set(true);
+            return 1;
+        }, results::add);
+
+        owner.setCurrentState(Lifecycle.State.DESTROYED);
+        release.countDown();
+
+        assertEquals(Integer.valueOf(1), request.get());
+        idleMainLooper();
+        assertTrue(ran.get());
+        assertTrue(results.isEmpty());
+    }
+
+    @Test
+    public void alreadyDestroyedOwnerIsCancelledOnSubmit() throws Exception {
+        owner.setCurrentState(Lifecycle.State.DESTROYED);
+        List<String> results = new ArrayList<>();
+        DbExecutor.DbRequest<String> request = executor.read(owner, () -> "rows", results::add);
+
+        assertTrue(request.isCancelled());
+        request.get();
+        idleMainLooper();
+        assertTrue(results.isEmpty());
+    }
+
+    @Test
+    public void failureGoesToErrorCallbackAndFuture() throws Exception {
+        List<Object> results = new ArrayList<>();
+        List<Exception> errors = new ArrayList<>();
+        DbExecutor.DbRequest<Object> request = executor.write(owner, () -> {
+            throw new IOException("disk full");
+        }, results::add, errors::add);
+
+        try {
+            request.get();
+            fail("get() 应该抛出任务的异常");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof IOException);
+        }
+        idleMainLooper();
+        assertTrue(results.isEmpty());
+        assertEquals(1, errors.size());
+        assertEquals("disk full", errors.get(0).getMessage());
+    }
+
+    @Test
+    public void statsCountCompletedFailedAndPendingTasks() throws Exception {
+        long[] writeBefore = counters("write");
+        long[] readBefore = counters("read");
+
+        blockWriter();
+        DbExecutor.DbRequest<Void> queued = executor.write(() -> { });
+        assertEquals(1, counters("write")[0]);
+        release.countDown();
+        queued.get();
+        DbExecutor.DbRequest<Object> failing = executor.write(null, () -> {
+            throw new IllegalStateException("boom");
+        }, null);
+        try {
+            failing.get();
+            fail("get() 应该抛出任务的异常");
+        } catch (ExecutionException expected) {
+            // 计入 failed
+        }
+        executor.read(null, () -> 1, null).get();
+        idleMainLooper();
+
+        long[] writeAfter = counters("write");
+        long[] readAfter = counters("read");
+        assertEquals(0, writeAfter[0]);
+        // 占位任务、排队的写、失败的写
+        assertEquals(3, writeAfter[1] - writeBefore[1]);
+        assertEquals(1, writeAfter[2] - writeBefore[2]);
+        assertEquals(1, readAfter[1] - readBefore[1]);
+        assertEquals(0, readAfter[2] - readBefore[2]);
+    }
+
+    // 让所有读线程都卡在 release 上，之后提交的读只能排队
+    private void blockReaders() throws InterruptedException {
+        CountDownLatch started = new CountDownLatch(2);
+        for (int i = 0; i < 2; i++) {
+            executor.read(null, () -> {
+                started.countDown();
+                release.await();
+                return null;
+            }, null);
+        }
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+    }
+
+    private void blockWriter() throws InterruptedException {
+        CountDownLatch started = new CountDownLatch(1);
+        executor.write(null, () -> {
+            started.countDown();
+            release.await();
+            return null;
+        }, null);
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+    }
+
+    private static void idleMainLooper() {
+        shadowOf(Looper.getMainLooper()).idle();
+    }
+
+    // {pending, completed, failed}
+    private long[] counters(String queue) {
+        Matcher matcher = COUNTER.matcher(executor.getStats());
+        while (matcher.find()) {
+            if (matcher.group(1).equals(queue)) {
+                return new long[]{Long.parseLong(matcher.group(2)), Long.parseLong(matcher.group(3)),
+                        Long.parseLong(matcher.group(4))};
+            }
+        }
+        throw new AssertionError("没有 " + queue + " 队列的统计: " + executor.getStats());
+    }
+}
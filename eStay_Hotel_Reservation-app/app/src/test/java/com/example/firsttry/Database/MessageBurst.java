@@ -0,0 +1,42 @@
+package com.example.firsttry.Database;
+
+import com.example.firsttry.activity.message.Message;
+import com.example.firsttry.activity.message.chat.ChatMessage;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// 模拟一次 WebSocket 消息突发：count 条消息轮流来自 peers 个联系人，msg_id 从 start 开始编号
+final class MessageBurst {
+
+    private static final long BASE_MS = 1_700_000_000_000L;
+
+    final List<Message> incoming = new ArrayList<>();
+    final List<ChatMessage> chatMessages = new ArrayList<>();
+
+    private MessageBurst() {}
+
+    static MessageBurst of(int start, int count, int peers) {
+        MessageBurst burst = new MessageBurst();
+        for (int i = start; i < start + count; i++) {
+            String peer = "peer" + (i % peers);
+            String content = "消息 " + i;
+            long timeMillis = BASE_MS + i * 1000L;
+            Message message = new Message(null, peer, content, "", 1);
+            message.setTimeMillis(timeMillis);
+            burst.incoming.add(message);
+            burst.chatMessages.add(new ChatMessage("m" + i, peer, peer, "alice", content, "", timeMillis, false));
+        }
+        return burst;
+    }
+
+    // 批量化之前 handleIncomingMessage 的写法：先读会话算未读数，再各自提交一次
+    static void applyOneByOne(UserDbHelper helper, Message message, ChatMessage chatMessage) {
+        Message existing = helper.loadSingleConversation(message.getSenderName());
+        Message update = new Message(null, message.getSenderName(), message.getContent(), message.getTime(),
+                (existing == null ? 0 : existing.getUnreadCount()) + 1);
+        update.setTimeMillis(message.getTimeMillis());
+        helper.upsertConversationMessage(update);
+        helper.insertChatMessage(chatMessage);
+    }
+}
@@ -0,0 +1,70 @@
+package com.example.firsttry.Database;
+
+import android.content.Context;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import com.example.firsttry.utils.MicroBenchmark;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+/**
+ * 1000 条消息的突发写入：逐条（每条读会话 + 两次单独提交）对比 applyIncomingMessages 一个事务。
+ * 每次操作写入新的 msg_id，两种写法面对的表大小一致。
+ * 跑在 Robolectric 使用的宿主机 SQLite 上，fsync 代价和真机闪存不同，只看两者的相对差距。
+ * 运行：./gradlew :app:testDebugUnitTest -Pestay.benchmark=true --tests '*MessageBurstBenchmark'
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 34)
+public class MessageBurstBenchmark {
+
+    private static final int BURST = 1000;
+    private static final int PEERS = 20;
+
+    private Context context;
+    private UserDbHelper helper;
+    private int next;
+
+    @Before
+    public void setUp() {
+        MicroBenchmark.assumeEnabled();
+        context = ApplicationProvider.getApplicationContext();
+        UserDbHelper.resetInstanceForTesting();
+        context.deleteDatabase("user.db");
+        helper = UserDbHelper.getInstance(context);
+    }
+
+    @After
+    public void tearDown() {
+        UserDbHelper.resetInstanceForTesting();
+        context.deleteDatabase("user.db");
+    }
+
+    @Test
+    public void burstOf1000() {
+        MicroBenchmark.Result perRow = MicroBenchmark.measure("1k burst, one by one", 1000, 5000, () -> {
+            MessageBurst burst = MessageBurst.of(take(), BURST, PEERS);
+            for (int i = 0; i < BURST; i++) {
+                MessageBurst.applyOneByOne(helper, burst.incoming.get(i), burst.chatMessages.get(i));
+            }
+            return burst;
+        });
+        MicroBenchmark.Result batched = MicroBenchmark.measure("1k burst, one transaction", 1000, 5000, () -> {
+            MessageBurst burst = MessageBurst.of(take(), BURST, PEERS);
+            return helper.applyIncomingMessages(burst.incoming, burst.chatMessages);
+        });
+        System.out.printf("one by one: %.0f msg/s, batched: %.0f msg/s%n",
+                BURST * 1e9 / perRow.nanosPerOp, BURST * 1e9 / batched.nanosPerOp);
+    }
+
+    private int take() {
+        int start = next;
+        next += BURST;
+        return start;
+    }
+}
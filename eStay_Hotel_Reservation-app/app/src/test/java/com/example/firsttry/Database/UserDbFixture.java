@@ -0,0 +1,53 @@
+package com.example.firsttry.Database;
+
+import android.content.Context;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import com.example.firsttry.activity.message.chat.ChatMessage;
+
+import org.junit.rules.ExternalResource;
+
+// UserDbHelper 测试共用：每个测试前后都重置单例并删除 user.db，测试拿到的是一个全新的空库。
+// 当前用户是 alice，chat(...) 生成对方发来的聊天记录
+final class UserDbFixture extends ExternalResource {
+
+    static final String DB_NAME = "user.db";
+    static final String ME = "alice";
+
+    private Context context;
+    private UserDbHelper helper;
+
+    @Override
+    protected void before() {
+        context = ApplicationProvider.getApplicationContext();
+        reopenEmpty();
+    }
+
+    @Override
+    protected void after() {
+        UserDbHelper.resetInstanceForTesting();
+        context.deleteDatabase(DB_NAME);
+    }
+
+    UserDbHelper helper() {
+        return helper;
+    }
+
+    // 测试中途丢弃当前数据库，换一个新的空库
+    UserDbHelper reopenEmpty() {
+        UserDbHelper.resetInstanceForTesting();
+        context.deleteDatabase(DB_NAME);
+        helper = UserDbHelper.getInstance(context);
+        return helper;
+    }
+
+    static ChatMessage chat(String id, String peer, String content, long timeMillis) {
+        return new ChatMessage(id, peer, peer, ME, content, "", timeMillis, false);
+    }
+
+    // 正文为 "msg " + id
+    static ChatMessage chat(String id, String peer, long timeMillis) {
+        return chat(id, peer, "msg " + id, timeMillis);
+    }
+}
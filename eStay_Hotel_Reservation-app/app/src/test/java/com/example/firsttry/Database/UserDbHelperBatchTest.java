@@ -0,0 +1,119 @@
+package com.example.firsttry.Database;
+
+import static com.example.firsttry.Database.UserDbFixture.chat;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import android.database.DatabaseUtils;
+
+import com.example.firsttry.activity.message.Message;
+import com.example.firsttry.activity.message.chat.ChatMessage;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+// 批量写入与逐条写入结果一致：未读数累加、预览取最后一条、msg_id 去重
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 34)
+public class UserDbHelperBatchTest {
+
+    @Rule
+    public final UserDbFixture db = new UserDbFixture();
+
+    private UserDbHelper helper;
+
+    @Before
+    public void setUp() {
+        helper = db.helper();
+    }
+
+    @Test
+    public void burstAccumulatesUnreadAndKeepsLatestPreview() {
+        MessageBurst burst = MessageBurst.of(0, 1000, 10);
+
+        List<String> changed = helper.applyIncomingMessages(burst.incoming, burst.chatMessages);
+
+        assertEquals(10, changed.size());
+        assertEquals(1000, DatabaseUtils.queryNumEntries(helper.getReadableDatabase(), UserDbHelper.TABLE_CHAT_MESSAGES));
+        Message peer3 = helper.loadSingleConversation("peer3");
+        assertEquals(100, peer3.getUnreadCount());
+        // peer3 的最后一条是第 993 条
+        assertEquals("消息 993", peer3.getContent());
+        assertEquals(burst.incoming.get(993).getTimeMillis(), peer3.getTimeMillis());
+
+        // 下一批在已有未读数上累加
+        helper.applyIncomingMessages(MessageBurst.of(1000, 10, 10).incoming, Collections.emptyList());
+        assertEquals(101, helper.loadSingleConversation("peer3").getUnreadCount());
+    }
+
+    @Test
+    public void batchMatchesPerRowWrites() {
+        MessageBurst burst = MessageBurst.of(0, 200, 7);
+        for (int i = 0; i < burst.incoming.size(); i++) {
+            MessageBurst.applyOneByOne(helper, burst.incoming.get(i), burst.chatMessages.get(i));
+        }
+        List<Message> perRow = helper.loadAllConversations();
+        List<ChatMessage> perRowChat = helper.loadMessagesPage("peer0", "alice", 0, 0, 100);
+
+        helper = db.reopenEmpty();
+        MessageBurst same = MessageBurst.of(0, 200, 7);
+        helper.applyIncomingMessages(same.incoming, same.chatMessages);
+        List<Message> batched = helper.loadAllConversations();
+        List<ChatMessage> batchedChat = helper.loadMessagesPage("peer0", "alice", 0, 0, 100);
+
+        assertEquals(perRow.size(), batched.size());
+        for (int i = 0; i < perRow.size(); i++) {
+            assertEquals(perRow.get(i).getSenderName(), batched.get(i).getSenderName());
+            assertEquals(perRow.get(i).getContent(), batched.get(i).getContent());
+            assertEquals(perRow.get(i).getTimeMillis(), batched.get(i).getTimeMillis());
+            assertEquals(perRow.get(i).getUnreadCount(), batched.get(i).getUnreadCount());
+        }
+        assertEquals(perRowChat.size(), batchedChat.size());
+        for (int i = 0; i < perRowChat.size(); i++) {
+            assertEquals(perRowChat.get(i).getMessageId(), batchedChat.get(i).getMessageId());
+        }
+    }
+
+    @Test
+    public void duplicateMsgIdInsideBatchIsStoredOnce() {
+        ChatMessage first = chat("m1", "bob", "旧", 1000);
+        ChatMessage again = chat("m1", "bob", "新", 1000);
+        ChatMessage other = chat("m2", "bob", "另一条", 2000);
+
+        assertEquals(2, helper.insertChatMessages(Arrays.asList(first, again, other)));
+
+        List<ChatMessage> stored = helper.loadMessagesPage("bob", "alice", 0, 0, 10);
+        assertEquals(2, stored.size());
+        assertEquals("新", stored.get(0).getContent());
+    }
+
+    @Test
+    public void existingMsgIdGetsStoredRowIdBack() {
+        ChatMessage first = chat("m1", "bob", "旧", 1000);
+        helper.insertChatMessages(Collections.singletonList(first));
+
+        // 与 insertChatMessage 一致：更新已有消息时也回填 _id，分页游标需要它
+        ChatMessage again = chat("m1", "bob", "新", 1000);
+        assertEquals(0, helper.insertChatMessages(Collections.singletonList(again)));
+
+        assertTrue(first.getRowId() > 0);
+        assertEquals(first.getRowId(), again.getRowId());
+        assertEquals(first.getRowId(), helper.loadMessagesPage("bob", "alice", 0, 0, 10).get(0).getRowId());
+    }
+
+    @Test
+    public void emptyBatchWritesNothing() {
+        assertEquals(0, helper.applyIncomingMessages(new ArrayList<>(), null).size());
+        assertEquals(0, helper.insertChatMessages(Collections.emptyList()));
+        assertEquals(0, DatabaseUtils.queryNumEntries(helper.getReadableDatabase(), UserDbHelper.TABLE_CONVERSATIONS));
+    }
+}
@@ -0,0 +1,112 @@
+package com.example.firsttry.Database;
+
+import static com.example.firsttry.Database.UserDbFixture.chat;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import android.database.Cursor;
+import android.database.DatabaseUtils;
+import android.database.sqlite.SQLiteDatabase;
+
+import com.example.firsttry.activity.message.chat.ChatMessage;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// 聊天记录表：打开会话走 (conv_id, timestamp_ms) 索引且不额外排序，msg_id 唯一并按 upsert 写入，WAL 已开启
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 34)
+public class UserDbHelperChatStoreTest {
+
+    @Rule
+    public final UserDbFixture db = new UserDbFixture();
+
+    private UserDbHelper helper;
+
+    @Before
+    public void setUp() {
+        helper = db.helper();
+    }
+
+    @Test
+    public void latestPageUsesConvTimeIndexWithoutSorting() {
+        String plan = explain(UserDbHelper.messagesPageSql(false, 50), "bob");
+        assertTrue(plan, plan.contains("idx_chat_messages_conv_time_ms"));
+        // 索引末尾隐含 rowid，(timestamp_ms DESC, _id DESC) 直接按索引倒序读出
+        assertFalse(plan, plan.contains("TEMP B-TREE"));
+    }
+
+    @Test
+    public void olderPageUsesConvTimeIndex() {
+        // 翻页（keyset 游标）
+        String plan = explain(UserDbHelper.messagesPageSql(true, 50), "bob", "5000", "5000", "10");
+        assertTrue(plan, plan.contains("idx_chat_messages_conv_time_ms"));
+    }
+
+    @Test
+    public void duplicateMsgIdUpdatesRowInPlace() {
+        long first = helper.insertChatMessage(chat("m1", "bob", "旧内容", 1000));
+        long second = helper.insertChatMessage(chat("m1", "bob", "新内容", 1000));
+
+        // 同一个 msg_id 只有一行，内容更新，_id 不变
+        assertEquals(first, second);
+        SQLiteDatabase db = helper.getReadableDatabase();
+        assertEquals(1, DatabaseUtils.queryNumEntries(db, UserDbHelper.TABLE_CHAT_MESSAGES));
+        assertEquals("新内容", DatabaseUtils.stringForQuery(db, "SELECT " + UserDbHelper.COL_CHAT_CONTENT
+                + " FROM " + UserDbHelper.TABLE_CHAT_MESSAGES, null));
+    }
+
+    @Test
+    public void writeAheadLoggingEnabled() {
+        assertTrue(helper.getWritableDatabase().isWriteAheadLoggingEnabled());
+    }
+
+    @Test
+    public void keysetPagingWalksWholeConversationInOrder() {
+        List<ChatMessage> messages = new ArrayList<>();
+        for (int i = 0; i < 25; i++) {
+            // 每两条共用一个毫秒，验证同一时间戳上的 _id 游标
+            messages.add(chat("b" + i, "bob", "msg " + i, 1000 + i / 2));
+            messages.add(chat("c" + i, "carol", "other " + i, 1000 + i));
+        }
+        helper.insertChatMessages(messages);
+
+        List<String> seen = new ArrayList<>();
+        long beforeMs = 0;
+        long beforeRowId = 0;
+        while (true) {
+            List<ChatMessage> page = helper.loadMessagesPage("bob", "alice", beforeMs, beforeRowId, 10);
+            if (page.isEmpty()) break;
+            for (int i = page.size() - 1; i >= 0; i--) {
+                seen.add(page.get(i).getMessageId());
+            }
+            ChatMessage oldest = page.get(0);
+            beforeMs = oldest.getTimestampMillis();
+            beforeRowId = oldest.getRowId();
+        }
+
+        assertEquals(25, seen.size());
+        for (int i = 0; i < 25; i++) {
+            assertEquals("b" + (24 - i), seen.get(i));
+        }
+    }
+
+    private String explain(String sql, String... args) {
+        StringBuilder plan = new StringBuilder();
+        try (Cursor cursor = helper.getReadableDatabase().rawQuery("EXPLAIN QUERY PLAN " + sql, args)) {
+            int detail = cursor.getColumnIndexOrThrow("detail");
+            while (cursor.moveToNext()) {
+                plan.append(cursor.getString(detail)).append('\n');
+            }
+        }
+        return plan.toString();
+    }
+}
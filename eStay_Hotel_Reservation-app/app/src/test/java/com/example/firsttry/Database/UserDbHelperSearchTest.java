@@ -0,0 +1,95 @@
+package com.example.firsttry.Database;
+
+import static com.example.firsttry.Database.UserDbFixture.chat;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+
+import com.example.firsttry.activity.message.chat.ChatMessage;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// 全文检索：中文二元组、订单号前缀、摘要定位、更新后重建索引，以及候选集按消息时间取最新
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 34)
+public class UserDbHelperSearchTest {
+
+    private static final long BASE_MS = 1_700_000_000_000L;
+    // 消息都来自酒店客服会话
+    private static final String HOTEL = "hotel";
+
+    @Rule
+    public final UserDbFixture db = new UserDbFixture();
+
+    private UserDbHelper helper;
+
+    @Before
+    public void setUp() {
+        helper = db.helper();
+    }
+
+    @Test
+    public void findsChineseWordsAndOrderNumberPrefix() {
+        helper.insertChatMessages(Arrays.asList(
+                chat("m1", HOTEL, "您好，您预订的酒店已确认，订单号 A20240501", 1000),
+                chat("m2", HOTEL, "请问几点可以入住？", 2000),
+                chat("m3", HOTEL, "酒水不含在房费里", 3000)));
+
+        assertEquals(Arrays.asList("m1"), ids(helper.searchMessages("酒店", 10)));
+        assertEquals(Arrays.asList("m2"), ids(helper.searchMessages("入住", 10)));
+        // 输入一半的订单号
+        assertEquals(Arrays.asList("m1"), ids(helper.searchMessages("a2024", 10)));
+        // 单字按前缀匹配，两条都命中，同分时新消息在前
+        assertEquals(Arrays.asList("m3", "m1"), ids(helper.searchMessages("酒", 10)));
+        assertTrue(helper.searchMessages("退款", 10).isEmpty());
+    }
+
+    @Test
+    public void snippetRangeCoversHit() {
+        helper.insertChatMessage(chat("m1", HOTEL, "您好，这里是前台。您预订的酒店房间已经确认，入住时请出示证件", 1000));
+
+        ChatSearchResult result = helper.searchMessages("酒店", 1).get(0);
+        String snippet = result.getSnippet();
+        assertEquals("酒店", snippet.substring(result.getHighlightStart(), result.getHighlightEnd()));
+    }
+
+    @Test
+    public void updatedContentIsReindexed() {
+        helper.insertChatMessage(chat("m1", HOTEL, "原来的内容", 1000));
+        helper.insertChatMessage(chat("m1", HOTEL, "改成了早餐", 1000));
+
+        assertTrue(helper.searchMessages("原来", 10).isEmpty());
+        assertEquals(Arrays.asList("m1"), ids(helper.searchMessages("早餐", 10)));
+    }
+
+    @Test
+    public void candidatesAreNewestByTimeNotByRowId() {
+        // 最新的一条最先写入（_id 最小），其余 2000 条是之后同步补回的更早的历史消息
+        List<ChatMessage> messages = new ArrayList<>();
+        messages.add(chat("newest", HOTEL, "订单确认", BASE_MS + 10_000_000));
+        for (int i = 0; i < 2000; i++) {
+            messages.add(chat("old" + i, HOTEL, "订单确认", BASE_MS + i));
+        }
+        helper.insertChatMessages(messages);
+
+        List<ChatSearchResult> results = helper.searchMessages("订单", 3);
+        assertEquals(Arrays.asList("newest", "old1999", "old1998"), ids(results));
+    }
+
+    private static List<String> ids(List<ChatSearchResult> results) {
+        List<String> ids = new ArrayList<>();
+        for (ChatSearchResult result : results) {
+            ids.add(result.getMessageId());
+        }
+        return ids;
+    }
+}
@@ -0,0 +1,93 @@
+package com.example.firsttry.Database;
+
+import static com.example.firsttry.Database.UserDbFixture.chat;
+import static org.junit.Assert.assertEquals;
+
+import android.database.DatabaseUtils;
+
+import com.example.firsttry.activity.message.Message;
+import com.example.firsttry.activity.message.chat.ChatMessage;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+// 增量同步写库：边界上重复返回的消息按 msg_id 去重，会话预览/未读数同事务更新，水位只前进不后退
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 34)
+public class UserDbHelperSyncTest {
+
+    @Rule
+    public final UserDbFixture db = new UserDbFixture();
+
+    private UserDbHelper helper;
+
+    @Before
+    public void setUp() {
+        helper = db.helper();
+    }
+
+    @Test
+    public void boundaryMessageReturnedAgainIsNotInsertedTwice() {
+        assertEquals(2, helper.applySyncedMessages(UserDbHelper.SYNC_ALL,
+                Arrays.asList(chat("m1", "bob", 1000), chat("m2", "bob", 2000)), 2000));
+        assertEquals(2000, helper.getSyncHighWaterMark(UserDbHelper.SYNC_ALL));
+
+        // 下一次同步从水位 2000（含）开始，m2 会再返回一次
+        assertEquals(1, helper.applySyncedMessages(UserDbHelper.SYNC_ALL,
+                Arrays.asList(chat("m2", "bob", 2000), chat("m3", "bob", 3000)), 3000));
+        assertEquals(3, DatabaseUtils.queryNumEntries(helper.getReadableDatabase(), UserDbHelper.TABLE_CHAT_MESSAGES));
+        assertEquals(3000, helper.getSyncHighWaterMark(UserDbHelper.SYNC_ALL));
+    }
+
+    @Test
+    public void highWaterMarkNeverMovesBackwards() {
+        helper.applySyncedMessages("bob", Collections.singletonList(chat("m1", "bob", 5000)), 5000);
+        helper.applySyncedMessages("bob", Collections.singletonList(chat("m0", "bob", 1000)), 1000);
+
+        assertEquals(5000, helper.getSyncHighWaterMark("bob"));
+        // 水位按 key 分开记录
+        assertEquals(0, helper.getSyncHighWaterMark(UserDbHelper.SYNC_ALL));
+    }
+
+    @Test
+    public void emptyPageStillRecordsHighWaterMark() {
+        assertEquals(0, helper.applySyncedMessages("bob", Collections.emptyList(), 4000));
+        assertEquals(4000, helper.getSyncHighWaterMark("bob"));
+    }
+
+    @Test
+    public void syncedMessagesUpdateConversationPreviewAndUnread() {
+        ChatMessage mine = new ChatMessage("m3", "bob", "alice", "bob", "我的回复", "", 3000, true);
+        helper.applySyncedMessages(UserDbHelper.SYNC_ALL, Arrays.asList(chat("m1", "bob", 1000), chat("m2", "bob", 2000), mine), 3000);
+
+        Message bob = helper.loadSingleConversation("bob");
+        assertEquals("我的回复", bob.getContent());
+        assertEquals(3000, bob.getTimeMillis());
+        // 自己发的不计未读
+        assertEquals(2, bob.getUnreadCount());
+
+        // 边界上重复返回的 m3 不再累加
+        helper.applySyncedMessages(UserDbHelper.SYNC_ALL, Arrays.asList(mine, chat("m4", "bob", 4000)), 4000);
+        bob = helper.loadSingleConversation("bob");
+        assertEquals("msg m4", bob.getContent());
+        assertEquals(3, bob.getUnreadCount());
+    }
+
+    @Test
+    public void backfilledOlderMessageKeepsNewerPreview() {
+        helper.applySyncedMessages("bob", Collections.singletonList(chat("m5", "bob", 5000)), 5000);
+        helper.applySyncedMessages(UserDbHelper.SYNC_ALL, Collections.singletonList(chat("m1", "bob", 1000)), 1000);
+
+        Message bob = helper.loadSingleConversation("bob");
+        assertEquals("msg m5", bob.getContent());
+        assertEquals(5000, bob.getTimeMillis());
+        assertEquals(2, bob.getUnreadCount());
+    }
+}
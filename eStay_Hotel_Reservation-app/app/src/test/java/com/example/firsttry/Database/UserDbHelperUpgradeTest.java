@@ -0,0 +1,127 @@
+package com.example.firsttry.Database;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.database.DatabaseUtils;
+import android.database.sqlite.SQLiteDatabase;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import com.example.firsttry.utils.TimeUtils;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.io.File;
+import java.util.List;
+
+// 从已发布的 v15 结构升级到当前版本：数据必须保留，不能走 fallbackToDestructiveMigration
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 34)
+public class UserDbHelperUpgradeTest {
+
+    private static final String DB_NAME = "user.db";
+
+    private Context context;
+
+    @Before
+    public void setUp() {
+        context = ApplicationProvider.getApplicationContext();
+        UserDbHelper.resetInstanceForTesting();
+        context.deleteDatabase(DB_NAME);
+    }
+
+    @After
+    public void tearDown() {
+        UserDbHelper.resetInstanceForTesting();
+        context.deleteDatabase(DB_NAME);
+    }
+
+    @Test
+    public void upgradeFromV15KeepsUsersConversationsAndMessages() {
+        createV15Database();
+
+        UserDbHelper helper = UserDbHelper.getInstance(context);
+        SQLiteDatabase db = helper.getReadableDatabase();
+
+        // 用户和会话还在（破坏性迁移会把它们删掉）
+        assertEquals("token-1", helper.getUserToken("alice"));
+        assertEquals(1, DatabaseUtils.queryNumEntries(db, UserDbHelper.TABLE_CONVERSATIONS));
+
+        // v16 按 msg_id 去重，每个 msg_id 保留最后写入的一行
+        assertEquals(2, DatabaseUtils.queryNumEntries(db, UserDbHelper.TABLE_CHAT_MESSAGES));
+
+        // v17 回填毫秒列
+        try (Cursor cursor = db.rawQuery("SELECT " + UserDbHelper.COL_CHAT_TIMESTAMP_MS + " FROM "
+                + UserDbHelper.TABLE_CHAT_MESSAGES + " WHERE " + UserDbHelper.COL_CHAT_MSG_ID + " = 'm1'", null)) {
+            assertTrue(cursor.moveToFirst());
+            assertEquals(TimeUtils.parseToMillis("2024-05-01 10:01:00"), cursor.getLong(0));
+        }
+        try (Cursor cursor = db.rawQuery("SELECT " + UserDbHelper.COL_TIME_MS + " FROM "
+                + UserDbHelper.TABLE_CONVERSATIONS, null)) {
+            assertTrue(cursor.moveToFirst());
+            assertEquals(TimeUtils.parseToMillis("2024-05-02 09:00:00"), cursor.getLong(0));
+        }
+
+        // 索引：新的 (conv_id, timestamp_ms) 和 msg_id 唯一索引存在，v16 的文本时间索引已删除
+        assertTrue(indexExists(db, "idx_chat_messages_conv_time_ms"));
+        assertTrue(indexExists(db, "idx_chat_messages_msg_id"));
+        assertFalse(indexExists(db, "idx_chat_messages_conv_time"));
+
+        // v20 为已有消息建了全文索引
+        List<ChatSearchResult> results = helper.searchMessages("酒店", 10);
+        assertEquals(1, results.size());
+        assertEquals("m2", results.get(0).getMessageId());
+    }
+
+    @Test
+    public void freshInstallCreatesCurrentSchema() {
+        UserDbHelper helper = UserDbHelper.getInstance(context);
+        SQLiteDatabase db = helper.getReadableDatabase();
+        assertTrue(indexExists(db, "idx_chat_messages_conv_time_ms"));
+        assertTrue(indexExists(db, "idx_chat_messages_msg_id"));
+        assertEquals(0, helper.countPendingOutbox());
+        assertEquals(0, helper.getSyncHighWaterMark(UserDbHelper.SYNC_ALL));
+    }
+
+    // 与 v15 的 onCreate 完全一致（基线版本的表结构）
+    private void createV15Database() {
+        File path = context.getDatabasePath(DB_NAME);
+        path.getParentFile().mkdirs();
+        SQLiteDatabase db = SQLiteDatabase.openOrCreateDatabase(path, null);
+        try {
+            db.execSQL("CREATE TABLE user (_id INTEGER PRIMARY KEY AUTOINCREMENT, account TEXT UNIQUE, "
+                    + "photo TEXT, email TEXT, token TEXT, remark TEXT);");
+            db.execSQL("CREATE TABLE conversations (_id INTEGER PRIMARY KEY AUTOINCREMENT, conv_id TEXT UNIQUE, "
+                    + "sender_name TEXT, content TEXT, time TEXT, unread INTEGER, remark TEXT)");
+            db.execSQL("CREATE TABLE chat_messages (_id INTEGER PRIMARY KEY AUTOINCREMENT, msg_id TEXT, conv_id TEXT, "
+                    + "sender TEXT, receiver TEXT, content TEXT, timestamp TEXT);");
+            db.execSQL("INSERT INTO user (account, token) VALUES ('alice', 'token-1')");
+            db.execSQL("INSERT INTO conversations (conv_id, sender_name, content, time, unread) "
+                    + "VALUES ('bob', 'bob', '明天见', '2024-05-02 09:00:00', 1)");
+            // m1 重复写入过两次（旧版本用时间戳做 msg_id）
+            db.execSQL("INSERT INTO chat_messages (msg_id, conv_id, sender, receiver, content, timestamp) "
+                    + "VALUES ('m1', 'bob', 'bob', 'alice', 'hello', '2024-05-01 10:00:00')");
+            db.execSQL("INSERT INTO chat_messages (msg_id, conv_id, sender, receiver, content, timestamp) "
+                    + "VALUES ('m1', 'bob', 'bob', 'alice', 'hello', '2024-05-01 10:01:00')");
+            db.execSQL("INSERT INTO chat_messages (msg_id, conv_id, sender, receiver, content, timestamp) "
+                    + "VALUES ('m2', 'bob', 'alice', 'bob', '我订了酒店', '2024-05-02 09:00:00')");
+            db.setVersion(15);
+        } finally {
+            db.close();
+        }
+    }
+
+    private static boolean indexExists(SQLiteDatabase db, String name) {
+        return DatabaseUtils.longForQuery(db,
+                "SELECT COUNT(*) FROM sqlite_master WHERE type = 'index' AND name = ?", new String[]{name}) > 0;
+    }
+}
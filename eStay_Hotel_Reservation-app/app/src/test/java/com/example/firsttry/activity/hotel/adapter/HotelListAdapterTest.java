@@ -0,0 +1,156 @@
+package com.example.firsttry.activity.hotel.adapter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+import androidx.annotation.Nullable;
+import androidx.recyclerview.widget.DiffUtil;
+import androidx.recyclerview.widget.ListUpdateCallback;
+import androidx.recyclerview.widget.RecyclerView;
+
+import com.example.firsttry.activity.hotel.model.HotelModel;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+public class HotelListAdapterTest {
+
+    @Test
+    public void stableIdDependsOnlyOnHotelId() {
+        assertEquals(HotelListAdapter.stableIdFor("65f0a1b2c3d4e5f601234567"),
+                HotelListAdapter.stableIdFor(new String("65f0a1b2c3d4e5f601234567")));
+        assertNotEquals(HotelListAdapter.stableIdFor("65f0a1b2c3d4e5f601234567"),
+                HotelListAdapter.stableIdFor("65f0a1b2c3d4e5f601234568"));
+    }
+
+    @Test
+    public void stableIdsDoNotCollideForManyObjectIds() {
+        Set<Long> ids = new HashSet<>();
+        for (int i = 0; i < 100_000; i++) {
+            long id = HotelListAdapter.stableIdFor(String.format("65f0a1b2c3d4e5f6%08x", i));
+            assertNotEquals(RecyclerView.NO_ID, id);
+            ids.add(id);
+        }
+        assertEquals(100_000, ids.size());
+    }
+
+    @Test
+    public void reorderedListProducesInsertRemoveMoveAndChange() {
+        HotelModel a = hotel("a", 300);
+        HotelModel b = hotel("b", 400);
+        HotelModel c = hotel("c", 500);
+        HotelModel d = hotel("d", 600);
+        HotelModel bCheaper = hotel("b", 350);
+        HotelModel e = hotel("e", 700);
+
+        List<HotelModel> oldList = Arrays.asList(a, b, c, d);
+        List<HotelModel> newList = Arrays.asList(c, a, bCheaper, e);
+        RecordingCallback ops = new RecordingCallback(oldList);
+        diff(oldList, newList).dispatchUpdatesTo(ops);
+
+        assertEquals(1, ops.inserted);
+        assertEquals(1, ops.removed);
+        assertEquals(1, ops.moved);
+        assertEquals(Collections.singletonList("b"), ops.changedIds);
+        // 按顺序应用这些操作后与新列表一致（"?" 是新插入的 e）
+        assertEquals(Arrays.asList("c", "a", "b", "?"), ops.ids);
+    }
+
+    @Test
+    public void identicalContentProducesNoOps() {
+        List<HotelModel> oldList = Arrays.asList(hotel("a", 300), hotel("b", 400));
+        // 新对象、相同内容：只比较字段，不比较引用
+        List<HotelModel> newList = Arrays.asList(hotel("a", 300), hotel("b", 400));
+        RecordingCallback ops = new RecordingCallback(oldList);
+        diff(oldList, newList).dispatchUpdatesTo(ops);
+
+        assertEquals(0, ops.inserted + ops.removed + ops.moved + ops.changedIds.size());
+    }
+
+    @Test
+    public void appendedPageIsOneRangeInsert() {
+        List<HotelModel> oldList = Arrays.asList(hotel("a", 300), hotel("b", 400));
+        List<HotelModel> newList = new ArrayList<>(oldList);
+        newList.add(hotel("c", 500));
+        newList.add(hotel("d", 600));
+        RecordingCallback ops = new RecordingCallback(oldList);
+        diff(oldList, newList).dispatchUpdatesTo(ops);
+
+        assertEquals(2, ops.inserted);
+        assertEquals(1, ops.insertCalls);
+        assertEquals(0, ops.removed + ops.moved + ops.changedIds.size());
+    }
+
+    private static DiffUtil.DiffResult diff(List<HotelModel> oldList, List<HotelModel> newList) {
+        return DiffUtil.calculateDiff(new DiffUtil.Callback() {
+            @Override
+            public int getOldListSize() {
+                return oldList.size();
+            }
+
+            @Override
+            public int getNewListSize() {
+                return newList.size();
+            }
+
+            @Override
+            public boolean areItemsTheSame(int oldPos, int newPos) {
+                return HotelListAdapter.DIFF_CALLBACK.areItemsTheSame(oldList.get(oldPos), newList.get(newPos));
+            }
+
+            @Override
+            public boolean areContentsTheSame(int oldPos, int newPos) {
+                return HotelListAdapter.DIFF_CALLBACK.areContentsTheSame(oldList.get(oldPos), newList.get(newPos));
+            }
+        }, true);
+    }
+
+    private static HotelModel hotel(String id, int price) {
+        return new HotelModel(id, "酒店" + id, null, null, 4f, null, price, null, null,
+                null, null, null, null, 1.5, false, 4.5f, null, 0, 0);
+    }
+
+    // 记录分发出来的操作，并把它们依次应用到 id 列表上
+    private static class RecordingCallback implements ListUpdateCallback {
+        final List<String> ids = new ArrayList<>();
+        final List<String> changedIds = new ArrayList<>();
+        int inserted;
+        int insertCalls;
+        int removed;
+        int moved;
+
+        RecordingCallback(List<HotelModel> oldList) {
+            for (HotelModel hotel : oldList) ids.add(hotel.getId());
+        }
+
+        @Override
+        public void onInserted(int position, int count) {
+            inserted += count;
+            insertCalls++;
+            for (int i = 0; i < count; i++) ids.add(position, "?");
+        }
+
+        @Override
+        public void onRemoved(int position, int count) {
+            removed += count;
+            for (int i = 0; i < count; i++) ids.remove(position);
+        }
+
+        @Override
+        public void onMoved(int fromPosition, int toPosition) {
+            moved++;
+            ids.add(toPosition, ids.remove(fromPosition));
+        }
+
+        @Override
+        public void onChanged(int position, int count, @Nullable Object payload) {
+            for (int i = 0; i < count; i++) changedIds.add(ids.get(position + i));
+        }
+    }
+}
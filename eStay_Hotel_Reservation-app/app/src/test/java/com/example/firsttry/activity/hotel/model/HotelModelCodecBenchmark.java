@@ -0,0 +1,127 @@
+package com.example.firsttry.activity.hotel.model;
+
+import static org.junit.Assert.assertEquals;
+
+import android.os.Parcel;
+
+import com.example.firsttry.utils.MicroBenchmark;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.ArrayList;
+
+/**
+ * Parcelable 与原先的 Java 序列化（Intent 里 putExtra(Serializable)）的对比：写入 + 读回的耗时、分配和字节数。
+ * 基线用字段相同的 Serializable 镜像类，HotelModel 本身不再需要实现 Serializable。
+ * 在 Robolectric 中运行，Parcel 是它的实现，数值只用于两种编码之间的比较。
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 34)
+public class HotelModelCodecBenchmark {
+
+    @Test
+    public void parcelableVersusJavaSerialization() throws Exception {
+        MicroBenchmark.assumeEnabled();
+        HotelModel hotel = HotelModelParcelTest.sampleHotel();
+        SerializedHotel mirror = new SerializedHotel(hotel);
+
+        System.out.println("Parcel bytes: " + parcelBytes(hotel).length + ", Serializable bytes: " + serialize(mirror).length);
+        assertEquals(hotel.getName(), HotelModelParcelTest.roundTrip(hotel, HotelModel.CREATOR).getName());
+        assertEquals(hotel.getName(), deserialize(serialize(mirror)).name);
+
+        MicroBenchmark.measure("parcelable round trip", () -> HotelModelParcelTest.roundTrip(hotel, HotelModel.CREATOR));
+        MicroBenchmark.measure("serializable round trip", () -> deserialize(serialize(mirror)));
+    }
+
+    private static byte[] parcelBytes(HotelModel hotel) {
+        Parcel parcel = Parcel.obtain();
+        try {
+            hotel.writeToParcel(parcel, 0);
+            return parcel.marshall();
+        } finally {
+            parcel.recycle();
+        }
+    }
+
+    private static byte[] serialize(Serializable value) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(value);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static SerializedHotel deserialize(byte[] bytes) throws IOException, ClassNotFoundException {
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+            return (SerializedHotel) in.readObject();
+        }
+    }
+
+    // 与 HotelModel 字段一致的 Serializable 版本
+    private static final class SerializedHotel implements Serializable {
+        final String id;
+        final String name;
+        final String nameEn;
+        final String address;
+        final float starRating;
+        final ArrayList<SerializedRoomType> roomTypes = new ArrayList<>();
+        final int startPrice;
+        final String openingTime;
+        final String description;
+        final ArrayList<String> amenities;
+        final ArrayList<String> images;
+        final String thumbnailUrl;
+        final ArrayList<String> tags;
+        final double distanceKm;
+        final boolean isCityCenter;
+        final float averageRating;
+        final String phone;
+        final double latitude;
+        final double longitude;
+
+        SerializedHotel(HotelModel hotel) {
+            id = hotel.getId();
+            name = hotel.getName();
+            nameEn = hotel.getNameEn();
+            address = hotel.getAddress();
+            starRating = hotel.getStarRating();
+            for (HotelModel.RoomType room : hotel.getRoomTypes()) {
+                roomTypes.add(new SerializedRoomType(room.getType(), room.getPrice(), room.getDescription()));
+            }
+            startPrice = hotel.getStartPrice();
+            openingTime = hotel.getOpeningTime();
+            description = hotel.getDescription();
+            amenities = new ArrayList<>(hotel.getAmenities());
+            images = new ArrayList<>(hotel.getImages());
+            thumbnailUrl = hotel.getThumbnailUrl();
+            tags = new ArrayList<>(hotel.getTags());
+            distanceKm = hotel.getDistanceKm();
+            isCityCenter = hotel.isCityCenter();
+            averageRating = hotel.getAverageRating();
+            phone = hotel.getPhone();
+            latitude = hotel.getLatitude();
+            longitude = hotel.getLongitude();
+        }
+    }
+
+    private static final class SerializedRoomType implements Serializable {
+        final String type;
+        final int price;
+        final String description;
+
+        SerializedRoomType(String type, int price, String description) {
+            this.type = type;
+            this.price = price;
+            this.description = description;
+        }
+    }
+}
@@ -0,0 +1,157 @@
+package com.example.firsttry.activity.hotel.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import android.os.Parcel;
+import android.os.Parcelable;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+// HotelModel / HotelSearchQuery 经过 Parcel 往返（marshall 成字节再读回）后字段不变
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 34)
+public class HotelModelParcelTest {
+
+    static HotelModel sampleHotel() {
+        return new HotelModel("65f0a1b2c3d4e5f601234567", "外滩酒店", "Bund Hotel", "中山东一路 1 号", 4.5f,
+                Arrays.asList(new HotelModel.RoomType("标准间", 588, "1.5米双床"), new HotelModel.RoomType("套房", 1288, null)),
+                588, "2015-06-01", "江景房", Arrays.asList("免费WiFi", "停车场"),
+                Arrays.asList("https://img.example.com/1.jpg", "https://img.example.com/2.jpg"), "https://img.example.com/main.jpg",
+                Arrays.asList("5星级", "免费WiFi"), 2.35, false, 4.7f, "021-60000000", 31.2397, 121.4998);
+    }
+
+    @Test
+    public void hotelModelRoundTrip() {
+        HotelModel original = sampleHotel();
+
+        HotelModel copy = roundTrip(original, HotelModel.CREATOR);
+
+        assertEquals(original.getId(), copy.getId());
+        assertEquals(original.getName(), copy.getName());
+        assertEquals(original.getNameEn(), copy.getNameEn());
+        assertEquals(original.getAddress(), copy.getAddress());
+        assertEquals(original.getStarRating(), copy.getStarRating(), 0);
+        assertEquals(original.getStartPrice(), copy.getStartPrice());
+        assertEquals(original.getOpeningTime(), copy.getOpeningTime());
+        assertEquals(original.getDescription(), copy.getDescription());
+        assertEquals(original.getAmenities(), copy.getAmenities());
+        assertEquals(original.getImages(), copy.getImages());
+        assertEquals(original.getThumbnailUrl(), copy.getThumbnailUrl());
+        assertEquals(original.getTags(), copy.getTags());
+        assertEquals(original.getDistanceKm(), copy.getDistanceKm(), 0);
+        assertEquals(original.isCityCenter(), copy.isCityCenter());
+        assertEquals(original.getAverageRating(), copy.getAverageRating(), 0);
+        assertEquals(original.getPhone(), copy.getPhone());
+        assertEquals(original.getLatitude(), copy.getLatitude(), 0);
+        assertEquals(original.getLongitude(), copy.getLongitude(), 0);
+
+        assertEquals(2, copy.getRoomTypes().size());
+        assertEquals("套房", copy.getRoomTypes().get(1).getType());
+        assertEquals(1288, copy.getRoomTypes().get(1).getPrice());
+        assertNull(copy.getRoomTypes().get(1).getDescription());
+    }
+
+    @Test
+    public void hotelModelWithNullsAndNaNCoordinatesRoundTrip() {
+        HotelModel original = new HotelModel("a", "A", null, "x", 0f, null, 100, null, null,
+                null, Collections.emptyList(), null, null, 0, true, 0f, null, Double.NaN, Double.NaN);
+
+        HotelModel copy = roundTrip(original, HotelModel.CREATOR);
+
+        assertNull(copy.getNameEn());
+        assertNull(copy.getRoomTypes());
+        assertNull(copy.getAmenities());
+        assertTrue(copy.getImages().isEmpty());
+        assertTrue(copy.isCityCenter());
+        assertTrue(Double.isNaN(copy.getLatitude()));
+    }
+
+    @Test
+    public void searchQueryRoundTrip() {
+        HotelSearchQuery original = new HotelSearchQuery();
+        original.setCity("上海");
+        original.setCheckInDate("2024-05-01");
+        original.setCheckOutDate("2024-05-03");
+        original.setMinPrice(200);
+        original.setMaxPrice(800);
+        original.setStarRating(4);
+        original.setKeyword("外滩");
+        original.setTags(Arrays.asList("亲子", "江景"));
+        original.setLatitude(31.23);
+        original.setLongitude(121.47);
+        original.setLocationMode(true);
+        original.setRoomCount(2);
+        original.setAdultCount(3);
+        original.setChildCount(1);
+        original.setQuickTags(Collections.singletonList("免费停车"));
+        original.setSortBy("distance");
+        original.setFacilities(Arrays.asList("健身房", "泳池"));
+        original.setUserLocation(new HotelSearchQuery.UserLocation(31.2, 121.5));
+        original.setPage(3);
+        original.setPageSize(20);
+
+        HotelSearchQuery copy = roundTrip(original, HotelSearchQuery.CREATOR);
+
+        assertEquals("上海", copy.getCity());
+        assertEquals("2024-05-01", copy.getCheckInDate());
+        assertEquals("2024-05-03", copy.getCheckOutDate());
+        assertEquals(200, copy.getMinPrice());
+        assertEquals(800, copy.getMaxPrice());
+        assertEquals(4, copy.getStarRating());
+        assertEquals("外滩", copy.getKeyword());
+        assertEquals(Arrays.asList("亲子", "江景"), copy.getTags());
+        assertEquals(31.23, copy.getLatitude(), 0);
+        assertEquals(121.47, copy.getLongitude(), 0);
+        assertTrue(copy.isLocationMode());
+        assertEquals(2, copy.getRoomCount());
+        assertEquals(3, copy.getAdultCount());
+        assertEquals(1, copy.getChildCount());
+        assertEquals(Collections.singletonList("免费停车"), copy.getQuickTags());
+        assertEquals("distance", copy.getSortBy());
+        assertEquals(Arrays.asList("健身房", "泳池"), copy.getFacilities());
+        assertEquals(31.2, copy.getUserLocation().latitude, 0);
+        assertEquals(121.5, copy.getUserLocation().longitude, 0);
+        assertEquals(3, copy.getPage());
+        assertEquals(20, copy.getPageSize());
+    }
+
+    @Test
+    public void defaultSearchQueryRoundTrip() {
+        HotelSearchQuery copy = roundTrip(new HotelSearchQuery(), HotelSearchQuery.CREATOR);
+
+        assertNull(copy.getCity());
+        assertNull(copy.getTags());
+        assertNull(copy.getUserLocation());
+        assertEquals(1, copy.getRoomCount());
+        assertEquals(1, copy.getPage());
+        assertEquals(10, copy.getPageSize());
+    }
+
+    // 写入、转成字节、在新的 Parcel 中读回，与跨进程传递时一样
+    static <T extends Parcelable> T roundTrip(T value, Parcelable.Creator<T> creator) {
+        Parcel out = Parcel.obtain();
+        byte[] bytes;
+        try {
+            value.writeToParcel(out, 0);
+            bytes = out.marshall();
+        } finally {
+            out.recycle();
+        }
+        Parcel in = Parcel.obtain();
+        try {
+            in.unmarshall(bytes, 0, bytes.length);
+            in.setDataPosition(0);
+            return creator.createFromParcel(in);
+        } finally {
+            in.recycle();
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package com.example.firsttry.activity.hotel.repository;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import android.content.ContentValues;
+import android.content.Context;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import com.example.firsttry.activity.hotel.model.HotelModel;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+// 酒店磁盘缓存：按 (id, 入住, 离店) 存取、替换、按写入顺序淘汰、丢弃无法解析的行，以及启动时加载空间索引用的查询
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 34)
+public class HotelCacheDbHelperTest {
+
+    private static final int MAX_ENTRIES = 4;
+
+    private Context context;
+    private HotelCacheDbHelper cache;
+
+    @Before
+    public void setUp() {
+        context = ApplicationProvider.getApplicationContext();
+        context.deleteDatabase(HotelCacheDbHelper.DB_NAME);
+        cache = new HotelCacheDbHelper(context, MAX_ENTRIES);
+    }
+
+    @After
+    public void tearDown() {
+        cache.close();
+        context.deleteDatabase(HotelCacheDbHelper.DB_NAME);
+    }
+
+    @Test
+    public void listAndDatedRowsAreSeparateKeys() {
+        cache.put(Collections.singletonList(hotel("h1", 300)), null, null);
+        cache.put(Collections.singletonList(hotel("h1", 520)), "2024-05-01", "2024-05-02");
+
+        assertEquals(300, cache.get("h1", null, null).getStartPrice());
+        assertEquals(520, cache.get("h1", "2024-05-01", "2024-05-02").getStartPrice());
+        assertNull(cache.get("h1", "2024-06-01", "2024-06-02"));
+        assertNull(cache.get("h2", null, null));
+    }
+
+    @Test
+    public void roundTripKeepsFields() {
+        HotelModel original = new HotelModel("h1", "外滩酒店", "Bund Hotel", "中山东一路 1 号", 4.5f,
+                Collections.singletonList(new HotelModel.RoomType("标准间", 588, "1.5米双床")), 588, "2015-06-01", "江景房",
+                Arrays.asList("免费WiFi", "停车场"), null, "https://img.example.com/main.jpg", null,
+                2.35, false, 4.7f, "021-60000000", 31.2397, 121.4998);
+        cache.put(Collections.singletonList(original), "2024-05-01", "2024-05-02");
+
+        HotelModel copy = cache.get("h1", "2024-05-01", "2024-05-02");
+        assertEquals("外滩酒店", copy.getName());
+        assertEquals("标准间", copy.getRoomTypes().get(0).getType());
+        assertEquals(Arrays.asList("免费WiFi", "停车场"), copy.getAmenities());
+        assertEquals(31.2397, copy.getLatitude(), 0);
+        assertEquals(121.4998, copy.getLongitude(), 0);
+    }
+
+    @Test
+    public void putReplacesExistingRow() {
+        cache.put(Collections.singletonList(hotel("h1", 300)), null, null);
+        cache.put(Collections.singletonList(hotel("h1", 280)), null, null);
+
+        assertEquals(1, cache.count());
+        assertEquals(280, cache.get("h1", null, null).getStartPrice());
+    }
+
+    @Test
+    public void oldestRowsAreEvictedAcrossWrites() {
+        for (int i = 1; i <= 6; i++) {
+            cache.put(Collections.singletonList(hotel("h" + i, 100 * i)), null, null);
+        }
+
+        assertEquals(MAX_ENTRIES, cache.count());
+        assertNull(cache.get("h1", null, null));
+        assertNull(cache.get("h2", null, null));
+        assertEquals(300, cache.get("h3", null, null).getStartPrice());
+        assertEquals(600, cache.get("h6", null, null).getStartPrice());
+    }
+
+    @Test
+    public void oldestRowsAreEvictedWithinOneBatch() {
+        cache.put(Arrays.asList(hotel("h1", 1), hotel("h2", 2), hotel("h3", 3), hotel("h4", 4), hotel("h5", 5),
+                hotel("h6", 6)), null, null);
+
+        // 同一批写入时间相同，保留后写入的
+        assertEquals(MAX_ENTRIES, cache.count());
+        assertNull(cache.get("h2", null, null));
+        assertEquals(3, cache.get("h3", null, null).getStartPrice());
+    }
+
+    @Test
+    public void loadLocatedReturnsNewestListRowsWithCoordinatesOldestFirst() {
+        cache.put(Collections.singletonList(hotel("h1", 1)), null, null);
+        cache.put(Collections.singletonList(hotel("h2", 2)), null, null);
+        cache.put(Collections.singletonList(new HotelModel("h3", "无坐标", null, null, 4f, null, 3, null, null,
+                null, null, null, null, 0, false, 0f, null, 0, 0)), null, null);
+        cache.put(Collections.singletonList(hotel("h4", 4)), "2024-05-01", "2024-05-02");
+
+        List<HotelModel> located = cache.loadLocated(10);
+        assertEquals(Arrays.asList("h1", "h2"), ids(located));
+
+        cache.put(Collections.singletonList(hotel("h1", 1)), null, null);
+        assertEquals(Arrays.asList("h2", "h1"), ids(cache.loadLocated(10)));
+        assertEquals(Collections.singletonList("h1"), ids(cache.loadLocated(1)));
+    }
+
+    @Test
+    public void unreadableRowIsDropped() {
+        ContentValues values = new ContentValues();
+        values.put(HotelCacheDbHelper.COL_HOTEL_ID, "h1");
+        values.put(HotelCacheDbHelper.COL_DATA, new byte[0]);
+        cache.getWritableDatabase().insert(HotelCacheDbHelper.TABLE_HOTELS, null, values);
+
+        assertNull(cache.get("h1", null, null));
+        assertEquals(0, cache.count());
+    }
+
+    private static List<String> ids(List<HotelModel> hotels) {
+        List<String> ids = new ArrayList<>();
+        for (HotelModel hotel : hotels) {
+            ids.add(hotel.getId());
+        }
+        return ids;
+    }
+
+    private static HotelModel hotel(String id, int price) {
+        return new HotelModel(id, "酒店" + id, null, null, 4f, null, price, null, null,
+                null, null, null, null, 0, false, 0f, null, 31.2, 121.5);
+    }
+}
@@ -0,0 +1,264 @@
+package com.example.firsttry.activity.hotel.repository;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.example.firsttry.activity.hotel.model.HotelModel;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+// k-d 树的 nearest / withinRadius 与逐个计算 haversine 的暴力结果对比，覆盖经度 ±180° 接缝、两极、k 超过总数和半径 0/无穷
+public class HotelSpatialIndexTest {
+
+    private static final double EPS_KM = 1e-6;
+
+    @Test
+    public void nearestMatchesBruteForceOnRandomPoints() {
+        Random random = new Random(7);
+        List<HotelModel> hotels = randomHotels(random, 500);
+        HotelSpatialIndex index = indexOf(hotels);
+
+        for (int q = 0; q < 100; q++) {
+            double lat = randomLatitude(random);
+            double lng = randomLongitude(random);
+            for (int k : new int[]{1, 5, 37}) {
+                List<HotelModel> expected = bruteForce(hotels, lat, lng, Double.POSITIVE_INFINITY);
+                assertSameNeighbors(expected.subList(0, k), index.nearest(lat, lng, k, Double.POSITIVE_INFINITY), lat, lng);
+            }
+            // 带半径：结果是半径内的前 k 个
+            List<HotelModel> inRadius = bruteForce(hotels, lat, lng, 2000);
+            List<HotelModel> actual = index.nearest(lat, lng, 10, 2000);
+            assertSameNeighbors(inRadius.subList(0, Math.min(10, inRadius.size())), actual, lat, lng);
+        }
+    }
+
+    @Test
+    public void withinRadiusMatchesBruteForceOnRandomPoints() {
+        Random random = new Random(11);
+        List<HotelModel> hotels = randomHotels(random, 500);
+        HotelSpatialIndex index = indexOf(hotels);
+
+        for (int q = 0; q < 100; q++) {
+            double lat = randomLatitude(random);
+            double lng = randomLongitude(random);
+            for (double radius : new double[]{50, 800, 5000}) {
+                assertSameNeighbors(bruteForce(hotels, lat, lng, radius), index.withinRadius(lat, lng, radius), lat, lng);
+            }
+        }
+    }
+
+    @Test
+    public void antimeridianNeighborsAreFoundFromBothSides() {
+        HotelModel east = hotel("east", 10.0, 179.95);
+        HotelModel west = hotel("west", 10.0, -179.95);
+        HotelModel far = hotel("far", 10.0, 170.0);
+        HotelSpatialIndex index = indexOf(Arrays.asList(far, east, west));
+
+        for (double lng : new double[]{180.0, -180.0, 179.99, -179.99}) {
+            List<HotelModel> nearest = index.nearest(10.0, lng, 2, Double.POSITIVE_INFINITY);
+            assertEquals(new HashSet<>(Arrays.asList("east", "west")), idSet(nearest));
+            // 跨过接缝只有十来公里，而不是绕地球大半圈
+            assertTrue(nearest.get(1).getDistanceKm() < 20);
+            assertEquals(new HashSet<>(Arrays.asList("east", "west")), idSet(index.withinRadius(10.0, lng, 50)));
+        }
+    }
+
+    @Test
+    public void pointsAroundPoleAreEquidistantFromPole() {
+        List<HotelModel> hotels = new ArrayList<>();
+        for (int i = 0; i < 12; i++) {
+            hotels.add(hotel("n" + i, 89.9, -180 + 30 * i));
+        }
+        hotels.add(hotel("south", -89.9, 0));
+        HotelSpatialIndex index = indexOf(hotels);
+
+        // 极点的经度没有意义，换一个经度结果不变
+        for (double lng : new double[]{0, 77, -180}) {
+            List<HotelModel> nearest = index.nearest(90, lng, 12, Double.POSITIVE_INFINITY);
+            assertEquals(12, nearest.size());
+            for (HotelModel hotel : nearest) {
+                assertTrue(hotel.getId().startsWith("n"));
+                assertEquals(11.12, hotel.getDistanceKm(), 0.01);
+            }
+            assertEquals(12, index.withinRadius(90, lng, 12).size());
+        }
+        assertEquals("south", index.nearest(-90, 0, 1, Double.POSITIVE_INFINITY).get(0).getId());
+    }
+
+    @Test
+    public void kLargerThanSizeReturnsEverythingSorted() {
+        Random random = new Random(3);
+        List<HotelModel> hotels = randomHotels(random, 20);
+        HotelSpatialIndex index = indexOf(hotels);
+
+        List<HotelModel> all = index.nearest(31.2, 121.5, 100, Double.POSITIVE_INFINITY);
+        assertSameNeighbors(bruteForce(hotels, 31.2, 121.5, Double.POSITIVE_INFINITY), all, 31.2, 121.5);
+        assertEquals(0, index.nearest(31.2, 121.5, 0, Double.POSITIVE_INFINITY).size());
+        assertEquals(0, new HotelSpatialIndex(10).nearest(31.2, 121.5, 5, Double.POSITIVE_INFINITY).size());
+    }
+
+    @Test
+    public void zeroRadiusMatchesOnlyCoincidentPoint() {
+        HotelSpatialIndex index = indexOf(Arrays.asList(hotel("here", 31.2397, 121.4998), hotel("near", 31.2398, 121.4998)));
+
+        assertEquals(Collections.singleton("here"), idSet(index.withinRadius(31.2397, 121.4998, 0)));
+        assertEquals(Collections.singleton("here"), idSet(index.nearest(31.2397, 121.4998, 5, 0)));
+        assertEquals(0, index.withinRadius(0, 0, 0).size());
+    }
+
+    @Test
+    public void infiniteRadiusMatchesEverything() {
+        Random random = new Random(5);
+        List<HotelModel> hotels = randomHotels(random, 200);
+        HotelSpatialIndex index = indexOf(hotels);
+
+        assertEquals(hotels.size(), index.withinRadius(-33.9, 18.4, Double.POSITIVE_INFINITY).size());
+        // 超过半个地球周长的半径也是不限
+        assertEquals(hotels.size(), index.withinRadius(-33.9, 18.4, 30000).size());
+        assertEquals(hotels.size(), index.nearest(-33.9, 18.4, hotels.size(), Double.POSITIVE_INFINITY).size());
+    }
+
+    @Test
+    public void putReplacesAndSkipsHotelsWithoutCoordinates() {
+        HotelSpatialIndex index = new HotelSpatialIndex(10);
+        index.put(hotel("a", 31.0, 121.0));
+        index.put(hotel("b", 0, 0));
+        assertEquals(1, index.size());
+
+        // 同一 id 的新坐标替换旧坐标；新数据没有坐标时移出索引
+        index.put(hotel("a", 40.0, 116.4));
+        assertEquals(1, index.size());
+        assertEquals(0, index.withinRadius(31.0, 121.0, 100).size());
+        index.put(hotel("a", Double.NaN, Double.NaN));
+        assertEquals(0, index.size());
+    }
+
+    @Test
+    public void putIfAbsentKeepsNewerData() {
+        HotelSpatialIndex index = new HotelSpatialIndex(10);
+        index.put(hotel("a", 40.0, 116.4));
+        index.putIfAbsent(hotel("a", 31.0, 121.0));
+        index.putIfAbsent(hotel("b", 31.0, 121.0));
+
+        assertEquals(2, index.size());
+        assertEquals("b", index.nearest(31.0, 121.0, 1, Double.POSITIVE_INFINITY).get(0).getId());
+    }
+
+    @Test
+    public void oldestEntriesAreEvictedPastCapacity() {
+        HotelSpatialIndex index = new HotelSpatialIndex(3);
+        index.put(hotel("a", 10, 10));
+        index.put(hotel("b", 20, 20));
+        index.put(hotel("c", 30, 30));
+        index.put(hotel("d", 40, 40));
+
+        assertEquals(3, index.size());
+        assertEquals(new HashSet<>(Arrays.asList("b", "c", "d")),
+                idSet(index.withinRadius(0, 0, Double.POSITIVE_INFINITY)));
+    }
+
+    @Test
+    public void haversineMatchesKnownDistances() {
+        double[] out = new double[3];
+        HotelSpatialIndex.haversineKm(31.2304, 121.4737,
+                new double[]{39.9042, 31.2304, -31.2304}, new double[]{116.4074, 121.4737, -58.5263}, 3, out);
+        // 上海 - 北京约 1067 km；同一点为 0；对跖点为半个周长
+        assertEquals(1067, out[0], 2);
+        assertEquals(0, out[1], EPS_KM);
+        assertEquals(Math.PI * HotelSpatialIndex.EARTH_RADIUS_KM, out[2], 1e-3);
+    }
+
+    @Test
+    public void sortByDistancePutsHotelsWithoutCoordinatesLast() {
+        List<HotelModel> sorted = HotelSpatialIndex.sortByDistance(Arrays.asList(
+                hotel("none", 0, 0), hotel("far", 39.9, 116.4), hotel("near", 31.3, 121.5)), 31.2, 121.5);
+
+        assertEquals("near", sorted.get(0).getId());
+        assertEquals("far", sorted.get(1).getId());
+        assertEquals("none", sorted.get(2).getId());
+        assertEquals(expectedKm(31.2, 121.5, 31.3, 121.5), sorted.get(0).getDistanceKm(), EPS_KM);
+    }
+
+    // 结果与暴力结果逐个对应：同样的酒店、同样的顺序（随机坐标下距离不会相等），距离一致
+    private static void assertSameNeighbors(List<HotelModel> expected, List<HotelModel> actual, double lat, double lng) {
+        assertEquals("query " + lat + "," + lng, ids(expected), ids(actual));
+        for (int i = 0; i < actual.size(); i++) {
+            HotelModel hotel = actual.get(i);
+            assertEquals(expectedKm(lat, lng, hotel.getLatitude(), hotel.getLongitude()), hotel.getDistanceKm(), EPS_KM);
+        }
+    }
+
+    private static List<HotelModel> bruteForce(List<HotelModel> hotels, double lat, double lng, double radiusKm) {
+        List<HotelModel> result = new ArrayList<>();
+        for (HotelModel hotel : hotels) {
+            if (expectedKm(lat, lng, hotel.getLatitude(), hotel.getLongitude()) <= radiusKm) {
+                result.add(hotel);
+            }
+        }
+        result.sort(Comparator.comparingDouble(h -> expectedKm(lat, lng, h.getLatitude(), h.getLongitude())));
+        return result;
+    }
+
+    // 独立写一遍 haversine，不复用被测的批量实现
+    private static double expectedKm(double lat1, double lng1, double lat2, double lng2) {
+        double dLat = Math.toRadians(lat2 - lat1);
+        double dLng = Math.toRadians(lng2 - lng1);
+        double a = Math.sin(dLat / 2) * Math.sin(dLat / 2)
+                + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2)) * Math.sin(dLng / 2) * Math.sin(dLng / 2);
+        return 2 * HotelSpatialIndex.EARTH_RADIUS_KM * Math.atan2(Math.sqrt(a), Math.sqrt(1 - a));
+    }
+
+    private static List<String> ids(List<HotelModel> hotels) {
+        List<String> ids = new ArrayList<>();
+        for (HotelModel hotel : hotels) {
+            ids.add(hotel.getId());
+        }
+        return ids;
+    }
+
+    private static Set<String> idSet(List<HotelModel> hotels) {
+        return new HashSet<>(ids(hotels));
+    }
+
+    private static HotelSpatialIndex indexOf(List<HotelModel> hotels) {
+        HotelSpatialIndex index = new HotelSpatialIndex(hotels.size() + 1);
+        index.putAll(hotels);
+        return index;
+    }
+
+    // 包含两极附近和经度接缝附近的点
+    private static List<HotelModel> randomHotels(Random random, int count) {
+        List<HotelModel> hotels = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            hotels.add(hotel("h" + i, randomLatitude(random), randomLongitude(random)));
+        }
+        hotels.add(hotel("seam-e", 0.5, 179.999));
+        hotels.add(hotel("seam-w", -0.5, -179.999));
+        hotels.add(hotel("pole-n", 89.99, 45));
+        hotels.add(hotel("pole-s", -89.99, -135));
+        return hotels;
+    }
+
+    // 球面上均匀分布：纬度按 asin 取样，否则点都挤在两极
+    private static double randomLatitude(Random random) {
+        return Math.toDegrees(Math.asin(2 * random.nextDouble() - 1));
+    }
+
+    private static double randomLongitude(Random random) {
+        return -180 + 360 * random.nextDouble();
+    }
+
+    private static HotelModel hotel(String id, double lat, double lng) {
+        return new HotelModel(id, "酒店" + id, null, null, 4f, null, 300, null, null,
+                null, null, null, null, 0, false, 0f, null, lat, lng);
+    }
+}
@@ -0,0 +1,178 @@
+package com.example.firsttry.activity.message;
+
+import static org.junit.Assert.assertEquals;
+
+import androidx.annotation.Nullable;
+import androidx.recyclerview.widget.ListUpdateCallback;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+// 会话索引：把发出的通知依次应用到一份镜像列表上，镜像必须始终与索引一致，
+// 最终顺序必须等于对输入直接排序的结果。TextUtils 需要真实实现，所以走 Robolectric
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 34)
+public class ConversationIndexTest {
+
+    private ConversationIndex index;
+    private Recorder recorder;
+
+    @Before
+    public void setUp() {
+        index = new ConversationIndex();
+        recorder = new Recorder();
+        index.setCallback(recorder);
+    }
+
+    @Test
+    public void randomUpsertsMatchSortedInput() {
+        Random random = new Random(42);
+        Map<String, Message> latest = new LinkedHashMap<>();
+        for (int i = 0; i < 2000; i++) {
+            // 时间只取 50 个值，制造大量相同时间，走 conv_id 的次序
+            Message conversation = conversation("c" + random.nextInt(40), random.nextInt(50) * 1000L,
+                    random.nextInt(3));
+            index.upsert(conversation);
+            latest.put(conversation.getSenderName(), conversation);
+            assertEquals("第 " + i + " 次 upsert 后", keys(), recorder.mirror);
+        }
+
+        List<Message> expected = new ArrayList<>(latest.values());
+        Collections.sort(expected, (a, b) -> {
+            int c = Long.compare(b.getTimeMillis(), a.getTimeMillis());
+            return c != 0 ? c : a.getSenderName().compareTo(b.getSenderName());
+        });
+        List<String> expectedKeys = new ArrayList<>();
+        for (Message conversation : expected) {
+            expectedKeys.add(conversation.getSenderName());
+        }
+        assertEquals(expectedKeys, keys());
+        for (int i = 0; i < expectedKeys.size(); i++) {
+            assertEquals(i, index.positionOf(expectedKeys.get(i)));
+        }
+    }
+
+    @Test
+    public void movedRowIsChangedAtItsNewPosition() {
+        index.upsertAll(Arrays.asList(conversation("a", 3000, 0), conversation("b", 2000, 0),
+                conversation("c", 1000, 0)));
+        recorder.ops.clear();
+
+        index.upsert(conversation("c", 4000, 1));
+
+        // 先移动，再按移动后的位置刷新内容
+        assertEquals(Arrays.asList("move 2->0", "change 0"), recorder.ops);
+        assertEquals(Arrays.asList("c", "a", "b"), recorder.mirror);
+    }
+
+    @Test
+    public void updateInPlaceIsOnlyAChangeAndSameContentIsNoOp() {
+        index.upsertAll(Arrays.asList(conversation("a", 3000, 0), conversation("b", 2000, 0)));
+        recorder.ops.clear();
+
+        index.upsert(conversation("b", 2000, 5));
+        assertEquals(Collections.singletonList("change 1"), recorder.ops);
+
+        recorder.ops.clear();
+        // 新对象、相同内容
+        index.upsert(conversation("b", 2000, 5));
+        assertEquals(Collections.emptyList(), recorder.ops);
+    }
+
+    @Test
+    public void removeFindsRowByItsCurrentKey() {
+        index.upsertAll(Arrays.asList(conversation("a", 1000, 0), conversation("b", 1000, 0),
+                conversation("c", 1000, 0), conversation("d", 500, 0)));
+        // b 的时间变了，删除时要按新的排序键二分查找
+        index.upsert(conversation("b", 200, 0));
+        recorder.ops.clear();
+
+        index.remove("b");
+        index.remove("missing");
+
+        assertEquals(Collections.singletonList("remove 3"), recorder.ops);
+        assertEquals(Arrays.asList("a", "c", "d"), recorder.mirror);
+        assertEquals(-1, index.positionOf("b"));
+        assertEquals(1, index.positionOf("c"));
+        assertEquals(2, index.positionOf("d"));
+    }
+
+    @Test
+    public void replaceAllReconcilesWithDatabaseList() {
+        index.replaceAll(Arrays.asList(conversation("b", 2000, 0), conversation("a", 3000, 0),
+                conversation("c", 1000, 0)));
+        // 首次加载是一次范围插入
+        assertEquals(Collections.singletonList("insert 0+3"), recorder.ops);
+        assertEquals(Arrays.asList("a", "b", "c"), recorder.mirror);
+        recorder.ops.clear();
+
+        // a 不变，b 被删，c 有新消息，d 是新会话
+        index.replaceAll(Arrays.asList(conversation("a", 3000, 0), conversation("c", 5000, 2),
+                conversation("d", 2500, 1)));
+
+        assertEquals(Arrays.asList("c", "a", "d"), keys());
+        assertEquals(keys(), recorder.mirror);
+        // 没变化的 a 不发通知
+        assertEquals(Arrays.asList("remove 1", "move 1->0", "change 0", "insert 2+1"), recorder.ops);
+    }
+
+    private List<String> keys() {
+        List<String> keys = new ArrayList<>();
+        for (int i = 0; i < index.size(); i++) {
+            keys.add(index.get(i).getSenderName());
+        }
+        return keys;
+    }
+
+    private static Message conversation(String id, long timeMillis, int unread) {
+        Message message = new Message(null, id, "最后一条 " + timeMillis, "", unread);
+        message.setTimeMillis(timeMillis);
+        return message;
+    }
+
+    // 把通知应用到镜像列表上（插入的行从索引里取，和 RecyclerView 绑定时一样），并记录操作
+    private class Recorder implements ListUpdateCallback {
+        final List<String> mirror = new ArrayList<>();
+        final List<String> ops = new ArrayList<>();
+
+        @Override
+        public void onInserted(int position, int count) {
+            ops.add("insert " + position + "+" + count);
+            for (int i = 0; i < count; i++) {
+                mirror.add(position + i, index.get(position + i).getSenderName());
+            }
+        }
+
+        @Override
+        public void onRemoved(int position, int count) {
+            ops.add("remove " + position);
+            for (int i = 0; i < count; i++) {
+                mirror.remove(position);
+            }
+        }
+
+        @Override
+        public void onMoved(int fromPosition, int toPosition) {
+            ops.add("move " + fromPosition + "->" + toPosition);
+            mirror.add(toPosition, mirror.remove(fromPosition));
+        }
+
+        @Override
+        public void onChanged(int position, int count, @Nullable Object payload) {
+            ops.add("change " + position);
+            // 刷新的那一行必须就是刚更新的会话
+            assertEquals(index.get(position).getSenderName(), mirror.get(position));
+        }
+    }
+}
@@ -0,0 +1,199 @@
+package com.example.firsttry.activity.message.chat;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.robolectric.Shadows.shadowOf;
+
+import android.content.Context;
+import android.os.Looper;
+import android.view.View;
+import android.widget.FrameLayout;
+import android.widget.TextView;
+
+import androidx.annotation.Nullable;
+import androidx.recyclerview.widget.DiffUtil;
+import androidx.recyclerview.widget.ListUpdateCallback;
+import androidx.recyclerview.widget.RecyclerView;
+import androidx.test.core.app.ApplicationProvider;
+
+import com.example.firsttry.R;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+// 聊天列表的 diff：状态变化只带 PAYLOAD_STATUS 局部刷新，正文变化整行重绑，翻页/新消息是区间插入。
+// TextUtils 需要真实实现，所以走 Robolectric
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 34)
+public class ChatAdapterTest {
+
+    @Test
+    public void statusFlipIsOneChangeWithStatusPayload() {
+        ChatMessage sending = sent("m2", "在吗").withStatus(ChatMessage.STATUS_SENDING);
+        List<ChatMessage> oldList = Arrays.asList(received("m1", "你好"), sending, received("m3", "在"));
+        List<ChatMessage> newList = Arrays.asList(received("m1", "你好"), sending.withStatus(ChatMessage.STATUS_SENT),
+                received("m3", "在"));
+        RecordingCallback ops = new RecordingCallback();
+        diff(oldList, newList).dispatchUpdatesTo(ops);
+
+        assertEquals(Collections.singletonList(1), ops.changedPositions);
+        assertSame(ChatAdapter.PAYLOAD_STATUS, ops.payloads.get(0));
+        assertEquals(0, ops.inserts.size() + ops.removed + ops.moved);
+    }
+
+    @Test
+    public void contentChangeHasNoPayload() {
+        List<ChatMessage> oldList = Arrays.asList(received("m1", "你好"), received("m2", "旧内容"));
+        List<ChatMessage> newList = Arrays.asList(received("m1", "你好"), received("m2", "新内容"));
+        RecordingCallback ops = new RecordingCallback();
+        diff(oldList, newList).dispatchUpdatesTo(ops);
+
+        assertEquals(Collections.singletonList(1), ops.changedPositions);
+        assertNull(ops.payloads.get(0));
+    }
+
+    @Test
+    public void olderPageAndNewMessagesAreRangeInserts() {
+        List<ChatMessage> oldList = Arrays.asList(received("m3", "c"), received("m4", "d"));
+        // 上翻加载更早的一页，同时底部来了两条新消息
+        List<ChatMessage> newList = Arrays.asList(received("m1", "a"), received("m2", "b"), received("m3", "c"),
+                received("m4", "d"), received("m5", "e"), sent("m6", "f"));
+        RecordingCallback ops = new RecordingCallback();
+        diff(oldList, newList).dispatchUpdatesTo(ops);
+
+        // DiffUtil 从后往前分发：先是底部 [2, 4)，再是顶部 [0, 2)
+        assertEquals(Arrays.asList(Arrays.asList(2, 2), Arrays.asList(0, 2)), ops.inserts);
+        assertEquals(0, ops.changedPositions.size() + ops.removed + ops.moved);
+    }
+
+    @Test
+    public void statusPayloadRebindsOnlyTheStatus() throws InterruptedException {
+        Context context = ApplicationProvider.getApplicationContext();
+        ChatAdapter adapter = new ChatAdapter();
+        ChatMessage sending = sent("m1", "你好").withStatus(ChatMessage.STATUS_SENDING);
+        submitAndWait(adapter, Collections.singletonList(sending));
+
+        RecyclerView.ViewHolder holder = adapter.onCreateViewHolder(new FrameLayout(context), adapter.getItemViewType(0));
+        adapter.onBindViewHolder(holder, 0);
+        TextView body = holder.itemView.findViewById(R.id.text_message_body_sent);
+        TextView status = holder.itemView.findViewById(R.id.text_message_status_sent);
+        assertEquals("你好", body.getText().toString());
+        assertEquals("发送中", status.getText().toString());
+        assertEquals(View.VISIBLE, status.getVisibility());
+
+        submitAndWait(adapter, Collections.singletonList(sending.withStatus(ChatMessage.STATUS_FAILED)));
+        // 标记正文：局部刷新不应该碰它
+        body.setText("未重绑");
+        adapter.onBindViewHolder(holder, 0, Collections.singletonList(ChatAdapter.PAYLOAD_STATUS));
+        assertEquals("发送失败", status.getText().toString());
+        assertEquals("未重绑", body.getText().toString());
+
+        // 没有 payload 时整行重绑
+        adapter.onBindViewHolder(holder, 0, Collections.emptyList());
+        assertEquals("你好", body.getText().toString());
+    }
+
+    @Test
+    public void payloadOnReceivedMessageFallsBackToFullBind() throws InterruptedException {
+        Context context = ApplicationProvider.getApplicationContext();
+        ChatAdapter adapter = new ChatAdapter();
+        submitAndWait(adapter, Collections.singletonList(received("m1", "你好")));
+
+        RecyclerView.ViewHolder holder = adapter.onCreateViewHolder(new FrameLayout(context), adapter.getItemViewType(0));
+        TextView body = holder.itemView.findViewById(R.id.text_message_body_received);
+        adapter.onBindViewHolder(holder, 0, Collections.singletonList(ChatAdapter.PAYLOAD_STATUS));
+        assertEquals("你好", body.getText().toString());
+    }
+
+    // 没有挂到 RecyclerView 上时不预测量正文，但之后的提交仍在后台算 diff，等主线程提交完成
+    private static void submitAndWait(ChatAdapter adapter, List<ChatMessage> messages) throws InterruptedException {
+        boolean[] committed = {false};
+        adapter.submitList(messages, () -> committed[0] = true);
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!committed[0] && System.currentTimeMillis() < deadline) {
+            shadowOf(Looper.getMainLooper()).idle();
+            Thread.sleep(5);
+        }
+        assertTrue("submitList 没有完成", committed[0]);
+    }
+
+    private static DiffUtil.DiffResult diff(List<ChatMessage> oldList, List<ChatMessage> newList) {
+        return DiffUtil.calculateDiff(new DiffUtil.Callback() {
+            @Override
+            public int getOldListSize() {
+                return oldList.size();
+            }
+
+            @Override
+            public int getNewListSize() {
+                return newList.size();
+            }
+
+            @Override
+            public boolean areItemsTheSame(int oldPos, int newPos) {
+                return ChatAdapter.DIFF_CALLBACK.areItemsTheSame(oldList.get(oldPos), newList.get(newPos));
+            }
+
+            @Override
+            public boolean areContentsTheSame(int oldPos, int newPos) {
+                return ChatAdapter.DIFF_CALLBACK.areContentsTheSame(oldList.get(oldPos), newList.get(newPos));
+            }
+
+            @Nullable
+            @Override
+            public Object getChangePayload(int oldPos, int newPos) {
+                return ChatAdapter.DIFF_CALLBACK.getChangePayload(oldList.get(oldPos), newList.get(newPos));
+            }
+        }, true);
+    }
+
+    private static ChatMessage sent(String id, String content) {
+        return new ChatMessage(id, "bob", "alice", "bob", content, "", 1000, true);
+    }
+
+    private static ChatMessage received(String id, String content) {
+        return new ChatMessage(id, "bob", "bob", "alice", content, "", 1000, false);
+    }
+
+    // 记录分发出来的操作
+    private static class RecordingCallback implements ListUpdateCallback {
+        // 每次插入的 [position, count]
+        final List<List<Integer>> inserts = new ArrayList<>();
+        final List<Integer> changedPositions = new ArrayList<>();
+        final List<Object> payloads = new ArrayList<>();
+        int removed;
+        int moved;
+
+        @Override
+        public void onInserted(int position, int count) {
+            inserts.add(Arrays.asList(position, count));
+        }
+
+        @Override
+        public void onRemoved(int position, int count) {
+            removed += count;
+        }
+
+        @Override
+        public void onMoved(int fromPosition, int toPosition) {
+            moved++;
+        }
+
+        @Override
+        public void onChanged(int position, int count, @Nullable Object payload) {
+            for (int i = 0; i < count; i++) {
+                changedPositions.add(position + i);
+                payloads.add(payload);
+            }
+        }
+    }
+}
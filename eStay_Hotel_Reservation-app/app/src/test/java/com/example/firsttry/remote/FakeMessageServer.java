@@ -0,0 +1,110 @@
+package com.example.firsttry.remote;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import okhttp3.HttpUrl;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+
+/**
+ * 测试用的消息服务端替身：在 MockWebServer 上实现 GET /api/messages?since=&skip=&limit=&peer=，
+ * 语义与后端 messageSync.js 一致——createdAt >= since，按 (createdAt, _id) 正序，跳过 skip 条，多取一条算 hasMore。
+ * 收到的请求按顺序记录在 requests 里。
+ */
+public class FakeMessageServer {
+
+    public static final String ME = "me";
+
+    public static final class StoredMessage {
+        final String id;
+        final String sender;
+        final String receiver;
+        final String content;
+        final long createdAtMs;
+
+        StoredMessage(String id, String sender, String receiver, String content, long createdAtMs) {
+            this.id = id;
+            this.sender = sender;
+            this.receiver = receiver;
+            this.content = content;
+            this.createdAtMs = createdAtMs;
+        }
+    }
+
+    private final MockWebServer server = new MockWebServer();
+    private final List<StoredMessage> messages = Collections.synchronizedList(new ArrayList<>());
+    public final List<HttpUrl> requests = Collections.synchronizedList(new ArrayList<>());
+
+    public FakeMessageServer() {
+        server.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) {
+                HttpUrl url = request.getRequestUrl();
+                requests.add(url);
+                if (url == null || !"/api/messages".equals(url.encodedPath())) {
+                    return new MockResponse().setResponseCode(404);
+                }
+                return page(url);
+            }
+        });
+    }
+
+    public void start() throws IOException {
+        server.start();
+    }
+
+    public void shutdown() throws IOException {
+        server.shutdown();
+    }
+
+    public HttpUrl endpoint() {
+        return server.url("/api/messages");
+    }
+
+    // 对方 peer 发给我的一条消息
+    public void add(String id, String peer, long createdAtMs) {
+        messages.add(new StoredMessage(id, peer, ME, "msg " + id, createdAtMs));
+    }
+
+    private MockResponse page(HttpUrl url) {
+        String since = url.queryParameter("since");
+        if (since == null) return new MockResponse().setResponseCode(400).setBody("{\"message\":\"Invalid since\"}");
+        long sinceMs = Long.parseLong(since);
+        int skip = url.queryParameter("skip") == null ? 0 : Integer.parseInt(url.queryParameter("skip"));
+        int limit = Integer.parseInt(url.queryParameter("limit"));
+        String peer = url.queryParameter("peer");
+
+        List<StoredMessage> matching = new ArrayList<>();
+        synchronized (messages) {
+            for (StoredMessage m : messages) {
+                if (m.createdAtMs < sinceMs) continue;
+                if (peer != null && !peer.equals(m.sender) && !peer.equals(m.receiver)) continue;
+                matching.add(m);
+            }
+        }
+        matching.sort(Comparator.<StoredMessage>comparingLong(m -> m.createdAtMs).thenComparing(m -> m.id));
+
+        StringBuilder body = new StringBuilder("{\"messages\":[");
+        int end = Math.min(matching.size(), skip + limit);
+        for (int i = skip; i < end; i++) {
+            StoredMessage m = matching.get(i);
+            if (i > skip) body.append(',');
+            body.append("{\"_id\":\"").append(m.id).append("\",")
+                    .append("\"senderId\":{\"_id\":\"").append(m.sender).append("\",\"username\":\"").append(m.sender).append("\"},")
+                    .append("\"receiverId\":{\"_id\":\"").append(m.receiver).append("\",\"username\":\"").append(m.receiver).append("\"},")
+                    .append("\"content\":\"").append(m.content).append("\",")
+                    .append("\"createdAt\":\"").append(Instant.ofEpochMilli(m.createdAtMs)).append("\"}");
+        }
+        body.append("],\"hasMore\":").append(matching.size() > skip + limit).append('}');
+        return new MockResponse()
+                .setHeader("Content-Type", "application/json; charset=utf-8")
+                .setBody(body.toString());
+    }
+}
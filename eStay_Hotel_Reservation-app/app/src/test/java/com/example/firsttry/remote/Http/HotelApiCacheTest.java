@@ -0,0 +1,207 @@
+package com.example.firsttry.remote.Http;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+import com.example.firsttry.activity.hotel.model.HotelModel;
+import com.example.firsttry.remote.CallbackDispatcher;
+import com.example.firsttry.remote.TestCallbackDispatcher;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.Dispatcher;
+import okhttp3.HttpUrl;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+
+// 用 MockWebServer 验证 stale-while-revalidate：缓存命中、304/200 校验、缓存未命中时 onSuccess 的调用次数
+public class HotelApiCacheTest {
+
+    @Rule
+    public TemporaryFolder tempDir = new TemporaryFolder();
+
+    private final MockWebServer server = new MockWebServer();
+    private final TestCallbackDispatcher dispatcher = new TestCallbackDispatcher();
+    private HttpUrl url;
+    private boolean serverStopped;
+
+    @Before
+    public void setUp() throws IOException {
+        server.start();
+        url = server.url("/api/public/hotels/h1");
+        HttpClient.initForTesting(tempDir.newFolder("http_cache"));
+        HttpClient.setCachePolicy(HttpCachePolicy.DEFAULT);
+        CallbackDispatcher.setInstance(dispatcher);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        CallbackDispatcher.setInstance(null);
+        HttpClient.setCachePolicy(null);
+        HttpClient.initForTesting(null);
+        stopServer();
+    }
+
+    private void stopServer() throws IOException {
+        if (serverStopped) return;
+        serverStopped = true;
+        server.shutdown();
+    }
+
+    @Test
+    public void cacheMissDeliversNetworkResultOnce() throws Exception {
+        server.enqueue(hotelResponse("v1", "老店"));
+
+        Recorder recorder = fetch();
+
+        assertEquals(1, server.getRequestCount());
+        assertEquals(1, recorder.hotels.size());
+        assertEquals("老店", recorder.hotels.get(0).getName());
+        assertEquals(Arrays.asList(false), recorder.fromCache);
+        assertEquals(0, recorder.errors);
+    }
+
+    @Test
+    public void cacheHitThen304DeliversOnce() throws Exception {
+        server.enqueue(hotelResponse("v1", "老店"));
+        fetch();
+        server.takeRequest();
+
+        server.enqueue(new MockResponse().setResponseCode(304).setHeader("ETag", "\"v1\""));
+        Recorder recorder = fetch();
+
+        // 后台校验带上了 ETag，服务端返回 304，不再重复回调
+        RecordedRequest revalidate = server.takeRequest();
+        assertEquals("\"v1\"", revalidate.getHeader("If-None-Match"));
+        assertEquals(1, recorder.hotels.size());
+        assertEquals("老店", recorder.hotels.get(0).getName());
+        assertEquals(Arrays.asList(true), recorder.fromCache);
+        assertEquals(0, recorder.errors);
+    }
+
+    @Test
+    public void cacheHitThen200DeliversCacheThenNetwork() throws Exception {
+        server.enqueue(hotelResponse("v1", "老店"));
+        fetch();
+        server.takeRequest();
+
+        server.enqueue(hotelResponse("v2", "新店"));
+        Recorder recorder = fetch();
+
+        assertEquals("\"v1\"", server.takeRequest().getHeader("If-None-Match"));
+        assertEquals(2, recorder.hotels.size());
+        assertEquals("老店", recorder.hotels.get(0).getName());
+        assertEquals("新店", recorder.hotels.get(1).getName());
+        assertEquals(Arrays.asList(true, false), recorder.fromCache);
+        assertEquals(0, recorder.errors);
+    }
+
+    @Test
+    public void freshCacheAnswersRevalidationWithoutSecondCallback() throws Exception {
+        // 服务端自己给了 max-age，拦截器不改写；第二次请求时缓存仍新鲜
+        server.enqueue(hotelResponse("v1", "老店").setHeader("Cache-Control", "public, max-age=600"));
+        fetch();
+        server.takeRequest();
+
+        Recorder recorder = fetch();
+
+        // 校验请求由 OkHttp 直接用缓存应答，没有到达服务端，也不会再回调一次相同的数据
+        assertEquals(1, server.getRequestCount());
+        assertEquals(1, recorder.hotels.size());
+        assertEquals(Arrays.asList(true), recorder.fromCache);
+        assertEquals(0, recorder.errors);
+    }
+
+    @Test
+    public void cacheHitThenNetworkFailureKeepsCacheWithoutError() throws Exception {
+        server.enqueue(hotelResponse("v1", "老店"));
+        fetch();
+        server.takeRequest();
+
+        // 服务端不可用：只读缓存的请求不走网络，后台校验失败
+        stopServer();
+        Recorder recorder = fetch();
+
+        assertEquals(1, recorder.hotels.size());
+        assertEquals(0, recorder.errors);
+        assertNull(recorder.failure);
+    }
+
+    @Test
+    public void networkFirstPolicySkipsStaleCopy() throws Exception {
+        server.enqueue(hotelResponse("v1", "老店"));
+        fetch();
+        server.takeRequest();
+
+        HttpClient.setCachePolicy(HttpCachePolicy.NETWORK_FIRST);
+        server.enqueue(new MockResponse().setResponseCode(304).setHeader("ETag", "\"v1\""));
+        Recorder recorder = fetch();
+
+        // 条件请求仍然生效：304 时 OkHttp 返回缓存的正文，只回调一次，已经校验过所以不算缓存副本
+        assertEquals("\"v1\"", server.takeRequest().getHeader("If-None-Match"));
+        assertEquals(1, recorder.hotels.size());
+        assertEquals("老店", recorder.hotels.get(0).getName());
+        assertEquals(Arrays.asList(false), recorder.fromCache);
+    }
+
+    private Recorder fetch() throws InterruptedException {
+        Recorder recorder = new Recorder();
+        HotelApi.getHotelDetail(url, recorder);
+        awaitIdle();
+        dispatcher.runPending();
+        return recorder;
+    }
+
+    // 等待缓存读取和后台校验两次请求都结束；校验请求在第一次请求的回调里发起，中间不会出现空闲
+    private static void awaitIdle() throws InterruptedException {
+        Dispatcher okDispatcher = HttpClient.getClient().dispatcher();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (okDispatcher.runningCallsCount() + okDispatcher.queuedCallsCount() > 0) {
+            if (System.nanoTime() > deadline) fail("requests did not finish");
+            Thread.sleep(10);
+        }
+    }
+
+    private static MockResponse hotelResponse(String etag, String name) {
+        String body = "{\"hotel\":{\"_id\":\"h1\",\"name\":\"" + name + "\",\"address\":\"人民路 1 号\",\"price\":300}}";
+        return new MockResponse()
+                .setHeader("Content-Type", "application/json; charset=utf-8")
+                .setHeader("ETag", "\"" + etag + "\"")
+                .setBody(body);
+    }
+
+    private static class Recorder implements HotelApi.HotelDetailCallback {
+        final List<HotelModel> hotels = new ArrayList<>();
+        final List<Boolean> fromCache = new ArrayList<>();
+        int errors;
+        IOException failure;
+
+        @Override
+        public void onSuccess(HotelModel hotel, boolean cached) {
+            hotels.add(hotel);
+            fromCache.add(cached);
+        }
+
+        @Override
+        public void onError(String message) {
+            errors++;
+        }
+
+        @Override
+        public void onFailure(IOException e) {
+            failure = e;
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package com.example.firsttry.remote.Http;
+
+import java.util.Locale;
+
+// 生成与 api/public/hotels 结构相同的响应，供解析测试和基准使用
+final class HotelJsonFixtures {
+
+    private HotelJsonFixtures() {}
+
+    static String hotelList(int count) {
+        StringBuilder sb = new StringBuilder(count * 1200);
+        sb.append("{\"hotels\":[");
+        for (int i = 0; i < count; i++) {
+            if (i > 0) sb.append(',');
+            appendHotel(sb, i);
+        }
+        sb.append("],\"total\":").append(count).append(",\"page\":1}");
+        return sb.toString();
+    }
+
+    static void appendHotel(StringBuilder sb, int i) {
+        sb.append(String.format(Locale.ROOT,
+                "{\"_id\":\"65f0a1b2c3d4e5f6%08x\",\"name\":\"测试酒店 %d\",\"name_en\":\"Test Hotel %d\","
+                        + "\"address\":\"上海市黄浦区南京东路 %d 号\",\"starRating\":%d,\"price\":%d,"
+                        + "\"openingTime\":\"2015-06-01\",\"description\":\"位于市中心，步行可达地铁站。酒店提供免费 WiFi 和早餐。\","
+                        + "\"amenities\":[\"免费WiFi\",\"停车场\",\"健身房\",\"24小时前台\"],"
+                        + "\"images\":[\"https://img.example.com/h%d/1.jpg\",\"https://img.example.com/h%d/2.jpg\",\"https://img.example.com/h%d/3.jpg\"],"
+                        + "\"mainImage\":\"https://img.example.com/h%d/main.jpg\","
+                        + "\"roomTypes\":[{\"type\":\"标准间\",\"price\":%d,\"description\":\"1.5米双床\",\"stock\":5},"
+                        + "{\"type\":\"大床房\",\"price\":%d,\"description\":\"1.8米大床\",\"stock\":3}],"
+                        + "\"averageRating\":4.%d,\"phone\":\"021-6000%04d\",\"distance\":%d.%d,"
+                        + "\"location\":{\"type\":\"Point\",\"coordinates\":[121.4%05d,31.2%05d]},"
+                        + "\"status\":\"approved\",\"createdAt\":\"2024-01-01T00:00:00.000Z\"}",
+                i, i, i, i, 3 + i % 3, 300 + i % 700, i, i, i, i, 300 + i % 700, 400 + i % 700,
+                i % 10, i % 10000, i % 20, i % 10, i % 100000, i % 100000));
+    }
+}
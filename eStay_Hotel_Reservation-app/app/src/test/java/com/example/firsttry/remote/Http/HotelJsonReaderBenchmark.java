@@ -0,0 +1,87 @@
+package com.example.firsttry.remote.Http;
+
+import static org.junit.Assert.assertEquals;
+
+import com.example.firsttry.activity.hotel.model.HotelModel;
+import com.example.firsttry.utils.MicroBenchmark;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * HotelJsonReader（流式）与原先的做法（body.string() + JsonParser 树 + parseHotelJson）的对比，
+ * 50 / 500 / 5000 家酒店的列表响应。两种路径都从字节流开始，和 OkHttp 的响应体一致。
+ */
+public class HotelJsonReaderBenchmark {
+
+    @Test
+    public void streamingVersusTree() throws IOException {
+        MicroBenchmark.assumeEnabled();
+        for (int count : new int[]{50, 500, 5000}) {
+            byte[] body = HotelJsonFixtures.hotelList(count).getBytes(StandardCharsets.UTF_8);
+            // 两种解析结果一致
+            assertEquals(count, HotelJsonReader.readHotelList(reader(body), false).size());
+            assertEquals(count, parseWithTree(body).size());
+
+            System.out.println(count + " hotels, " + body.length / 1024 + " KiB");
+            MicroBenchmark.measure("stream " + count, () -> HotelJsonReader.readHotelList(reader(body), false));
+            MicroBenchmark.measure("tree   " + count, () -> parseWithTree(body));
+        }
+    }
+
+    private static Reader reader(byte[] body) {
+        return new InputStreamReader(new ByteArrayInputStream(body), StandardCharsets.UTF_8);
+    }
+
+    // 原来的路径：整个响应读成 String，建 JsonObject 树，再逐个字段取值
+    private static List<HotelModel> parseWithTree(byte[] body) throws IOException {
+        StringBuilder sb = new StringBuilder();
+        char[] buffer = new char[8192];
+        try (Reader reader = reader(body)) {
+            int n;
+            while ((n = reader.read(buffer)) != -1) sb.append(buffer, 0, n);
+        }
+        String responseBody = sb.toString();
+        JsonArray hotelsArray = JsonParser.parseString(responseBody).getAsJsonObject().getAsJsonArray("hotels");
+        List<HotelModel> hotels = new ArrayList<>();
+        for (JsonElement element : hotelsArray) {
+            hotels.add(parseHotelJson(element.getAsJsonObject()));
+        }
+        return hotels;
+    }
+
+    private static HotelModel parseHotelJson(JsonObject json) {
+        List<String> amenities = new ArrayList<>();
+        for (JsonElement e : json.getAsJsonArray("amenities")) amenities.add(e.getAsString());
+        List<String> images = new ArrayList<>();
+        for (JsonElement e : json.getAsJsonArray("images")) images.add(e.getAsString());
+        List<HotelModel.RoomType> roomTypes = new ArrayList<>();
+        for (JsonElement e : json.getAsJsonArray("roomTypes")) {
+            JsonObject room = e.getAsJsonObject();
+            roomTypes.add(new HotelModel.RoomType(room.get("type").getAsString(), room.get("price").getAsInt(),
+                    room.get("description").getAsString()));
+        }
+        float starRating = json.get("starRating").getAsFloat();
+        List<String> tags = new ArrayList<>();
+        tags.add(String.format("%.0f星级", starRating));
+        tags.addAll(amenities.subList(0, Math.min(2, amenities.size())));
+        JsonArray coordinates = json.getAsJsonObject("location").getAsJsonArray("coordinates");
+        return new HotelModel(json.get("_id").getAsString(), json.get("name").getAsString(),
+                json.get("name_en").getAsString(), json.get("address").getAsString(), starRating, roomTypes,
+                json.get("price").getAsInt(), json.get("openingTime").getAsString(), json.get("description").getAsString(),
+                amenities, images, json.get("mainImage").getAsString(), tags, json.get("distance").getAsDouble(), true,
+                json.get("averageRating").getAsFloat(), json.get("phone").getAsString(),
+                coordinates.get(1).getAsDouble(), coordinates.get(0).getAsDouble());
+    }
+}
@@ -0,0 +1,135 @@
+package com.example.firsttry.remote.Http;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import com.example.firsttry.activity.hotel.model.HotelModel;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Arrays;
+import java.util.List;
+
+public class HotelJsonReaderTest {
+
+    @Test
+    public void readsAllFieldsOfAListEntry() throws IOException {
+        List<HotelModel> hotels = HotelJsonReader.readHotelList(new StringReader(HotelJsonFixtures.hotelList(1)), false);
+
+        assertEquals(1, hotels.size());
+        HotelModel hotel = hotels.get(0);
+        assertEquals("65f0a1b2c3d4e5f600000000", hotel.getId());
+        assertEquals("测试酒店 0", hotel.getName());
+        assertEquals("Test Hotel 0", hotel.getNameEn());
+        assertEquals(3f, hotel.getStarRating(), 0);
+        assertEquals(300, hotel.getStartPrice());
+        assertEquals(4, hotel.getAmenities().size());
+        assertEquals(3, hotel.getImages().size());
+        assertEquals("https://img.example.com/h0/main.jpg", hotel.getThumbnailUrl());
+        assertEquals(2, hotel.getRoomTypes().size());
+        assertEquals("大床房", hotel.getRoomTypes().get(1).getType());
+        assertEquals(400, hotel.getRoomTypes().get(1).getPrice());
+        assertEquals(4.0f, hotel.getAverageRating(), 0.001);
+        assertEquals("021-60000000", hotel.getPhone());
+        // 标签：星级 + 前两个设施
+        assertEquals(Arrays.asList("3星级", "免费WiFi", "停车场"), hotel.getTags());
+        // GeoJSON 是 [lng, lat]
+        assertEquals(31.2, hotel.getLatitude(), 1e-9);
+        assertEquals(121.4, hotel.getLongitude(), 1e-9);
+        assertTrue(hotel.isCityCenter());
+    }
+
+    @Test
+    public void locationModeMarksDistanceFromMe() throws IOException {
+        List<HotelModel> hotels = HotelJsonReader.readHotelList(new StringReader(HotelJsonFixtures.hotelList(3)), true);
+        assertEquals(3, hotels.size());
+        for (HotelModel hotel : hotels) assertFalse(hotel.isCityCenter());
+    }
+
+    @Test
+    public void dropsHotelsMissingRequiredFields() throws IOException {
+        String json = "{\"hotels\":["
+                + "{\"_id\":\"a\",\"name\":\"A\",\"address\":\"x\",\"price\":100},"
+                + "{\"_id\":\"b\",\"name\":\"B\",\"address\":\"x\"},"
+                + "{\"name\":\"C\",\"address\":\"x\",\"price\":100},"
+                + "{\"_id\":\"d\",\"name\":null,\"address\":\"x\",\"price\":100},"
+                + "42,"
+                + "{\"_id\":\"e\",\"name\":\"E\",\"address\":\"x\",\"price\":\"120\"}"
+                + "]}";
+
+        List<HotelModel> hotels = HotelJsonReader.readHotelList(new StringReader(json), false);
+
+        assertEquals(2, hotels.size());
+        assertEquals("a", hotels.get(0).getId());
+        // 数字写成字符串也兼容
+        assertEquals(120, hotels.get(1).getStartPrice());
+    }
+
+    @Test
+    public void pageCountIncludesDroppedEntries() throws IOException {
+        // 一整页 3 条，其中 1 条缺少价格被丢弃：rawCount 仍是 3，调用方不会误判为最后一页
+        String json = "{\"hotels\":["
+                + "{\"_id\":\"a\",\"name\":\"A\",\"address\":\"x\",\"price\":100},"
+                + "{\"_id\":\"b\",\"name\":\"B\",\"address\":\"x\"},"
+                + "{\"_id\":\"c\",\"name\":\"C\",\"address\":\"x\",\"price\":100}"
+                + "]}";
+
+        HotelJsonReader.HotelPage page = HotelJsonReader.readHotelPage(new StringReader(json), false);
+
+        assertEquals(2, page.hotels.size());
+        assertEquals(3, page.rawCount);
+        assertEquals(0, HotelJsonReader.readHotelPage(new StringReader("{\"hotels\":[]}"), false).rawCount);
+    }
+
+    @Test
+    public void thumbnailFallsBackToFirstImageThenPlaceholder() throws IOException {
+        String json = "{\"hotels\":["
+                + "{\"_id\":\"a\",\"name\":\"A\",\"address\":\"x\",\"price\":1,\"mainImage\":\"\",\"images\":[\"i1\",\"i2\"]},"
+                + "{\"_id\":\"b\",\"name\":\"B\",\"address\":\"x\",\"price\":1}"
+                + "]}";
+
+        List<HotelModel> hotels = HotelJsonReader.readHotelList(new StringReader(json), false);
+
+        assertEquals("i1", hotels.get(0).getThumbnailUrl());
+        assertTrue(hotels.get(1).getThumbnailUrl().startsWith("https://via.placeholder.com/"));
+    }
+
+    @Test
+    public void ratingFallsBackToLegacyFieldAndMissingLocationIsNaN() throws IOException {
+        String json = "{\"hotels\":[{\"_id\":\"a\",\"name\":\"A\",\"address\":\"x\",\"price\":1,"
+                + "\"rating\":\"3.5\",\"starRating\":\"4\",\"location\":{\"type\":\"Point\",\"coordinates\":[121.4]}}]}";
+
+        HotelModel hotel = HotelJsonReader.readHotelList(new StringReader(json), false).get(0);
+
+        assertEquals(3.5f, hotel.getAverageRating(), 0);
+        assertEquals(4f, hotel.getStarRating(), 0);
+        assertFalse(hotel.hasCoordinates());
+        assertTrue(Double.isNaN(hotel.getLatitude()));
+    }
+
+    @Test
+    public void missingHotelsArrayIsEmptyList() throws IOException {
+        assertTrue(HotelJsonReader.readHotelList(new StringReader("{\"message\":\"ok\"}"), false).isEmpty());
+    }
+
+    @Test
+    public void readsDetailAndIgnoresOtherTopLevelFields() throws IOException {
+        StringBuilder sb = new StringBuilder("{\"success\":true,\"hotel\":");
+        HotelJsonFixtures.appendHotel(sb, 7);
+        sb.append(",\"ratings\":[{\"score\":5}]}");
+
+        HotelModel hotel = HotelJsonReader.readHotelDetail(new StringReader(sb.toString()));
+
+        assertEquals("65f0a1b2c3d4e5f600000007", hotel.getId());
+        assertEquals(2, hotel.getRoomTypes().size());
+    }
+
+    @Test
+    public void detailWithoutHotelIsNull() throws IOException {
+        assertNull(HotelJsonReader.readHotelDetail(new StringReader("{\"message\":\"not found\"}")));
+    }
+}
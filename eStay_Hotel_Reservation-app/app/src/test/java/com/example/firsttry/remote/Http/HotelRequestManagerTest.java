@@ -0,0 +1,233 @@
+package com.example.firsttry.remote.Http;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.example.firsttry.activity.hotel.model.HotelModel;
+import com.example.firsttry.activity.hotel.model.HotelSearchQuery;
+import com.example.firsttry.remote.TestCallbackDispatcher;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import okhttp3.Call;
+import okhttp3.HttpUrl;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+
+// 用虚拟时间和不走网络的 ListSource 验证防抖、进行中请求的合并和取消
+public class HotelRequestManagerTest {
+
+    private static final long DEBOUNCE_MS = 300;
+    // 只用来创建未执行的 Call，cancel() 后 isCanceled() 为 true
+    private static final OkHttpClient CLIENT = new OkHttpClient();
+
+    private TestCallbackDispatcher dispatcher;
+    private FakeSource source;
+    private HotelRequestManager manager;
+
+    // 记录发出的请求，测试决定何时、以什么结果返回
+    private static class FakeSource implements HotelRequestManager.ListSource {
+        final List<Sent> sent = new ArrayList<>();
+
+        @Override
+        public Call getHotelList(HttpUrl url, boolean isLocationMode, HotelApi.HotelListCallback callback) {
+            Sent request = new Sent(url, callback, CLIENT.newCall(new Request.Builder().url(url).build()));
+            sent.add(request);
+            return request.call;
+        }
+    }
+
+    private static class Sent {
+        final HttpUrl url;
+        final HotelApi.HotelListCallback callback;
+        final Call call;
+
+        Sent(HttpUrl url, HotelApi.HotelListCallback callback, Call call) {
+            this.url = url;
+            this.callback = callback;
+            this.call = call;
+        }
+    }
+
+    private static class Recorder implements HotelApi.HotelListCallback {
+        int successes;
+        int rawCount = -1;
+        final List<String> errors = new ArrayList<>();
+        final List<IOException> failures = new ArrayList<>();
+
+        @Override
+        public void onSuccess(List<HotelModel> hotels, int rawCount) {
+            successes++;
+            this.rawCount = rawCount;
+        }
+
+        @Override
+        public void onError(String message) {
+            errors.add(message);
+        }
+
+        @Override
+        public void onFailure(IOException e) {
+            failures.add(e);
+        }
+
+        int calls() {
+            return successes + errors.size() + failures.size();
+        }
+    }
+
+    @Before
+    public void setUp() {
+        dispatcher = new TestCallbackDispatcher();
+        source = new FakeSource();
+        manager = new HotelRequestManager(DEBOUNCE_MS, dispatcher, source);
+    }
+
+    @Test
+    public void rapidSearchesSendOnlyTheLastQueryAfterDebounce() {
+        manager.search(query("上海", 1), new Recorder());
+        dispatcher.advanceBy(100);
+        manager.search(query("杭州", 1), new Recorder());
+        dispatcher.advanceBy(DEBOUNCE_MS - 1);
+        assertEquals(0, source.sent.size());
+
+        dispatcher.advanceBy(1);
+        assertEquals(1, source.sent.size());
+        assertEquals("杭州", source.sent.get(0).url.queryParameter("city"));
+
+        // 被取代的防抖任务不会再触发
+        dispatcher.advanceBy(10 * DEBOUNCE_MS);
+        assertEquals(1, source.sent.size());
+    }
+
+    @Test
+    public void identicalSearchReusesInFlightRequest() {
+        Recorder first = new Recorder();
+        Recorder second = new Recorder();
+        manager.search(query("上海", 1), first);
+        dispatcher.advanceBy(DEBOUNCE_MS);
+        Sent request = source.sent.get(0);
+
+        manager.search(query("上海", 1), second);
+        assertFalse(request.call.isCanceled());
+        dispatcher.advanceBy(DEBOUNCE_MS);
+        assertEquals(1, source.sent.size());
+
+        request.callback.onSuccess(Collections.emptyList(), 10);
+        assertEquals(1, first.successes);
+        assertEquals(1, second.successes);
+        assertEquals(10, second.rawCount);
+    }
+
+    @Test
+    public void facilityOrderDoesNotDefeatDedupe() {
+        HotelSearchQuery a = query("上海", 2);
+        a.setFacilities(Arrays.asList("wifi", "parking", "wifi"));
+        HotelSearchQuery b = query("上海", 2);
+        b.setFacilities(Arrays.asList("parking", "wifi"));
+
+        Recorder first = new Recorder();
+        Recorder second = new Recorder();
+        manager.loadPage(a, first);
+        manager.loadPage(b, second);
+        assertEquals(1, source.sent.size());
+
+        source.sent.get(0).callback.onError("500");
+        assertEquals(Collections.singletonList("500"), first.errors);
+        assertEquals(Collections.singletonList("500"), second.errors);
+    }
+
+    @Test
+    public void differentPagesAreSentSeparately() {
+        manager.loadPage(query("上海", 2), new Recorder());
+        manager.loadPage(query("上海", 3), new Recorder());
+        assertEquals(2, source.sent.size());
+    }
+
+    @Test
+    public void finishedRequestIsNotReused() {
+        Recorder first = new Recorder();
+        manager.loadPage(query("上海", 2), first);
+        source.sent.get(0).callback.onSuccess(Collections.emptyList(), 0);
+
+        Recorder second = new Recorder();
+        manager.loadPage(query("上海", 2), second);
+        assertEquals(2, source.sent.size());
+        assertEquals(1, first.calls());
+        assertEquals(0, second.calls());
+    }
+
+    @Test
+    public void newSearchCancelsSupersededRequestsImmediately() {
+        Recorder oldFirstPage = new Recorder();
+        Recorder oldSecondPage = new Recorder();
+        manager.search(query("上海", 1), oldFirstPage);
+        dispatcher.advanceBy(DEBOUNCE_MS);
+        manager.loadPage(query("上海", 2), oldSecondPage);
+        Sent firstPage = source.sent.get(0);
+        Sent secondPage = source.sent.get(1);
+
+        Recorder current = new Recorder();
+        manager.search(query("杭州", 1), current);
+        // 防抖期间旧请求已经取消
+        assertTrue(firstPage.call.isCanceled());
+        assertTrue(secondPage.call.isCanceled());
+
+        // 取消之后才到达的结果不再回调
+        firstPage.callback.onSuccess(Collections.emptyList(), 10);
+        secondPage.callback.onFailure(new IOException("Canceled"));
+        assertEquals(0, oldFirstPage.calls());
+        assertEquals(0, oldSecondPage.calls());
+
+        dispatcher.advanceBy(DEBOUNCE_MS);
+        assertEquals(3, source.sent.size());
+        source.sent.get(2).callback.onSuccess(Collections.emptyList(), 3);
+        assertEquals(1, current.successes);
+    }
+
+    @Test
+    public void cancelAllCancelsInFlightRequests() {
+        Recorder firstPage = new Recorder();
+        Recorder secondPage = new Recorder();
+        manager.search(query("上海", 1), firstPage);
+        dispatcher.advanceBy(DEBOUNCE_MS);
+        manager.loadPage(query("上海", 2), secondPage);
+
+        manager.cancelAll();
+        assertTrue(source.sent.get(0).call.isCanceled());
+        assertTrue(source.sent.get(1).call.isCanceled());
+
+        source.sent.get(0).callback.onSuccess(Collections.emptyList(), 10);
+        source.sent.get(1).callback.onSuccess(Collections.emptyList(), 10);
+        assertEquals(0, firstPage.calls());
+        assertEquals(0, secondPage.calls());
+    }
+
+    @Test
+    public void cancelAllDropsPendingSearch() {
+        Recorder pending = new Recorder();
+        manager.search(query("上海", 1), pending);
+        assertEquals(1, dispatcher.pendingCount());
+
+        manager.cancelAll();
+        assertEquals(0, dispatcher.pendingCount());
+        dispatcher.advanceBy(10 * DEBOUNCE_MS);
+        assertEquals(0, source.sent.size());
+        assertEquals(0, pending.calls());
+    }
+
+    private static HotelSearchQuery query(String city, int page) {
+        HotelSearchQuery query = new HotelSearchQuery();
+        query.setCity(city);
+        query.setPage(page);
+        return query;
+    }
+}
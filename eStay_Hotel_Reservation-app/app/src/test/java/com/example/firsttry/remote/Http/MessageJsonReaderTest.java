@@ -0,0 +1,83 @@
+package com.example.firsttry.remote.Http;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.example.firsttry.activity.message.Message;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+
+public class MessageJsonReaderTest {
+
+    @Test
+    public void readsPopulatedMessagesAndHasMore() throws IOException {
+        String json = "{\"messages\":[{"
+                + "\"_id\":\"665f00000000000000000001\","
+                + "\"senderId\":{\"_id\":\"u1\",\"username\":\"alice\",\"email\":\"a@x.com\"},"
+                + "\"receiverId\":{\"_id\":\"u2\",\"username\":\"bob\"},"
+                + "\"content\":\"你好\",\"isRead\":false,"
+                + "\"createdAt\":\"2024-05-01T08:00:00.123Z\","
+                + "\"senderIdStr\":\"u1\",\"receiverIdStr\":\"u2\"}],"
+                + "\"hasMore\":true}";
+
+        MessageJsonReader.Page page = MessageJsonReader.readPage(new StringReader(json));
+
+        assertTrue(page.hasMore);
+        assertEquals(1, page.messages.size());
+        Message message = page.messages.get(0);
+        assertEquals("665f00000000000000000001", message.getId());
+        assertEquals("u1", message.getSenderId());
+        assertEquals("alice", message.getSenderName());
+        assertEquals("bob", message.getReceiver());
+        assertEquals("你好", message.getContent());
+        assertEquals("2024-05-01T08:00:00.123Z", message.getTime());
+        // 毫秒精度保留，水位和 skip 都依赖它与服务端的 createdAt 一致
+        assertEquals(1714550400123L, message.getTimeMillis());
+    }
+
+    @Test
+    public void clientMsgIdTakesPrecedenceOverServerId() throws IOException {
+        String json = "{\"messages\":[{\"_id\":\"server-id\",\"clientMsgId\":\"client-id\","
+                + "\"content\":\"hi\",\"createdAt\":\"2024-05-01T08:00:00.000Z\"},"
+                + "{\"_id\":\"server-only\",\"clientMsgId\":\"\",\"content\":\"hi\",\"createdAt\":\"2024-05-01T08:00:00.000Z\"}]}";
+
+        MessageJsonReader.Page page = MessageJsonReader.readPage(new StringReader(json));
+
+        assertEquals("client-id", page.messages.get(0).getId());
+        assertEquals("server-only", page.messages.get(1).getId());
+    }
+
+    @Test
+    public void skipsInvalidEntriesAndUnknownFields() throws IOException {
+        String json = "{\"total\":3,\"pagination\":{\"page\":1},\"messages\":["
+                + "{\"content\":\"no id\"},"
+                + "{\"_id\":\"m1\",\"content\":null},"
+                + "\"not an object\","
+                + "{\"_id\":\"m2\",\"content\":\"ok\",\"extra\":{\"nested\":[1,2]},\"senderId\":null}"
+                + "],\"hasMore\":\"yes\"}";
+
+        MessageJsonReader.Page page = MessageJsonReader.readPage(new StringReader(json));
+
+        assertEquals(1, page.messages.size());
+        assertEquals("m2", page.messages.get(0).getId());
+        assertEquals("", page.messages.get(0).getSenderName());
+        // hasMore 不是布尔值时按没有下一页处理
+        assertFalse(page.hasMore);
+    }
+
+    @Test
+    public void emptyPage() throws IOException {
+        MessageJsonReader.Page page = MessageJsonReader.readPage(new StringReader("{\"messages\":[],\"hasMore\":false}"));
+        assertTrue(page.messages.isEmpty());
+        assertFalse(page.hasMore);
+    }
+
+    @Test(expected = IOException.class)
+    public void truncatedBodyFails() throws IOException {
+        MessageJsonReader.readPage(new StringReader("{\"messages\":[{\"_id\":\"m1\",\"content\":\"hi\""));
+    }
+}
@@ -0,0 +1,137 @@
+package com.example.firsttry.remote.Http;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import com.example.firsttry.remote.CallbackDispatcher;
+
+import org.json.JSONObject;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.io.IOException;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.HttpUrl;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+
+// 发送消息的结果分类：2xx 一律算确认（响应体无法解析时没有服务端 id），4xx 拒绝，5xx 可重试。
+// 请求和响应用 org.json 处理，需要 Robolectric 提供真实实现（单元测试的 android.jar 里只有空壳）
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 34)
+public class UserApiSendMessageTest {
+
+    private final MockWebServer server = new MockWebServer();
+    private HttpUrl url;
+    private boolean serverStopped;
+
+    @Before
+    public void setUp() throws IOException {
+        server.start();
+        url = server.url("/api/messages");
+        // 回调直接在 OkHttp 线程上执行，结果交给测试线程
+        CallbackDispatcher.setInstance(new CallbackDispatcher() {
+            @Override
+            public void post(Runnable task) {
+                task.run();
+            }
+
+            @Override
+            public void postDelayed(Runnable task, long delayMs) {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public void remove(Runnable task) {
+            }
+        });
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        CallbackDispatcher.setInstance(null);
+        stopServer();
+    }
+
+    private void stopServer() throws IOException {
+        if (serverStopped) return;
+        serverStopped = true;
+        server.shutdown();
+    }
+
+    @Test
+    public void createdReturnsServerId() throws Exception {
+        server.enqueue(new MockResponse().setResponseCode(201).setBody("{\"data\":{\"_id\":\"srv1\"}}"));
+
+        assertEquals("success:srv1", send());
+
+        RecordedRequest request = server.takeRequest();
+        assertEquals("Bearer token-1", request.getHeader("Authorization"));
+        JSONObject body = new JSONObject(request.getBody().readUtf8());
+        assertEquals("client-1", body.getString("clientMsgId"));
+        assertEquals("peer-1", body.getString("receiverId"));
+    }
+
+    @Test
+    public void unparseableSuccessIsStillAcked() throws Exception {
+        server.enqueue(new MockResponse().setResponseCode(200).setBody("OK"));
+        assertEquals("success:null", send());
+
+        server.enqueue(new MockResponse().setResponseCode(201));
+        assertEquals("success:null", send());
+
+        server.enqueue(new MockResponse().setResponseCode(200).setBody("{\"message\":\"duplicate\"}"));
+        assertEquals("success:null", send());
+    }
+
+    @Test
+    public void clientErrorIsRejection() throws Exception {
+        server.enqueue(new MockResponse().setResponseCode(400).setBody("{\"message\":\"content required\"}"));
+        assertEquals("error:400:content required", send());
+    }
+
+    @Test
+    public void serverErrorWithHtmlBodyKeepsStatusCode() throws Exception {
+        server.enqueue(new MockResponse().setResponseCode(502).setBody("<html>Bad Gateway</html>"));
+        assertEquals("error:502:Error parsing error response", send());
+    }
+
+    @Test
+    public void connectionFailureIsReportedAsFailure() throws Exception {
+        stopServer();
+        String result = send();
+        if (!result.startsWith("failure:")) fail(result);
+    }
+
+    private String send() throws InterruptedException {
+        BlockingQueue<String> results = new LinkedBlockingQueue<>();
+        UserApi.sendMessage(url, "token-1", "peer-1", "client-1", "你好",
+                new UserApi.SendMessageCallback() {
+                    @Override
+                    public void onSuccess(String serverMessageId) {
+                        results.add("success:" + serverMessageId);
+                    }
+
+                    @Override
+                    public void onError(int statusCode, String message) {
+                        results.add("error:" + statusCode + ":" + message);
+                    }
+
+                    @Override
+                    public void onFailure(IOException e) {
+                        results.add("failure:" + e.getClass().getSimpleName());
+                    }
+                });
+        String result = results.poll(10, TimeUnit.SECONDS);
+        if (result == null) fail("no response");
+        return result;
+    }
+}
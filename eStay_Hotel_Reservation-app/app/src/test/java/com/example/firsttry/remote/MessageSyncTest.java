@@ -0,0 +1,226 @@
+package com.example.firsttry.remote;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import com.example.firsttry.activity.message.Message;
+import com.example.firsttry.activity.message.chat.ChatMessage;
+import com.example.firsttry.remote.Http.UserApi;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.HttpUrl;
+
+// MessageSync.processPage 的水位 / skip 计算，以及配合服务端替身（FakeMessageServer）的完整分页过程
+public class MessageSyncTest {
+
+    private final FakeMessageServer server = new FakeMessageServer();
+
+    @Before
+    public void setUp() throws IOException {
+        server.start();
+        // 回调直接在 OkHttp 线程上执行，结果交给测试线程
+        CallbackDispatcher.setInstance(new CallbackDispatcher() {
+            @Override
+            public void post(Runnable task) {
+                task.run();
+            }
+
+            @Override
+            public void postDelayed(Runnable task, long delayMs) {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public void remove(Runnable task) {
+            }
+        });
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        CallbackDispatcher.setInstance(null);
+        server.shutdown();
+    }
+
+    // ---- processPage ----
+
+    @Test
+    public void advancingPageSkipsOnlyMessagesOnTheNewHighWaterMark() {
+        List<Message> page = Arrays.asList(message("a", "bob", 1000), message("b", "bob", 2000), message("c", "carol", 2000));
+
+        MessageSync.SyncPage result = MessageSync.processPage(FakeMessageServer.ME, page, true, 500, 0);
+
+        assertEquals(2000, result.highWaterMarkMs);
+        assertEquals(2, result.nextSkip);
+        assertTrue(result.continuePaging);
+        assertEquals(new HashSet<>(Arrays.asList("bob", "carol")), result.conversations);
+    }
+
+    @Test
+    public void pageStuckOnOneMillisecondKeepsSinceAndAccumulatesSkip() {
+        List<Message> page = Arrays.asList(message("a", "bob", 1000), message("b", "bob", 1000));
+
+        MessageSync.SyncPage result = MessageSync.processPage(FakeMessageServer.ME, page, true, 1000, 4);
+
+        // 旧逻辑在这里停下（水位没有前进），之后的消息永远拉不到
+        assertEquals(1000, result.highWaterMarkMs);
+        assertEquals(6, result.nextSkip);
+        assertTrue(result.continuePaging);
+    }
+
+    @Test
+    public void emptyOrLastPageStopsPaging() {
+        assertFalse(MessageSync.processPage(FakeMessageServer.ME, Collections.emptyList(), true, 1000, 0).continuePaging);
+        assertFalse(MessageSync.processPage(FakeMessageServer.ME,
+                Collections.singletonList(message("a", "bob", 2000)), false, 1000, 0).continuePaging);
+    }
+
+    @Test
+    public void conversationIsThePeerForSentAndReceivedMessages() {
+        Message sent = message("s", FakeMessageServer.ME, 1000);
+        sent.setReceiver("bob");
+        List<Message> page = Arrays.asList(sent, message("r", "bob", 1000));
+
+        MessageSync.SyncPage result = MessageSync.processPage(FakeMessageServer.ME, page, false, 0, 0);
+
+        ChatMessage sentChat = result.chatMessages.get(0);
+        ChatMessage receivedChat = result.chatMessages.get(1);
+        assertEquals("bob", sentChat.getConversationId());
+        assertTrue(sentChat.isSentByMe());
+        assertEquals("bob", receivedChat.getConversationId());
+        assertFalse(receivedChat.isSentByMe());
+        assertEquals(Collections.singleton("bob"), result.conversations);
+    }
+
+    // ---- 服务端替身上的完整分页 ----
+
+    @Test
+    public void wholePagesSharingOneMillisecondArePagedThrough() throws Exception {
+        for (int i = 0; i < 7; i++) server.add("same" + i, "bob", 1000);
+        server.add("later", "bob", 2000);
+
+        List<String> received = syncAll(3);
+
+        assertEquals(Arrays.asList("same0", "same1", "same2", "same3", "same4", "same5", "same6", "later"), received);
+        assertEquals(3, server.requests.size());
+        assertNull(server.requests.get(0).queryParameter("skip"));
+        assertEquals("3", server.requests.get(1).queryParameter("skip"));
+        assertEquals("6", server.requests.get(2).queryParameter("skip"));
+    }
+
+    @Test
+    public void boundaryMessagesAreFetchedExactlyOnce() throws Exception {
+        server.add("a", "bob", 1000);
+        server.add("b", "bob", 2000);
+        server.add("c", "bob", 2000);
+        server.add("d", "carol", 3000);
+        server.add("e", "carol", 3000);
+        server.add("f", "carol", 4000);
+
+        List<String> received = syncAll(2);
+
+        assertEquals(Arrays.asList("a", "b", "c", "d", "e", "f"), received);
+        assertEquals("2000", server.requests.get(1).queryParameter("since"));
+        assertEquals("1", server.requests.get(1).queryParameter("skip"));
+    }
+
+    @Test
+    public void peerAndLimitArePassedThrough() throws Exception {
+        server.add("a", "bob", 1000);
+        server.add("b", "carol", 2000);
+
+        Result result = fetch(server.endpoint(), 0, 0, "bob", 50);
+
+        assertEquals(1, result.messages.size());
+        assertEquals("a", result.messages.get(0).getId());
+        HttpUrl request = server.requests.get(0);
+        assertEquals("bob", request.queryParameter("peer"));
+        assertEquals("50", request.queryParameter("limit"));
+        assertEquals("0", request.queryParameter("since"));
+    }
+
+    @Test
+    public void httpErrorIsReportedAsError() throws Exception {
+        Result result = fetch(server.endpoint().resolve("/api/missing"), 0, 0, null, 10);
+        assertTrue(result.error);
+    }
+
+    // 与 MessageSync.fetchPage 相同的循环，只是不写数据库；返回按收到顺序排列的 msg_id
+    private List<String> syncAll(int limit) throws Exception {
+        List<String> received = new ArrayList<>();
+        long since = 0;
+        int skip = 0;
+        for (int pages = 0; pages < 100; pages++) {
+            Result result = fetch(server.endpoint(), since, skip, null, limit);
+            assertFalse(result.error);
+            MessageSync.SyncPage page = MessageSync.processPage(FakeMessageServer.ME, result.messages, result.hasMore, since, skip);
+            for (ChatMessage message : page.chatMessages) received.add(message.getMessageId());
+            if (!page.continuePaging) return received;
+            since = page.highWaterMarkMs;
+            skip = page.nextSkip;
+        }
+        fail("paging did not terminate");
+        return received;
+    }
+
+    private static Result fetch(HttpUrl endpoint, long since, int skip, String peer, int limit) throws InterruptedException {
+        BlockingQueue<Result> results = new LinkedBlockingQueue<>();
+        UserApi.getMessagesSince(endpoint, "token", since, skip, peer, limit, new UserApi.MessageSyncCallback() {
+            @Override
+            public void onSuccess(List<Message> messages, boolean hasMore) {
+                results.add(new Result(messages, hasMore, false));
+            }
+
+            @Override
+            public void onError(String message) {
+                results.add(new Result(Collections.emptyList(), false, true));
+            }
+
+            @Override
+            public void onFailure(IOException e) {
+                results.add(new Result(Collections.emptyList(), false, true));
+            }
+        });
+        Result result = results.poll(10, TimeUnit.SECONDS);
+        if (result == null) fail("no response");
+        return result;
+    }
+
+    private static Message message(String id, String sender, long timeMillis) {
+        Message message = new Message();
+        message.setId(id);
+        message.setSenderName(sender);
+        message.setReceiver(FakeMessageServer.ME);
+        message.setContent("msg " + id);
+        message.setTimeMillis(timeMillis);
+        return message;
+    }
+
+    private static final class Result {
+        final List<Message> messages;
+        final boolean hasMore;
+        final boolean error;
+
+        Result(List<Message> messages, boolean hasMore, boolean error) {
+            this.messages = messages;
+            this.hasMore = hasMore;
+            this.error = error;
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package com.example.firsttry.remote;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * 供 JVM 单元测试使用的分发器：任务只入队，不会自动执行。
+ * 使用虚拟时钟，测试代码调用 runPending() / advanceBy() 决定何时执行回调，
+ * 可以确定性地测试防抖、取消和回调顺序。
+ */
+public class TestCallbackDispatcher extends CallbackDispatcher {
+
+    private final List<Task> queue = new ArrayList<>();
+    private long nowMs;
+    private long sequence;
+
+    @Override
+    public synchronized void post(Runnable task) {
+        postDelayed(task, 0);
+    }
+
+    @Override
+    public synchronized void postDelayed(Runnable task, long delayMs) {
+        queue.add(new Task(task, nowMs + Math.max(0, delayMs), sequence++));
+    }
+
+    @Override
+    public synchronized void remove(Runnable task) {
+        Iterator<Task> it = queue.iterator();
+        while (it.hasNext()) {
+            if (it.next().runnable == task) it.remove();
+        }
+    }
+
+    // 执行所有已到期的任务（包括执行过程中新投递且已到期的），返回执行数量
+    public int runPending() {
+        int count = 0;
+        Task next;
+        while ((next = pollDue()) != null) {
+            next.runnable.run();
+            count++;
+        }
+        return count;
+    }
+
+    // 虚拟时间前进 ms 毫秒，并按时间顺序执行期间到期的任务
+    public int advanceBy(long ms) {
+        long target;
+        synchronized (this) {
+            target = nowMs + ms;
+        }
+        int count = 0;
+        while (true) {
+            Task next;
+            synchronized (this) {
+                next = earliest();
+                if (next == null || next.dueMs > target) {
+                    nowMs = target;
+                    break;
+                }
+                queue.remove(next);
+                nowMs = Math.max(nowMs, next.dueMs);
+            }
+            next.runnable.run();
+            count++;
+        }
+        return count;
+    }
+
+    public synchronized long now() {
+        return nowMs;
+    }
+
+    public synchronized int pendingCount() {
+        return queue.size();
+    }
+
+    private synchronized Task pollDue() {
+        Task next = earliest();
+        if (next == null || next.dueMs > nowMs) return null;
+        queue.remove(next);
+        return next;
+    }
+
+    // 到期时间最早的任务；时间相同按投递顺序
+    private Task earliest() {
+        Task best = null;
+        for (Task task : queue) {
+            if (best == null || task.dueMs < best.dueMs
+                    || (task.dueMs == best.dueMs && task.seq < best.seq)) {
+                best = task;
+            }
+        }
+        return best;
+    }
+
+    private static class Task {
+        final Runnable runnable;
+        final long dueMs;
+        final long seq;
+
+        Task(Runnable runnable, long dueMs, long seq) {
+            this.runnable = runnable;
+            this.dueMs = dueMs;
+            this.seq = seq;
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package com.example.firsttry.remote;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class TestCallbackDispatcherTest {
+
+    private final TestCallbackDispatcher dispatcher = new TestCallbackDispatcher();
+    private final List<String> log = new ArrayList<>();
+
+    @Test
+    public void postedTasksRunInPostOrder() {
+        dispatcher.post(() -> log.add("a"));
+        dispatcher.post(() -> log.add("b"));
+        dispatcher.post(() -> log.add("c"));
+        assertEquals(0, log.size());
+
+        assertEquals(3, dispatcher.runPending());
+        assertEquals(Arrays.asList("a", "b", "c"), log);
+    }
+
+    @Test
+    public void delayedTasksRunByDueTimeThenPostOrder() {
+        dispatcher.postDelayed(() -> log.add("300"), 300);
+        dispatcher.postDelayed(() -> log.add("100-first"), 100);
+        dispatcher.postDelayed(() -> log.add("100-second"), 100);
+        dispatcher.post(() -> log.add("now"));
+
+        assertEquals(1, dispatcher.runPending());
+        assertEquals(Arrays.asList("now"), log);
+
+        assertEquals(2, dispatcher.advanceBy(100));
+        assertEquals(Arrays.asList("now", "100-first", "100-second"), log);
+        assertEquals(100, dispatcher.now());
+
+        assertEquals(0, dispatcher.advanceBy(199));
+        assertEquals(1, dispatcher.advanceBy(1));
+        assertEquals("300", log.get(3));
+        assertEquals(0, dispatcher.pendingCount());
+    }
+
+    @Test
+    public void removeCancelsOnlyThatTask() {
+        Runnable cancelled = () -> log.add("cancelled");
+        dispatcher.postDelayed(cancelled, 50);
+        dispatcher.postDelayed(() -> log.add("kept"), 50);
+        dispatcher.remove(cancelled);
+
+        dispatcher.advanceBy(50);
+        assertEquals(Arrays.asList("kept"), log);
+    }
+
+    @Test
+    public void tasksPostedWhileRunningAreOrderedByVirtualTime() {
+        // 防抖式的重新投递：执行中投递的任务按虚拟时间排在已有任务之后
+        dispatcher.postDelayed(() -> {
+            log.add("first@10");
+            dispatcher.postDelayed(() -> log.add("nested@30"), 20);
+        }, 10);
+        dispatcher.postDelayed(() -> log.add("second@20"), 20);
+        dispatcher.post(() -> dispatcher.post(() -> log.add("nested-now")));
+
+        dispatcher.runPending();
+        assertEquals(Arrays.asList("nested-now"), log);
+
+        dispatcher.advanceBy(100);
+        assertEquals(Arrays.asList("nested-now", "first@10", "second@20", "nested@30"), log);
+        assertEquals(100, dispatcher.now());
+    }
+}
@@ -0,0 +1,175 @@
+package com.example.firsttry.remote.socket;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.example.firsttry.remote.TestCallbackDispatcher;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Random;
+
+// 用虚拟时钟和假的 Transport 模拟 Socket.IO 服务端，验证退避、jitter 和暂停/恢复
+public class ReconnectControllerTest {
+
+    private static final long BASE_MS = 1000;
+    private static final long MAX_MS = 60_000;
+
+    private TestCallbackDispatcher dispatcher;
+    private FakeTransport transport;
+    private ReconnectController controller;
+
+    // 记录 open/close 次数；服务端"接受"或"拒绝"由测试调用 onConnected / onDisconnected 决定
+    private static class FakeTransport implements ReconnectController.Transport {
+        int opens;
+        int closes;
+
+        @Override
+        public void open() {
+            opens++;
+        }
+
+        @Override
+        public void close() {
+            closes++;
+        }
+    }
+
+    @Before
+    public void setUp() {
+        dispatcher = new TestCallbackDispatcher();
+        transport = new FakeTransport();
+        controller = newController(new Random(42));
+    }
+
+    private ReconnectController newController(Random random) {
+        return new ReconnectController(transport, dispatcher, dispatcher::now, random, BASE_MS, MAX_MS);
+    }
+
+    @Test
+    public void startOpensImmediatelyAndConnects() {
+        controller.start();
+        assertEquals(1, transport.opens);
+        assertEquals(ReconnectController.State.CONNECTING, controller.getState());
+
+        controller.onConnected();
+        assertEquals(ReconnectController.State.CONNECTED, controller.getState());
+        assertEquals(0, dispatcher.pendingCount());
+    }
+
+    @Test
+    public void retriesBackOffExponentiallyWithinJitterBoundsAndCap() {
+        controller.start();
+        long expectedMax = BASE_MS;
+        for (int attempt = 0; attempt < 12; attempt++) {
+            long before = dispatcher.now();
+            controller.onDisconnected();
+            assertEquals(ReconnectController.State.WAITING, controller.getState());
+
+            // 到期前不会重连
+            int opens = transport.opens;
+            long delay = advanceUntilOpen(opens);
+            long cap = Math.min(expectedMax, MAX_MS);
+            assertTrue("attempt " + attempt + " delay " + delay + " < " + cap / 2, delay >= cap / 2);
+            assertTrue("attempt " + attempt + " delay " + delay + " > " + cap, delay <= cap);
+            assertEquals(before + delay, dispatcher.now());
+            expectedMax *= 2;
+        }
+    }
+
+    @Test
+    public void jitterStaysInsideHalfToFullDelayForManySeeds() {
+        for (int seed = 0; seed < 200; seed++) {
+            ReconnectController c = newController(new Random(seed));
+            long delay = c.nextDelay();
+            assertTrue(delay >= BASE_MS / 2 && delay <= BASE_MS);
+        }
+    }
+
+    @Test
+    public void successfulConnectResetsBackoff() {
+        controller.start();
+        controller.onDisconnected();
+        advanceUntilOpen(transport.opens);
+        controller.onDisconnected();
+        advanceUntilOpen(transport.opens);
+        controller.onConnected();
+
+        controller.onDisconnected();
+        long delay = advanceUntilOpen(transport.opens);
+        assertTrue(delay <= BASE_MS);
+    }
+
+    @Test
+    public void duplicateDisconnectEventsScheduleOneRetry() {
+        controller.start();
+        controller.onDisconnected();
+        controller.onDisconnected();
+        controller.onDisconnected();
+        assertEquals(1, dispatcher.pendingCount());
+
+        dispatcher.advanceBy(MAX_MS);
+        assertEquals(2, transport.opens);
+    }
+
+    @Test
+    public void backgroundPausesPendingRetryAndForegroundReconnectsImmediately() {
+        controller.start();
+        controller.onDisconnected();
+        assertEquals(ReconnectController.State.WAITING, controller.getState());
+
+        controller.setForeground(false);
+        assertEquals(ReconnectController.State.PAUSED, controller.getState());
+        assertEquals(0, dispatcher.pendingCount());
+        dispatcher.advanceBy(10 * MAX_MS);
+        assertEquals(1, transport.opens);
+
+        controller.setForeground(true);
+        assertEquals(ReconnectController.State.CONNECTING, controller.getState());
+        assertEquals(2, transport.opens);
+    }
+
+    @Test
+    public void disconnectWithoutNetworkPausesUntilNetworkReturns() {
+        controller.start();
+        controller.onConnected();
+        controller.setNetworkAvailable(false);
+        // 已建立的连接保留
+        assertEquals(ReconnectController.State.CONNECTED, controller.getState());
+
+        controller.onDisconnected();
+        assertEquals(ReconnectController.State.PAUSED, controller.getState());
+        assertEquals(0, dispatcher.pendingCount());
+
+        controller.setNetworkAvailable(true);
+        assertEquals(ReconnectController.State.CONNECTING, controller.getState());
+        assertEquals(2, transport.opens);
+    }
+
+    @Test
+    public void stopCancelsRetryAndClosesConnection() {
+        controller.start();
+        controller.onConnected();
+        controller.stop();
+        assertEquals(ReconnectController.State.IDLE, controller.getState());
+        assertEquals(1, transport.closes);
+
+        controller.start();
+        controller.onDisconnected();
+        controller.stop();
+        assertEquals(0, dispatcher.pendingCount());
+        // 等待中没有连接可关
+        assertEquals(1, transport.closes);
+    }
+
+    // 逐毫秒推进虚拟时间直到发生下一次 open，返回经过的时间
+    private long advanceUntilOpen(int opensBefore) {
+        long start = dispatcher.now();
+        while (transport.opens == opensBefore) {
+            assertTrue("no reconnect scheduled", dispatcher.pendingCount() > 0);
+            dispatcher.advanceBy(1);
+        }
+        return dispatcher.now() - start;
+    }
+}
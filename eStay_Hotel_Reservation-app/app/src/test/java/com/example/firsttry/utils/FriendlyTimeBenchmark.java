@@ -0,0 +1,64 @@
+package com.example.firsttry.utils;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+/**
+ * 消息列表绑定一屏 200 行时间：旧实现每行解析字符串并取一次"现在"，
+ * 新实现用入库时解析好的毫秒值，"现在"和日期边界按分钟缓存，结果走 LRU。
+ * 另测一组超过 LRU 容量的不同时间，看缓存全部未命中时的开销。
+ * 运行：./gradlew :app:testDebugUnitTest -Pestay.benchmark=true --tests '*FriendlyTimeBenchmark'
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 34)
+public class FriendlyTimeBenchmark {
+
+    private static final int ROWS = 200;
+
+    @Test
+    public void bindMessageList() {
+        MicroBenchmark.assumeEnabled();
+        long now = System.currentTimeMillis();
+        // 最近三天内的消息时间
+        String[] texts = new String[ROWS];
+        long[] millis = new long[ROWS];
+        for (int i = 0; i < ROWS; i++) {
+            millis[i] = now - i * 1_301_000L;
+            texts[i] = TimeUtils.formatMillis(millis[i]);
+            millis[i] = TimeUtils.parseToMillis(texts[i]);
+        }
+        long[] distinct = new long[ROWS * 10];
+        for (int i = 0; i < distinct.length; i++) {
+            distinct[i] = millis[0] - i * 61_000L;
+        }
+        FriendlyTimeFormatter formatter = FriendlyTimeFormatter.getInstance();
+
+        MicroBenchmark.measure("legacy: parse + now per row", () -> {
+            String last = null;
+            for (String text : texts) {
+                last = LegacyFriendlyTime.format(text, System.currentTimeMillis());
+            }
+            return last;
+        });
+        MicroBenchmark.measure("cached formatter, rebind", () -> {
+            String last = null;
+            for (long t : millis) {
+                last = formatter.format(t);
+            }
+            return last;
+        });
+        int[] offset = {0};
+        MicroBenchmark.measure("cached formatter, all misses", () -> {
+            String last = null;
+            // 轮流使用 2000 个不同时间，256 项的 LRU 始终命中不了
+            for (int i = 0; i < ROWS; i++) {
+                last = formatter.format(distinct[offset[0]]);
+                offset[0] = (offset[0] + 1) % distinct.length;
+            }
+            return last;
+        });
+        System.out.println(formatter.getStats());
+    }
+}
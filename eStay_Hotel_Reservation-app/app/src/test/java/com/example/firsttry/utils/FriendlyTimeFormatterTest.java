@@ -0,0 +1,108 @@
+package com.example.firsttry.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+// 固定时钟下的各个边界：刚刚 / N分钟前 / 今天 / 昨天 / 今年 / 往年，跨零点、跨年，以及 LRU
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 34)
+public class FriendlyTimeFormatterTest {
+
+    private long nowMs = at("2024-05-10 15:30:00");
+    private final FriendlyTimeFormatter formatter = new FriendlyTimeFormatter(() -> nowMs);
+
+    @Test
+    public void relativeMinutes() {
+        assertEquals("刚刚", format("2024-05-10 15:29:01"));
+        assertEquals("1分钟前", format("2024-05-10 15:29:00"));
+        assertEquals("59分钟前", format("2024-05-10 14:31:00"));
+        // 未来时间（时钟偏差）按刚刚处理
+        assertEquals("刚刚", format("2024-05-10 16:00:00"));
+    }
+
+    @Test
+    public void todayYesterdayThisYearOtherYear() {
+        assertEquals("14:30", format("2024-05-10 14:30:00"));
+        assertEquals("00:00", format("2024-05-10 00:00:00"));
+        assertEquals("昨天 23:59", format("2024-05-09 23:59:59"));
+        assertEquals("昨天 00:00", format("2024-05-09 00:00:00"));
+        assertEquals("05-08", format("2024-05-08 23:59:59"));
+        assertEquals("01-01", format("2024-01-01 00:00:00"));
+        assertEquals("2023-12-31", format("2023-12-31 23:59:59"));
+    }
+
+    @Test
+    public void crossingMidnightMovesTodayToYesterday() {
+        nowMs = at("2024-05-10 23:59:00");
+        String before = format("2024-05-10 22:00:00");
+        nowMs = at("2024-05-11 00:00:30");
+        String after = format("2024-05-10 22:00:00");
+
+        assertEquals("22:00", before);
+        // 新的 tick 丢弃了上一分钟缓存的结果
+        assertEquals("昨天 22:00", after);
+        // 正好 60 分钟前已经不算"分钟前"
+        assertEquals("昨天 23:00", format("2024-05-10 23:00:00"));
+    }
+
+    @Test
+    public void crossingNewYear() {
+        nowMs = at("2024-01-01 00:30:00");
+        assertEquals("昨天 20:00", format("2023-12-31 20:00:00"));
+        assertEquals("2023-12-30", format("2023-12-30 12:00:00"));
+        assertEquals("30分钟前", format("2024-01-01 00:00:00"));
+    }
+
+    @Test
+    public void sameTickReusesNowAndDayBoundaries() {
+        // tick 按整分钟取整："现在"是 15:30:00，分钟数只会偏小，不会偏大
+        nowMs = at("2024-05-10 15:30:59");
+        assertEquals("4分钟前", format("2024-05-10 15:25:30"));
+    }
+
+    @Test
+    public void matchesLegacyFormatterOnMinuteBoundaries() {
+        String[] nows = {"2024-05-10 15:30:00", "2024-05-10 00:00:00", "2024-01-01 00:10:00", "2024-03-01 08:00:00"};
+        for (String now : nows) {
+            nowMs = at(now);
+            // 往前两年内每隔 37 分钟 17 秒取一个时间点
+            for (long t = nowMs + 120_000; t > nowMs - 2L * 366 * 86_400_000; t -= 2_237_000) {
+                String text = TimeUtils.formatMillis(t);
+                assertEquals(now + " vs " + text, LegacyFriendlyTime.format(text, nowMs), formatter.format(t));
+            }
+        }
+    }
+
+    @Test
+    public void repeatedTimesHitLruAndSizeIsBounded() {
+        long t = at("2024-05-01 10:00:00");
+        formatter.format(t);
+        formatter.format(t);
+        formatter.format(t);
+        assertTrue(formatter.getStats(), formatter.getStats().startsWith("hits=2, misses=1"));
+
+        for (int i = 0; i < 1000; i++) {
+            formatter.format(t - i * 60_000L);
+        }
+        assertTrue(formatter.getStats(), formatter.getStats().endsWith("size=256"));
+    }
+
+    @Test
+    public void nonPositiveMillisIsEmpty() {
+        assertEquals("", formatter.format(0));
+        assertEquals("", formatter.format(-1));
+    }
+
+    private String format(String time) {
+        return formatter.format(at(time));
+    }
+
+    private static long at(String time) {
+        return TimeUtils.parseToMillis(time);
+    }
+}
@@ -0,0 +1,52 @@
+package com.example.firsttry.utils;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.ChronoUnit;
+
+// 缓存之前的 TimeUtils.formatFriendlyTime(String)：每次调用都解析字符串、重新取"现在"。
+// "现在"改成参数传入，测试里用来核对新实现的输出，基准测试里作为对照
+final class LegacyFriendlyTime {
+
+    private static final ZoneId ZONE_SHANGHAI = ZoneId.of("Asia/Shanghai");
+    private static final DateTimeFormatter INPUT_FORMATTER_DASH = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    private static final DateTimeFormatter TIME_FORMATTER = DateTimeFormatter.ofPattern("HH:mm");
+    private static final DateTimeFormatter MONTH_DAY_FORMATTER = DateTimeFormatter.ofPattern("MM-dd");
+    private static final DateTimeFormatter FULL_DATE_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd");
+
+    private LegacyFriendlyTime() {}
+
+    static String format(String timeString, long nowMs) {
+        if (timeString == null || timeString.isEmpty()) {
+            return "";
+        }
+        LocalDateTime messageTime;
+        try {
+            messageTime = LocalDateTime.parse(timeString, INPUT_FORMATTER_DASH);
+        } catch (DateTimeParseException e) {
+            return timeString;
+        }
+        LocalDateTime now = LocalDateTime.ofInstant(Instant.ofEpochMilli(nowMs), ZONE_SHANGHAI);
+
+        long seconds = ChronoUnit.SECONDS.between(messageTime, now);
+        if (seconds < 0) seconds = 0;
+        if (seconds < 60) return "刚刚";
+
+        long minutes = seconds / 60;
+        if (minutes < 60) return minutes + "分钟前";
+
+        if (messageTime.toLocalDate().equals(now.toLocalDate())) {
+            return messageTime.format(TIME_FORMATTER);
+        }
+        if (messageTime.toLocalDate().equals(now.toLocalDate().minusDays(1))) {
+            return "昨天 " + messageTime.format(TIME_FORMATTER);
+        }
+        if (messageTime.getYear() == now.getYear()) {
+            return messageTime.format(MONTH_DAY_FORMATTER);
+        }
+        return messageTime.format(FULL_DATE_FORMATTER);
+    }
+}
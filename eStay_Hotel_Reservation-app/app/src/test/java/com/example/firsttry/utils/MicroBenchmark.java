@@ -0,0 +1,94 @@
+package com.example.firsttry.utils;
+
+import org.junit.Assume;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Locale;
+import java.util.concurrent.Callable;
+
+/**
+ * JVM 单元测试里用的简易微基准（项目没有引入 JMH）：先预热，再在固定时长内重复执行，
+ * 报告每次操作的平均耗时和当前线程分配的字节数（HotSpot 的 ThreadMXBean）。
+ * 基准测试默认跳过，运行方式：
+ * ./gradlew :app:testDebugUnitTest -Pestay.benchmark=true --tests '*Benchmark'
+ * 结果只用于比较同一台机器上的两种实现，不代表真机上的绝对数值。
+ */
+public final class MicroBenchmark {
+
+    public static final String ENABLED_PROPERTY = "estay.benchmark";
+
+    // 防止 JIT 把结果没被使用的操作整个消除
+    private static volatile Object sink;
+
+    private MicroBenchmark() {}
+
+    // 在基准测试方法开头调用；没有开启时跳过（不算失败）
+    public static void assumeEnabled() {
+        Assume.assumeTrue("基准测试未开启（-Pestay.benchmark=true）", Boolean.getBoolean(ENABLED_PROPERTY));
+    }
+
+    public static final class Result {
+        public final String name;
+        public final long operations;
+        public final double nanosPerOp;
+        // 不支持线程分配统计的 JVM 上为 -1
+        public final double bytesPerOp;
+
+        Result(String name, long operations, double nanosPerOp, double bytesPerOp) {
+            this.name = name;
+            this.operations = operations;
+            this.nanosPerOp = nanosPerOp;
+            this.bytesPerOp = bytesPerOp;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.ROOT, "%-40s %12.1f us/op %14.0f B/op  (%d ops)",
+                    name, nanosPerOp / 1000.0, bytesPerOp, operations);
+        }
+    }
+
+    public static Result measure(String name, Callable<?> op) {
+        return measure(name, 500, 1000, op);
+    }
+
+    // 预热 warmupMs 毫秒，再测量 measureMs 毫秒（至少 3 次），打印并返回结果
+    public static Result measure(String name, long warmupMs, long measureMs, Callable<?> op) {
+        try {
+            runFor(warmupMs, 1, op);
+            long bytesBefore = allocatedBytes();
+            long start = System.nanoTime();
+            long ops = runFor(measureMs, 3, op);
+            long elapsed = System.nanoTime() - start;
+            long bytesAfter = allocatedBytes();
+            double bytesPerOp = bytesBefore < 0 ? -1 : (double) (bytesAfter - bytesBefore) / ops;
+            Result result = new Result(name, ops, (double) elapsed / ops, bytesPerOp);
+            System.out.println(result);
+            return result;
+        } catch (Exception e) {
+            throw new AssertionError(name + " failed", e);
+        }
+    }
+
+    private static long runFor(long durationMs, long minOps, Callable<?> op) throws Exception {
+        long deadline = System.nanoTime() + durationMs * 1_000_000L;
+        long ops = 0;
+        while (ops < minOps || System.nanoTime() < deadline) {
+            sink = op.call();
+            ops++;
+        }
+        return ops;
+    }
+
+    private static long allocatedBytes() {
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean) {
+            com.sun.management.ThreadMXBean hotspot = (com.sun.management.ThreadMXBean) bean;
+            if (hotspot.isThreadAllocatedMemorySupported() && hotspot.isThreadAllocatedMemoryEnabled()) {
+                return hotspot.getThreadAllocatedBytes(Thread.currentThread().getId());
+            }
+        }
+        return -1;
+    }
+}
@@ -1,58 +1,42 @@
 import { validationResult } from 'express-validator';
 import Message from '../models/Message.js';
+import { syncMessages } from './messageSync.js';
 import User from '../models/User.js';
 import { io } from '../server.js';
 
 // 获取用户消息列表
+// 传 since（epoch 毫秒）时走增量同步（见 messageSync.js）：只返回 createdAt >= since 的消息，按时间正序，
+// 客户端以本页最后一条的时间作为下一次的 since、本页落在该时间上的条数作为 skip 继续拉取；
+// peer 为对方用户 id 时只返回与该用户之间的消息
 export const getMessages = async (req, res) => {
   try {
-    const { page = 1, limit = 20 } = req.query;
+    const { page = 1, limit = 20, since } = req.query;
     const skip = (page - 1) * limit;
 
-    // 获取当前用户的所有消息（包括发送和接收的）
-    const messages = await Message.find({
+    if (since !== undefined) {
+      const result = await syncMessages(Message, req.user._id, req.query, formatMessage);
+      return res.status(result.status).json(result.body);
+    }
+
+    const ownMessages = {
       $or: [
         { senderId: req.user._id },
         { receiverId: req.user._id }
       ]
-    })
+    };
+
+    // 获取当前用户的所有消息（包括发送和接收的）
+    const messages = await Message.find(ownMessages)
       .populate('senderId', 'username email')
       .populate('receiverId', 'username email')
       .sort({ createdAt: -1 })
       .skip(skip)
       .limit(parseInt(limit));
 
-    const total = await Message.countDocuments({
-      $or: [
-        { senderId: req.user._id },
-        { receiverId: req.user._id }
-      ]
-    });
-
-    // 转换消息格式，确保每个消息都有字符串形式的用户ID
-    const formattedMessages = messages.map(message => {
-      const messageObj = message.toObject();
-      return {
-        ...messageObj,
-        // 将senderId和receiverId同时作为对象和字符串提供
-        senderId: {
-          _id: messageObj.senderId._id,
-          username: messageObj.senderId.username,
-          email: messageObj.senderId.email
-        },
-        receiverId: {
-          _id: messageObj.receiverId._id,
-          username: messageObj.receiverId.username,
-          email: messageObj.receiverId.email
-        },
-        // 添加字符串形式的ID，方便前端比较
-        senderIdStr: messageObj.senderId._id.toString(),
-        receiverIdStr: messageObj.receiverId._id.toString()
-      };
-    });
+    const total = await Message.countDocuments(ownMessages);
 
     res.json({
-      messages: formattedMessages,
+      messages: messages.map(formatMessage),
       pagination: {
         page: parseInt(page),
         limit: parseInt(limit),
@@ -65,6 +49,35 @@ export const getMessages = async (req, res) => {
   }
 };
 
+// 转换消息格式，确保包含字符串形式的用户ID
+const formatMessage = (populatedMessage) => {
+  const messageObj = populatedMessage.toObject();
+  return {
+    ...messageObj,
+    // 将senderId和receiverId同时作为对象和字符串提供
+    senderId: {
+      _id: messageObj.senderId._id,
+      username: messageObj.senderId.username,
+      email: messageObj.senderId.email
+    },
+    receiverId: {
+      _id: messageObj.receiverId._id,
+      username: messageObj.receiverId.username,
+      email: messageObj.receiverId.email
+    },
+    // 添加字符串形式的ID，方便前端比较
+    senderIdStr: messageObj.senderId._id.toString(),
+    receiverIdStr: messageObj.receiverId._id.toString()
+  };
+};
+
+const findByClientMsgId = async (senderId, clientMsgId) => {
+  const existing = await Message.findOne({ senderId, clientMsgId })
+    .populate('senderId', 'username email')
+    .populate('receiverId', 'username email');
+  return existing ? formatMessage(existing) : null;
+};
+
 // 发送消息
 export const sendMessage = async (req, res) => {
   try {
@@ -74,6 +87,7 @@ export const sendMessage = async (req, res) => {
     }
 
     const { receiverId, content } = req.body;
+    const clientMsgId = typeof req.body.clientMsgId === 'string' && req.body.clientMsgId ? req.body.clientMsgId : null;
     
     // 获取发送者和接收者的用户信息
     const sender = await User.findById(req.user._id).select('role');
@@ -92,39 +106,45 @@ export const sendMessage = async (req, res) => {
       return res.status(403).json({ message: 'Messages can only be sent between users and merchants' });
     }
 
+    // 客户端重发（之前的请求已落库但响应丢失）：直接返回已有消息，不重复保存和推送
+    if (clientMsgId) {
+      const existing = await findByClientMsgId(req.user._id, clientMsgId);
+      if (existing) {
+        return res.status(200).json({
+          message: 'Message already received',
+          data: existing
+        });
+      }
+    }
+
     // 创建新消息
     const message = new Message({
       senderId: req.user._id,
       receiverId,
-      content
+      content,
+      ...(clientMsgId ? { clientMsgId } : {})
     });
 
-    await message.save();
+    try {
+      await message.save();
+    } catch (saveError) {
+      // 并发重发撞上唯一索引：以先保存的那条为准
+      if (saveError.code === 11000 && clientMsgId) {
+        const existing = await findByClientMsgId(req.user._id, clientMsgId);
+        return res.status(200).json({
+          message: 'Message already received',
+          data: existing
+        });
+      }
+      throw saveError;
+    }
 
     // 填充用户信息并返回
     const populatedMessage = await Message.findById(message._id)
       .populate('senderId', 'username email')
       .populate('receiverId', 'username email');
 
-    // 转换消息格式，确保包含字符串形式的用户ID
-    const messageObj = populatedMessage.toObject();
-    const formattedMessage = {
-      ...messageObj,
-      // 将senderId和receiverId同时作为对象和字符串提供
-      senderId: {
-        _id: messageObj.senderId._id,
-        username: messageObj.senderId.username,
-        email: messageObj.senderId.email
-      },
-      receiverId: {
-        _id: messageObj.receiverId._id,
-        username: messageObj.receiverId.username,
-        email: messageObj.receiverId.email
-      },
-      // 添加字符串形式的ID，方便前端比较
-      senderIdStr: messageObj.senderId._id.toString(),
-      receiverIdStr: messageObj.receiverId._id.toString()
-    };
+    const formattedMessage = formatMessage(populatedMessage);
 
     // 通过WebSocket发送实时消息通知
     const receiverIdStr = receiverId.toString();
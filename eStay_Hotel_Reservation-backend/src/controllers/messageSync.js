@@ -0,0 +1,57 @@
+// 消息增量同步（GET /api/messages?since=）
+// 单独成文件、模型由调用方传入：不依赖 server.js 和数据库连接，可以直接用 node --test 测试
+
+// 增量同步单页上限
+export const MAX_SYNC_LIMIT = 500;
+
+const OBJECT_ID_PATTERN = /^[0-9a-fA-F]{24}$/;
+
+// 只返回 createdAt >= since 的消息，按 (createdAt, _id) 正序；
+// skip 跳过排在最前面的若干条：客户端用它越过水位边界上已经拿到的消息（整页同一毫秒时不会原地打转）；
+// peer 为对方用户 id 时只返回与该用户之间的消息。
+// 返回 { status, body }
+export const syncMessages = async (MessageModel, userId, query, formatMessage) => {
+  const { since, limit, peer, skip } = query;
+
+  const sinceMs = Number(since);
+  if (!Number.isFinite(sinceMs) || sinceMs < 0) {
+    return { status: 400, body: { message: 'Invalid since' } };
+  }
+  const syncSkip = skip === undefined ? 0 : Number(skip);
+  if (!Number.isInteger(syncSkip) || syncSkip < 0) {
+    return { status: 400, body: { message: 'Invalid skip' } };
+  }
+  const syncLimit = Math.min(Math.max(parseInt(limit) || 1, 1), MAX_SYNC_LIMIT);
+
+  const filter = {
+    $or: [
+      { senderId: userId },
+      { receiverId: userId }
+    ],
+    createdAt: { $gte: new Date(sinceMs) }
+  };
+  if (peer) {
+    if (typeof peer !== 'string' || !OBJECT_ID_PATTERN.test(peer)) {
+      return { status: 400, body: { message: 'Invalid peer' } };
+    }
+    filter.$or = [
+      { senderId: userId, receiverId: peer },
+      { senderId: peer, receiverId: userId }
+    ];
+  }
+
+  // 多取一条判断是否还有下一页，不需要 countDocuments
+  const messages = await MessageModel.find(filter)
+    .populate('senderId', 'username email')
+    .populate('receiverId', 'username email')
+    .sort({ createdAt: 1, _id: 1 })
+    .skip(syncSkip)
+    .limit(syncLimit + 1);
+  return {
+    status: 200,
+    body: {
+      messages: messages.slice(0, syncLimit).map(formatMessage),
+      hasMore: messages.length > syncLimit
+    }
+  };
+};
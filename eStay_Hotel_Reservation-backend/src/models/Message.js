@@ -15,6 +15,10 @@ const messageSchema = new mongoose.Schema({
     type: String,
     required: true
   },
+  // 客户端生成的消息 id，重发同一条消息时用于去重
+  clientMsgId: {
+    type: String
+  },
   isRead: {
     type: Boolean,
     default: false
@@ -25,4 +29,14 @@ const messageSchema = new mongoose.Schema({
   }
 });
 
+// 增量同步按 (用户, createdAt) 范围查询
+messageSchema.index({ senderId: 1, createdAt: 1 });
+messageSchema.index({ receiverId: 1, createdAt: 1 });
+
+// 同一发送者的 clientMsgId 唯一；旧消息没有 clientMsgId，不参与唯一约束
+messageSchema.index(
+  { senderId: 1, clientMsgId: 1 },
+  { unique: true, partialFilterExpression: { clientMsgId: { $type: 'string' } } }
+);
+
 export default mongoose.model('Message', messageSchema);
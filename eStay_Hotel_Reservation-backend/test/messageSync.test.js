@@ -0,0 +1,116 @@
+// node --test test/messageSync.test.js
+// 用内存里的假模型代替 Mongoose，验证 getMessages?since= 的过滤、排序、分页和参数校验
+import { test } from 'node:test';
+import assert from 'node:assert/strict';
+import { syncMessages, MAX_SYNC_LIMIT } from '../src/controllers/messageSync.js';
+
+const ME = 'aaaaaaaaaaaaaaaaaaaaaaaa';
+const PEER = 'bbbbbbbbbbbbbbbbbbbbbbbb';
+const OTHER = 'cccccccccccccccccccccccc';
+
+const matches = (doc, cond) => Object.entries(cond).every(([key, value]) => {
+  if (key === '$or') return value.some((alt) => matches(doc, alt));
+  if (value && value.$gte !== undefined) return doc[key] >= value.$gte;
+  return doc[key] === value;
+});
+
+// 只实现 syncMessages 用到的查询链：find → populate → sort → skip → limit
+const fakeModel = (docs) => {
+  const calls = [];
+  return {
+    calls,
+    find(filter) {
+      calls.push({ filter });
+      const state = { skip: 0 };
+      const chain = {
+        populate: () => chain,
+        sort: (spec) => { state.sort = spec; return chain; },
+        skip: (n) => { state.skip = n; return chain; },
+        limit: (n) => {
+          calls[calls.length - 1].limit = n;
+          const sorted = docs.filter((doc) => matches(doc, filter))
+            .sort((a, b) => (a.createdAt - b.createdAt) || a._id.localeCompare(b._id));
+          return Promise.resolve(sorted.slice(state.skip, state.skip + n));
+        }
+      };
+      return chain;
+    }
+  };
+};
+
+const format = (doc) => ({ _id: doc._id, createdAt: doc.createdAt.toISOString() });
+
+const message = (id, ms, senderId = PEER, receiverId = ME) =>
+  ({ _id: id, senderId, receiverId, createdAt: new Date(ms) });
+
+test('returns own messages at or after since in (createdAt, _id) order', async () => {
+  const model = fakeModel([
+    message('m3', 3000),
+    message('m1', 1000),
+    message('m2b', 2000, ME, PEER),
+    message('m2a', 2000),
+    message('x', 2500, OTHER, PEER)
+  ]);
+  const { status, body } = await syncMessages(model, ME, { since: '2000', limit: '10' }, format);
+  assert.equal(status, 200);
+  assert.deepEqual(body.messages.map((m) => m._id), ['m2a', 'm2b', 'm3']);
+  assert.equal(body.hasMore, false);
+});
+
+test('fetches one extra row to compute hasMore', async () => {
+  const model = fakeModel([message('m1', 1000), message('m2', 2000), message('m3', 3000)]);
+  const { body } = await syncMessages(model, ME, { since: '0', limit: '2' }, format);
+  assert.deepEqual(body.messages.map((m) => m._id), ['m1', 'm2']);
+  assert.equal(body.hasMore, true);
+  assert.equal(model.calls[0].limit, 3);
+});
+
+test('skip pages past a boundary where a whole page shares one millisecond', async () => {
+  const docs = [];
+  for (let i = 0; i < 5; i++) docs.push(message(`same${i}`, 1000));
+  docs.push(message('later', 2000));
+  const model = fakeModel(docs);
+
+  const first = await syncMessages(model, ME, { since: '1000', limit: '3' }, format);
+  assert.deepEqual(first.body.messages.map((m) => m._id), ['same0', 'same1', 'same2']);
+  assert.equal(first.body.hasMore, true);
+
+  // 水位没有前进，客户端把 skip 加上本页条数
+  const second = await syncMessages(model, ME, { since: '1000', limit: '3', skip: '3' }, format);
+  assert.deepEqual(second.body.messages.map((m) => m._id), ['same3', 'same4', 'later']);
+  assert.equal(second.body.hasMore, false);
+});
+
+test('peer restricts to the conversation with that user', async () => {
+  const model = fakeModel([
+    message('fromPeer', 1000),
+    message('toPeer', 2000, ME, PEER),
+    message('fromOther', 3000, OTHER, ME)
+  ]);
+  const { body } = await syncMessages(model, ME, { since: '0', limit: '10', peer: PEER }, format);
+  assert.deepEqual(body.messages.map((m) => m._id), ['fromPeer', 'toPeer']);
+});
+
+test('limit is clamped to [1, MAX_SYNC_LIMIT]', async () => {
+  const model = fakeModel([]);
+  await syncMessages(model, ME, { since: '0', limit: '100000' }, format);
+  await syncMessages(model, ME, { since: '0', limit: '0' }, format);
+  await syncMessages(model, ME, { since: '0' }, format);
+  assert.deepEqual(model.calls.map((c) => c.limit), [MAX_SYNC_LIMIT + 1, 2, 2]);
+});
+
+test('rejects invalid since, skip and peer without querying', async () => {
+  const model = fakeModel([]);
+  for (const query of [
+    { since: 'abc' },
+    { since: '-1' },
+    { since: '0', skip: '-2' },
+    { since: '0', skip: '1.5' },
+    { since: '0', peer: 'not-an-id' },
+    { since: '0', peer: ['a', 'b'] }
+  ]) {
+    const { status } = await syncMessages(model, ME, query, format);
+    assert.equal(status, 400, JSON.stringify(query));
+  }
+  assert.equal(model.calls.length, 0);
+});